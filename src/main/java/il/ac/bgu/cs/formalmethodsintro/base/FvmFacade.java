@@ -1,28 +1,52 @@
 package il.ac.bgu.cs.formalmethodsintro.base;
 
 import il.ac.bgu.cs.formalmethodsintro.base.automata.Automaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.AutomatonReduction;
 import il.ac.bgu.cs.formalmethodsintro.base.automata.MultiColorAutomaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.SymbolicAutomaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.TransitionBasedAutomaton;
 import il.ac.bgu.cs.formalmethodsintro.base.channelsystem.ChannelSystem;
 import il.ac.bgu.cs.formalmethodsintro.base.channelsystem.ParserBasedInterleavingActDef;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.AigCircuit;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.AigerReader;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.BitParallelSimulator;
 import il.ac.bgu.cs.formalmethodsintro.base.circuits.Circuit;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.CircuitEncoding;
+import il.ac.bgu.cs.formalmethodsintro.base.ctl.CTL;
+import il.ac.bgu.cs.formalmethodsintro.base.ctl.CTLModelChecker;
 import il.ac.bgu.cs.formalmethodsintro.base.exceptions.ActionNotFoundException;
 import il.ac.bgu.cs.formalmethodsintro.base.exceptions.StateNotFoundException;
+import il.ac.bgu.cs.formalmethodsintro.base.fairness.FairCycleDetector;
 import il.ac.bgu.cs.formalmethodsintro.base.fairness.FairnessCondition;
+import il.ac.bgu.cs.formalmethodsintro.base.fairness.FairnessView;
 import il.ac.bgu.cs.formalmethodsintro.base.ltl.*;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.CompactProgramGraph;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.Guard;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaCompiler;
 import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaFileReader;
 import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser;
 import il.ac.bgu.cs.formalmethodsintro.base.programgraph.*;
 import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.AlternatingSequence;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.BisimulationQuotient;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.ImplicitTransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.StutterQuotient;
 import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TSTransition;
 import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
 import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
 import il.ac.bgu.cs.formalmethodsintro.base.util.Util;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.ConeOfInfluence;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.InvariantChecker;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.LargeBlockEncoding;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.LiveVariables;
 import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationFailed;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
 import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
 import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
 
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -521,8 +545,39 @@ public class FvmFacade
 		return pg;
 	}
 
+	/**
+	 * Reads a circuit from an AIGER file, ASCII or binary.
+	 *
+	 * @param filename The AIGER file.
+	 * @return Its circuit, as an And-Inverter Graph.
+	 * @throws Exception If the file cannot be read or is invalid.
+	 * @see AigerReader
+	 */
+	public AigCircuit circuitFromAiger(String filename) throws Exception
+	{
+		return AigerReader.read(filename);
+	}
+
+	/**
+	 * Reads a circuit from an AIGER stream, ASCII or binary.
+	 *
+	 * @param inputStream The AIGER stream.
+	 * @return Its circuit, as an And-Inverter Graph.
+	 * @throws Exception If the stream cannot be read or is invalid.
+	 * @see AigerReader
+	 */
+	public AigCircuit circuitFromAiger(InputStream inputStream) throws Exception
+	{
+		return AigerReader.read(inputStream);
+	}
+
 	/**
 	 * Creates a {@link TransitionSystem} representing the passed circuit.
+	 * <p>
+	 * The states are found by a breadth-first search from the initial states
+	 * (all registers off, any input valuation), and the input valuations of
+	 * each step are enumerated lazily, so only reachable states are
+	 * allocated. The search still takes {@code 2^I} steps from each of them.
 	 *
 	 * @param circuit The circuit to translate into a {@link TransitionSystem}.
 	 * @return A {@link TransitionSystem} representing {@code circuit}.
@@ -530,52 +585,137 @@ public class FvmFacade
 	public TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, String> transitionSystemFromCircuit(Circuit circuit)
 	{
 		final TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, String> ts = new TransitionSystem<>();
+		final Set<String> inputs = circuit.getInputPortNames();
+
+		// Adding all the atomic propositions.
+		Stream.of(inputs, circuit.getRegisterNames(), circuit.getOutputPortNames())
+				.flatMap(Set::stream)
+				.forEach(ts::addAtomicProposition);
 
-		// Adding all the actions.
-		Util.powerSet(circuit.getInputPortNames()).stream()
-				.map(inputsSet -> circuit.getInputPortNames().stream()
+		// Adding the initial states, one per input valuation.
+		final Map<String, Boolean> registersOff = circuit.getRegisterNames().stream()
+				.collect(Collectors.toMap(Function.identity(), register -> false, (a, b) -> b));
+		final Deque<Pair<Map<String, Boolean>, Map<String, Boolean>>> toVisit = new ArrayDeque<>();
+		Util.lazyPowerSet(inputs)
+				.map(inputsSet -> inputs.stream()
 						.collect(Collectors.toMap(Function.identity(), inputsSet::contains, (a, b) -> b)))
-				.forEach(ts::addAction);
+				.forEach(inputsMap ->
+				{
+					final Pair<Map<String, Boolean>, Map<String, Boolean>> initial = new Pair<>(inputsMap, registersOff);
+					ts.addInitialState(initial);
+					toVisit.add(initial);
+				});
 
-		// Adding all the states and initial states.
-		Util.powerSet(circuit.getRegisterNames()).stream()
-				.map(registersSet -> circuit.getRegisterNames().stream()
-						.collect(Collectors.toMap(Function.identity(), registersSet::contains, (a, b) -> b)))
-				.forEach(registersMap -> ts.getActions().stream()
-						.map(inputsMap -> new Pair<>(inputsMap, registersMap))
-						.peek(ts::addState)
-						.filter(stateEntry -> !stateEntry.getSecond().containsValue(true))
-						.forEach(ts::addInitialState));
+		// Adding the reachable states, their labels and their transitions.
+		while (!toVisit.isEmpty())
+		{
+			final Pair<Map<String, Boolean>, Map<String, Boolean>> state = toVisit.poll();
+			Stream.of(state.getFirst(), state.getSecond(), circuit.computeOutputs(state.getFirst(), state.getSecond()))
+					.map(Map::entrySet)
+					.flatMap(Set::stream)
+					.filter(Map.Entry::getValue)
+					.forEach(inputOrRegisterOrOutput -> ts.addToLabel(state, inputOrRegisterOrOutput.getKey()));
+
+			final Map<String, Boolean> registers = circuit.updateRegisters(state.getFirst(), state.getSecond());
+			Util.lazyPowerSet(inputs)
+					.map(inputsSet -> inputs.stream()
+							.collect(Collectors.toMap(Function.identity(), inputsSet::contains, (a, b) -> b)))
+					.forEach(inputsMap ->
+					{
+						final Pair<Map<String, Boolean>, Map<String, Boolean>> next = new Pair<>(inputsMap, registers);
+						if (!ts.getStates().contains(next))
+							toVisit.add(next);
+						ts.addTransition(new TSTransition<>(state, inputsMap, next));
+					});
+		}
 
-		// Adding all the transitions.
-		ts.getActions().stream()
-				.flatMap(action -> ts.getStates().stream()
-						.map(state -> new TSTransition<>(state, action, new Pair<>(action, circuit.updateRegisters(state.getFirst(), state.getSecond())))))
-				.forEach(ts::addTransition);
-
-		final Set<Pair<Map<String, Boolean>, Map<String, Boolean>>> newReachableStates = reach(ts);
-		ts.getStates().stream()
-				.filter(Predicate.not(newReachableStates::contains))
-				.peek(state -> ts.getTransitions().stream()
-						.filter(transition -> state.equals(transition.getFrom()) || state.equals(transition.getTo()))
-						.forEach(ts::removeTransition))
-				.forEach(ts::removeState);
+		return ts;
+	}
 
-		// Adding all the atomic propositions.
-		Stream.of(circuit.getInputPortNames(), circuit.getRegisterNames(), circuit.getOutputPortNames())
-				.flatMap(Set::stream)
+	/**
+	 * Creates a {@link TransitionSystem} representing the passed circuit, with
+	 * its states and actions packed into {@code long}s by {@code encoding}.
+	 * Only the reachable states are generated, by a breadth-first search from
+	 * the states whose registers are all {@code false}, a batch of states at
+	 * a time. The states and actions are those of
+	 * {@link #transitionSystemFromCircuit(Circuit)}, decoded by
+	 * {@link CircuitEncoding#decode(long)} and
+	 * {@link CircuitEncoding#decodeInputs(long)}, and so are the labels.
+	 *
+	 * @param encoding The encoding of the circuit to translate.
+	 * @return A {@link TransitionSystem} representing the circuit of
+	 * {@code encoding}.
+	 * @throws IllegalArgumentException If the circuit has 31 inputs or more:
+	 *                                  its input valuations, which are all
+	 *                                  actions, do not fit in a set.
+	 */
+	public TransitionSystem<Long, Long, String> packedTransitionSystemFromCircuit(CircuitEncoding encoding)
+	{
+		if (encoding.getInputNames().size() >= Integer.SIZE - 1)
+			throw new IllegalArgumentException("Cannot enumerate the 2^" + encoding.getInputNames().size() +
+			                                   " input valuations of a circuit");
+		final TransitionSystem<Long, Long, String> ts = new TransitionSystem<>();
+		final long actions = 1L << encoding.getInputNames().size();
+		for (long action = 0; action < actions; action++)
+			ts.addAction(action);
+		Stream.of(encoding.getInputNames(), encoding.getRegisterNames(), encoding.getOutputNames())
+				.flatMap(List::stream)
 				.forEach(ts::addAtomicProposition);
 
-		// Adding labels
-		ts.getStates().forEach(state -> Stream.of(state.getFirst(), state.getSecond(), circuit.computeOutputs(state.getFirst(), state.getSecond()))
-				.map(Map::entrySet)
-				.flatMap(Set::stream)
-				.filter(Map.Entry::getValue)
-				.forEach(inputOrRegisterOrOutput -> ts.addToLabel(state, inputOrRegisterOrOutput.getKey())));
+		final Deque<Long> toVisit = new ArrayDeque<>();
+		for (long action = 0; action < actions; action++)
+		{
+			final long state = encoding.state(action, 0);
+			ts.addInitialState(state);
+			toVisit.add(state);
+		}
+
+		final long[] batch = new long[BitParallelSimulator.LANES];
+		while (!toVisit.isEmpty())
+		{
+			int size = 0;
+			while (size < batch.length && !toVisit.isEmpty())
+				batch[size++] = toVisit.poll();
+			final long[] next = encoding.next(batch, size);
+			final long[] outputs = encoding.outputs(batch, size);
+			for (int k = 0; k < size; k++)
+			{
+				final long state = batch[k];
+				encoding.label(state, outputs[k]).forEach(ap -> ts.addToLabel(state, ap));
+				for (long action = 0; action < actions; action++)
+				{
+					final long to = encoding.state(action, next[k]);
+					if (!ts.getStates().contains(to))
+					{
+						ts.addState(to);
+						toVisit.add(to);
+					}
+					ts.addTransition(new TSTransition<>(state, action, to));
+				}
+			}
+		}
 
 		return ts;
 	}
 
+	/**
+	 * Creates a {@link TransitionSystem} representing the part of a circuit
+	 * that may affect some atomic propositions.
+	 *
+	 * @param circuit  The circuit to translate into a {@link TransitionSystem}.
+	 * @param observed The atomic propositions of the property to verify.
+	 * @param options  Receives the number of eliminated inputs, registers and
+	 *                 outputs.
+	 * @return A {@link TransitionSystem} representing the cone of influence
+	 * of {@code observed} in {@code circuit}.
+	 * @see ConeOfInfluence
+	 */
+	public TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, String> transitionSystemFromCircuit(
+			Circuit circuit, Collection<String> observed, VerificationOptions options)
+	{
+		return transitionSystemFromCircuit(ConeOfInfluence.reduce(circuit, observed, options));
+	}
+
 	/**
 	 * Creates a {@link TransitionSystem} from a program graph.
 	 *
@@ -605,15 +745,11 @@ public class FvmFacade
 		Set<Map<String, Object>> evals = new HashSet<>();
 		for (List<String> actions : pg.getInitalizations())
 		{
-//			Map<String, Object> eval = new HashMap<>();
-//			for (String action : actions)
-//				eval = ActionDef.effect(actionDefs, eval, action);
-//			evals.add(eval);
-			// TODO check, should work
-			evals.add(actions.parallelStream()
-					.reduce((Map<String, Object>) new HashMap<String, Object>(),
-							(prevResult, element) -> ActionDef.effect(actionDefs, prevResult, element),
-							(result1, result2) -> result2));
+			// in order: each action runs on the effect of the ones before it
+			Map<String, Object> eval = new HashMap<>();
+			for (String action : actions)
+				eval = ActionDef.effect(actionDefs, eval, action);
+			evals.add(eval);
 		}
 		if (evals.isEmpty())
 			evals.add(new HashMap<>());
@@ -634,9 +770,8 @@ public class FvmFacade
 		while (!states.isEmpty())
 		{
 			Pair<L, Map<String, Object>> state = states.poll();
-			pg.getTransitions().stream()
-					.filter(transition -> state.getFirst().equals(transition.getFrom()) &&
-					                      ConditionDef.evaluate(conditionDefs, state.getSecond(), transition.getCondition()))
+			pg.getTransitionsFrom(state.getFirst()).stream()
+					.filter(transition -> ConditionDef.evaluate(conditionDefs, state.getSecond(), transition.getCondition()))
 					.forEach(transition ->
 					{
 						Map<String, Object> effect = ActionDef.effect(actionDefs, state.getSecond(), transition.getAction());
@@ -648,8 +783,7 @@ public class FvmFacade
 								ts.addState(to);
 								states.add(to);
 							}
-							if (ConditionDef.evaluate(conditionDefs, state.getSecond(), transition.getCondition()))
-								ts.addTransition(new TSTransition<>(state, transition.getAction(), to));
+							ts.addTransition(new TSTransition<>(state, transition.getAction(), to));
 						}
 					});
 		}
@@ -675,19 +809,104 @@ public class FvmFacade
 						ts.addAtomicProposition(state.getFirst().toString());
 						ts.addToLabel(state, state.getFirst().toString());
 					}
-					// TODO why pg.getTransitions()?
-					pg.getTransitions().stream()
-							.flatMap(transition -> state.getSecond().keySet().stream())
-							.forEach(key ->
-							{
-								ts.addAtomicProposition(key + " = " + state.getSecond().get(key));
-								ts.addToLabel(state, key + " = " + state.getSecond().get(key));
-							});
+					// the variables label the states of a graph with transitions only
+					if (!pg.getTransitions().isEmpty())
+						state.getSecond().forEach((key, value) ->
+						{
+							ts.addAtomicProposition(key + " = " + value);
+							ts.addToLabel(state, key + " = " + value);
+						});
 				});
 
 		return ts;
 	}
 
+	/**
+	 * Creates a {@link TransitionSystem} from a program graph, tracking only
+	 * the variables that may affect some atomic propositions.
+	 *
+	 * @param <L>           Type of program graph locations.
+	 * @param pg            The program graph to be translated into a
+	 *                      transition system.
+	 * @param actionDefs    Defines the effect of each action.
+	 * @param conditionDefs Defines the conditions (guards) of the program
+	 *                      graph.
+	 * @param observed      The atomic propositions of the property to verify.
+	 * @param options       Receives the number of eliminated variables. With
+	 *                      {@link VerificationOptions#largeBlockEncoding(boolean)},
+	 *                      chains of local steps are merged, and with
+	 *                      {@link VerificationOptions#resetDeadVariables(boolean)},
+	 *                      the variables that are dead at the location of a
+	 *                      state are reset too; with either, the number of
+	 *                      states after is reported, and with
+	 *                      {@link VerificationOptions#measureUnreduced(boolean)}
+	 *                      also the number before, by a second exploration.
+	 * @return A transition system representing {@code pg}, without the
+	 * variables outside the cone of influence of {@code observed}.
+	 * @see ConeOfInfluence
+	 * @see LargeBlockEncoding
+	 * @see LiveVariables
+	 */
+	public <L> TransitionSystem<Pair<L, Map<String, Object>>, String, String> transitionSystemFromProgramGraph(
+			ProgramGraph<L, String> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+			Collection<String> observed, VerificationOptions options)
+	{
+		final ProgramGraph<L, String> sliced = ConeOfInfluence.reduce(pg, observed, options);
+		if (!options.isResetDeadVariables() && !options.isLargeBlockEncoding())
+			return transitionSystemFromProgramGraph(sliced, actionDefs, conditionDefs);
+
+		final ProgramGraph<L, String> reduced = options.isLargeBlockEncoding() ?
+				LargeBlockEncoding.reduce(sliced, observed, options) :
+				sliced;
+		final TransitionSystem<Pair<L, Map<String, Object>>, String, String> ts;
+		if (options.isResetDeadVariables())
+		{
+			final LiveVariables<L> live = LiveVariables.of(reduced, observed);
+			ts = explore(new ProgramGraphStateSpace<>(reduced, actionDefs, conditionDefs, live::canonicalize));
+		} else
+			ts = explore(new ProgramGraphStateSpace<>(reduced, actionDefs, conditionDefs));
+
+		if (options.isMeasureUnreduced())
+		{
+			final VerificationOptions count = new VerificationOptions();
+			InvariantChecker.check(new ProgramGraphStateSpace<>(sliced, actionDefs, conditionDefs), label -> true, count);
+			options.report(VerificationOptions.PROGRAM_STATES_BEFORE, count.getStatistics().get(VerificationOptions.STATES_VISITED));
+		}
+		options.report(VerificationOptions.PROGRAM_STATES_AFTER, ts.getStates().size());
+		return ts;
+	}
+
+	/**
+	 * @return The reachable part of {@code implicit}, as a transition system.
+	 */
+	private <S, A, P> TransitionSystem<S, A, P> explore(ImplicitTransitionSystem<S, A, P> implicit)
+	{
+		final TransitionSystem<S, A, P> ts = new TransitionSystem<>();
+		final Deque<S> toVisit = new ArrayDeque<>();
+		implicit.getInitialStates().forEach(s ->
+		{
+			ts.addInitialState(s);
+			toVisit.add(s);
+		});
+		final Set<S> visited = new HashSet<>(toVisit);
+		while (!toVisit.isEmpty())
+		{
+			final S state = toVisit.poll();
+			implicit.getLabel(state).forEach(p ->
+			{
+				ts.addAtomicProposition(p);
+				ts.addToLabel(state, p);
+			});
+			implicit.getTransitionsFrom(state).forEach(transition ->
+			{
+				ts.addTransition(transition);
+				if (visited.add(transition.getTo()))
+					toVisit.add(transition.getTo());
+			});
+		}
+		return ts;
+	}
+
 	/**
 	 * Creates a transition system representing channel system {@code cs}.
 	 *
@@ -706,6 +925,67 @@ public class FvmFacade
 			ChannelSystem<L, A> cs,
 			Set<ActionDef> actions,
 			Set<ConditionDef> conditions)
+	{
+		return transitionSystemFromProgramGraph(programGraphFromChannelSystem(cs), interleavingActionDefs(), Collections.singleton(new ParserBasedCondDef()));
+//        throw new java.lang.UnsupportedOperationException();
+	}
+
+	/**
+	 * Creates a transition system representing channel system {@code cs},
+	 * for checking a property over {@code observed}.
+	 *
+	 * @param <L>      Type of locations in the channel system.
+	 * @param cs       The channel system to be translated into a transition
+	 *                 system.
+	 * @param observed The atomic propositions of the property to verify.
+	 * @param options  With
+	 *                 {@link VerificationOptions#largeBlockEncoding(boolean)},
+	 *                 chains of local steps of each program graph are merged
+	 *                 first, and the numbers of merged locations and of
+	 *                 states after are reported; with
+	 *                 {@link VerificationOptions#measureUnreduced(boolean)}
+	 *                 also the number of states before, by a second
+	 *                 exploration.
+	 * @return A transition system representing {@code cs}.
+	 * @see LargeBlockEncoding
+	 */
+	public <L> TransitionSystem<Pair<List<L>, Map<String, Object>>, String, String> transitionSystemFromChannelSystem(
+			ChannelSystem<L, String> cs, Collection<String> observed, VerificationOptions options)
+	{
+		if (!options.isLargeBlockEncoding())
+			return transitionSystemFromChannelSystem(cs);
+
+		final TransitionSystem<Pair<List<L>, Map<String, Object>>, String, String> ts =
+				transitionSystemFromChannelSystem(LargeBlockEncoding.reduce(cs, observed, options));
+
+		if (options.isMeasureUnreduced())
+		{
+			final VerificationOptions count = new VerificationOptions();
+			InvariantChecker.check(new ProgramGraphStateSpace<>(programGraphFromChannelSystem(cs), interleavingActionDefs(),
+					Collections.singleton(new ParserBasedCondDef())), label -> true, count);
+			options.report(VerificationOptions.PROGRAM_STATES_BEFORE, count.getStatistics().get(VerificationOptions.STATES_VISITED));
+		}
+		options.report(VerificationOptions.PROGRAM_STATES_AFTER, ts.getStates().size());
+		return ts;
+	}
+
+	/**
+	 * @return The action definitions of the program graph of a channel
+	 * system: interleaving (handshake and channel) actions first.
+	 */
+	private Set<ActionDef> interleavingActionDefs()
+	{
+		Set<ActionDef> actionDefs = new LinkedHashSet<>();
+		actionDefs.add(new ParserBasedInterleavingActDef());
+		actionDefs.add(new ParserBasedActDef());
+		return actionDefs;
+	}
+
+	/**
+	 * @return The program graph of the interleaving of the program graphs of
+	 * {@code cs}, whose locations are lists of locations.
+	 */
+	private <L, A> ProgramGraph<List<L>, A> programGraphFromChannelSystem(ChannelSystem<L, A> cs)
 	{
 		ProgramGraph<List<L>, A> pg = new ProgramGraph<>();
 
@@ -736,15 +1016,7 @@ public class FvmFacade
 		// rest pg-s
 		for (int i = 1 /*why not 0??*/; i < cs.getProgramGraphs().size(); i++)
 			pg = addProgramGraphs(pg, cs.getProgramGraphs().get(i));
-
-		Set<ActionDef> actionDefs = new LinkedHashSet<>();
-		actionDefs.add(new ParserBasedInterleavingActDef());
-		actionDefs.add(new ParserBasedActDef());
-		Set<ConditionDef> conditionDefs = new HashSet<>();
-		conditionDefs.add(new ParserBasedCondDef());
-
-		return transitionSystemFromProgramGraph(pg, actionDefs, conditionDefs);
-//        throw new java.lang.UnsupportedOperationException();
+		return pg;
 	}
 
 	private <L, A> ProgramGraph<List<L>, A> addProgramGraphs(ProgramGraph<List<L>, A> pgAll, ProgramGraph<L, A> pgi)
@@ -804,14 +1076,14 @@ public class FvmFacade
 						.forEach(pgiTransition ->
 						{
 							A act = getHandShakeAction(pgTransition.getAction(), pgiTransition.getAction(), parser);
-							if (act != null)
+							String condition = mergeConditions(pgTransition.getCondition(), pgiTransition.getCondition());
+							if (act != null && condition != null)
 							{
 								List<L> from = new ArrayList<>(pgTransition.getFrom());
 								from.add(pgiTransition.getFrom());
 								List<L> to = new ArrayList<>(pgTransition.getTo());
 								to.add(pgiTransition.getTo());
-								PGTransition<List<L>, A> newTransition = new PGTransition<>(
-										from, mergeConditions(pgTransition.getCondition(), pgiTransition.getCondition()), act, to);
+								PGTransition<List<L>, A> newTransition = new PGTransition<>(from, condition, act, to);
 								pg.addTransition(newTransition);
 							}
 						}));
@@ -864,13 +1136,23 @@ public class FvmFacade
 		return null;
 	}
 
+	/**
+	 * @return The conjunction of two conditions, simplified if both are
+	 * NanoPromela boolean expressions; {@code null} if it is unsatisfiable.
+	 * @see Guard
+	 */
 	private String mergeConditions(String PGCondition, String PGiCondition)
 	{
 		if (PGCondition.length() == 0)
 			return PGiCondition;
 		if (PGiCondition.length() == 0)
 			return PGCondition;
-		return "(" + PGCondition + ") && (" + PGiCondition + ")";
+		final Guard PGGuard = Guard.parse(PGCondition);
+		final Guard PGiGuard = Guard.parse(PGiCondition);
+		if (PGGuard == null || PGiGuard == null)
+			return "(" + PGCondition + ") && (" + PGiCondition + ")";
+		final Guard merged = PGGuard.and(PGiGuard);
+		return merged.isFalse() ? null : merged.toString();
 	}
 
 	/**
@@ -910,146 +1192,43 @@ public class FvmFacade
 
 	private ProgramGraph<String, String> programGraphFromNanoPromela(NanoPromelaParser.StmtContext nanopromela)
 	{
-		ProgramGraph<String, String> pg = new ProgramGraph<>();
-		Map<String, Set<PGTransition<String, String>>> locsToTransitions = new HashMap<>();
-		sub(nanopromela, locsToTransitions);
-
-		pg.addLocation(nanopromela.getText());
-		Queue<String> locs = new LinkedList<>(pg.getLocations());
-		while (!locs.isEmpty())
-		{
-			String loc = locs.poll();
-			if (!loc.equals(""))
-				locsToTransitions.get(loc)
-						.forEach(transition ->
-						{
-							if (!pg.getLocations().contains(transition.getTo()))
-							{
-								pg.addLocation(transition.getTo());
-								locs.add(transition.getTo());
-							}
-							pg.addTransition(transition);
-						});
-		}
-		pg.setInitial(nanopromela.getText(), true);
-
-		return pg;
-	}
-
-
-	private void sub(NanoPromelaParser.StmtContext stmt, Map<String, Set<PGTransition<String, String>>> subTransition)
-	{
-		if (subTransition.containsKey(stmt.getText()))
-			return;
-
-		Set<PGTransition<String, String>> transition = new HashSet<>();
-
-		if (stmt.assstmt() != null || stmt.chanreadstmt() != null || stmt.chanwritestmt() != null || stmt.atomicstmt() != null || stmt.skipstmt() != null)
-		{
-			transition.add(new PGTransition<>(stmt.getText(), COND_TRUE, stmt.getText(), LOC_EXIT));
-			subTransition.put(stmt.getText(), transition);
-		} else if (stmt.ifstmt() != null)
-			ifSub(stmt, subTransition, transition);
-		else if (stmt.dostmt() != null)
-			doSub(stmt, subTransition);
-		else
-			concatSub(stmt, subTransition);
-	}
-
-	private void ifSub(NanoPromelaParser.StmtContext stmt, Map<String, Set<PGTransition<String, String>>> subTransition, Set<PGTransition<String, String>> transition)
-	{
-		for (NanoPromelaParser.OptionContext option : stmt.ifstmt().option())
-		{
-			sub(option.stmt(), subTransition);
-			for (PGTransition<String, String> tran : subTransition.get(option.stmt().getText()))
-			{
-				String condition = "(" + option.boolexpr().getText() + ") && (" + tran.getCondition() + ")";
-				if (option.boolexpr().getText().equals(""))
-					condition = "(" + tran.getCondition() + ")";
-				if (tran.getCondition().equals(""))
-					condition = "(" + option.boolexpr().getText() + ")";
-				if (tran.getCondition().equals("") && option.boolexpr().getText().equals(""))
-					condition = "";
-				transition.add(new PGTransition<>(stmt.getText(), condition, tran.getAction(), tran.getTo()));
-			}
-		}
-		subTransition.put(stmt.getText(), transition);
-	}
-
-	private void doSub(NanoPromelaParser.StmtContext stmt, Map<String, Set<PGTransition<String, String>>> subTransition)
-	{
-		StringBuilder falseCondition = new StringBuilder();
-		for (NanoPromelaParser.OptionContext option : stmt.dostmt().option())
-		{
-			sub(option.stmt(), subTransition);
-			String gi = option.boolexpr().getText();
-			String notGi = "!(" + gi + ") && ";
-			falseCondition.append(notGi);
-			doTransition(subTransition, stmt.getText(), option.stmt().getText(), stmt.getText(), gi, new HashSet<>());
-		}
-		falseCondition = new StringBuilder("(" + falseCondition.substring(0, falseCondition.length() - 4) + ")");
-		addTransition(subTransition, new PGTransition<>(stmt.getText(), falseCondition.toString(), ACT_NOTHING, LOC_EXIT));
-	}
-
-	private void concatSub(NanoPromelaParser.StmtContext stmt, Map<String, Set<PGTransition<String, String>>> subTransition)
-	{
-		NanoPromelaParser.StmtContext stmt1 = stmt.stmt(0);
-		NanoPromelaParser.StmtContext stmt2 = stmt.stmt(1);
-		sub(stmt1, subTransition);
-		sub(stmt2, subTransition);
-		concatenationTransition(subTransition, stmt.getText(), stmt1.getText(), stmt2.getText(), new HashSet<>());
+		return NanoPromelaCompiler.compile(nanopromela);
 	}
 
-	private void addTransition(Map<String, Set<PGTransition<String, String>>> subTransition, PGTransition<String, String> transition)
-	{
-		if (!subTransition.containsKey(transition.getFrom()))
-			subTransition.put(transition.getFrom(), new HashSet<>());
-		Set<PGTransition<String, String>> transitions = subTransition.get(transition.getFrom());
-		transitions.add(transition);
-	}
-
-
-	private void doTransition(Map<String, Set<PGTransition<String, String>>> subTransition, String stmt, String stmt1, String stmt2, String gi, Set<String> handled)
+	/**
+	 * Construct a program graph from nanopromela code, with its locations
+	 * numbered instead of named by the remaining program.
+	 *
+	 * @param filename The nanopromela code.
+	 * @return A program graph for the given code, and the text and source
+	 * line of each of its locations.
+	 * @throws Exception If the code is invalid.
+	 */
+	public CompactProgramGraph compactProgramGraphFromNanoPromela(String filename) throws Exception
 	{
-		if (handled.contains(stmt1))
-			return;
-		handled.add(stmt1);
-		for (PGTransition<String, String> transition : subTransition.get(stmt1))
-		{
-			String condition = "(" + gi + ") && (" + transition.getCondition() + ")";
-			if (gi.equals(""))
-				condition = "(" + transition.getCondition() + ")";
-			if (transition.getCondition().equals(""))
-				condition = "(" + gi + ")";
-			if (transition.getCondition().equals("") && gi.equals(""))
-				condition = "";
-			String to = transition.getTo() + ";" + stmt2;
-			if (transition.getTo().equals(""))
-				to = stmt2;
-			addTransition(subTransition, new PGTransition<>(stmt, condition, transition.getAction(), to));
-			if (!transition.getTo().isEmpty())
-				doTransition(subTransition, to, transition.getTo(), stmt2, COND_TRUE, handled);
-		}
+		return NanoPromelaCompiler.compileCompact(NanoPromelaFileReader.pareseNanoPromelaFile(filename));
 	}
 
-	private void concatenationTransition(Map<String, Set<PGTransition<String, String>>> subTransition, String stmt, String stmt1, String stmt2, Set<String> handled)
+	/**
+	 * Construct a program graph from nanopromela code, with its locations
+	 * numbered instead of named by the remaining program.
+	 *
+	 * @param nanopromela The nanopromela code.
+	 * @return A program graph for the given code, and the text and source
+	 * line of each of its locations.
+	 */
+	public CompactProgramGraph compactProgramGraphFromNanoPromelaString(String nanopromela)
 	{
-		if (handled.contains(stmt1))
-			return;
-		handled.add(stmt1);
-		for (PGTransition<String, String> transition : subTransition.get(stmt1))
-		{
-			String to = transition.getTo() + ";" + stmt2;
-			if (transition.getTo().equals(""))
-				to = stmt2;
-			addTransition(subTransition, new PGTransition<>(stmt, transition.getCondition(), transition.getAction(), to));
-			if (!transition.getTo().isEmpty())
-				concatenationTransition(subTransition, to, transition.getTo(), stmt2, handled);
-		}
+		return NanoPromelaCompiler.compileCompact(NanoPromelaFileReader.pareseNanoPromelaString(nanopromela));
 	}
 
 	/**
 	 * Creates a transition system from a transition system and an automaton.
+	 * Only the states reachable from the initial states of the product are
+	 * built: the product is explored forward from
+	 * {@code Iₓ = {⟨s₀, q⟩: s₀∈I_TS ∧ ∃q₀∈Q₀ . q∈𝛿(q₀, L(s₀))}}, along the
+	 * transitions of {@code ts} indexed by source state, with the successors
+	 * of the automaton indexed by (state, label).
 	 *
 	 * @param <Sts>  Type of states in the transition system.
 	 * @param <Saut> Type of states in the automaton.
@@ -1058,65 +1237,103 @@ public class FvmFacade
 	 *               also the type of the automaton alphabet.
 	 * @param ts     The transition system.
 	 * @param aut    The automaton.
-	 * @return The product of {@code ts} with {@code aut}.
+	 * @return The reachable part of the product of {@code ts} with {@code aut}.
 	 */
 	public <Sts, Saut, A, P> TransitionSystem<Pair<Sts, Saut>, A, Saut> product(TransitionSystem<Sts, A, P> ts,
 	                                                                            Automaton<Saut, P> aut)
 	{
 		final TransitionSystem<Pair<Sts, Saut>, A, Saut> transitionSystem = new TransitionSystem<>();
-		final Set<Saut> qs = aut.getTransitions().keySet();
+		final ImplicitTransitionSystem<Sts, A, P> outgoing = ImplicitTransitionSystem.of(ts);
+		final BiFunction<Saut, Sts, Set<Saut>> delta = labelSuccessors(ts, aut); // (q, s) ↦ 𝛿(q, L(s))
 
 		transitionSystem.addAllActions(ts.getActions()); // Actₓ=Act_TS
-		transitionSystem.addAllAtomicPropositions(qs); // APₓ=Q
-		ts.getStates()
-				.forEach(s -> qs.stream()
-						.map(q -> new Pair<>(s, q))
-						.forEach(pair ->
-						{
-							transitionSystem.addState(pair); // Sₓ=S_TS×Q
-							transitionSystem.addToLabel(pair, pair.getSecond()); // Lₓ(⟨s, q⟩)={q}
-							if (ts.getInitialStates().contains(pair.getFirst())) // pair.getFirst() is s₀
-								aut.getInitialStates() // Q₀
-										.forEach(q_0 ->
-										{
-											if (aut.nextStates(q_0, ts.getLabel(pair.getFirst())).contains(pair.getSecond())) //  ∃q₀∈Q₀.q∈𝛿(q₀, L(s₀)), pair.getSecond() is q
-												transitionSystem.addInitialState(pair); // ⟨s₀, q⟩
-										}); // Iₓ = {⟨s₀, q⟩: s₀∈I_TS ∧ ∃q₀∈Q₀ . q∈𝛿(q₀, L(s₀))}
-						}));
+		transitionSystem.addAllAtomicPropositions(aut.getTransitions().keySet()); // APₓ=Q
+
+		final Set<Pair<Sts, Saut>> visited = new HashSet<>();
+		final Deque<Pair<Sts, Saut>> toVisit = new ArrayDeque<>();
+		final Consumer<Pair<Sts, Saut>> visit = pair ->
+		{
+			if (visited.add(pair))
+			{
+				transitionSystem.addState(pair);
+				transitionSystem.addToLabel(pair, pair.getSecond()); // Lₓ(⟨s, q⟩)={q}
+				toVisit.push(pair);
+			}
+		};
+
+		ts.getInitialStates()
+				.forEach(s_0 -> aut.getInitialStates()
+						.forEach(q_0 -> delta.apply(q_0, s_0)
+								.forEach(q ->
+								{
+									final Pair<Sts, Saut> pair = new Pair<>(s_0, q);
+									visit.accept(pair);
+									transitionSystem.addInitialState(pair); // ⟨s₀, q⟩
+								})));
 
-		// →ₓ
-		ts.getTransitions()
-				.forEach(transition ->
-						qs.forEach(q -> aut.nextStates(q, ts.getLabel(transition.getTo()))
-								.forEach(p -> transitionSystem.addTransition(new TSTransition<>(new Pair<>(transition.getFrom(), q), transition.getAction(), new Pair<>(transition.getTo(), p))))));
+		// →ₓ: ⟨s, q⟩ -α-> ⟨t, p⟩ iff s -α-> t ∧ p∈𝛿(q, L(t))
+		while (!toVisit.isEmpty())
+		{
+			final Pair<Sts, Saut> from = toVisit.pop();
+			outgoing.getTransitionsFrom(from.getFirst())
+					.forEach(transition -> delta.apply(from.getSecond(), transition.getTo())
+							.forEach(p ->
+							{
+								final Pair<Sts, Saut> to = new Pair<>(transition.getTo(), p);
+								visit.accept(to);
+								transitionSystem.addTransition(new TSTransition<>(from, transition.getAction(), to));
+							}));
+		}
 
 		transitionSystem.setName("TSₓ=TS_" + ts.getName() + "×A");
 		return transitionSystem;
 //		throw new java.lang.UnsupportedOperationException();
 	}
 
+	/**
+	 * @return {@code (q, s) ↦ 𝛿(q, L(s))}, memoized per automaton state and
+	 * label. Unless there are more than 64 propositions, {@code aut} is
+	 * converted to a {@link SymbolicAutomaton} and each label of {@code ts} is
+	 * encoded once, so the index is keyed by bitmasks instead of label sets.
+	 * Safe for concurrent use.
+	 */
+	private <Sts, Saut, A, P> BiFunction<Saut, Sts, Set<Saut>> labelSuccessors(TransitionSystem<Sts, A, P> ts,
+	                                                                           Automaton<Saut, P> aut)
+	{
+		final Set<P> propositions = new HashSet<>(ts.getAtomicPropositions());
+		aut.getTransitions().values().forEach(bySymbol -> bySymbol.keySet().forEach(propositions::addAll));
+		if (propositions.size() > Long.SIZE)
+			return (q, s) -> aut.nextStates(q, ts.getLabel(s)); // already indexed by label
+
+		final SymbolicAutomaton<Saut, P> symbolic = SymbolicAutomaton.of(aut, propositions);
+		final Map<Sts, Long> letters = new ConcurrentHashMap<>();
+		final Map<Saut, Map<Long, Set<Saut>>> successors = new ConcurrentHashMap<>();
+		return (q, s) -> successors.computeIfAbsent(q, k -> new ConcurrentHashMap<>())
+				.computeIfAbsent(letters.computeIfAbsent(s, k -> symbolic.encode(ts.getLabel(k))), letter -> symbolic.nextStates(q, letter));
+	}
+
 	/**
 	 * inner DFS
 	 *
-	 * @param ts     The transition system.
+	 * @param post   The successors of each state of the product.
 	 * @param s      initial state.
 	 * @param t      Set of visited states in the inner DFS.
 	 * @param v      Stack for the inner DFS.
 	 * @param <S>    Type of states in the transition system.
-	 * @param <A>    Type of actions in the transition system.
 	 * @param <Saut> Type of atomic propositions in the transition system.
 	 * @return {@code true} if {@code s} belongs to cycle
 	 */
-	private <S, A, Saut> boolean cycleCheck(TransitionSystem<Pair<S, Saut>, A, Saut> ts,
-	                                        Pair<S, Saut> s,
-	                                        Set<Pair<S, Saut>> t,
-	                                        Deque<Pair<S, Saut>> v)
+	private <S, Saut> boolean cycleCheck(Map<Pair<S, Saut>, Set<Pair<S, Saut>>> post,
+	                                     Pair<S, Saut> s,
+	                                     Set<Pair<S, Saut>> t,
+	                                     Deque<Pair<S, Saut>> v)
 	{
 		boolean cycleFound = false; // no cycle found yet
 		v.push(s); // push s on the stack
+		t.add(s);
 		do
 		{
-			final Set<Pair<S, Saut>> postSTag = post(ts, v.peek() /* take top element of V */);
+			final Set<Pair<S, Saut>> postSTag = post.get(v.peek() /* take top element of V */);
 			if (postSTag.contains(s))
 				cycleFound = true; // if s∈Post(s'), a cycle is found
 			else
@@ -1124,8 +1341,11 @@ public class FvmFacade
 				final HashSet<Pair<S, Saut>> postSTagWithoutT = new HashSet<>(postSTag);
 				postSTagWithoutT.removeAll(t);
 				if (!postSTagWithoutT.isEmpty())
-					v.push(postSTagWithoutT.stream().findFirst().get()); //push an unvisited successor of s'
-				else
+				{
+					final Pair<S, Saut> sTagTag = postSTagWithoutT.stream().findFirst().get();
+					v.push(sTagTag); // push an unvisited successor of s'
+					t.add(sTagTag); // and mark it visited
+				} else
 					v.pop(); // unsuccessful cycle search for s'
 			}
 		}
@@ -1136,7 +1356,7 @@ public class FvmFacade
 	/**
 	 * outer DFS
 	 *
-	 * @param ts     The transition system.
+	 * @param post   The successors of each state of the product.
 	 * @param aut    A Büchi automaton for the words that do not satisfy the property.
 	 * @param s      initial state.
 	 * @param r      Set of visited states in the outer DFS.
@@ -1144,17 +1364,16 @@ public class FvmFacade
 	 * @param t      Set of visited states in the inner DFS.
 	 * @param v      Stack for the inner DFS.
 	 * @param <S>    Type of states in the transition system.
-	 * @param <A>    Type of actions in the transition system.
 	 * @param <Saut> Type of atomic propositions in the transition system.
 	 * @return {@code true} if {@code s} belongs to cycle
 	 */
-	private <S, A, Saut> boolean reachableCycle(TransitionSystem<Pair<S, Saut>, A, Saut> ts,
-	                                            Automaton<Saut, ?> aut,
-	                                            Pair<S, Saut> s,
-	                                            Set<Pair<S, Saut>> r,
-	                                            Deque<Pair<S, Saut>> u,
-	                                            Set<Pair<S, Saut>> t,
-	                                            Deque<Pair<S, Saut>> v)
+	private <S, Saut> boolean reachableCycle(Map<Pair<S, Saut>, Set<Pair<S, Saut>>> post,
+	                                         Automaton<Saut, ?> aut,
+	                                         Pair<S, Saut> s,
+	                                         Set<Pair<S, Saut>> r,
+	                                         Deque<Pair<S, Saut>> u,
+	                                         Set<Pair<S, Saut>> t,
+	                                         Deque<Pair<S, Saut>> v)
 	{
 		boolean cycleFound = false;
 		u.push(s); // push s on the stack
@@ -1162,7 +1381,7 @@ public class FvmFacade
 		do
 		{
 			final Pair<S, Saut> sTag = u.peek();
-			final Set<Pair<S, Saut>> postSTagWithoutR = post(ts, sTag);
+			final Set<Pair<S, Saut>> postSTagWithoutR = new HashSet<>(post.get(sTag));
 			postSTagWithoutR.removeAll(r);
 			if (!postSTagWithoutR.isEmpty())
 			{
@@ -1172,8 +1391,8 @@ public class FvmFacade
 			} else
 			{
 				u.pop(); // outer DFS finished for s'
-				if (!aut.getAcceptingStates().contains(sTag.getSecond())) // s'⊭𝛷 TODO check (shouldn't because u.push(s) at the beginning)
-					cycleFound = cycleCheck(ts, sTag, t, v); // proceed with the inner DFS in state s'
+				if (aut.getAcceptingStates().contains(sTag.getSecond())) // s'⊭𝛷, i.e. the automaton component of s' is accepting
+					cycleFound = cycleCheck(post, sTag, t, v); // proceed with the inner DFS in state s'
 			}
 
 		} while (!(u.isEmpty() || cycleFound)); // stop when stack for the outer DFS is empty or cycle found
@@ -1181,7 +1400,118 @@ public class FvmFacade
 	}
 
 	/**
-	 * Verify that a system satisfies an omega regular property.
+	 * Verify that every reachable state of a system satisfies an invariant,
+	 * with the default {@link VerificationOptions}.
+	 *
+	 * @param <S>       Type of states in the transition system.
+	 * @param <A>       Type of actions in the transition system.
+	 * @param <P>       Type of atomic propositions in the transition system.
+	 * @param ts        The transition system.
+	 * @param invariant A condition on the labels of the states.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest path to a violating state.
+	 * @see #verifyInvariant(ImplicitTransitionSystem, Predicate, VerificationOptions)
+	 */
+	public <S, A, P> VerificationResult<S> verifyInvariant(TransitionSystem<S, A, P> ts, Predicate<Set<P>> invariant)
+	{
+		return verifyInvariant(ts, invariant, new VerificationOptions());
+	}
+
+	/**
+	 * Verify that every reachable state of a system satisfies an invariant.
+	 *
+	 * @param <S>       Type of states in the transition system.
+	 * @param <A>       Type of actions in the transition system.
+	 * @param <P>       Type of atomic propositions in the transition system.
+	 * @param ts        The transition system.
+	 * @param invariant A condition on the labels of the states.
+	 * @param options   Verification options, also receiving the statistics of
+	 *                  this run.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest path to a violating state.
+	 * @see #verifyInvariant(ImplicitTransitionSystem, Predicate, VerificationOptions)
+	 */
+	public <S, A, P> VerificationResult<S> verifyInvariant(TransitionSystem<S, A, P> ts,
+	                                                       Predicate<Set<P>> invariant,
+	                                                       VerificationOptions options)
+	{
+		return verifyInvariant(ImplicitTransitionSystem.of(ts), invariant, options);
+	}
+
+	/**
+	 * Verify that every reachable state of a system satisfies an invariant,
+	 * exploring the system on-the-fly, breadth first, and stopping at the
+	 * first violating state. Only the states up to the depth of that state
+	 * are ever computed.
+	 *
+	 * @param <S>       Type of states in the system.
+	 * @param <A>       Type of actions in the system.
+	 * @param <P>       Type of atomic propositions in the system.
+	 * @param ts        The system.
+	 * @param invariant A condition on the labels of the states.
+	 * @param options   Verification options (parallel expansion, bitstate
+	 *                  hashing), also receiving the statistics of this run.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest path to a violating state.
+	 * @see InvariantChecker
+	 */
+	public <S, A, P> VerificationResult<S> verifyInvariant(ImplicitTransitionSystem<S, A, P> ts,
+	                                                       Predicate<Set<P>> invariant,
+	                                                       VerificationOptions options)
+	{
+		return InvariantChecker.check(ts, invariant, options);
+	}
+
+	/**
+	 * Verify that every reachable state of the transition system of a program
+	 * graph satisfies an invariant, without building that transition system.
+	 *
+	 * @param <L>           Type of program graph locations.
+	 * @param <A>           Type of program graph actions.
+	 * @param pg            The program graph.
+	 * @param actionDefs    Defines the effect of each action.
+	 * @param conditionDefs Defines the conditions (guards) of the program
+	 *                      graph.
+	 * @param invariant     A condition on the labels of the states, as in
+	 *                      {@link #transitionSystemFromProgramGraph(ProgramGraph, Set, Set)}.
+	 * @param options       Verification options, also receiving the
+	 *                      statistics of this run.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest path to a violating state.
+	 */
+	public <L, A> VerificationResult<Pair<L, Map<String, Object>>> verifyInvariant(ProgramGraph<L, A> pg,
+	                                                                                Set<ActionDef> actionDefs,
+	                                                                                Set<ConditionDef> conditionDefs,
+	                                                                                Predicate<Set<String>> invariant,
+	                                                                                VerificationOptions options)
+	{
+		return verifyInvariant(new ProgramGraphStateSpace<>(pg, actionDefs, conditionDefs), invariant, options);
+	}
+
+	/**
+	 * Verify that every reachable state of the transition system of a channel
+	 * system satisfies an invariant, without building that transition system.
+	 *
+	 * @param <L>       Type of locations in the channel system.
+	 * @param <A>       Type of actions in the channel system.
+	 * @param cs        The channel system.
+	 * @param invariant A condition on the labels of the states, as in
+	 *                  {@link #transitionSystemFromChannelSystem(ChannelSystem)}.
+	 * @param options   Verification options, also receiving the statistics of
+	 *                  this run.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest path to a violating state.
+	 */
+	public <L, A> VerificationResult<Pair<List<L>, Map<String, Object>>> verifyInvariant(ChannelSystem<L, A> cs,
+	                                                                                      Predicate<Set<String>> invariant,
+	                                                                                      VerificationOptions options)
+	{
+		return verifyInvariant(new ProgramGraphStateSpace<>(programGraphFromChannelSystem(cs), interleavingActionDefs(), Collections.singleton(new ParserBasedCondDef())), invariant, options);
+	}
+
+	/**
+	 * Verify that a system satisfies a regular safety property, with the
+	 * default {@link VerificationOptions}.
 	 *
 	 * @param <S>    Type of states in the transition system.
 	 * @param <Saut> Type of states in the automaton.
@@ -1189,28 +1519,281 @@ public class FvmFacade
 	 * @param <P>    Type of atomic propositions in the transition system, which is
 	 *               also the type of the automaton alphabet.
 	 * @param ts     The transition system.
-	 * @param aut    A Büchi automaton for the words that do not satisfy the
-	 *               property.
-	 * @return A VerificationSucceeded object or a VerificationFailed object
-	 * with a counterexample.
+	 * @param nfa    A finite automaton for the bad prefixes of the property:
+	 *               its accepting states are the final ones.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest bad prefix.
+	 * @see #verifyRegularSafetyProperty(TransitionSystem, Automaton, VerificationOptions)
 	 */
-	public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts,
-	                                                                          Automaton<Saut, P> aut)
+	public <S, A, P, Saut> VerificationResult<S> verifyRegularSafetyProperty(TransitionSystem<S, A, P> ts,
+	                                                                         Automaton<Saut, P> nfa)
 	{
-		final Set<Pair<S, Saut>> r = new HashSet<>(), t = new HashSet<>();
-		final Deque<Pair<S, Saut>> u = new LinkedList<>(), v = new LinkedList<>();
-		boolean cycleFound = false;
+		return verifyRegularSafetyProperty(ts, nfa, new VerificationOptions());
+	}
 
-		final TransitionSystem<Pair<S, Saut>, A, Saut> ts_x = product(ts, aut);
+	/**
+	 * Verify that a system satisfies a regular safety property: no initial
+	 * path fragment of {@code ts} has a trace accepted by {@code nfa}. This is
+	 * the invariant "no final state of {@code nfa}" on {@code TS ⊗ nfa}, which
+	 * is explored on-the-fly by {@link InvariantChecker}, in a single
+	 * reachability pass, without cycle detection.
+	 *
+	 * @param <S>     Type of states in the transition system.
+	 * @param <Saut>  Type of states in the automaton.
+	 * @param <A>     Type of actions in the transition system.
+	 * @param <P>     Type of atomic propositions in the transition system, which is
+	 *                also the type of the automaton alphabet.
+	 * @param ts      The transition system.
+	 * @param nfa     A finite automaton for the bad prefixes of the property:
+	 *                its accepting states are the final ones.
+	 * @param options Verification options, also receiving the statistics of
+	 *                this run.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest bad prefix.
+	 */
+	public <S, A, P, Saut> VerificationResult<S> verifyRegularSafetyProperty(TransitionSystem<S, A, P> ts,
+	                                                                         Automaton<Saut, P> nfa,
+	                                                                         VerificationOptions options)
+	{
+		final ImplicitTransitionSystem<S, A, P> outgoing = ImplicitTransitionSystem.of(ts);
+		final BiFunction<Saut, S, Set<Saut>> delta = labelSuccessors(ts, nfa); // (q, s) ↦ 𝛿(q, L(s))
+		final Set<Saut> finalStates = nfa.getAcceptingStates();
 
-		final HashSet<Pair<S, Saut>> initialsWithoutR = new HashSet<>(ts_x.getInitialStates());
-		for (; !initialsWithoutR.isEmpty() && !cycleFound; initialsWithoutR.removeAll(r))
-			cycleFound = reachableCycle(ts_x, aut, initialsWithoutR.stream().findFirst().get() /* explore the reachable */, r, u, t, v); // fragment with outer DFS
+		final Set<Pair<S, Saut>> initial = new HashSet<>();
+		ts.getInitialStates()
+				.forEach(s_0 -> nfa.getInitialStates()
+						.forEach(q_0 -> delta.apply(q_0, s_0)
+								.forEach(q -> initial.add(new Pair<>(s_0, q))))); // ⟨s₀, q⟩ with q∈𝛿(q₀, L(s₀))
 
-		if (!cycleFound)
-			return new VerificationSucceeded<>(); // TS⊨"eventually forever/always 𝛷"≡◇□𝛷
+		final ImplicitTransitionSystem<Pair<S, Saut>, A, Saut> product = new ImplicitTransitionSystem<>()
+		{
+			@Override
+			public Set<Pair<S, Saut>> getInitialStates()
+			{
+				return initial;
+			}
+
+			@Override
+			public Collection<TSTransition<Pair<S, Saut>, A>> getTransitionsFrom(Pair<S, Saut> state)
+			{
+				final List<TSTransition<Pair<S, Saut>, A>> transitions = new ArrayList<>();
+				outgoing.getTransitionsFrom(state.getFirst())
+						.forEach(transition -> delta.apply(state.getSecond(), transition.getTo())
+								.forEach(p -> transitions.add(new TSTransition<>(state, transition.getAction(), new Pair<>(transition.getTo(), p)))));
+				return transitions;
+			}
+
+			@Override
+			public Set<Saut> getLabel(Pair<S, Saut> state)
+			{
+				return Collections.singleton(state.getSecond()); // Lₓ(⟨s, q⟩)={q}
+			}
+		};
 
+		final VerificationResult<Pair<S, Saut>> result = InvariantChecker.check(product, label -> Collections.disjoint(label, finalStates), options);
+		if (result instanceof VerificationSucceeded)
+			return new VerificationSucceeded<>();
 		final VerificationFailed<S> failure = new VerificationFailed<>();
+		failure.setPrefix(((VerificationFailed<Pair<S, Saut>>) result).getPrefix().stream()
+				.map(Pair::getFirst)
+				.collect(Collectors.toList()));
+		failure.setCycle(new LinkedList<>());
+		return failure;
+	}
+
+	/**
+	 * Verify that a system satisfies an omega regular property, with the
+	 * default {@link VerificationOptions}.
+	 *
+	 * @param <S>    Type of states in the transition system.
+	 * @param <Saut> Type of states in the automaton.
+	 * @param <A>    Type of actions in the transition system.
+	 * @param <P>    Type of atomic propositions in the transition system, which is
+	 *               also the type of the automaton alphabet.
+	 * @param ts     The transition system.
+	 * @param aut    A Büchi automaton for the words that do not satisfy the
+	 *               property.
+	 * @return A VerificationSucceeded object or a VerificationFailed object
+	 * with a counterexample.
+	 */
+	public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts,
+	                                                                          Automaton<Saut, P> aut)
+	{
+		return verifyAnOmegaRegularProperty(ts, aut, new VerificationOptions());
+	}
+
+	/**
+	 * Verify that a system satisfies an omega regular property.
+	 *
+	 * @param <S>     Type of states in the transition system.
+	 * @param <Saut>  Type of states in the automaton.
+	 * @param <A>     Type of actions in the transition system.
+	 * @param <P>     Type of atomic propositions in the transition system, which is
+	 *                also the type of the automaton alphabet.
+	 * @param ts      The transition system.
+	 * @param aut     A Büchi automaton for the words that do not satisfy the
+	 *                property.
+	 * @param options Verification options, also receiving the statistics of
+	 *                this run. With {@link VerificationOptions#stutterReduction(boolean)},
+	 *                the property must be invariant under stuttering, and a
+	 *                counterexample is a path of the quotient of {@code ts}
+	 *                (over representative states).
+	 * @return A VerificationSucceeded object or a VerificationFailed object
+	 * with a counterexample.
+	 */
+	public <S, A, P, Saut> VerificationResult<S> verifyAnOmegaRegularProperty(TransitionSystem<S, A, P> ts,
+	                                                                          Automaton<Saut, P> aut,
+	                                                                          VerificationOptions options)
+	{
+		return verifyProduct(options.isStutterReduction() ? stutterReduced(ts, ts.getAtomicPropositions(), options) : ts,
+				aut, options);
+	}
+
+	/**
+	 * Verify that a system satisfies an LTL formula, with the default
+	 * {@link VerificationOptions}.
+	 *
+	 * @param ts  Transition system
+	 * @param ltl An LTL formula
+	 * @param <S> Type of states in the transition system
+	 * @param <A> Type of actions in the transition system
+	 * @param <P> Type of atomic propositions in the transition system
+	 * @return A VerificationSucceeded object or a VerificationFailed object
+	 * with a counterexample.
+	 */
+	public <S, A, P> VerificationResult<S> verifyLTLFormula(TransitionSystem<S, A, P> ts, LTL<P> ltl)
+	{
+		return verifyLTLFormula(ts, ltl, new VerificationOptions());
+	}
+
+	/**
+	 * Verify that a system satisfies an LTL formula, by the emptiness of the
+	 * product of {@code ts} with an NBA for {@code ¬ltl}. The labels of
+	 * {@code ts} are restricted to the propositions of {@code ltl}. With
+	 * {@link VerificationOptions#stutterReduction(boolean)}, a formula
+	 * without next is checked on the quotient of {@code ts} under
+	 * divergence-sensitive stutter bisimulation, where the steps that change
+	 * none of its propositions are collapsed.
+	 *
+	 * @param ts      Transition system
+	 * @param ltl     An LTL formula
+	 * @param options Verification options, also receiving the statistics of
+	 *                this run.
+	 * @param <S>     Type of states in the transition system
+	 * @param <A>     Type of actions in the transition system
+	 * @param <P>     Type of atomic propositions in the transition system
+	 * @return A VerificationSucceeded object or a VerificationFailed object
+	 * with a counterexample (a path of the quotient, over representative
+	 * states, if {@code ts} was reduced).
+	 */
+	public <S, A, P> VerificationResult<S> verifyLTLFormula(TransitionSystem<S, A, P> ts, LTL<P> ltl, VerificationOptions options)
+	{
+		final Set<P> aps = atomicPropositions(ltl);
+		final TransitionSystem<S, A, P> observed = options.isStutterReduction() && isNextFree(ltl) ?
+				stutterReduced(ts, aps, options) :
+				withLabelsOver(ts, aps);
+		return verifyProduct(observed, LTL2NBA(not(ltl)), options);
+	}
+
+	/**
+	 * @return The quotient of {@code ts}, with labels restricted to
+	 * {@code aps}, under divergence-sensitive stutter bisimulation.
+	 */
+	private <S, A, P> TransitionSystem<S, A, P> stutterReduced(TransitionSystem<S, A, P> ts, Set<P> aps, VerificationOptions options)
+	{
+		final TransitionSystem<S, A, P> quotient = StutterQuotient.of(ts, aps).getQuotient();
+		options.report(VerificationOptions.SYSTEM_STATES_BEFORE, ts.getStates().size());
+		options.report(VerificationOptions.SYSTEM_STATES_AFTER, quotient.getStates().size());
+		return quotient;
+	}
+
+	/**
+	 * @return A copy of {@code ts} whose labels are restricted to {@code aps}.
+	 */
+	private <S, A, P> TransitionSystem<S, A, P> withLabelsOver(TransitionSystem<S, A, P> ts, Set<P> aps)
+	{
+		final TransitionSystem<S, A, P> restricted = new TransitionSystem<>();
+		restricted.setName(ts.getName());
+		restricted.addAllActions(ts.getActions());
+		restricted.addAllStates(ts.getStates());
+		ts.getInitialStates().forEach(restricted::addInitialState);
+		ts.getAtomicPropositions().stream().filter(aps::contains).forEach(restricted::addAtomicProposition);
+		ts.getStates().forEach(s -> ts.getLabel(s).stream()
+				.filter(aps::contains)
+				.forEach(p -> restricted.addToLabel(s, p)));
+		ts.getTransitions().forEach(restricted::addTransition);
+		return restricted;
+	}
+
+	/**
+	 * @return Whether {@code ltl} has no next operator, hence is invariant
+	 * under stuttering.
+	 */
+	private <P> boolean isNextFree(LTL<P> ltl)
+	{
+		final Deque<LTL<P>> toVisit = new ArrayDeque<>(List.of(ltl));
+		while (!toVisit.isEmpty())
+		{
+			final LTL<P> formula = toVisit.pop();
+			if (formula instanceof Next)
+				return false;
+			if (formula instanceof Not)
+				toVisit.push(((Not<P>) formula).getInner());
+			else if (formula instanceof And)
+			{
+				toVisit.push(((And<P>) formula).getLeft());
+				toVisit.push(((And<P>) formula).getRight());
+			} else if (formula instanceof Until)
+			{
+				toVisit.push(((Until<P>) formula).getLeft());
+				toVisit.push(((Until<P>) formula).getRight());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The nested depth-first search for an accepting cycle in the product of
+	 * {@code ts} and {@code aut}.
+	 */
+	private <S, A, P, Saut> VerificationResult<S> verifyProduct(TransitionSystem<S, A, P> ts,
+	                                                          Automaton<Saut, P> aut,
+	                                                          VerificationOptions options)
+	{
+		aut = reduce(aut, options);
+
+		final Set<Pair<S, Saut>> r = new HashSet<>(), t = new HashSet<>();
+		final Deque<Pair<S, Saut>> u = new LinkedList<>(), v = new LinkedList<>();
+		boolean cycleFound = false;
+
+		final TransitionSystem<Pair<S, Saut>, A, Saut> ts_x = product(ts, aut);
+		final Map<Pair<S, Saut>, Set<Pair<S, Saut>>> post = new HashMap<>(ts_x.getStates().size() * 2);
+		ts_x.getStates().forEach(state -> post.put(state, new HashSet<>()));
+		ts_x.getTransitions().forEach(transition -> post.get(transition.getFrom()).add(transition.getTo())); // Post(s) for all s, in O(|→ₓ|)
+
+		final HashSet<Pair<S, Saut>> initialsWithoutR = new HashSet<>(ts_x.getInitialStates());
+		for (; !initialsWithoutR.isEmpty() && !cycleFound; initialsWithoutR.removeAll(r))
+			cycleFound = reachableCycle(post, aut, initialsWithoutR.stream().findFirst().get() /* explore the reachable */, r, u, t, v); // fragment with outer DFS
+
+		if (!cycleFound)
+			return new VerificationSucceeded<>(); // TS⊨"eventually forever/always 𝛷"≡◇□𝛷
+
+		final VerificationFailed<S> failure = new VerificationFailed<>();
+		if (options.isShortestCounterexample())
+		{
+			final long start = System.nanoTime();
+			final Pair<S, Saut> accepting = v.peekLast(); // the state the successful inner DFS started from
+			final List<Pair<S, Saut>> cycle = shortestPath(post, post.get(accepting), accepting);
+			cycle.add(0, accepting);
+			failure.setPrefix(shortestPath(post, ts_x.getInitialStates(), accepting).stream()
+					.map(Pair::getFirst)
+					.collect(Collectors.toList()));
+			failure.setCycle(cycle.stream()
+					.map(Pair::getFirst)
+					.collect(Collectors.toList()));
+			options.report(VerificationOptions.COUNTEREXAMPLE_SHORTENING_NANOS, System.nanoTime() - start);
+			return failure;
+		}
 
 //		failure.setPrefix(v.stream()
 //				.map(Pair::getFirst)
@@ -1229,6 +1812,83 @@ public class FvmFacade
 //		throw new java.lang.UnsupportedOperationException();
 	}
 
+	/**
+	 * BFS in a graph.
+	 *
+	 * @param post    The successors of each state.
+	 * @param sources The states to start from.
+	 * @param target  A state reachable from {@code sources}.
+	 * @param <T>     Type of states.
+	 * @return A shortest path from one of {@code sources} to {@code target},
+	 * without {@code target}; empty if {@code target} is a source.
+	 */
+	private <T> List<T> shortestPath(Map<T, Set<T>> post, Set<T> sources, T target)
+	{
+		final Map<T, T> parents = new HashMap<>();
+		final Queue<T> queue = new ArrayDeque<>();
+		for (T source : sources)
+		{
+			if (source.equals(target))
+				return new LinkedList<>();
+			parents.put(source, source);
+			queue.add(source);
+		}
+		while (!queue.isEmpty())
+		{
+			final T state = queue.poll();
+			for (T next : post.get(state))
+			{
+				if (next.equals(target))
+				{
+					final LinkedList<T> path = new LinkedList<>();
+					for (T current = state; ; current = parents.get(current))
+					{
+						path.addFirst(current);
+						if (parents.get(current).equals(current))
+							return path;
+					}
+				}
+				if (!parents.containsKey(next))
+				{
+					parents.put(next, state);
+					queue.add(next);
+				}
+			}
+		}
+		throw new IllegalArgumentException("Target is not reachable");
+	}
+
+	/**
+	 * Reduces a Büchi automaton: trims it, quotients it by delayed and by
+	 * backward simulation equivalence and prunes transitions to directly
+	 * simulated siblings.
+	 *
+	 * @param <Saut> Type of states in the automaton.
+	 * @param <P>    Type of the automaton alphabet.
+	 * @param aut    A Büchi automaton.
+	 * @return An automaton with the same language, over a subset of the states
+	 * of {@code aut}.
+	 * @see AutomatonReduction
+	 */
+	public <Saut, P> Automaton<Saut, P> reduce(Automaton<Saut, P> aut)
+	{
+		return AutomatonReduction.reduce(aut);
+	}
+
+	/**
+	 * @return {@code aut} reduced if {@code options} ask for it, with the
+	 * state counts before and after reported to {@code options}.
+	 */
+	private <Saut, P> Automaton<Saut, P> reduce(Automaton<Saut, P> aut, VerificationOptions options)
+	{
+		if (!options.isReduceAutomaton())
+			return aut;
+		final Automaton<Saut, P> reduced = reduce(aut);
+		options.report(VerificationOptions.AUTOMATON_STATES_BEFORE, aut.getTransitions().size());
+		options.report(VerificationOptions.AUTOMATON_STATES_AFTER, reduced.getTransitions().size());
+		return reduced;
+	}
+
 	/**
 	 * A translation of a Generalized Büchi Automaton (GNBA) to a
 	 * Nondeterministic Büchi Automaton (NBA).
@@ -1239,52 +1899,128 @@ public class FvmFacade
 	 */
 	public <L> Automaton<?, L> GNBA2NBA(MultiColorAutomaton<?, L> mulAut)
 	{
-		final Automaton<Pair<?, Integer>, L> automaton = new Automaton<>();
-		final Set<Integer> colors = mulAut.getColors();
+		return degeneralize(mulAut);
+	}
 
-		if (colors.isEmpty()) // edge case
-		{
-			mulAut.getInitialStates()
-					.forEach(state -> automaton.setInitial(new Pair<>(state, null)));
+	/**
+	 * Counter-based degeneralization, generated on-the-fly: only the pairs
+	 * {@code ⟨q, c⟩} reachable from {@code ⟨q₀, c₀⟩} are created, rather than a
+	 * copy of the whole automaton per color. {@code ⟨q, cᵢ⟩} moves to the next
+	 * color when {@code q∈Fᵢ}; accepting states are {@code ⟨q, c₀⟩} with
+	 * {@code q∈F₀}. Without colors, every state is {@code ⟨q, null⟩} and
+	 * accepting.
+	 */
+	private <S, L> Automaton<Pair<?, Integer>, L> degeneralize(MultiColorAutomaton<S, L> mulAut)
+	{
+		final Automaton<Pair<?, Integer>, L> automaton = new Automaton<>();
+		final Integer[] colorsByOrder = mulAut.getColors().stream()
+				.sorted()
+				.toArray(Integer[]::new);
+		final List<Set<S>> acceptingByOrder = Arrays.stream(colorsByOrder)
+				.map(mulAut::getAcceptingStates)
+				.collect(Collectors.toList());
+
+		// ⟨q, i⟩ stands for ⟨q, colorsByOrder[i]⟩
+		final Function<Pair<S, Integer>, Pair<?, Integer>> state = pair -> new Pair<>(pair.getFirst(), colorsByOrder.length == 0 ? null : colorsByOrder[pair.getSecond()]);
+		final Set<Pair<S, Integer>> visited = new HashSet<>();
+		final Deque<Pair<S, Integer>> toVisit = new ArrayDeque<>();
+		mulAut.getInitialStates()
+				.forEach(q_0 ->
+				{
+					final Pair<S, Integer> pair = new Pair<>(q_0, 0);
+					automaton.setInitial(state.apply(pair));
+					if (visited.add(pair))
+						toVisit.add(pair);
+				});
 
-			mulAut.getTransitions()
-					.forEach((source, setSetMap) ->
-					{
-						final Pair<?, Integer> sourcePair = new Pair<>(source, null);
-						automaton.setAccepting(sourcePair);
-						setSetMap.forEach((ls, states) ->
-								states.forEach(destination ->
-								{
-									final Pair<?, Integer> destinationPair = new Pair<>(destination, null);
-									automaton.addTransition(sourcePair, ls, destinationPair);
-									automaton.setAccepting(destinationPair);
-								}));
-					});
-		} else
+		while (!toVisit.isEmpty())
 		{
-			final Integer[] colorsByOrder = colors.toArray(new Integer[0]);
-
-			mulAut.getInitialStates()
-					.forEach(state -> automaton.setInitial(new Pair<>(state, colorsByOrder[0])));
+			final Pair<S, Integer> source = toVisit.poll();
+			final Pair<?, Integer> sourceState = state.apply(source);
+			final int i = source.getSecond();
+			final boolean isSourceAcceptingState = colorsByOrder.length == 0 || acceptingByOrder.get(i).contains(source.getFirst());
+			if (isSourceAcceptingState && i == 0)
+				automaton.setAccepting(sourceState);
+			final int next = isSourceAcceptingState && colorsByOrder.length > 0 ? (i + 1) % colorsByOrder.length : i;
+
+			mulAut.getTransitions().getOrDefault(source.getFirst(), Map.of())
+					.forEach((ls, states) ->
+							states.forEach(destination ->
+							{
+								final Pair<S, Integer> pair = new Pair<>(destination, next);
+								automaton.addTransition(sourceState, ls, state.apply(pair));
+								if (visited.add(pair))
+									toVisit.add(pair);
+							}));
+		}
+		return automaton;
+	}
 
-			mulAut.getAcceptingStates(colorsByOrder[0])
-					.forEach(state -> automaton.setAccepting(new Pair<>(state, colorsByOrder[0])));
+	/**
+	 * A translation of a Generalized Büchi Automaton (GNBA) to a
+	 * transition-based generalized Büchi automaton, without degeneralization:
+	 * the transitions leaving a state belong to the acceptance sets of that
+	 * state (colors are numbered by order). Only the part reachable from the
+	 * initial states is generated. Without colors, every run is accepting.
+	 *
+	 * @param <S>    Type of states.
+	 * @param <L>    Type of the automaton transition alphabet.
+	 * @param mulAut An automaton with a set of accepting states (colors).
+	 * @return An equivalent automaton with transition-based acceptance.
+	 */
+	public <S, L> TransitionBasedAutomaton<S, L> GNBA2TGBA(MultiColorAutomaton<S, L> mulAut)
+	{
+		final Integer[] colorsByOrder = mulAut.getColors().stream()
+				.sorted()
+				.toArray(Integer[]::new);
+		final TransitionBasedAutomaton<S, L> automaton = new TransitionBasedAutomaton<>(colorsByOrder.length);
+
+		final Deque<S> toVisit = new ArrayDeque<>();
+		mulAut.getInitialStates()
+				.forEach(q_0 ->
+				{
+					automaton.setInitial(q_0);
+					toVisit.add(q_0);
+				});
+		final Set<S> visited = new HashSet<>(toVisit);
 
+		while (!toVisit.isEmpty())
+		{
+			final S source = toVisit.poll();
+			final Set<Integer> marks = new HashSet<>();
 			for (int i = 0; i < colorsByOrder.length; i++)
-			{
-				final int finalI = i;
-				mulAut.getTransitions()
-						.forEach((source, lsStatesMap) ->
-						{
-							final boolean isSourceAcceptingState = mulAut.getAcceptingStates(colorsByOrder[finalI]).contains(source);
-							lsStatesMap.forEach((ls, states) ->
-									states.forEach((destination ->
-											automaton.addTransition(new Pair<>(source, colorsByOrder[finalI]), ls, new Pair<>(destination, colorsByOrder[isSourceAcceptingState ? (finalI + 1) % colorsByOrder.length : finalI])))));
-						});
-			}
+				if (mulAut.getAcceptingStates(colorsByOrder[i]).contains(source))
+					marks.add(i);
+			automaton.addState(source);
+			mulAut.getTransitions().getOrDefault(source, Map.of())
+					.forEach((ls, states) ->
+							states.forEach(destination ->
+							{
+								automaton.addTransition(source, ls, destination, marks);
+								if (visited.add(destination))
+									toVisit.add(destination);
+							}));
 		}
 		return automaton;
-//		throw new java.lang.UnsupportedOperationException();
+	}
+
+	/**
+	 * @return {@code ltl} with every {@code ¬¬𝜑} replaced by {@code 𝜑}.
+	 */
+	private <L> LTL<L> withoutDoubleNegations(LTL<L> ltl)
+	{
+		if (ltl instanceof Not)
+		{
+			final LTL<L> inner = ((Not<L>) ltl).getInner();
+			return inner instanceof Not ? withoutDoubleNegations(((Not<L>) inner).getInner()) : not(withoutDoubleNegations(inner));
+		}
+		if (ltl instanceof And)
+			return and(withoutDoubleNegations(((And<L>) ltl).getLeft()), withoutDoubleNegations(((And<L>) ltl).getRight()));
+		if (ltl instanceof Until)
+			return until(withoutDoubleNegations(((Until<L>) ltl).getLeft()), withoutDoubleNegations(((Until<L>) ltl).getRight()));
+		if (ltl instanceof Next)
+			return next(withoutDoubleNegations(((Next<L>) ltl).getInner()));
+		return ltl;
 	}
 
 	/**
@@ -1296,6 +2032,31 @@ public class FvmFacade
 	 * @return An automaton A such that L_\omega(A)=Words(ltl)
 	 */
 	public <L> Automaton<?, L> LTL2NBA(LTL<L> ltl)
+	{
+		return GNBA2NBA(LTL2GNBA(withoutDoubleNegations(ltl))); // the closure identifies ¬¬𝜑 with 𝜑
+	}
+
+	/**
+	 * Translation of Linear Temporal Logic (LTL) formula to a
+	 * transition-based generalized Büchi automaton, skipping the
+	 * degeneralization done by {@link #LTL2NBA(LTL)}. The automaton has one
+	 * acceptance set per until sub-formula.
+	 *
+	 * @param <L> Type of resultant automaton transition alphabet
+	 * @param ltl The LTL formula represented as a parse-tree.
+	 * @return An automaton A such that L_\omega(A)=Words(ltl)
+	 */
+	public <L> TransitionBasedAutomaton<?, L> LTL2TGBA(LTL<L> ltl)
+	{
+		return GNBA2TGBA(LTL2GNBA(withoutDoubleNegations(ltl)));
+	}
+
+	/**
+	 * The closure based translation behind {@link #LTL2NBA(LTL)}, for formulas
+	 * without double negations: elementary sets as states, one color per until
+	 * sub-formula.
+	 */
+	private <L> MultiColorAutomaton<Set<LTL<L>>, L> LTL2GNBA(LTL<L> ltl)
 	{
 		MultiColorAutomaton<Set<LTL<L>>, L> automaton = new MultiColorAutomaton<>();
 		Queue<LTL<L>> ltlExpressionsToAdd = new LinkedList<>();
@@ -1397,233 +2158,210 @@ public class FvmFacade
 					.filter(exp -> exp instanceof AP)
 					.map(exp -> ((AP<L>) exp).getName())
 					.collect(Collectors.toSet());
-			sourceState.forEach(exp ->
-					states.forEach(destinationState ->
-					{
-						if (nextLtlExpressions.stream()
-								    .noneMatch(e -> sourceState.contains(e) != destinationState.contains(e.getInner())) &&
-						    untilLtlExpressions.stream()
-								    .noneMatch(e -> sourceState.contains(e) != (sourceState.contains(e.getRight()) ||
-								                                                (sourceState.contains(e.getLeft()) && destinationState.contains(e)))))
-							automaton.addTransition(sourceState, actions, destinationState);
-					}));
+			states.forEach(destinationState ->
+			{
+				if (nextLtlExpressions.stream()
+						    .noneMatch(e -> sourceState.contains(e) != destinationState.contains(e.getInner())) &&
+				    untilLtlExpressions.stream()
+						    .noneMatch(e -> sourceState.contains(e) != (sourceState.contains(e.getRight()) ||
+						                                                (sourceState.contains(e.getLeft()) && destinationState.contains(e)))))
+					automaton.addTransition(sourceState, actions, destinationState);
+			});
 		});
 		if (automaton.getColors().isEmpty())
 			states.forEach(state -> automaton.setAccepting(state, 0));
-		return GNBA2NBA(automaton);
+		return automaton;
 	}
 
 	/**
-	 * Verify that a system satisfies an LTL formula under fairness conditions.
+	 * Verify that a system satisfies a CTL formula.
 	 *
 	 * @param ts  Transition system
-	 * @param fc  Fairness condition
-	 * @param ltl An LTL formula
+	 * @param ctl A CTL formula
 	 * @param <S> Type of states in the transition system
 	 * @param <A> Type of actions in the transition system
 	 * @param <P> Type of atomic propositions in the transition system
-	 * @return a VerificationSucceeded object or a VerificationFailed object with a counterexample.
+	 * @return {@code true} iff every initial state of {@code ts} satisfies
+	 * {@code ctl}.
+	 * @see CTLModelChecker
 	 */
-	public <S, A, P> VerificationResult<S> verifyFairLTLFormula(TransitionSystem<S, A, P> ts, FairnessCondition<A> fc, LTL<P> ltl)
+	public <S, A, P> boolean satisfiesCTLFormula(TransitionSystem<S, A, P> ts, CTL<P> ctl)
 	{
-		TransitionSystem<Pair<S, A>, A, ExtendedAP> tsF = new TransitionSystem<>();
-		LTL<ExtendedAP> newLTL = reconstructLTLWithExtendedAP(ltl); //Make ltl as extendedAP type
-		tsF.addAllActions(ts.getActions());
-		ts.getStates()
-				.forEach(state ->
-						ts.getActions().stream()
-								.map(act -> new Pair<>(state, act))
-								.forEach(newState ->
-								{
-									tsF.addState(newState);
-									if (ts.getInitialStates().contains(state))
-										tsF.addInitialState(newState);
-								}));
-		Set<ExtendedAP> extendedAP = ts.getAtomicPropositions().stream()
-				.map(OriginalAP::new)
-				.collect(Collectors.toSet());
-		ts.getActions()
-				.forEach(act ->
-				{
-					extendedAP.add(new TriggeredAP<>(act));
-					extendedAP.add(new EnabledAP<>(act));
-				});
-		tsF.getStates().forEach(state ->
-		{
-			ts.getLabelingFunction().get(state.getFirst())
-					.forEach(ap -> tsF.addToLabel(state, new OriginalAP<>(ap)));
-			tsF.addToLabel(state, new TriggeredAP<>(state.getSecond()));
-			ts.getActions().stream()
-					.filter(act -> !post(ts, state.getFirst(), act).isEmpty())
-					.forEach(act -> tsF.addToLabel(state, new EnabledAP<>(act)));
-		});
-		tsF.addAllAtomicPropositions(extendedAP);
-
-		ts.getTransitions()
-				.forEach(transition ->
-						tsF.getStates().stream()
-								.filter(s -> s.getFirst().equals(transition.getFrom()))
-								.forEach(state -> tsF.addTransitionFrom(state).action(transition.getAction()).to(new Pair<>(transition.getTo(), transition.getAction()))));
-
-		//TS is ready. now we will verify each fairness constraint
-		VerificationResult<Pair<S, A>> fulfilled = null;
-		for (Set<A> unconditionalConstraint : fc.getUnconditional())
-		{
-			for (A act : unconditionalConstraint)
-			{
-				ExtendedAP actAP = new TriggeredAP<>(act);
-				AP<ExtendedAP> ap = new AP<>(actAP);
-				fulfilled = checkConstraint(tsF, LTLUtil.implies(LTLUtil.eventuallyAlways(ap), newLTL));
-				if (fulfilled instanceof VerificationSucceeded)
-					break;
-			}
-			//if all action set is not fulfilled at all - build verificationFailed<S> and return it.
-			if (fulfilled instanceof VerificationFailed)
-				return buildVerificationFailedObject((VerificationFailed<Pair<S, A>>) fulfilled);
-		}
-
-		for (Set<A> strongConstraint : fc.getStrong())
-		{
-			for (A act : strongConstraint)
-			{
-				ExtendedAP triggered = new TriggeredAP<>(act);
-				AP<ExtendedAP> triggeredAP = new AP<>(triggered);
-				ExtendedAP enabled = new EnabledAP<>(act);
-				AP<ExtendedAP> enabledAP = new AP<>(enabled);
-				fulfilled = checkConstraint(tsF, LTLUtil.implies(LTLUtil.implies(LTLUtil.alwaysEventually(enabledAP), LTLUtil.alwaysEventually(triggeredAP)), newLTL));
-				if (fulfilled instanceof VerificationSucceeded)
-					break;
-			}
-			if (fulfilled instanceof VerificationFailed)
-				return buildVerificationFailedObject((VerificationFailed<Pair<S, A>>) fulfilled);
-		}
-
-		for (Set<A> weakConstraint : fc.getWeak())
-		{
-			for (A act : weakConstraint)
-			{
-				ExtendedAP triggered = new TriggeredAP<>(act);
-				AP<ExtendedAP> triggeredAP = new AP<>(triggered);
-				ExtendedAP enabled = new EnabledAP<>(act);
-				AP<ExtendedAP> enabledAP = new AP<>(enabled);
-				fulfilled = checkConstraint(tsF, LTLUtil.implies(LTLUtil.implies(LTLUtil.eventuallyAlways(enabledAP), LTLUtil.alwaysEventually(triggeredAP)), newLTL));
-				if (fulfilled instanceof VerificationSucceeded)
-					break;
-			}
-			if (fulfilled instanceof VerificationFailed)
-				return buildVerificationFailedObject((VerificationFailed<Pair<S, A>>) fulfilled);
-		}
-
-		return new VerificationSucceeded<>();
-//		throw new java.lang.UnsupportedOperationException();
-	}
-
-	private <S, A> VerificationFailed<S> buildVerificationFailedObject(VerificationFailed<Pair<S, A>> res)
-	{
-		VerificationFailed<S> toReturn = new VerificationFailed<>();
-		toReturn.setPrefix(res.getPrefix().stream()
-				.map(Pair::getFirst)
-				.collect(Collectors.toList()));
-		toReturn.setCycle(res.getCycle().stream()
-				.map(Pair::getFirst)
-				.collect(Collectors.toList()));
-		return toReturn;
+		return new CTLModelChecker<>(ts).satisfies(ctl);
 	}
 
-	private <A, S> VerificationResult<Pair<S, A>> checkConstraint(TransitionSystem<Pair<S, A>, A, ExtendedAP> tsF, LTL<ExtendedAP> ap)
+	/**
+	 * Verify that a system satisfies a CTL formula, where path quantifiers
+	 * range over the fair paths only.
+	 *
+	 * @param ts       Transition system
+	 * @param fairness Formulas that each fair path satisfies infinitely often
+	 * @param ctl      A CTL formula
+	 * @param <S>      Type of states in the transition system
+	 * @param <A>      Type of actions in the transition system
+	 * @param <P>      Type of atomic propositions in the transition system
+	 * @return {@code true} iff every initial state of {@code ts} satisfies
+	 * {@code ctl} under fairness.
+	 * @see CTLModelChecker
+	 */
+	public <S, A, P> boolean satisfiesFairCTLFormula(TransitionSystem<S, A, P> ts, Collection<CTL<P>> fairness, CTL<P> ctl)
 	{
-		LTL<ExtendedAP> badPrefLTL = not(ap);
-		Automaton<?, ExtendedAP> automaton = LTL2NBA(badPrefLTL);
-		return verifyAnOmegaRegularProperty(tsF, automaton);
+		return new CTLModelChecker<>(ts, fairness).satisfies(ctl);
 	}
 
-
 	/**
-	 * This class implements more ltl operators based on the basic operators appears in LTL<T> class.
+	 * Minimize a transition system by bisimulation: the quotient satisfies the
+	 * same LTL and CTL formulas as {@code ts}, and can be verified instead.
+	 *
+	 * @param ts  Transition system
+	 * @param <S> Type of states in the transition system
+	 * @param <A> Type of actions in the transition system
+	 * @param <P> Type of atomic propositions in the transition system
+	 * @return The quotient of {@code ts} by its coarsest bisimulation, with
+	 * the representative of the class of each state.
+	 * @see BisimulationQuotient
 	 */
-	private static class LTLUtil
+	public <S, A, P> BisimulationQuotient<S, A, P> bisimulationQuotient(TransitionSystem<S, A, P> ts)
 	{
-		private LTLUtil()
-		{
-		}
-
-		public static <A> LTL<A> eventually(LTL<A> phi)
-		{
-			return until(true_(), phi);
-		}
-
-		public static <A> LTL<A> always(LTL<A> phi)
-		{
-			return not(eventually(not(phi)));
-		}
-
-		public static <A> LTL<A> alwaysEventually(LTL<A> phi)
-		{
-			return always(eventually(phi));
-		}
-
-		public static <A> LTL<A> eventuallyAlways(LTL<A> phi)
-		{
-			return eventually(always(phi));
-		}
-
-		public static <A> LTL<A> or(LTL<A> phi1, LTL<A> phi2)
-		{
-			return not(and(not(phi1), not(phi2)));
-		}
-
-		public static <A> LTL<A> implies(LTL<A> phi1, LTL<A> phi2)
-		{
-			return not(and(phi1, not(phi2)));
-		}
+		return BisimulationQuotient.of(ts);
 	}
 
-	private abstract static class ExtendedAP
+	/**
+	 * Minimize a transition system by divergence-sensitive stutter
+	 * bisimulation: the quotient satisfies the same LTL formulas without next
+	 * as {@code ts}.
+	 *
+	 * @param ts  Transition system
+	 * @param <S> Type of states in the transition system
+	 * @param <A> Type of actions in the transition system
+	 * @param <P> Type of atomic propositions in the transition system
+	 * @return The quotient of {@code ts} by its coarsest divergence-sensitive
+	 * stutter bisimulation, with the representative of the class of each
+	 * state.
+	 * @see StutterQuotient
+	 */
+	public <S, A, P> StutterQuotient<S, A, P> stutterQuotient(TransitionSystem<S, A, P> ts)
 	{
+		return StutterQuotient.of(ts);
 	}
 
-	private static class OriginalAP<P> extends ExtendedAP
+	/**
+	 * Verify that a system satisfies an LTL formula under fairness conditions.
+	 * <p>
+	 * {@code TS_F}, whose states {@code ⟨s, α⟩} remember the action {@code α}
+	 * by which {@code s} was entered, is a lazily expanded {@link FairnessView}
+	 * over {@code ts}. Its product with a transition-based generalized Büchi
+	 * automaton for {@code ¬ltl} (see {@link #LTL2TGBA(LTL)}, which avoids one
+	 * copy of the automaton per until sub-formula) is explored on-the-fly,
+	 * once, and the fairness condition is decided directly by the emptiness
+	 * check (fair SCC analysis) on the reachable part only.
+	 *
+	 * @param ts  Transition system
+	 * @param fc  Fairness condition
+	 * @param ltl An LTL formula
+	 * @param <S> Type of states in the transition system
+	 * @param <A> Type of actions in the transition system
+	 * @param <P> Type of atomic propositions in the transition system
+	 * @return a VerificationSucceeded object or a VerificationFailed object with a counterexample.
+	 */
+	public <S, A, P> VerificationResult<S> verifyFairLTLFormula(TransitionSystem<S, A, P> ts, FairnessCondition<A> fc, LTL<P> ltl)
 	{
-		private final P ap;
-
-		OriginalAP(P ap)
-		{
-			this.ap = ap;
-		}
-
-		public P getAp()
-		{
-			return ap;
-		}
+		return verifyFairProduct(new FairnessView<>(ImplicitTransitionSystem.of(ts)), LTL2TGBA(not(ltl)), fc, atomicPropositions(ltl));
 	}
 
-	private static class TriggeredAP<A> extends ExtendedAP
+	/**
+	 * @return The atomic propositions {@code ltl} refers to. The automata built
+	 * by {@link #LTL2NBA(LTL)} and {@link #LTL2TGBA(LTL)} read labels over
+	 * these propositions only.
+	 */
+	private <P> Set<P> atomicPropositions(LTL<P> ltl)
 	{
-		private final A triggeredAct;
-
-		TriggeredAP(A triggeredAct)
+		final Set<P> aps = new HashSet<>();
+		final Deque<LTL<P>> toVisit = new ArrayDeque<>(List.of(ltl));
+		while (!toVisit.isEmpty())
 		{
-			this.triggeredAct = triggeredAct;
-		}
-
-		public A getTriggeredAct()
-		{
-			return triggeredAct;
+			final LTL<P> formula = toVisit.pop();
+			if (formula instanceof AP)
+				aps.add(((AP<P>) formula).getName());
+			else if (formula instanceof Not)
+				toVisit.push(((Not<P>) formula).getInner());
+			else if (formula instanceof Next)
+				toVisit.push(((Next<P>) formula).getInner());
+			else if (formula instanceof And)
+			{
+				toVisit.push(((And<P>) formula).getLeft());
+				toVisit.push(((And<P>) formula).getRight());
+			} else if (formula instanceof Until)
+			{
+				toVisit.push(((Until<P>) formula).getLeft());
+				toVisit.push(((Until<P>) formula).getRight());
+			}
 		}
+		return aps;
 	}
 
-	private static class EnabledAP<A> extends ExtendedAP
+	/**
+	 * Emptiness check of {@code TS_F ⊗ aut} under {@code fc}: looks for a
+	 * reachable cycle that takes transitions of every acceptance set of
+	 * {@code aut} infinitely often and is fair w.r.t. all the unconditional,
+	 * strong and weak
+	 * constraints of {@code fc}. The product is expanded on demand, labels are
+	 * projected on {@code aps}.
+	 */
+	private <S, A, P, Saut> VerificationResult<S> verifyFairProduct(FairnessView<S, A, P> tsF,
+	                                                                 TransitionBasedAutomaton<Saut, P> aut,
+	                                                                 FairnessCondition<A> fc,
+	                                                                 Set<P> aps)
 	{
-		private final A enabledAP;
+		final Function<Pair<S, A>, Set<P>> label = state -> tsF.getLabel(state).stream()
+				.filter(aps::contains)
+				.collect(Collectors.toSet());
 
-		EnabledAP(A enabledAP)
-		{
-			this.enabledAP = enabledAP;
-		}
+		final Set<Pair<Pair<S, A>, Saut>> initial = new HashSet<>();
+		tsF.getInitialStates()
+				.forEach(s_0 -> aut.getInitialStates()
+						.forEach(q_0 -> aut.nextStates(q_0, label.apply(s_0))
+								.forEach(q -> initial.add(new Pair<>(s_0, q))))); // Iₓ = {⟨s₀, q⟩: s₀∈I_F ∧ ∃q₀∈Q₀ . q∈𝛿(q₀, L(s₀))}
 
-		public A getEnabledAP()
+		final FairCycleDetector<Pair<Pair<S, A>, Saut>> detector =
+				new FairCycleDetector<Pair<Pair<S, A>, Saut>>(state ->
+				{
+					final List<Pair<Pair<S, A>, Saut>> successors = new ArrayList<>();
+					tsF.getTransitionsFrom(state.getFirst())
+							.forEach(transition ->
+							{
+								final Pair<S, A> to = transition.getTo();
+								aut.nextStates(state.getSecond(), label.apply(to))
+										.forEach(p -> successors.add(new Pair<>(to, p)));
+							}); // ⟨s, q⟩ →ₓ ⟨t, p⟩ iff s → t ∧ p∈𝛿(q, L(t))
+					return successors;
+				});
+		for (int i = 0; i < aut.getAcceptanceSets(); i++)
 		{
-			return enabledAP;
+			final int set = i;
+			detector.addBuchiEdgeSet((from, to) -> aut.isMarked(from.getSecond(), label.apply(to.getFirst()), to.getSecond(), set)); // the marks of q -L(t)-> p
 		}
+		fc.getUnconditional()
+				.forEach(actions -> detector.addBuchiSet(state -> actions.contains(tsF.getTriggeredAction(state.getFirst()))));
+		fc.getStrong()
+				.forEach(actions -> detector.addStrongPair(state -> !Collections.disjoint(actions, tsF.getEnabledActions(state.getFirst())),
+						state -> actions.contains(tsF.getTriggeredAction(state.getFirst()))));
+		fc.getWeak()
+				.forEach(actions -> detector.addWeakPair(state -> !Collections.disjoint(actions, tsF.getEnabledActions(state.getFirst())),
+						state -> actions.contains(tsF.getTriggeredAction(state.getFirst()))));
+
+		final VerificationResult<Pair<Pair<S, A>, Saut>> result = detector.findFairCycle(initial);
+		if (result instanceof VerificationSucceeded)
+			return new VerificationSucceeded<>();
+
+		final VerificationFailed<Pair<Pair<S, A>, Saut>> productFailure = (VerificationFailed<Pair<Pair<S, A>, Saut>>) result;
+		final VerificationFailed<S> failure = new VerificationFailed<>();
+		failure.setPrefix(productFailure.getPrefix().stream()
+				.map(state -> state.getFirst().getFirst())
+				.collect(Collectors.toList()));
+		failure.setCycle(productFailure.getCycle().stream()
+				.map(state -> state.getFirst().getFirst())
+				.collect(Collectors.toList()));
+		return failure;
 	}
 }
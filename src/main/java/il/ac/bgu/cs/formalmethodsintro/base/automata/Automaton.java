@@ -3,8 +3,11 @@ package il.ac.bgu.cs.formalmethodsintro.base.automata;
 import static java.util.Arrays.asList;
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.svvrl.goal.cmd.Constant;
 import org.svvrl.goal.cmd.Context;
@@ -19,11 +22,11 @@ import org.svvrl.goal.core.aut.opt.RefinedSimulation2;
 import org.svvrl.goal.core.aut.opt.SimulationRepository;
 import org.svvrl.goal.core.comp.ComplementRepository;
 import org.svvrl.goal.core.comp.piterman.PitermanConstruction;
+import org.svvrl.goal.core.io.Codec;
 import org.svvrl.goal.core.io.CodecRepository;
 import org.svvrl.goal.core.io.FSACodec;
 
 import il.ac.bgu.cs.formalmethodsintro.base.goal.AutomatonIO;
-import org.svvrl.goal.cmd.EvaluationException;
 import org.svvrl.goal.core.io.OldGFFCodec;
 
 /**
@@ -44,37 +47,60 @@ public class Automaton<State, Sigma> extends MultiColorAutomaton<State, Sigma>
 		return super.getAcceptingStates(0);
 	}
 
+	/**
+	 * Language equivalence, decided in memory by {@link BuchiInclusion}.
+	 *
+	 * @param other An automaton over the same alphabet.
+	 * @return {@code true} iff both automata accept the same language.
+	 */
 	public boolean isEquivalentTo(Automaton<?, Sigma> other) throws Exception
 	{
-		AutomatonIO.write(other, "other.gff");
-		AutomatonIO.write(this, "this.gff");
-
-		Context context = new Context();
-
-		Constant con1 = new Constant("this.gff");
-		Constant con2 = new Constant("other.gff");
+		return BuchiInclusion.areEquivalent(this, other);
+	}
 
-		Lval lval1 = new Lval("th", new Expression[]{});
-		Lval lval2 = new Lval("ot", new Expression[]{});
+	/**
+	 * Language equivalence, decided by GOAL (complementation based). Kept as a
+	 * cross-check for {@link #isEquivalentTo(Automaton)}.
+	 *
+	 * @param other An automaton over the same alphabet.
+	 * @return {@code true} iff both automata accept the same language.
+	 */
+	public boolean isEquivalentToUsingGoal(Automaton<?, Sigma> other) throws Exception
+	{
+		final Path otherFile = Files.createTempFile("other", ".gff");
+		final Path thisFile = Files.createTempFile("this", ".gff");
+		try
+		{
+			AutomatonIO.write(other, otherFile.toString());
+			AutomatonIO.write(this, thisFile.toString());
 
-		// CodecRepository..add(0, new GFFCodec());
-		CodecRepository.add(0, new OldGFFCodec());
+			synchronized (GOAL_LOCK)
+			{
+				registerGoalExtensions(OldGFFCodec.class, OldGFFCodec::new);
 
-		SimulationRepository.addSimulation2("RefinedSimilarity", FSA.class, RefinedSimulation2.class);
-		SimulationRepository.addSimulation("RefinedSimilarity", FSA.class, RefinedSimulation.class);
+				Context context = new Context();
 
-		ComplementRepository.add("Safra-Piterman Construction", PitermanConstruction.class);
+				Constant con1 = new Constant(thisFile.toString());
+				Constant con2 = new Constant(otherFile.toString());
 
-		LoadCommand lc1 = new LoadCommand(asList(lval1, con1));
-		lc1.eval(context);
+				Lval lval1 = new Lval("th", new Expression[]{});
+				Lval lval2 = new Lval("ot", new Expression[]{});
 
-		LoadCommand lc2 = new LoadCommand(asList(lval2, con2));
-		lc2.eval(context);
+				LoadCommand lc1 = new LoadCommand(asList(lval1, con1));
+				lc1.eval(context);
 
-		EquivalenceCommand ec = new EquivalenceCommand(asList(lval1, lval2));
+				LoadCommand lc2 = new LoadCommand(asList(lval2, con2));
+				lc2.eval(context);
 
-		return (Boolean) ec.eval(context);
+				EquivalenceCommand ec = new EquivalenceCommand(asList(lval1, lval2));
 
+				return (Boolean) ec.eval(context);
+			}
+		} finally
+		{
+			Files.deleteIfExists(otherFile);
+			Files.deleteIfExists(thisFile);
+		}
 	}
 
 	public boolean isEquivalentTo(String serializedAutomaton)
@@ -83,48 +109,94 @@ public class Automaton<State, Sigma> extends MultiColorAutomaton<State, Sigma>
 				+ "<logic name=\"QPTL\">\r\n <name/>\r\n <description/>\r\n <formula>"
 				+ serializedAutomaton + "</formula>\r\n</logic>\r\n";
 
-		try (BufferedWriter writer = new BufferedWriter(new FileWriter("formula.gff")))
+		Path formulaFile = null;
+		Path thisFile = null;
+		try
 		{
+			formulaFile = Files.createTempFile("formula", ".gff");
+			thisFile = Files.createTempFile("this", ".gff");
 
-			writer.write(xml);
-			writer.close();
+			try (BufferedWriter writer = Files.newBufferedWriter(formulaFile))
+			{
+				writer.write(xml);
+			}
 
-			AutomatonIO.write(this, "this.gff");
+			AutomatonIO.write(this, thisFile.toString());
 
-			Context context = new Context();
+			synchronized (GOAL_LOCK)
+			{
+				registerGoalExtensions(FSACodec.class, FSACodec::new);
 
-			Constant con1 = new Constant("this.gff");
-			Constant con3 = new Constant("formula.gff");
+				Context context = new Context();
 
-			Lval lval1 = new Lval("th", new Expression[]{});
-			Lval lval3 = new Lval("fo", new Expression[]{});
+				Constant con1 = new Constant(thisFile.toString());
+				Constant con3 = new Constant(formulaFile.toString());
 
-			//CodecRepository.add(0, new GFFCodec());
-			CodecRepository.add(0, new FSACodec());
+				Lval lval1 = new Lval("th", new Expression[]{});
+				Lval lval3 = new Lval("fo", new Expression[]{});
 
+				LoadCommand lc1 = new LoadCommand(asList(lval1, con1));
+				lc1.eval(context);
 
-			SimulationRepository.addSimulation2("RefinedSimilarity", FSA.class, RefinedSimulation2.class);
-			SimulationRepository.addSimulation("RefinedSimilarity", FSA.class, RefinedSimulation.class);
+				LoadCommand lc3 = new LoadCommand(asList(lval3, con3));
+				lc3.eval(context);
 
-			ComplementRepository.add("Safra-Piterman Construction", PitermanConstruction.class);
+				TranslateCommand tc = new TranslateCommand(asList(lval3));
+				tc.eval(context);
 
-			LoadCommand lc1 = new LoadCommand(asList(lval1, con1));
-			lc1.eval(context);
+				EquivalenceCommand ec = new EquivalenceCommand(asList(lval1, tc));
 
-			LoadCommand lc3 = new LoadCommand(asList(lval3, con3));
-			lc3.eval(context);
+				return (Boolean) ec.eval(context);
+			}
+		} catch (Exception e)
+		{
+			e.printStackTrace(System.err);
+			return false;
+		} finally
+		{
+			deleteQuietly(formulaFile);
+			deleteQuietly(thisFile);
+		}
+	}
 
-			TranslateCommand tc = new TranslateCommand(asList(lval3));
-			tc.eval(context);
+	/**
+	 * GOAL keeps its codecs, simulations and complementation constructions in
+	 * global, unsynchronized repositories; all GOAL calls are serialized on
+	 * this lock.
+	 */
+	private static final Object GOAL_LOCK = new Object();
+	private static boolean goalConstructionsRegistered = false;
+
+	/**
+	 * Registers the GOAL extensions used here, once. The codec is re-added in
+	 * front only if another one took its place meanwhile, so repeated calls do
+	 * not grow the repository.
+	 */
+	private static void registerGoalExtensions(Class<? extends Codec> codecType, Supplier<Codec> codec)
+	{
+		final Codec[] codecs = CodecRepository.getCodecs();
+		if (codecs.length == 0 || !codecType.isInstance(codecs[0]))
+			CodecRepository.add(0, codec.get());
 
-			EquivalenceCommand ec = new EquivalenceCommand(asList(lval1, tc));
+		if (!goalConstructionsRegistered)
+		{
+			SimulationRepository.addSimulation2("RefinedSimilarity", FSA.class, RefinedSimulation2.class);
+			SimulationRepository.addSimulation("RefinedSimilarity", FSA.class, RefinedSimulation.class);
 
-			return (Boolean) ec.eval(context);
+			ComplementRepository.add("Safra-Piterman Construction", PitermanConstruction.class);
+			goalConstructionsRegistered = true;
+		}
+	}
 
-		} catch (Exception e)
+	private static void deleteQuietly(Path file)
+	{
+		if (file == null)
+			return;
+		try
+		{
+			Files.deleteIfExists(file);
+		} catch (IOException ignored)
 		{
-			e.printStackTrace(System.err);
-			return false;
 		}
 	}
 
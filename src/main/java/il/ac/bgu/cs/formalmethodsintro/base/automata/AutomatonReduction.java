@@ -0,0 +1,252 @@
+package il.ac.bgu.cs.formalmethodsintro.base.automata;
+
+import java.util.*;
+
+/**
+ * Language preserving state space reduction of Büchi automata, meant to be
+ * applied before building products. The reduced automaton uses a subset of
+ * the original states, so it has the same state type. The pass runs:
+ * <ol>
+ * <li>{@link #trim(Automaton) trimming}: removes the states that are not
+ * reachable, or cannot reach an accepting cycle (their language is
+ * empty);</li>
+ * <li>{@link #quotient(Automaton) quotienting}: merges the states that
+ * delayed-simulate each other (which covers direct simulation
+ * equivalence). Parallel transitions collapse in the process;</li>
+ * <li>{@link #backwardQuotient(Automaton) backward quotienting}: merges the
+ * states that backward simulate each other, such as the copies of a state
+ * that degeneralization reaches by the same transitions;</li>
+ * <li>{@link #pruneLittleBrothers(Automaton) pruning}: drops transitions
+ * (and initial states) whose target is strictly directly simulated by the
+ * target of a sibling transition on the same letter;</li>
+ * <li>trimming again, since pruning may disconnect states.</li>
+ * </ol>
+ */
+public final class AutomatonReduction
+{
+	private AutomatonReduction()
+	{
+	}
+
+	/**
+	 * @param aut A Büchi automaton.
+	 * @param <S> Type of states.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return An automaton with the same language and at most as many states
+	 * and transitions.
+	 */
+	public static <S, L> Automaton<S, L> reduce(Automaton<S, L> aut)
+	{
+		return trim(pruneLittleBrothers(backwardQuotient(quotient(trim(aut)))));
+	}
+
+	/**
+	 * @param aut A Büchi automaton.
+	 * @param <S> Type of states.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return The sub-automaton of the states that are reachable and can
+	 * reach an accepting cycle.
+	 */
+	public static <S, L> Automaton<S, L> trim(Automaton<S, L> aut)
+	{
+		final Map<Set<L>, Integer> alphabet = IndexedAutomaton.alphabet(aut);
+		final IndexedAutomaton<S, L> indexed = new IndexedAutomaton<>(aut, alphabet);
+		final int n = indexed.size();
+
+		final int[][] successors = forward(indexed);
+		final BitSet reachable = new BitSet(n);
+		Arrays.stream(indexed.initial).forEach(reachable::set);
+		closeUnder(reachable, successors);
+
+		final int[][] predecessors = backward(successors);
+		final BitSet useful = new BitSet(n);
+		for (int s = reachable.nextSetBit(0); s >= 0; s = reachable.nextSetBit(s + 1))
+			if ((indexed.accepting[s] & 1) != 0 && onCycle(successors, s))
+				useful.set(s);
+		closeUnder(useful, predecessors);
+		useful.and(reachable);
+
+		final int[] representative = new int[n];
+		for (int s = 0; s < n; s++)
+			representative[s] = useful.get(s) ? s : -1;
+		return build(indexed, alphabet, representative, indexed.successors, indexed.initial);
+	}
+
+	/**
+	 * @param aut A Büchi automaton.
+	 * @param <S> Type of states.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return The quotient of {@code aut} by delayed simulation equivalence;
+	 * a class is accepting if one of its states is.
+	 * @see Simulation#delayed(Automaton)
+	 */
+	public static <S, L> Automaton<S, L> quotient(Automaton<S, L> aut)
+	{
+		final Map<Set<L>, Integer> alphabet = IndexedAutomaton.alphabet(aut);
+		final IndexedAutomaton<S, L> indexed = new IndexedAutomaton<>(aut, alphabet);
+		final BitSet[] simulators = Simulation.delayed(indexed.successors, indexed.accepting);
+		return build(indexed, alphabet, representatives(simulators), indexed.successors, indexed.initial);
+	}
+
+	/**
+	 * @param aut A Büchi automaton.
+	 * @param <S> Type of states.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return The quotient of {@code aut} by backward direct simulation
+	 * equivalence.
+	 * @see Simulation#backward(int[][][], long[], int[])
+	 */
+	public static <S, L> Automaton<S, L> backwardQuotient(Automaton<S, L> aut)
+	{
+		final Map<Set<L>, Integer> alphabet = IndexedAutomaton.alphabet(aut);
+		final IndexedAutomaton<S, L> indexed = new IndexedAutomaton<>(aut, alphabet);
+		final BitSet[] simulators = Simulation.backward(indexed.successors, indexed.accepting, indexed.initial);
+		return build(indexed, alphabet, representatives(simulators), indexed.successors, indexed.initial);
+	}
+
+	/**
+	 * @return For each state, the first state that simulates it and that it
+	 * simulates.
+	 */
+	private static int[] representatives(BitSet[] simulators)
+	{
+		final int[] representative = new int[simulators.length];
+		for (int s = 0; s < simulators.length; s++)
+		{
+			representative[s] = s;
+			for (int t = simulators[s].nextSetBit(0); t >= 0 && t < s; t = simulators[s].nextSetBit(t + 1))
+				if (simulators[t].get(s))
+				{
+					representative[s] = representative[t];
+					break;
+				}
+		}
+		return representative;
+	}
+
+	/**
+	 * @param aut A Büchi automaton.
+	 * @param <S> Type of states.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return {@code aut} without the transitions {@code s -σ-> t} for which
+	 * there is a transition {@code s -σ-> t'} with {@code t} strictly directly
+	 * simulated by {@code t'}, and without the initial states that are
+	 * strictly directly simulated by another initial state. Among mutually
+	 * simulating targets, only the first one is kept.
+	 */
+	public static <S, L> Automaton<S, L> pruneLittleBrothers(Automaton<S, L> aut)
+	{
+		final Map<Set<L>, Integer> alphabet = IndexedAutomaton.alphabet(aut);
+		final IndexedAutomaton<S, L> indexed = new IndexedAutomaton<>(aut, alphabet);
+		final BitSet[] simulators = Simulation.direct(indexed.successors, indexed.accepting);
+
+		final int[][][] successors = new int[indexed.size()][][];
+		final int[] representative = new int[indexed.size()];
+		for (int s = 0; s < indexed.size(); s++)
+		{
+			representative[s] = s;
+			successors[s] = new int[alphabet.size()][];
+			for (int letter = 0; letter < alphabet.size(); letter++)
+				successors[s][letter] = bigBrothers(indexed.successors[s][letter], simulators);
+		}
+		return build(indexed, alphabet, representative, successors, bigBrothers(indexed.initial, simulators));
+	}
+
+	/**
+	 * @return The states of {@code states} that are not dominated by another
+	 * one of them.
+	 */
+	private static int[] bigBrothers(int[] states, BitSet[] simulators)
+	{
+		return Arrays.stream(states)
+				.filter(t -> Arrays.stream(states)
+						.noneMatch(other -> other != t && simulators[t].get(other) && (!simulators[other].get(t) || other < t)))
+				.toArray();
+	}
+
+	private static boolean onCycle(int[][] successors, int s)
+	{
+		final BitSet reached = new BitSet(successors.length);
+		for (int t : successors[s])
+			reached.set(t);
+		closeUnder(reached, successors);
+		return reached.get(s);
+	}
+
+	/**
+	 * Adds to {@code states} everything reachable from it along
+	 * {@code edges}.
+	 */
+	private static void closeUnder(BitSet states, int[][] edges)
+	{
+		final Deque<Integer> toVisit = new ArrayDeque<>();
+		states.stream().forEach(toVisit::push);
+		while (!toVisit.isEmpty())
+			for (int t : edges[toVisit.pop()])
+				if (!states.get(t))
+				{
+					states.set(t);
+					toVisit.push(t);
+				}
+	}
+
+	private static int[][] forward(IndexedAutomaton<?, ?> aut)
+	{
+		final int[][] edges = new int[aut.size()][];
+		for (int s = 0; s < aut.size(); s++)
+			edges[s] = Arrays.stream(aut.successors[s])
+					.flatMapToInt(Arrays::stream)
+					.distinct()
+					.toArray();
+		return edges;
+	}
+
+	private static int[][] backward(int[][] forward)
+	{
+		final List<List<Integer>> predecessors = new ArrayList<>(forward.length);
+		for (int s = 0; s < forward.length; s++)
+			predecessors.add(new ArrayList<>());
+		for (int s = 0; s < forward.length; s++)
+			for (int t : forward[s])
+				predecessors.get(t).add(s);
+		return predecessors.stream()
+				.map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+				.toArray(int[][]::new);
+	}
+
+	/**
+	 * Builds the automaton whose states are the representatives of the states
+	 * of {@code aut} ({@code -1} drops a state), with the given transitions and
+	 * initial states. A representative is accepting if one of the states it
+	 * stands for is.
+	 */
+	private static <S, L> Automaton<S, L> build(IndexedAutomaton<S, L> aut,
+	                                            Map<Set<L>, Integer> alphabet,
+	                                            int[] representative,
+	                                            int[][][] successors,
+	                                            int[] initial)
+	{
+		final List<Set<L>> letters = new ArrayList<>(Collections.nCopies(alphabet.size(), null));
+		alphabet.forEach((symbol, letter) -> letters.set(letter, symbol));
+
+		final Automaton<S, L> reduced = new Automaton<>();
+		reduced.getAcceptingStates(); // an automaton without accepting states still has the (empty) acceptance set
+		for (int s = 0; s < aut.size(); s++)
+		{
+			if (representative[s] < 0)
+				continue;
+			final S state = aut.states.get(representative[s]);
+			reduced.addState(state);
+			if ((aut.accepting[s] & 1) != 0)
+				reduced.setAccepting(state);
+			for (int letter = 0; letter < letters.size(); letter++)
+				for (int t : successors[s][letter])
+					if (representative[t] >= 0)
+						reduced.addTransition(state, letters.get(letter), aut.states.get(representative[t]));
+		}
+		for (int s : initial)
+			if (representative[s] >= 0)
+				reduced.setInitial(aut.states.get(representative[s]));
+		return reduced;
+	}
+}
@@ -0,0 +1,416 @@
+package il.ac.bgu.cs.formalmethodsintro.base.automata;
+
+import java.util.*;
+
+/**
+ * In-memory language inclusion and equivalence for (generalized) Büchi
+ * automata, without complementation.
+ * <p>
+ * {@code L(A) ⊈ L(B)} iff there is an ultimately periodic word
+ * {@code u·v^ω} and an {@code A}-state {@code p} such that {@code A} reads
+ * {@code u} into {@code p}, reads {@code v} from {@code p} back to {@code p}
+ * through all of its acceptance sets, and {@code B} has no accepting run on
+ * {@code u·v^ω}. The check is Ramsey based:
+ * <ul>
+ * <li>the prefixes {@code u} are summarized as pairs {@code ⟨p, X⟩}, where
+ * {@code X} is the set of {@code B}-states reached on {@code u};</li>
+ * <li>the periods {@code v} are summarized as supergraphs
+ * {@code ⟨p, q, colors, g⟩}, where {@code g} records which {@code B}-states
+ * reach which on {@code v}, and whether an accepting state was seen on the
+ * way ({@code B} is degeneralized with a counter for that purpose);</li>
+ * <li>a prefix and a period with {@code p = q} and all colors of {@code A}
+ * witness non-inclusion iff no infinite path of {@code g} from {@code X} is
+ * accepting.</li>
+ * </ul>
+ * Both sets are kept as antichains: a prefix is dropped when another prefix
+ * of the same {@code A}-state reaches a set of {@code B}-states that are all
+ * directly simulated by the ones it reaches, and a supergraph is dropped when
+ * another one with the same endpoints has at least its colors and a subset
+ * of its arcs. Before any of that, inclusion is settled immediately when each
+ * initial state of {@code A} is directly simulated by an initial state of
+ * {@code B}.
+ * <p>
+ * Nothing is shared between calls, so checks may run concurrently as long as
+ * the automata themselves are not modified meanwhile.
+ */
+public final class BuchiInclusion
+{
+	private BuchiInclusion()
+	{
+	}
+
+	/**
+	 * @param a   An automaton.
+	 * @param b   An automaton.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return {@code true} iff {@code L(a) ⊆ L(b)}.
+	 */
+	public static <L> boolean isIncluded(MultiColorAutomaton<?, L> a, MultiColorAutomaton<?, L> b)
+	{
+		return new Check<>(a, b).isIncluded();
+	}
+
+	/**
+	 * @param a   An automaton.
+	 * @param b   An automaton.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return {@code true} iff {@code L(a) = L(b)}.
+	 */
+	public static <L> boolean areEquivalent(MultiColorAutomaton<?, L> a, MultiColorAutomaton<?, L> b)
+	{
+		return isIncluded(a, b) && isIncluded(b, a);
+	}
+
+	private static final class Check<SA, SB, L>
+	{
+		private final IndexedAutomaton<SA, L> a;
+		private final IndexedAutomaton<SB, L> b;
+		private final int letters;
+		private final BitSet[] simulatorsB;
+
+		/**
+		 * Number of counter values of the degeneralized {@code B}, whose nodes
+		 * are {@code s·copies + i}.
+		 */
+		private final int copies;
+		private final int nodes;
+		private final int[][][] arcTargets;
+		private final byte[][][] arcAccepting;
+
+		Check(MultiColorAutomaton<SA, L> a, MultiColorAutomaton<SB, L> b)
+		{
+			final Map<Set<L>, Integer> alphabet = IndexedAutomaton.alphabet(a, b);
+			this.a = new IndexedAutomaton<>(a, alphabet);
+			this.b = new IndexedAutomaton<>(b, alphabet);
+			letters = alphabet.size();
+			simulatorsB = Simulation.direct(this.b.successors, this.b.accepting);
+
+			copies = Math.max(this.b.colors, 1);
+			nodes = this.b.size() * copies;
+			arcTargets = new int[letters][nodes][];
+			arcAccepting = new byte[letters][nodes][];
+			for (int letter = 0; letter < letters; letter++)
+				for (int s = 0; s < this.b.size(); s++)
+					for (int i = 0; i < copies; i++)
+					{
+						final int[] successors = this.b.successors[s][letter];
+						final boolean inSet = this.b.colors == 0 || (this.b.accepting[s] & 1L << i) != 0;
+						final int next = inSet ? (i + 1) % copies : i;
+						final byte accepting = (byte) (inSet && i == copies - 1 ? 1 : 0);
+						final int[] targets = new int[successors.length];
+						final byte[] flags = new byte[successors.length];
+						for (int j = 0; j < successors.length; j++)
+						{
+							targets[j] = successors[j] * copies + next;
+							flags[j] = accepting;
+						}
+						arcTargets[letter][s * copies + i] = targets;
+						arcAccepting[letter][s * copies + i] = flags;
+					}
+		}
+
+		boolean isIncluded()
+		{
+			if (a.initial.length == 0 || initialStatesSimulated())
+				return true;
+
+			final Map<Integer, List<BitSet>> prefixes = prefixes();
+
+			final Map<Integer, List<Period>> periods = new HashMap<>();
+			final Deque<Period> toExtend = new ArrayDeque<>();
+			for (int p : prefixes.keySet())
+				for (int letter = 0; letter < letters; letter++)
+				{
+					final byte[] graph = extend(null, letter);
+					for (int q : a.successors[p][letter])
+						if (add(periods, toExtend, new Period(p, q, a.accepting[p], graph)) && isCounterexample(prefixes, p, q, a.accepting[p], graph))
+							return false;
+				}
+
+			while (!toExtend.isEmpty())
+			{
+				final Period period = toExtend.pop();
+				if (period.dominated)
+					continue;
+				for (int letter = 0; letter < letters; letter++)
+				{
+					if (a.successors[period.q][letter].length == 0)
+						continue;
+					final byte[] graph = extend(period.graph, letter);
+					final long colors = period.colors | a.accepting[period.q];
+					for (int q : a.successors[period.q][letter])
+						if (add(periods, toExtend, new Period(period.p, q, colors, graph)) && isCounterexample(prefixes, period.p, q, colors, graph))
+							return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Sufficient condition for inclusion: every initial state of {@code A}
+		 * is directly simulated by an initial state of {@code B}, computed on
+		 * the disjoint union of both. Only applies when neither automaton is
+		 * generalized, so that acceptance means the same on both sides.
+		 */
+		private boolean initialStatesSimulated()
+		{
+			if (a.colors > 1 || b.colors > 1)
+				return false;
+
+			final int[][][] successors = new int[a.size() + b.size()][][];
+			final long[] accepting = new long[a.size() + b.size()];
+			for (int s = 0; s < a.size(); s++)
+			{
+				successors[s] = a.successors[s];
+				accepting[s] = a.colors == 0 ? 1 : a.accepting[s];
+			}
+			for (int s = 0; s < b.size(); s++)
+			{
+				successors[a.size() + s] = new int[letters][];
+				for (int letter = 0; letter < letters; letter++)
+					successors[a.size() + s][letter] = Arrays.stream(b.successors[s][letter])
+							.map(t -> a.size() + t)
+							.toArray();
+				accepting[a.size() + s] = b.colors == 0 ? 1 : b.accepting[s];
+			}
+
+			final BitSet[] simulators = Simulation.direct(successors, accepting);
+			return Arrays.stream(a.initial)
+					.allMatch(p -> Arrays.stream(b.initial)
+							.anyMatch(q -> simulators[p].get(a.size() + q)));
+		}
+
+		/**
+		 * @return For each reachable {@code A}-state {@code p}, an antichain of
+		 * the sets of {@code B}-states reachable on words leading {@code A} to
+		 * {@code p}.
+		 */
+		private Map<Integer, List<BitSet>> prefixes()
+		{
+			final Map<Integer, List<BitSet>> prefixes = new HashMap<>();
+			final Deque<Map.Entry<Integer, BitSet>> toExtend = new ArrayDeque<>();
+
+			final BitSet initialB = new BitSet(b.size());
+			Arrays.stream(b.initial).forEach(initialB::set);
+			final BitSet reducedInitialB = reduce(initialB);
+			for (int p : a.initial)
+				if (add(prefixes, p, reducedInitialB))
+					toExtend.push(Map.entry(p, reducedInitialB));
+
+			while (!toExtend.isEmpty())
+			{
+				final Map.Entry<Integer, BitSet> prefix = toExtend.pop();
+				final int p = prefix.getKey();
+				final BitSet states = prefix.getValue();
+				if (!prefixes.get(p).contains(states))
+					continue;
+				for (int letter = 0; letter < letters; letter++)
+				{
+					if (a.successors[p][letter].length == 0)
+						continue;
+					final BitSet next = new BitSet(b.size());
+					for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+						for (int t : b.successors[s][letter])
+							next.set(t);
+					final BitSet reduced = reduce(next);
+					for (int q : a.successors[p][letter])
+						if (add(prefixes, q, reduced))
+							toExtend.push(Map.entry(q, reduced));
+				}
+			}
+			return prefixes;
+		}
+
+		/**
+		 * Removes the states that are directly simulated by another state of
+		 * the set, keeping a single representative of simulation-equivalent
+		 * states.
+		 */
+		private BitSet reduce(BitSet states)
+		{
+			final BitSet reduced = (BitSet) states.clone();
+			for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+				for (int t = states.nextSetBit(0); t >= 0; t = states.nextSetBit(t + 1))
+					if (t != s && simulatorsB[s].get(t) && (!simulatorsB[t].get(s) || t < s))
+					{
+						reduced.clear(s);
+						break;
+					}
+			return reduced;
+		}
+
+		/**
+		 * Adds {@code states} to the antichain of {@code p}, unless some set
+		 * already there is covered by it.
+		 *
+		 * @return {@code true} iff {@code states} was added.
+		 */
+		private boolean add(Map<Integer, List<BitSet>> prefixes, int p, BitSet states)
+		{
+			final List<BitSet> antichain = prefixes.computeIfAbsent(p, k -> new ArrayList<>());
+			for (BitSet other : antichain)
+				if (covers(states, other))
+					return false;
+			antichain.removeIf(other -> covers(other, states));
+			antichain.add(states);
+			return true;
+		}
+
+		/**
+		 * @return {@code true} iff every state of {@code smaller} is simulated
+		 * by a state of {@code larger}, so that {@code B} accepts from
+		 * {@code smaller} only what it accepts from {@code larger}.
+		 */
+		private boolean covers(BitSet larger, BitSet smaller)
+		{
+			for (int s = smaller.nextSetBit(0); s >= 0; s = smaller.nextSetBit(s + 1))
+				if (!simulatorsB[s].intersects(larger))
+					return false;
+			return true;
+		}
+
+		/**
+		 * Adds {@code period} to the antichain of its endpoints, unless some
+		 * supergraph already there is at least as good a witness. Supergraphs it
+		 * beats are dropped (and skipped if still waiting to be extended).
+		 *
+		 * @return {@code true} iff {@code period} was added.
+		 */
+		private boolean add(Map<Integer, List<Period>> periods, Deque<Period> toExtend, Period period)
+		{
+			final List<Period> antichain = periods.computeIfAbsent(period.p * a.size() + period.q, k -> new ArrayList<>());
+			for (Period other : antichain)
+				if (other.isAsGoodAs(period))
+					return false;
+			antichain.removeIf(other ->
+			{
+				if (!period.isAsGoodAs(other))
+					return false;
+				other.dominated = true;
+				return true;
+			});
+			antichain.add(period);
+			toExtend.push(period);
+			return true;
+		}
+
+		private boolean isCounterexample(Map<Integer, List<BitSet>> prefixes, int p, int q, long colors, byte[] graph)
+		{
+			if (p != q || colors != a.fullMask())
+				return false;
+			for (BitSet states : prefixes.getOrDefault(p, List.of()))
+				if (!hasAcceptingPath(states, graph))
+					return true;
+			return false;
+		}
+
+		/**
+		 * @return {@code true} iff some path of {@code graph}, starting at the
+		 * nodes of {@code states}, visits an accepting arc infinitely often,
+		 * i.e. reaches a cycle through an accepting arc.
+		 */
+		private boolean hasAcceptingPath(BitSet states, byte[] graph)
+		{
+			final BitSet sources = new BitSet(nodes);
+			for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+				sources.set(s * copies);
+			final BitSet reachable = reachable(sources, graph);
+			for (int u = reachable.nextSetBit(0); u >= 0; u = reachable.nextSetBit(u + 1))
+				for (int v = 0; v < nodes; v++)
+					if (graph[u * nodes + v] == 1)
+					{
+						final BitSet start = new BitSet(nodes);
+						start.set(v);
+						if (reachable(start, graph).get(u))
+							return true;
+					}
+			return false;
+		}
+
+		private BitSet reachable(BitSet sources, byte[] graph)
+		{
+			final BitSet reachable = (BitSet) sources.clone();
+			final Deque<Integer> toVisit = new ArrayDeque<>();
+			sources.stream().forEach(toVisit::push);
+			while (!toVisit.isEmpty())
+			{
+				final int u = toVisit.pop();
+				for (int v = 0; v < nodes; v++)
+					if (graph[u * nodes + v] >= 0 && !reachable.get(v))
+					{
+						reachable.set(v);
+						toVisit.push(v);
+					}
+			}
+			return reachable;
+		}
+
+		/**
+		 * @param graph  A graph of {@code B} over some word {@code v}, or
+		 *               {@code null} for the identity (the empty word).
+		 * @param letter A letter.
+		 * @return The graph of {@code B} over {@code v·letter}: {@code -1} for
+		 * no path, {@code 0} for a path and {@code 1} for a path through an
+		 * accepting arc.
+		 */
+		private byte[] extend(byte[] graph, int letter)
+		{
+			final byte[] extended = new byte[nodes * nodes];
+			Arrays.fill(extended, (byte) -1);
+			for (int u = 0; u < nodes; u++)
+				for (int v = 0; v < nodes; v++)
+				{
+					final byte prefix = graph == null ? (u == v ? 0 : (byte) -1) : graph[u * nodes + v];
+					if (prefix < 0)
+						continue;
+					final int[] targets = arcTargets[letter][v];
+					final byte[] flags = arcAccepting[letter][v];
+					for (int j = 0; j < targets.length; j++)
+					{
+						final byte value = (byte) Math.max(prefix, flags[j]);
+						if (extended[u * nodes + targets[j]] < value)
+							extended[u * nodes + targets[j]] = value;
+					}
+				}
+			return extended;
+		}
+	}
+
+	/**
+	 * A supergraph: a path of {@code A} from {@code p} to {@code q} over some
+	 * word, the acceptance sets it visited (excluding {@code q}), and the
+	 * graph of {@code B} over the same word.
+	 */
+	private static final class Period
+	{
+		final int p;
+		final int q;
+		final long colors;
+		final byte[] graph;
+		boolean dominated;
+
+		Period(int p, int q, long colors, byte[] graph)
+		{
+			this.p = p;
+			this.q = q;
+			this.colors = colors;
+			this.graph = graph;
+		}
+
+		/**
+		 * @return {@code true} iff this supergraph witnesses non-inclusion
+		 * whenever {@code other} does: it visits at least its colors, and
+		 * {@code B} has no path over it that it does not have over
+		 * {@code other}.
+		 */
+		boolean isAsGoodAs(Period other)
+		{
+			if ((other.colors & ~colors) != 0)
+				return false;
+			for (int i = 0; i < graph.length; i++)
+				if (graph[i] > other.graph[i])
+					return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package il.ac.bgu.cs.formalmethodsintro.base.automata;
+
+import java.util.*;
+
+/**
+ * An immutable, integer indexed snapshot of a {@link MultiColorAutomaton},
+ * used by the in-memory automata algorithms. States are numbered
+ * {@code 0..size()-1}, letters are numbered by a shared alphabet index so
+ * that several automata can be read over the same letters, and the
+ * acceptance sets are packed into a bitmask per state.
+ * <p>
+ * An {@link Automaton} always has exactly one acceptance set (color
+ * {@code 0}), even if no state was set accepting; a general
+ * {@link MultiColorAutomaton} has one acceptance set per color, and none at
+ * all means that every run is accepting.
+ *
+ * @param <S> Type of states.
+ * @param <L> Type of the propositions letters are made of.
+ */
+final class IndexedAutomaton<S, L>
+{
+	final List<S> states;
+	final Map<S, Integer> ids;
+	final int[] initial;
+	final int colors;
+	final long[] accepting;
+	final int[][][] successors;
+
+	IndexedAutomaton(MultiColorAutomaton<S, L> aut, Map<Set<L>, Integer> letters)
+	{
+		states = new ArrayList<>(aut.getTransitions().keySet());
+		ids = new HashMap<>(states.size() * 2);
+		for (int i = 0; i < states.size(); i++)
+			ids.put(states.get(i), i);
+
+		initial = aut.getInitialStates().stream()
+				.mapToInt(ids::get)
+				.toArray();
+
+		final List<Set<S>> acceptanceSets = acceptanceSets(aut);
+		if (acceptanceSets.size() > Long.SIZE - 1)
+			throw new IllegalArgumentException("Too many acceptance sets: " + acceptanceSets.size());
+		colors = acceptanceSets.size();
+		accepting = new long[states.size()];
+		for (int c = 0; c < colors; c++)
+			for (S s : acceptanceSets.get(c))
+			{
+				final Integer id = ids.get(s);
+				if (id != null)
+					accepting[id] |= 1L << c;
+			}
+
+		successors = new int[states.size()][letters.size()][];
+		for (int s = 0; s < states.size(); s++)
+		{
+			final int[][] row = successors[s];
+			Arrays.fill(row, new int[0]);
+			aut.getTransitions().get(states.get(s)).forEach((symbol, destinations) ->
+			{
+				final Integer letter = letters.get(symbol);
+				if (letter != null)
+					row[letter] = destinations.stream()
+							.mapToInt(ids::get)
+							.toArray();
+			});
+		}
+	}
+
+	int size()
+	{
+		return states.size();
+	}
+
+	/**
+	 * @return The bitmask of all acceptance sets.
+	 */
+	long fullMask()
+	{
+		return (1L << colors) - 1;
+	}
+
+	/**
+	 * Reads the acceptance sets of {@code aut} without creating empty ones as
+	 * a side effect, as {@link MultiColorAutomaton#getAcceptingStates(int)}
+	 * does for unknown colors.
+	 */
+	static <S> List<Set<S>> acceptanceSets(MultiColorAutomaton<S, ?> aut)
+	{
+		if (aut instanceof Automaton)
+			return List.of(aut.getColors().contains(0) ? aut.getAcceptingStates(0) : Set.of());
+
+		final List<Set<S>> sets = new ArrayList<>();
+		aut.getColors().stream()
+				.sorted()
+				.forEach(color -> sets.add(aut.getAcceptingStates(color)));
+		return sets;
+	}
+
+	/**
+	 * @return A numbering of all the letters used by the transitions of
+	 * {@code automata}.
+	 */
+	@SafeVarargs
+	static <L> Map<Set<L>, Integer> alphabet(MultiColorAutomaton<?, L>... automata)
+	{
+		final Map<Set<L>, Integer> letters = new HashMap<>();
+		for (MultiColorAutomaton<?, L> aut : automata)
+			aut.getTransitions().values()
+					.forEach(outgoing -> outgoing.keySet()
+							.forEach(symbol -> letters.putIfAbsent(symbol, letters.size())));
+		return letters;
+	}
+}
@@ -1,5 +1,6 @@
 package il.ac.bgu.cs.formalmethodsintro.base.automata;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -51,11 +52,19 @@ public class MultiColorAutomaton<State, L>
 		return transitions;
 	}
 
+	/**
+	 * @param source A state of the automaton.
+	 * @param symbol A letter.
+	 * @return The destinations of the transitions from {@code source} on
+	 * {@code symbol}; empty if there are none.
+	 * @throws IllegalArgumentException If {@code source} is not a state of the
+	 *                                  automaton.
+	 */
 	public Set<State> nextStates(State source, Set<L> symbol)
 	{
 		if (!transitions.containsKey(source))
 			throw new IllegalArgumentException();
-		return transitions.get(source).get(symbol);
+		return transitions.get(source).getOrDefault(symbol, Collections.emptySet());
 	}
 
 	public void setAccepting(State s, int color)
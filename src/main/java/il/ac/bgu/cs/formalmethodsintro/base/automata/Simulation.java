@@ -0,0 +1,365 @@
+package il.ac.bgu.cs.formalmethodsintro.base.automata;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * The direct simulation preorder of an automaton. A state {@code t} directly
+ * simulates a state {@code s} ({@code s ≼ t}) if {@code t} belongs to every
+ * acceptance set {@code s} belongs to, and every transition
+ * {@code s -σ-> s'} can be matched by a transition {@code t -σ-> t'} with
+ * {@code s' ≼ t'}. Any accepting run from {@code s} is then matched by an
+ * accepting run from {@code t} over the same word, hence {@code s ≼ t}
+ * implies {@code L(s) ⊆ L(t)}.
+ * <p>
+ * The relation is computed once, as the greatest fixed point of the matching
+ * condition, and is read-only afterwards. The coarser delayed simulation of
+ * Büchi automata is available through {@link #delayed(Automaton)}.
+ *
+ * @param <S> Type of states.
+ */
+public final class Simulation<S>
+{
+	private final Map<S, Integer> ids;
+	private final BitSet[] simulators;
+
+	private Simulation(Map<S, Integer> ids, BitSet[] simulators)
+	{
+		this.ids = ids;
+		this.simulators = simulators;
+	}
+
+	/**
+	 * @param aut An automaton.
+	 * @param <S> Type of states.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return The direct simulation preorder over the states of {@code aut}.
+	 */
+	public static <S, L> Simulation<S> direct(MultiColorAutomaton<S, L> aut)
+	{
+		final IndexedAutomaton<S, L> indexed = new IndexedAutomaton<>(aut, IndexedAutomaton.alphabet(aut));
+		return new Simulation<>(indexed.ids, direct(indexed.successors, indexed.accepting));
+	}
+
+	/**
+	 * @param aut An automaton.
+	 * @param <S> Type of states.
+	 * @param <L> Type of the propositions letters are made of.
+	 * @return The delayed simulation preorder over the states of {@code aut},
+	 * or its direct simulation preorder (which is contained in it) if the
+	 * simulation game would exceed {@link #MAX_GAME_POSITIONS}.
+	 * @see #delayed(int[][][], long[])
+	 */
+	public static <S, L> Simulation<S> delayed(Automaton<S, L> aut)
+	{
+		final IndexedAutomaton<S, L> indexed = new IndexedAutomaton<>(aut, IndexedAutomaton.alphabet(aut));
+		return new Simulation<>(indexed.ids, delayed(indexed.successors, indexed.accepting));
+	}
+
+	/**
+	 * @param s A state.
+	 * @param t A state.
+	 * @return {@code true} iff {@code s ≼ t}.
+	 */
+	public boolean isSimulatedBy(S s, S t)
+	{
+		final Integer source = ids.get(s);
+		final Integer target = ids.get(t);
+		return source != null && target != null && simulators[source].get(target);
+	}
+
+	/**
+	 * @param successors The successors of each state, per letter.
+	 * @param accepting  The acceptance sets each state belongs to, as a
+	 *                   bitmask.
+	 * @return For each state {@code s}, the set of states {@code t} with
+	 * {@code s ≼ t}.
+	 */
+	static BitSet[] direct(int[][][] successors, long[] accepting)
+	{
+		final int n = successors.length;
+		final BitSet[] simulators = new BitSet[n];
+		for (int s = 0; s < n; s++)
+		{
+			simulators[s] = new BitSet(n);
+			for (int t = 0; t < n; t++)
+				if ((accepting[s] & ~accepting[t]) == 0)
+					simulators[s].set(t);
+		}
+
+		return refine(successors, simulators);
+	}
+
+	/**
+	 * Backward direct simulation: {@code t} backward simulates {@code s} if
+	 * {@code t} is initial if {@code s} is, belongs to every acceptance set
+	 * {@code s} belongs to, and every transition {@code s' -σ-> s} can be
+	 * matched by a transition {@code t' -σ-> t} where {@code t'} backward
+	 * simulates {@code s'}. It compares the pasts of states rather than their
+	 * futures, and quotienting by its equivalence preserves the language.
+	 *
+	 * @param successors The successors of each state, per letter.
+	 * @param accepting  The acceptance sets each state belongs to, as a
+	 *                   bitmask.
+	 * @param initial    The initial states.
+	 * @return For each state {@code s}, the set of states {@code t} that
+	 * backward simulate it.
+	 */
+	static BitSet[] backward(int[][][] successors, long[] accepting, int[] initial)
+	{
+		final int n = successors.length;
+		final int letters = n == 0 ? 0 : successors[0].length;
+		final int[][][] predecessors = new int[n][letters][];
+		final int[][] counts = new int[n][letters];
+		for (int s = 0; s < n; s++)
+			for (int letter = 0; letter < letters; letter++)
+				for (int t : successors[s][letter])
+					counts[t][letter]++;
+		for (int t = 0; t < n; t++)
+			for (int letter = 0; letter < letters; letter++)
+				predecessors[t][letter] = new int[counts[t][letter]];
+		for (int s = 0; s < n; s++)
+			for (int letter = 0; letter < letters; letter++)
+				for (int t : successors[s][letter])
+					predecessors[t][letter][--counts[t][letter]] = s;
+
+		final BitSet isInitial = new BitSet(n);
+		Arrays.stream(initial).forEach(isInitial::set);
+		final BitSet[] simulators = new BitSet[n];
+		for (int s = 0; s < n; s++)
+		{
+			simulators[s] = new BitSet(n);
+			for (int t = 0; t < n; t++)
+				if ((accepting[s] & ~accepting[t]) == 0 && (!isInitial.get(s) || isInitial.get(t)))
+					simulators[s].set(t);
+		}
+		return refine(predecessors, simulators);
+	}
+
+	/**
+	 * Removes from {@code simulators} the pairs whose moves along
+	 * {@code edges} cannot be matched, until none is left.
+	 *
+	 * @return {@code simulators}.
+	 */
+	private static BitSet[] refine(int[][][] edges, BitSet[] simulators)
+	{
+		boolean changed = true;
+		while (changed)
+		{
+			changed = false;
+			for (int s = 0; s < edges.length; s++)
+				for (int t = simulators[s].nextSetBit(0); t >= 0; t = simulators[s].nextSetBit(t + 1))
+					if (t != s && !matches(edges, simulators, s, t))
+					{
+						simulators[s].clear(t);
+						changed = true;
+					}
+		}
+		return simulators;
+	}
+
+	/**
+	 * Delayed simulation of a (non-generalized) Büchi automaton: {@code t}
+	 * delayed-simulates {@code s} if {@code t} can match every move of
+	 * {@code s} such that, whenever {@code s}'s run visits an accepting state,
+	 * {@code t}'s run visits one then or later. Unlike direct simulation,
+	 * quotienting by delayed simulation equivalence preserves the language.
+	 * <p>
+	 * Computed by solving the simulation game as a Büchi game: spoiler
+	 * positions {@code ⟨s, t, pending⟩}, duplicator positions
+	 * {@code ⟨s', t, σ, pending⟩}, and the duplicator wins iff there is
+	 * infinitely often no pending obligation.
+	 *
+	 * @param successors The successors of each state, per letter.
+	 * @param accepting  Whether each state is accepting, as a bitmask whose
+	 *                   only meaningful bit is the lowest one.
+	 * @return For each state {@code s}, the set of states {@code t} with
+	 * {@code s ≼ t}.
+	 */
+	static BitSet[] delayed(int[][][] successors, long[] accepting)
+	{
+		final int n = successors.length;
+		final int letters = n == 0 ? 0 : successors[0].length;
+		final long spoilerPositions = 2L * n * n;
+		if (spoilerPositions * (letters + 1) > MAX_GAME_POSITIONS)
+			return direct(successors, accepting);
+
+		final int spoiler = (int) spoilerPositions;
+		final int positions = spoiler * (letters + 1);
+		final int[][] moves = new int[positions][];
+		for (int s = 0; s < n; s++)
+			for (int t = 0; t < n; t++)
+				for (int pending = 0; pending < 2; pending++)
+				{
+					int count = 0;
+					for (int letter = 0; letter < letters; letter++)
+						count += successors[s][letter].length;
+					final int[] spoilerMoves = new int[count];
+					int i = 0;
+					for (int letter = 0; letter < letters; letter++)
+						for (int sNext : successors[s][letter])
+							spoilerMoves[i++] = spoiler + (((sNext * n + t) * letters + letter) << 1 | pending);
+					moves[(s * n + t) << 1 | pending] = spoilerMoves;
+
+					for (int letter = 0; letter < letters; letter++)
+					{
+						final int[] tNexts = successors[t][letter];
+						final int[] duplicatorMoves = new int[tNexts.length];
+						final boolean sAccepting = (accepting[s] & 1) != 0;
+						for (int j = 0; j < tNexts.length; j++)
+						{
+							final boolean stillPending = (pending == 1 || sAccepting) && (accepting[tNexts[j]] & 1) == 0;
+							duplicatorMoves[j] = (s * n + tNexts[j]) << 1 | (stillPending ? 1 : 0);
+						}
+						// the spoiler moved to s on letter, the duplicator answers from t
+						moves[spoiler + (((s * n + t) * letters + letter) << 1 | pending)] = duplicatorMoves;
+					}
+				}
+
+		final boolean[] duplicatorWins = solveBuchiGame(moves, spoiler, position -> position < spoiler && (position & 1) == 0);
+
+		final BitSet[] simulators = new BitSet[n];
+		for (int s = 0; s < n; s++)
+		{
+			simulators[s] = new BitSet(n);
+			final boolean sAccepting = (accepting[s] & 1) != 0;
+			for (int t = 0; t < n; t++)
+			{
+				final int pending = sAccepting && (accepting[t] & 1) == 0 ? 1 : 0;
+				if (duplicatorWins[(s * n + t) << 1 | pending])
+					simulators[s].set(t);
+			}
+		}
+		return simulators;
+	}
+
+	/**
+	 * Upper bound on the number of positions of the delayed simulation game.
+	 */
+	static final long MAX_GAME_POSITIONS = 1L << 21;
+
+	/**
+	 * Solves a Büchi game by repeatedly removing the positions from which the
+	 * spoiler can avoid the target forever. A player that cannot move loses.
+	 *
+	 * @param moves    The moves of each position.
+	 * @param spoiler  Positions below this index belong to the spoiler, the
+	 *                 others to the duplicator.
+	 * @param target   The positions the duplicator wants to visit infinitely
+	 *                 often.
+	 * @return The winning positions of the duplicator.
+	 */
+	private static boolean[] solveBuchiGame(int[][] moves, int spoiler, IntPredicate target)
+	{
+		final int positions = moves.length;
+		final int[][] predecessors = predecessors(moves);
+		final boolean[] alive = new boolean[positions];
+		Arrays.fill(alive, true);
+
+		while (true)
+		{
+			final boolean[] reachesTarget = attractor(moves, predecessors, alive, spoiler, false, target);
+			final boolean[] avoidsTarget = new boolean[positions];
+			boolean any = false;
+			for (int p = 0; p < positions; p++)
+				if (alive[p] && !reachesTarget[p])
+				{
+					avoidsTarget[p] = true;
+					any = true;
+				}
+			if (!any)
+				return alive;
+			final boolean[] spoilerWins = attractor(moves, predecessors, alive, spoiler, true, p -> avoidsTarget[p]);
+			for (int p = 0; p < positions; p++)
+				if (spoilerWins[p])
+					alive[p] = false;
+		}
+	}
+
+	/**
+	 * @param forSpoiler {@code true} for the spoiler's attractor,
+	 *                   {@code false} for the duplicator's.
+	 * @return The alive positions from which the given player can force the
+	 * play into {@code target} (or into a position where the opponent is
+	 * stuck), staying among alive positions.
+	 */
+	private static boolean[] attractor(int[][] moves, int[][] predecessors, boolean[] alive, int spoiler, boolean forSpoiler, IntPredicate target)
+	{
+		final int positions = moves.length;
+		final boolean[] attracted = new boolean[positions];
+		final int[] remaining = new int[positions];
+		final Deque<Integer> toVisit = new ArrayDeque<>();
+		for (int p = 0; p < positions; p++)
+		{
+			if (!alive[p])
+				continue;
+			for (int q : moves[p])
+				if (alive[q])
+					remaining[p]++;
+			final boolean ownedByPlayer = (p < spoiler) == forSpoiler;
+			if (target.test(p) || (!ownedByPlayer && remaining[p] == 0))
+			{
+				attracted[p] = true;
+				toVisit.push(p);
+			}
+		}
+		while (!toVisit.isEmpty())
+		{
+			final int q = toVisit.pop();
+			for (int p : predecessors[q])
+			{
+				if (!alive[p] || attracted[p])
+					continue;
+				final boolean ownedByPlayer = (p < spoiler) == forSpoiler;
+				if (ownedByPlayer || --remaining[p] == 0)
+				{
+					attracted[p] = true;
+					toVisit.push(p);
+				}
+			}
+		}
+		return attracted;
+	}
+
+	private static int[][] predecessors(int[][] moves)
+	{
+		final int[] counts = new int[moves.length];
+		for (int[] targets : moves)
+			for (int q : targets)
+				counts[q]++;
+		final int[][] predecessors = new int[moves.length][];
+		for (int q = 0; q < moves.length; q++)
+			predecessors[q] = new int[counts[q]];
+		for (int p = 0; p < moves.length; p++)
+			for (int q : moves[p])
+				predecessors[q][--counts[q]] = p;
+		return predecessors;
+	}
+
+	/**
+	 * @return {@code true} iff every move of {@code s} can be answered by a
+	 * move of {@code t} to a state simulating its target.
+	 */
+	private static boolean matches(int[][][] successors, BitSet[] simulators, int s, int t)
+	{
+		for (int letter = 0; letter < successors[s].length; letter++)
+			for (int sNext : successors[s][letter])
+			{
+				boolean answered = false;
+				for (int tNext : successors[t][letter])
+					if (simulators[sNext].get(tNext))
+					{
+						answered = true;
+						break;
+					}
+				if (!answered)
+					return false;
+			}
+		return true;
+	}
+}
@@ -0,0 +1,268 @@
+package il.ac.bgu.cs.formalmethodsintro.base.automata;
+
+import java.util.*;
+
+/**
+ * A generalized Büchi automaton over letters encoded as bitmasks. The
+ * propositions letters are made of are interned once, in the order given to
+ * the constructor; proposition {@code i} is bit {@code i} of a letter, so a
+ * letter is a {@code long} and the universe holds at most 64 propositions.
+ * <p>
+ * Transitions carry guards instead of letters: a guard is a cube, given by the
+ * propositions that must hold and those that must not, and a transition can
+ * be taken on every letter satisfying it. Finding the successors of a state
+ * on a letter is thus a couple of bitwise operations per outgoing transition,
+ * and a transition on {@code n} unconstrained propositions replaces the
+ * {@code 2^n} per-letter transitions of a {@link MultiColorAutomaton}.
+ * Transitions to the same destination are merged when adding them: a guard
+ * implied by another one is dropped, and guards differing only in the sign of
+ * one proposition are joined.
+ *
+ * @param <State> Type of states.
+ * @param <L>     Type of the propositions letters are made of.
+ */
+public class SymbolicAutomaton<State, L>
+{
+	private final List<L> propositions;
+	private final Map<L, Integer> index = new HashMap<>();
+	private final long universe;
+	private final Set<State> initial = new HashSet<>();
+	private final Map<Integer, Set<State>> accepting = new HashMap<>();
+	private final Map<State, List<Edge<State>>> transitions = new HashMap<>();
+
+	/**
+	 * @param propositions The propositions letters are made of, at most 64.
+	 */
+	public SymbolicAutomaton(Collection<L> propositions)
+	{
+		this.propositions = List.copyOf(new LinkedHashSet<>(propositions));
+		if (this.propositions.size() > Long.SIZE)
+			throw new IllegalArgumentException("Too many propositions: " + this.propositions.size());
+		for (int i = 0; i < this.propositions.size(); i++)
+			index.put(this.propositions.get(i), i);
+		universe = this.propositions.size() == Long.SIZE ? -1L : (1L << this.propositions.size()) - 1;
+	}
+
+	/**
+	 * @param aut          An automaton.
+	 * @param propositions The propositions letters are made of; must contain
+	 *                     every proposition of the letters of {@code aut}.
+	 * @param <S>          Type of states.
+	 * @param <L>          Type of the propositions letters are made of.
+	 * @return An automaton with the same states, initial states, acceptance
+	 * sets and language as {@code aut}, whose per-letter transitions are
+	 * merged into guarded ones.
+	 */
+	public static <S, L> SymbolicAutomaton<S, L> of(MultiColorAutomaton<S, L> aut, Collection<L> propositions)
+	{
+		final SymbolicAutomaton<S, L> symbolic = new SymbolicAutomaton<>(propositions);
+		aut.getTransitions().forEach((source, bySymbol) ->
+		{
+			symbolic.addState(source);
+			bySymbol.forEach((symbol, destinations) ->
+			{
+				if (!symbolic.index.keySet().containsAll(symbol))
+					throw new IllegalArgumentException("Letter " + symbol + " is not over " + symbolic.propositions);
+				destinations.forEach(destination -> symbolic.addTransition(source, symbol, destination));
+			});
+		});
+		aut.getInitialStates().forEach(symbolic::setInitial);
+		aut.getColors().forEach(color -> aut.getAcceptingStates(color).forEach(s -> symbolic.setAccepting(s, color)));
+		return symbolic;
+	}
+
+	/**
+	 * @return The propositions, in bit order.
+	 */
+	public List<L> getPropositions()
+	{
+		return propositions;
+	}
+
+	/**
+	 * @param symbol A set of propositions.
+	 * @return {@code symbol} as a letter. Propositions outside the universe
+	 * are ignored.
+	 */
+	public long encode(Set<L> symbol)
+	{
+		long letter = 0;
+		for (L proposition : symbol)
+		{
+			final Integer bit = index.get(proposition);
+			if (bit != null)
+				letter |= 1L << bit;
+		}
+		return letter;
+	}
+
+	public void addState(State s)
+	{
+		transitions.computeIfAbsent(s, k -> new ArrayList<>());
+	}
+
+	public void setInitial(State s)
+	{
+		addState(s);
+		initial.add(s);
+	}
+
+	public Set<State> getInitialStates()
+	{
+		return initial;
+	}
+
+	public void setAccepting(State s, int color)
+	{
+		addState(s);
+		accepting.computeIfAbsent(color, k -> new HashSet<>()).add(s);
+	}
+
+	public Set<State> getAcceptingStates(int color)
+	{
+		return accepting.computeIfAbsent(color, k -> new HashSet<>());
+	}
+
+	public Set<Integer> getColors()
+	{
+		return accepting.keySet();
+	}
+
+	/**
+	 * Adds a transition on exactly the letter {@code symbol}.
+	 */
+	public void addTransition(State source, Set<L> symbol, State destination)
+	{
+		final long letter = encode(symbol);
+		addTransition(source, letter, universe & ~letter, destination);
+	}
+
+	/**
+	 * Adds a transition on every letter that contains the propositions of
+	 * {@code must} and none of {@code mustNot}, merging it with the
+	 * transitions from {@code source} to {@code destination} already there.
+	 *
+	 * @param source      Source state.
+	 * @param must        Propositions that must hold, as a bitmask.
+	 * @param mustNot     Propositions that must not hold, as a bitmask.
+	 * @param destination Destination state.
+	 */
+	public void addTransition(State source, long must, long mustNot, State destination)
+	{
+		if ((must & mustNot) != 0 || ((must | mustNot) & ~universe) != 0)
+			throw new IllegalArgumentException("Unsatisfiable or out of universe guard");
+		addState(source);
+		addState(destination);
+
+		final List<Edge<State>> edges = transitions.get(source);
+		boolean merged = true;
+		while (merged)
+		{
+			merged = false;
+			for (Iterator<Edge<State>> it = edges.iterator(); it.hasNext(); )
+			{
+				final Edge<State> edge = it.next();
+				if (!edge.destination.equals(destination))
+					continue;
+				if ((edge.must & ~must) == 0 && (edge.mustNot & ~mustNot) == 0)
+					return; // already covered by edge
+				if ((must & ~edge.must) == 0 && (mustNot & ~edge.mustNot) == 0)
+				{
+					it.remove(); // edge is covered by the new guard
+					continue;
+				}
+				final long sign = must ^ edge.must;
+				if (Long.bitCount(sign) == 1 && sign == (mustNot ^ edge.mustNot))
+				{
+					// c∧p and c∧¬p: join into c, which may merge further
+					it.remove();
+					must &= ~sign;
+					mustNot &= ~sign;
+					merged = true;
+					break;
+				}
+			}
+		}
+		edges.add(new Edge<>(must, mustNot, destination));
+	}
+
+	/**
+	 * @return The states, with their outgoing guarded transitions.
+	 */
+	public Map<State, List<Edge<State>>> getTransitions()
+	{
+		return transitions;
+	}
+
+	/**
+	 * @param source A state.
+	 * @param letter A letter, see {@link #encode(Set)}.
+	 * @return The destinations of the transitions from {@code source} whose
+	 * guard {@code letter} satisfies; empty if there are none.
+	 */
+	public Set<State> nextStates(State source, long letter)
+	{
+		final List<Edge<State>> edges = transitions.get(source);
+		if (edges == null)
+			throw new IllegalArgumentException();
+		final Set<State> next = new HashSet<>();
+		for (Edge<State> edge : edges)
+			if (edge.accepts(letter))
+				next.add(edge.destination);
+		return next;
+	}
+
+	/**
+	 * A guarded transition.
+	 *
+	 * @param <State> Type of states.
+	 */
+	public static final class Edge<State>
+	{
+		private final long must;
+		private final long mustNot;
+		private final State destination;
+
+		Edge(long must, long mustNot, State destination)
+		{
+			this.must = must;
+			this.mustNot = mustNot;
+			this.destination = destination;
+		}
+
+		/**
+		 * @return The propositions that must hold, as a bitmask.
+		 */
+		public long getMust()
+		{
+			return must;
+		}
+
+		/**
+		 * @return The propositions that must not hold, as a bitmask.
+		 */
+		public long getMustNot()
+		{
+			return mustNot;
+		}
+
+		public State getDestination()
+		{
+			return destination;
+		}
+
+		/**
+		 * @return {@code true} iff {@code letter} satisfies the guard.
+		 */
+		public boolean accepts(long letter)
+		{
+			return (letter & must) == must && (letter & mustNot) == 0;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "[+" + Long.toBinaryString(must) + " -" + Long.toBinaryString(mustNot) + "] -> " + destination;
+		}
+	}
+}
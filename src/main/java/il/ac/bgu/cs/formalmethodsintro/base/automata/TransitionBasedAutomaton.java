@@ -0,0 +1,109 @@
+package il.ac.bgu.cs.formalmethodsintro.base.automata;
+
+import java.util.*;
+
+/**
+ * A transition-based generalized Büchi automaton (TGBA): acceptance marks
+ * are carried by transitions rather than states. A run is accepting if, for
+ * each acceptance set {@code 0..getAcceptanceSets()-1}, it takes transitions
+ * marked with that set infinitely often. With no acceptance sets, every
+ * infinite run is accepting.
+ * <p>
+ * Unlike degeneralizing into an {@link Automaton}, which needs a copy of the
+ * automaton per acceptance set, a TGBA is as small as the generalized
+ * automaton it comes from; emptiness checks handle the sets directly.
+ *
+ * @param <State> Type of states.
+ * @param <L>     Type of the propositions letters are made of.
+ */
+public class TransitionBasedAutomaton<State, L>
+{
+	private final int acceptanceSets;
+	private final Set<State> initial = new HashSet<>();
+	private final Map<State, Map<Set<L>, Map<State, Long>>> transitions = new HashMap<>();
+
+	/**
+	 * @param acceptanceSets Number of acceptance sets, at most 63.
+	 */
+	public TransitionBasedAutomaton(int acceptanceSets)
+	{
+		if (acceptanceSets < 0 || acceptanceSets >= Long.SIZE)
+			throw new IllegalArgumentException("Unsupported number of acceptance sets: " + acceptanceSets);
+		this.acceptanceSets = acceptanceSets;
+	}
+
+	public int getAcceptanceSets()
+	{
+		return acceptanceSets;
+	}
+
+	public void addState(State s)
+	{
+		transitions.computeIfAbsent(s, k -> new HashMap<>());
+	}
+
+	public void setInitial(State s)
+	{
+		addState(s);
+		initial.add(s);
+	}
+
+	public Set<State> getInitialStates()
+	{
+		return initial;
+	}
+
+	/**
+	 * Adds a transition, or adds {@code marks} to the marks of an existing
+	 * one.
+	 *
+	 * @param source      Source state.
+	 * @param symbol      Letter.
+	 * @param destination Destination state.
+	 * @param marks       The acceptance sets the transition belongs to.
+	 */
+	public void addTransition(State source, Set<L> symbol, State destination, Set<Integer> marks)
+	{
+		long mask = 0;
+		for (int mark : marks)
+		{
+			if (mark < 0 || mark >= acceptanceSets)
+				throw new IllegalArgumentException("No such acceptance set: " + mark);
+			mask |= 1L << mark;
+		}
+		addState(destination);
+		transitions.computeIfAbsent(source, k -> new HashMap<>())
+				.computeIfAbsent(symbol, k -> new HashMap<>())
+				.merge(destination, mask, (a, b) -> a | b);
+	}
+
+	/**
+	 * @return The states, with their outgoing transitions: per letter, the
+	 * destinations and the acceptance sets (as a bitmask) of each transition.
+	 */
+	public Map<State, Map<Set<L>, Map<State, Long>>> getTransitions()
+	{
+		return transitions;
+	}
+
+	/**
+	 * @return The destinations of the transitions from {@code source} on
+	 * {@code symbol}; empty if there are none.
+	 */
+	public Set<State> nextStates(State source, Set<L> symbol)
+	{
+		final Map<State, Long> destinations = transitions.getOrDefault(source, Map.of()).get(symbol);
+		return destinations == null ? Set.of() : destinations.keySet();
+	}
+
+	/**
+	 * @return Whether the transition {@code source -symbol-> destination}
+	 * belongs to acceptance set {@code set}.
+	 */
+	public boolean isMarked(State source, Set<L> symbol, State destination, int set)
+	{
+		final Map<State, Long> destinations = transitions.getOrDefault(source, Map.of()).get(symbol);
+		final Long marks = destinations == null ? null : destinations.get(destination);
+		return marks != null && (marks & 1L << set) != 0;
+	}
+}
@@ -0,0 +1,358 @@
+package il.ac.bgu.cs.formalmethodsintro.base.circuits;
+
+import java.util.*;
+
+/**
+ * A circuit given as an And-Inverter Graph, as read by {@link AigerReader}.
+ * <p>
+ * Variables are numbered {@code 0..M}, {@code 0} being the constant
+ * {@code false}; a literal is {@code 2v} for the variable {@code v} and
+ * {@code 2v+1} for its negation. Inputs and registers are variables, and
+ * every other variable is the conjunction of two literals. The gates are
+ * kept in arrays, sorted so that each comes after the gates it reads, and a
+ * valuation is computed in one pass over them, without looking up any name.
+ * <p>
+ * The names of the inputs, registers and outputs iterate in the order of the
+ * AIGER file; the arrays of the array-based methods follow the same order.
+ * Registers are initially {@code false}.
+ */
+public final class AigCircuit implements Circuit
+{
+	private final int maxVariable;
+	private final int[] inputs;
+	private final int[] registers;
+	private final int[] next;
+	private final int[] outputs;
+	private final int[] gates;
+	private final int[] left;
+	private final int[] right;
+
+	private final Set<String> inputNames;
+	private final Set<String> registerNames;
+	private final Set<String> outputNames;
+	private final Map<String, Integer> inputIndex = new HashMap<>();
+	private final Map<String, Integer> registerIndex = new HashMap<>();
+	private final Map<String, Integer> outputIndex = new HashMap<>();
+
+	/**
+	 * The index of the gate defining each variable, or {@code -1}.
+	 */
+	private final int[] gateOf;
+	/**
+	 * The name of each input and register variable, or {@code null}.
+	 */
+	private final String[] leafName;
+
+	/**
+	 * @param maxVariable The largest variable.
+	 * @param inputs      The input variables, as literals.
+	 * @param registers   The register variables, as literals.
+	 * @param next        The next-state literal of each register.
+	 * @param outputs     The output literals.
+	 * @param ands        The gates, as triples {@code lhs, rhs0, rhs1} of
+	 *                    literals, in any order.
+	 * @param inputNames    The names of the inputs.
+	 * @param registerNames The names of the registers.
+	 * @param outputNames   The names of the outputs.
+	 * @throws IllegalArgumentException If the graph is malformed: a literal is
+	 *                                  out of range, a variable is defined
+	 *                                  twice or not at all, or the gates form
+	 *                                  a cycle.
+	 */
+	AigCircuit(int maxVariable, int[] inputs, int[] registers, int[] next, int[] outputs, int[] ands,
+	           String[] inputNames, String[] registerNames, String[] outputNames)
+	{
+		this.maxVariable = maxVariable;
+		this.inputs = inputs;
+		this.registers = registers;
+		this.next = next;
+		this.outputs = outputs;
+
+		gateOf = new int[maxVariable + 1];
+		leafName = new String[maxVariable + 1];
+		Arrays.fill(gateOf, -1);
+		for (int i = 0; i < inputs.length; i++)
+			define(inputs[i], inputNames[i]);
+		for (int i = 0; i < registers.length; i++)
+			define(registers[i], registerNames[i]);
+		final int gateCount = ands.length / 3;
+		for (int i = 0; i < gateCount; i++)
+		{
+			define(ands[3 * i], null);
+			gateOf[ands[3 * i] >> 1] = i;
+		}
+		for (int literal : next)
+			check(literal);
+		for (int literal : outputs)
+			check(literal);
+		for (int i = 0; i < ands.length; i++)
+			if (i % 3 != 0)
+				check(ands[i]);
+
+		// topological order, by an iterative depth-first search
+		gates = new int[gateCount];
+		left = new int[gateCount];
+		right = new int[gateCount];
+		final byte[] visited = new byte[gateCount];
+		final Deque<Integer> toVisit = new ArrayDeque<>();
+		int sorted = 0;
+		for (int root = 0; root < gateCount; root++)
+		{
+			toVisit.push(root);
+			while (!toVisit.isEmpty())
+			{
+				final int gate = toVisit.peek();
+				if (visited[gate] == 2)
+				{
+					toVisit.pop();
+					continue;
+				}
+				visited[gate] = 1;
+				boolean ready = true;
+				for (int operand = 1; operand <= 2; operand++)
+				{
+					final int dependency = gateOf[ands[3 * gate + operand] >> 1];
+					if (dependency < 0 || visited[dependency] == 2)
+						continue;
+					if (visited[dependency] == 1)
+						throw new IllegalArgumentException("Cyclic definition of variable " + (ands[3 * gate] >> 1));
+					toVisit.push(dependency);
+					ready = false;
+				}
+				if (ready)
+				{
+					toVisit.pop();
+					visited[gate] = 2;
+					gates[sorted] = ands[3 * gate];
+					left[sorted] = ands[3 * gate + 1];
+					right[sorted] = ands[3 * gate + 2];
+					sorted++;
+				}
+			}
+		}
+		for (int i = 0; i < gateCount; i++)
+			gateOf[gates[i] >> 1] = i;
+
+		this.inputNames = names(inputNames, inputIndex, "input");
+		this.registerNames = names(registerNames, registerIndex, "register");
+		this.outputNames = names(outputNames, outputIndex, "output");
+	}
+
+	private void define(int literal, String name)
+	{
+		if ((literal & 1) != 0 || literal < 2 || literal >> 1 > maxVariable)
+			throw new IllegalArgumentException("Invalid definition literal " + literal);
+		final int variable = literal >> 1;
+		if (gateOf[variable] >= 0 || leafName[variable] != null)
+			throw new IllegalArgumentException("Variable " + variable + " is defined twice");
+		leafName[variable] = name;
+	}
+
+	private void check(int literal)
+	{
+		final int variable = literal >> 1;
+		if (literal < 0 || variable > maxVariable)
+			throw new IllegalArgumentException("Literal " + literal + " is out of range");
+		if (variable != 0 && gateOf[variable] < 0 && leafName[variable] == null)
+			throw new IllegalArgumentException("Variable " + variable + " is undefined");
+	}
+
+	private static Set<String> names(String[] names, Map<String, Integer> index, String kind)
+	{
+		for (int i = 0; i < names.length; i++)
+			if (index.put(names[i], i) != null)
+				throw new IllegalArgumentException("Duplicate " + kind + " name " + names[i]);
+		return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(names)));
+	}
+
+	@Override
+	public Set<String> getInputPortNames()
+	{
+		return inputNames;
+	}
+
+	@Override
+	public Set<String> getRegisterNames()
+	{
+		return registerNames;
+	}
+
+	@Override
+	public Set<String> getOutputPortNames()
+	{
+		return outputNames;
+	}
+
+	/**
+	 * @return The number of and gates.
+	 */
+	public int getGateCount()
+	{
+		return gates.length;
+	}
+
+	int getMaxVariable()
+	{
+		return maxVariable;
+	}
+
+	int[] getInputLiterals()
+	{
+		return inputs;
+	}
+
+	int[] getRegisterLiterals()
+	{
+		return registers;
+	}
+
+	int[] getNextLiterals()
+	{
+		return next;
+	}
+
+	int[] getOutputLiterals()
+	{
+		return outputs;
+	}
+
+	/**
+	 * @return The gate outputs, in topological order; the operands of the
+	 * gate {@code i} are {@code getLeftLiterals()[i]} and
+	 * {@code getRightLiterals()[i]}.
+	 */
+	int[] getGateLiterals()
+	{
+		return gates;
+	}
+
+	int[] getLeftLiterals()
+	{
+		return left;
+	}
+
+	int[] getRightLiterals()
+	{
+		return right;
+	}
+
+	/**
+	 * The inputs and registers in the structural cone of the next-state
+	 * function of a register, or of an output.
+	 */
+	@Override
+	public Set<String> getSupport(String name)
+	{
+		final int root;
+		if (registerIndex.containsKey(name))
+			root = next[registerIndex.get(name)];
+		else if (outputIndex.containsKey(name))
+			root = outputs[outputIndex.get(name)];
+		else
+			return Collections.emptySet();
+
+		final Set<String> support = new HashSet<>();
+		final boolean[] visited = new boolean[maxVariable + 1];
+		final Deque<Integer> toVisit = new ArrayDeque<>(List.of(root >> 1));
+		while (!toVisit.isEmpty())
+		{
+			final int variable = toVisit.pop();
+			if (visited[variable])
+				continue;
+			visited[variable] = true;
+			if (leafName[variable] != null)
+				support.add(leafName[variable]);
+			else if (gateOf[variable] >= 0)
+			{
+				toVisit.push(left[gateOf[variable]] >> 1);
+				toVisit.push(right[gateOf[variable]] >> 1);
+			}
+		}
+		return support;
+	}
+
+	@Override
+	public Map<String, Boolean> updateRegisters(Map<String, Boolean> inputs, Map<String, Boolean> registers)
+	{
+		final boolean[] values = evaluate(values(inputs, inputNames), values(registers, registerNames));
+		final Map<String, Boolean> result = new HashMap<>();
+		int i = 0;
+		for (String name : registerNames)
+			result.put(name, value(values, next[i++]));
+		return result;
+	}
+
+	@Override
+	public Map<String, Boolean> computeOutputs(Map<String, Boolean> inputs, Map<String, Boolean> registers)
+	{
+		final boolean[] values = evaluate(values(inputs, inputNames), values(registers, registerNames));
+		final Map<String, Boolean> result = new HashMap<>();
+		int i = 0;
+		for (String name : outputNames)
+			result.put(name, value(values, outputs[i++]));
+		return result;
+	}
+
+	/**
+	 * @param inputs    The input values, in the order of
+	 *                  {@link #getInputPortNames()}.
+	 * @param registers The register values, in the order of
+	 *                  {@link #getRegisterNames()}.
+	 * @return The next register values, in the order of
+	 * {@link #getRegisterNames()}.
+	 */
+	public boolean[] updateRegisters(boolean[] inputs, boolean[] registers)
+	{
+		final boolean[] values = evaluate(inputs, registers);
+		final boolean[] result = new boolean[next.length];
+		for (int i = 0; i < next.length; i++)
+			result[i] = value(values, next[i]);
+		return result;
+	}
+
+	/**
+	 * @param inputs    The input values, in the order of
+	 *                  {@link #getInputPortNames()}.
+	 * @param registers The register values, in the order of
+	 *                  {@link #getRegisterNames()}.
+	 * @return The output values, in the order of
+	 * {@link #getOutputPortNames()}.
+	 */
+	public boolean[] computeOutputs(boolean[] inputs, boolean[] registers)
+	{
+		final boolean[] values = evaluate(inputs, registers);
+		final boolean[] result = new boolean[outputs.length];
+		for (int i = 0; i < outputs.length; i++)
+			result[i] = value(values, outputs[i]);
+		return result;
+	}
+
+	private static boolean[] values(Map<String, Boolean> values, Set<String> names)
+	{
+		final boolean[] result = new boolean[names.size()];
+		int i = 0;
+		for (String name : names)
+			result[i++] = Boolean.TRUE.equals(values.get(name));
+		return result;
+	}
+
+	/**
+	 * @return The value of every variable.
+	 */
+	private boolean[] evaluate(boolean[] inputValues, boolean[] registerValues)
+	{
+		final boolean[] values = new boolean[maxVariable + 1];
+		for (int i = 0; i < inputs.length; i++)
+			values[inputs[i] >> 1] = inputValues[i];
+		for (int i = 0; i < registers.length; i++)
+			values[registers[i] >> 1] = registerValues[i];
+		for (int i = 0; i < gates.length; i++)
+			values[gates[i] >> 1] = value(values, left[i]) && value(values, right[i]);
+		return values;
+	}
+
+	private static boolean value(boolean[] values, int literal)
+	{
+		return values[literal >> 1] ^ (literal & 1) != 0;
+	}
+}
@@ -0,0 +1,309 @@
+package il.ac.bgu.cs.formalmethodsintro.base.circuits;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Reads circuits in the AIGER format, both ASCII ({@code aag}) and binary
+ * ({@code aig}), into {@link AigCircuit}s.
+ * <p>
+ * The input is read once, byte by byte, into the arrays of the graph. The
+ * symbol table names the inputs, registers and outputs; the unnamed ones are
+ * called {@code i0, i1, ...}, {@code l0, ...} and {@code o0, ...}. The bad
+ * state properties of AIGER 1.9 become outputs too ({@code b0, ...}), but
+ * invariant constraints, justice and fairness properties are not supported,
+ * and all registers must be reset to {@code 0}, as in {@link Circuit}.
+ */
+public final class AigerReader
+{
+	private final InputStream in;
+	private int line = 1;
+
+	private AigerReader(InputStream in)
+	{
+		this.in = in;
+	}
+
+	/**
+	 * @param filename An AIGER file.
+	 * @return Its circuit.
+	 * @throws IOException If the file cannot be read, or is not a supported
+	 *                     AIGER file.
+	 */
+	public static AigCircuit read(String filename) throws IOException
+	{
+		try (InputStream in = Files.newInputStream(Paths.get(filename)))
+		{
+			return read(in);
+		}
+	}
+
+	/**
+	 * @param in An AIGER stream; it is read to the end of the circuit, and
+	 *           not closed.
+	 * @return Its circuit.
+	 * @throws IOException If the stream cannot be read, or is not a
+	 *                     supported AIGER file.
+	 */
+	public static AigCircuit read(InputStream in) throws IOException
+	{
+		return new AigerReader(new BufferedInputStream(in)).read();
+	}
+
+	private AigCircuit read() throws IOException
+	{
+		final String format = word();
+		final boolean binary;
+		if (format.equals("aag"))
+			binary = false;
+		else if (format.equals("aig"))
+			binary = true;
+		else
+			throw error("Not an AIGER file");
+
+		final int[] header = new int[9];
+		int fields = 0;
+		while (peek() == ' ')
+		{
+			if (fields == header.length)
+				throw error("Too many header fields");
+			space();
+			header[fields++] = number();
+		}
+		newline();
+		if (fields < 5)
+			throw error("Missing header fields");
+		final int maxVariable = header[0];
+		final int inputCount = header[1];
+		final int registerCount = header[2];
+		final int outputCount = header[3];
+		final int gateCount = header[4];
+		final int badCount = header[5];
+		if (header[6] != 0 || header[7] != 0 || header[8] != 0)
+			throw error("Constraints, justice and fairness properties are not supported");
+		if (binary && maxVariable != inputCount + registerCount + gateCount)
+			throw error("M must be I + L + A in a binary AIGER file");
+
+		final int[] inputs = new int[inputCount];
+		for (int i = 0; i < inputCount; i++)
+		{
+			if (binary)
+				inputs[i] = 2 * (i + 1);
+			else
+			{
+				inputs[i] = number();
+				newline();
+			}
+		}
+
+		final int[] registers = new int[registerCount];
+		final int[] next = new int[registerCount];
+		for (int i = 0; i < registerCount; i++)
+		{
+			if (binary)
+				registers[i] = 2 * (inputCount + i + 1);
+			else
+			{
+				registers[i] = number();
+				space();
+			}
+			next[i] = number();
+			if (peek() == ' ')
+			{
+				space();
+				if (number() != 0)
+					throw error("Register " + i + " is not reset to 0");
+			}
+			newline();
+		}
+
+		final int[] outputs = new int[outputCount + badCount];
+		for (int i = 0; i < outputs.length; i++)
+		{
+			outputs[i] = number();
+			newline();
+		}
+
+		final int[] ands = new int[3 * gateCount];
+		for (int i = 0; i < gateCount; i++)
+		{
+			if (binary)
+			{
+				final int lhs = 2 * (inputCount + registerCount + i + 1);
+				final int rhs0 = lhs - varint();
+				final int rhs1 = rhs0 - varint();
+				if (rhs1 < 0)
+					throw error("Invalid delta of gate " + i);
+				ands[3 * i] = lhs;
+				ands[3 * i + 1] = rhs0;
+				ands[3 * i + 2] = rhs1;
+			} else
+			{
+				ands[3 * i] = number();
+				space();
+				ands[3 * i + 1] = number();
+				space();
+				ands[3 * i + 2] = number();
+				newline();
+			}
+		}
+
+		final String[] inputNames = new String[inputCount];
+		final String[] registerNames = new String[registerCount];
+		final String[] outputNames = new String[outputs.length];
+		for (int i = 0; i < inputCount; i++)
+			inputNames[i] = "i" + i;
+		for (int i = 0; i < registerCount; i++)
+			registerNames[i] = "l" + i;
+		for (int i = 0; i < outputs.length; i++)
+			outputNames[i] = i < outputCount ? "o" + i : "b" + (i - outputCount);
+		symbols(inputNames, registerNames, outputNames, outputCount);
+
+		try
+		{
+			return new AigCircuit(maxVariable, inputs, registers, next, outputs, ands, inputNames, registerNames, outputNames);
+		} catch (IllegalArgumentException e)
+		{
+			throw new IOException("Invalid AIGER file: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads the symbol table, up to the comment section or the end of the
+	 * input.
+	 */
+	private void symbols(String[] inputNames, String[] registerNames, String[] outputNames, int outputCount) throws IOException
+	{
+		while (peek() >= 0 && peek() != 'c')
+		{
+			final int kind = in.read();
+			final int position = number();
+			space();
+			final String name = rest();
+			final String[] names;
+			final int first;
+			final int count;
+			switch (kind)
+			{
+				case 'i':
+					names = inputNames;
+					first = 0;
+					count = inputNames.length;
+					break;
+				case 'l':
+					names = registerNames;
+					first = 0;
+					count = registerNames.length;
+					break;
+				case 'o':
+					names = outputNames;
+					first = 0;
+					count = outputCount;
+					break;
+				case 'b':
+					names = outputNames;
+					first = outputCount;
+					count = outputNames.length - outputCount;
+					break;
+				default:
+					throw error("Invalid symbol");
+			}
+			if (position >= count)
+				throw error("Symbol position out of range");
+			names[first + position] = name;
+			line++;
+		}
+	}
+
+	private int peek() throws IOException
+	{
+		in.mark(1);
+		final int c = in.read();
+		in.reset();
+		return c;
+	}
+
+	private String word() throws IOException
+	{
+		final StringBuilder word = new StringBuilder();
+		while (peek() >= 'a' && peek() <= 'z')
+			word.append((char) in.read());
+		return word.toString();
+	}
+
+	private int number() throws IOException
+	{
+		int c = in.read();
+		if (c < '0' || c > '9')
+			throw error("Expected a number");
+		long value = 0;
+		do
+		{
+			value = 10 * value + c - '0';
+			if (value > Integer.MAX_VALUE)
+				throw error("Number too large");
+			in.mark(1);
+			c = in.read();
+		} while (c >= '0' && c <= '9');
+		in.reset();
+		return (int) value;
+	}
+
+	/**
+	 * @return An unsigned number of the binary encoding: 7 bits per byte,
+	 * least significant first, the high bit set on all but the last byte.
+	 */
+	private int varint() throws IOException
+	{
+		long value = 0;
+		for (int shift = 0; ; shift += 7)
+		{
+			if (shift > 28)
+				throw error("Number too large");
+			final int c = in.read();
+			if (c < 0)
+				throw new EOFException("Unexpected end of AIGER file in the gates");
+			value |= (long) (c & 0x7f) << shift;
+			if (value > Integer.MAX_VALUE)
+				throw error("Number too large");
+			if ((c & 0x80) == 0)
+				return (int) value;
+		}
+	}
+
+	private void space() throws IOException
+	{
+		if (in.read() != ' ')
+			throw error("Expected a space");
+	}
+
+	private void newline() throws IOException
+	{
+		if (in.read() != '\n')
+			throw error("Expected a new line");
+		line++;
+	}
+
+	/**
+	 * @return The rest of the line, in UTF-8.
+	 */
+	private String rest() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int c;
+		while ((c = in.read()) >= 0 && c != '\n')
+			bytes.write(c);
+		return bytes.toString(StandardCharsets.UTF_8);
+	}
+
+	private IOException error(String message)
+	{
+		return new IOException("Invalid AIGER file, line " + line + ": " + message);
+	}
+}
@@ -0,0 +1,161 @@
+package il.ac.bgu.cs.formalmethodsintro.base.circuits;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Simulates an {@link AigCircuit} on 64 valuations at once: bit {@code k} of
+ * every word belongs to the valuation {@code k}, and each gate is one
+ * {@code &} (and complements one {@code ^}) of two words.
+ * <p>
+ * The arrays of words follow the order of the names of the circuit: word
+ * {@code i} of the inputs is the input {@code i} of
+ * {@link Circuit#getInputPortNames()}, and so on. A simulator keeps a buffer
+ * of word values, and is not thread-safe.
+ */
+public final class BitParallelSimulator
+{
+	/**
+	 * The number of valuations simulated at once.
+	 */
+	public static final int LANES = Long.SIZE;
+
+	private final AigCircuit circuit;
+	private final int[] inputs;
+	private final int[] registers;
+	private final int[] next;
+	private final int[] outputs;
+	private final int[] gates;
+	private final int[] left;
+	private final int[] right;
+	private final long[] values;
+
+	public BitParallelSimulator(AigCircuit circuit)
+	{
+		this.circuit = circuit;
+		inputs = circuit.getInputLiterals();
+		registers = circuit.getRegisterLiterals();
+		next = circuit.getNextLiterals();
+		outputs = circuit.getOutputLiterals();
+		gates = circuit.getGateLiterals();
+		left = circuit.getLeftLiterals();
+		right = circuit.getRightLiterals();
+		values = new long[circuit.getMaxVariable() + 1];
+	}
+
+	/**
+	 * @param inputs    One word per input.
+	 * @param registers One word per register.
+	 * @return One word per register: its next values.
+	 */
+	public long[] step(long[] inputs, long[] registers)
+	{
+		evaluate(inputs, registers);
+		return read(next);
+	}
+
+	/**
+	 * @param inputs    One word per input.
+	 * @param registers One word per register.
+	 * @return One word per output: its values.
+	 */
+	public long[] outputs(long[] inputs, long[] registers)
+	{
+		evaluate(inputs, registers);
+		return read(outputs);
+	}
+
+	/**
+	 * Looks for a run of the circuit, from the registers all {@code false},
+	 * that sets an output: runs {@link #LANES} random input sequences at a
+	 * time, each for up to {@code depth} cycles, until one does or
+	 * {@code runs} sequences were tried. Cheap enough to try before a full
+	 * state space exploration, for bugs that are not too deep.
+	 *
+	 * @param output The name of an output, usually a bad state property.
+	 * @param depth  The number of cycles of each run.
+	 * @param runs   The number of runs; rounded up to a multiple of
+	 *               {@link #LANES}.
+	 * @param seed   The seed of the random inputs.
+	 * @return The inputs of each cycle of the first run found, {@code output}
+	 * being set in the last one, or {@code null} if none was found.
+	 */
+	public List<Map<String, Boolean>> findTrace(String output, int depth, int runs, long seed)
+	{
+		final int outputLiteral = outputs[indexOf(circuit.getOutputPortNames(), output)];
+		final SplittableRandom random = new SplittableRandom(seed);
+		final long[][] history = new long[depth][inputs.length];
+		for (int round = 0; round < runs; round += LANES)
+		{
+			long[] registerWords = new long[registers.length];
+			for (int cycle = 0; cycle < depth; cycle++)
+			{
+				final long[] inputWords = history[cycle];
+				for (int i = 0; i < inputWords.length; i++)
+					inputWords[i] = random.nextLong();
+				evaluate(inputWords, registerWords);
+				final long hits = value(outputLiteral);
+				if (hits != 0)
+					return trace(history, cycle, Long.numberOfTrailingZeros(hits));
+				registerWords = read(next);
+			}
+		}
+		return null;
+	}
+
+	private List<Map<String, Boolean>> trace(long[][] history, int last, int lane)
+	{
+		final List<Map<String, Boolean>> trace = new ArrayList<>();
+		for (int cycle = 0; cycle <= last; cycle++)
+		{
+			final Map<String, Boolean> step = new HashMap<>();
+			int i = 0;
+			for (String name : circuit.getInputPortNames())
+				step.put(name, (history[cycle][i++] >>> lane & 1) != 0);
+			trace.add(step);
+		}
+		return trace;
+	}
+
+	private static int indexOf(Iterable<String> names, String name)
+	{
+		int i = 0;
+		for (String other : names)
+		{
+			if (other.equals(name))
+				return i;
+			i++;
+		}
+		throw new IllegalArgumentException("No output " + name);
+	}
+
+	private void evaluate(long[] inputWords, long[] registerWords)
+	{
+		for (int i = 0; i < inputs.length; i++)
+			values[inputs[i] >> 1] = inputWords[i];
+		for (int i = 0; i < registers.length; i++)
+			values[registers[i] >> 1] = registerWords[i];
+		for (int i = 0; i < gates.length; i++)
+			values[gates[i] >> 1] = value(left[i]) & value(right[i]);
+	}
+
+	private long[] read(int[] literals)
+	{
+		final long[] words = new long[literals.length];
+		for (int i = 0; i < literals.length; i++)
+			words[i] = value(literals[i]);
+		return words;
+	}
+
+	/**
+	 * @return The word of {@code literal}: that of its variable, complemented
+	 * if the literal is odd.
+	 */
+	private long value(int literal)
+	{
+		return values[literal >> 1] ^ -(long) (literal & 1);
+	}
+}
@@ -1,5 +1,6 @@
 package il.ac.bgu.cs.formalmethodsintro.base.circuits;
 
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -30,6 +31,22 @@ public interface Circuit
 	 */
 	Set<String> getOutputPortNames();
 
+	/**
+	 * Returns the inputs and registers that the next value of a register, or
+	 * the value of an output, may depend on. Circuits that know their
+	 * structure should override this; the default is every input and
+	 * register.
+	 *
+	 * @param name The name of a register or of an output port.
+	 * @return the names of the inputs and registers {@code name} depends on.
+	 */
+	default Set<String> getSupport(String name)
+	{
+		final Set<String> support = new HashSet<>(getInputPortNames());
+		support.addAll(getRegisterNames());
+		return support;
+	}
+
 	/**
 	 * Calculate register values for the next phase, based on input values and
 	 * register values at the current phase. All register names must be present.
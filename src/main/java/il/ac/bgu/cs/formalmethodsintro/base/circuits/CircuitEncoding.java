@@ -0,0 +1,238 @@
+package il.ac.bgu.cs.formalmethodsintro.base.circuits;
+
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs the valuations of the inputs and registers of a circuit into the bits
+ * of a {@code long}, by a fixed order of their names: the input {@code i} of
+ * {@link #getInputNames()} is bit {@code i}, and the register {@code j} of
+ * {@link #getRegisterNames()} is bit {@code I + j}, {@code I} being the
+ * number of inputs. A state of a circuit is then a single {@code long}
+ * instead of a pair of maps, and a valuation of the inputs alone, an action,
+ * is its low {@code I} bits.
+ * <p>
+ * The circuit must have at most 64 inputs and registers together, and at
+ * most 64 outputs, which are packed the same way. The maps are built back
+ * only when asked for. The registers and outputs of a whole batch of states
+ * are computed at once, by a {@link BitParallelSimulator} if the circuit is
+ * an {@link AigCircuit}. An encoding is not thread-safe.
+ */
+public final class CircuitEncoding
+{
+	private final Circuit circuit;
+	private final List<String> inputs;
+	private final List<String> registers;
+	private final List<String> outputs;
+	private final BitParallelSimulator simulator;
+
+	/**
+	 * @param circuit A circuit with at most 64 inputs and registers, and at
+	 *                most 64 outputs.
+	 * @throws IllegalArgumentException If it has more.
+	 */
+	public CircuitEncoding(Circuit circuit)
+	{
+		this.circuit = circuit;
+		inputs = List.copyOf(circuit.getInputPortNames());
+		registers = List.copyOf(circuit.getRegisterNames());
+		outputs = List.copyOf(circuit.getOutputPortNames());
+		if (inputs.size() + registers.size() > Long.SIZE)
+			throw new IllegalArgumentException("Cannot pack " + inputs.size() + " inputs and " + registers.size() +
+			                                   " registers into " + Long.SIZE + " bits");
+		if (outputs.size() > Long.SIZE)
+			throw new IllegalArgumentException("Cannot pack " + outputs.size() + " outputs into " + Long.SIZE + " bits");
+		simulator = circuit instanceof AigCircuit ? new BitParallelSimulator((AigCircuit) circuit) : null;
+	}
+
+	public Circuit getCircuit()
+	{
+		return circuit;
+	}
+
+	/**
+	 * @return The names of the inputs, by their bits.
+	 */
+	public List<String> getInputNames()
+	{
+		return inputs;
+	}
+
+	/**
+	 * @return The names of the registers, by their bits (above the inputs).
+	 */
+	public List<String> getRegisterNames()
+	{
+		return registers;
+	}
+
+	/**
+	 * @return The names of the outputs, by their bits in
+	 * {@link #outputs(long[], int)}.
+	 */
+	public List<String> getOutputNames()
+	{
+		return outputs;
+	}
+
+	/**
+	 * @return The state of the input valuation {@code inputs} and the
+	 * register valuation {@code registers}, both packed.
+	 */
+	public long state(long inputs, long registers)
+	{
+		return this.inputs.size() == Long.SIZE ? inputs : inputs | registers << this.inputs.size();
+	}
+
+	/**
+	 * @return The packed input valuation of {@code state}.
+	 */
+	public long inputsOf(long state)
+	{
+		return inputs.size() == Long.SIZE ? state : state & ~(-1L << inputs.size());
+	}
+
+	/**
+	 * @return The packed register valuation of {@code state}.
+	 */
+	public long registersOf(long state)
+	{
+		return inputs.size() == Long.SIZE ? 0 : state >>> inputs.size();
+	}
+
+	/**
+	 * @return The state of a pair of valuations.
+	 */
+	public long encode(Map<String, Boolean> inputs, Map<String, Boolean> registers)
+	{
+		return state(pack(inputs, this.inputs), pack(registers, this.registers));
+	}
+
+	/**
+	 * @return The state as a pair of valuations, as the states of
+	 * {@code FvmFacade.transitionSystemFromCircuit(Circuit)}.
+	 */
+	public Pair<Map<String, Boolean>, Map<String, Boolean>> decode(long state)
+	{
+		return new Pair<>(decodeInputs(inputsOf(state)), decodeRegisters(registersOf(state)));
+	}
+
+	/**
+	 * @param inputs A packed input valuation, e.g. an action.
+	 * @return Its map.
+	 */
+	public Map<String, Boolean> decodeInputs(long inputs)
+	{
+		return unpack(inputs, this.inputs);
+	}
+
+	/**
+	 * @param registers A packed register valuation.
+	 * @return Its map.
+	 */
+	public Map<String, Boolean> decodeRegisters(long registers)
+	{
+		return unpack(registers, this.registers);
+	}
+
+	/**
+	 * @param states A batch of states.
+	 * @param count  The number of states of the batch.
+	 * @return The packed next register valuation of each state of the batch.
+	 */
+	public long[] next(long[] states, int count)
+	{
+		return compute(states, count, true);
+	}
+
+	/**
+	 * @param states A batch of states.
+	 * @param count  The number of states of the batch.
+	 * @return The packed output valuation of each state of the batch, bit
+	 * {@code k} being the output {@code k} of {@link #getOutputNames()}.
+	 */
+	public long[] outputs(long[] states, int count)
+	{
+		return compute(states, count, false);
+	}
+
+	/**
+	 * @return The names of the inputs, registers and outputs set in
+	 * {@code state}, whose packed outputs are {@code outputs}.
+	 */
+	public List<String> label(long state, long outputs)
+	{
+		final List<String> label = new ArrayList<>();
+		final long registers = registersOf(state);
+		for (int i = 0; i < inputs.size(); i++)
+			if ((state >>> i & 1) != 0)
+				label.add(inputs.get(i));
+		for (int i = 0; i < this.registers.size(); i++)
+			if ((registers >>> i & 1) != 0)
+				label.add(this.registers.get(i));
+		for (int i = 0; i < this.outputs.size(); i++)
+			if ((outputs >>> i & 1) != 0)
+				label.add(this.outputs.get(i));
+		return label;
+	}
+
+	private long[] compute(long[] states, int count, boolean next)
+	{
+		final long[] result = new long[count];
+		if (simulator == null)
+		{
+			for (int k = 0; k < count; k++)
+			{
+				final Map<String, Boolean> inputValues = decodeInputs(inputsOf(states[k]));
+				final Map<String, Boolean> registerValues = decodeRegisters(registersOf(states[k]));
+				result[k] = next ? pack(circuit.updateRegisters(inputValues, registerValues), registers)
+				                 : pack(circuit.computeOutputs(inputValues, registerValues), outputs);
+			}
+			return result;
+		}
+
+		// 64 states at a time, transposed: a word per input and register,
+		// a bit per state
+		for (int first = 0; first < count; first += BitParallelSimulator.LANES)
+		{
+			final int lanes = Math.min(BitParallelSimulator.LANES, count - first);
+			final long[] inputWords = new long[inputs.size()];
+			final long[] registerWords = new long[registers.size()];
+			for (int k = 0; k < lanes; k++)
+			{
+				final long state = states[first + k];
+				for (int i = 0; i < inputWords.length; i++)
+					inputWords[i] |= (state >>> i & 1) << k;
+				final long registerValues = registersOf(state);
+				for (int i = 0; i < registerWords.length; i++)
+					registerWords[i] |= (registerValues >>> i & 1) << k;
+			}
+			final long[] words = next ? simulator.step(inputWords, registerWords) : simulator.outputs(inputWords, registerWords);
+			for (int i = 0; i < words.length; i++)
+				for (int k = 0; k < lanes; k++)
+					result[first + k] |= (words[i] >>> k & 1) << i;
+		}
+		return result;
+	}
+
+	private static long pack(Map<String, Boolean> values, List<String> names)
+	{
+		long packed = 0;
+		for (int i = 0; i < names.size(); i++)
+			if (Boolean.TRUE.equals(values.get(names.get(i))))
+				packed |= 1L << i;
+		return packed;
+	}
+
+	private static Map<String, Boolean> unpack(long packed, List<String> names)
+	{
+		final Map<String, Boolean> values = new HashMap<>();
+		for (int i = 0; i < names.size(); i++)
+			values.put(names.get(i), (packed >>> i & 1) != 0);
+		return values;
+	}
+}
@@ -0,0 +1,62 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+/**
+ * An atomic proposition.
+ *
+ * @param <L> The type of the atomic propositions.
+ */
+public class AP<L> extends CTL<L>
+{
+	L name;
+
+	public AP(L name)
+	{
+		this.name = name;
+	}
+
+	@Override
+	public String toString()
+	{
+		return name.toString();
+	}
+
+	/**
+	 * @return the name
+	 */
+	public L getName()
+	{
+		return name;
+	}
+
+	/**
+	 * @param name the name to set
+	 */
+	public void setName(L name)
+	{
+		this.name = name;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((name == null) ? 0 : name.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof AP))
+			return false;
+		AP<?> other = (AP<?>) obj;
+		if (name == null)
+			return other.name == null;
+		else
+			return name.equals(other.name);
+	}
+
+}
@@ -0,0 +1,94 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+/**
+ * A representation of a CTL state formula as a parse tree, in existential
+ * normal form: atomic propositions, {@code true}, {@code ¬}, {@code ∧},
+ * {@code ∃◯}, {@code ∃U} and {@code ∃□}. The other operators are provided as
+ * factory methods that expand to these.
+ *
+ * @param <L> The type of the atomic propositions.
+ */
+public abstract class CTL<L>
+{
+
+	public static <L> CTL<L> ap(L name)
+	{
+		return new AP<>(name);
+	}
+
+	public static <L> CTL<L> true_()
+	{
+		return new TRUE<>();
+	}
+
+	public static <L> CTL<L> not(CTL<L> l)
+	{
+		return new Not<>(l);
+	}
+
+	public static <L> CTL<L> and(CTL<L> l, CTL<L> r)
+	{
+		return new And<>(l, r);
+	}
+
+	public static <L> CTL<L> or(CTL<L> l, CTL<L> r)
+	{
+		return not(and(not(l), not(r)));
+	}
+
+	public static <L> CTL<L> existsNext(CTL<L> l)
+	{
+		return new ExistsNext<>(l);
+	}
+
+	public static <L> CTL<L> existsUntil(CTL<L> l, CTL<L> r)
+	{
+		return new ExistsUntil<>(l, r);
+	}
+
+	public static <L> CTL<L> existsAlways(CTL<L> l)
+	{
+		return new ExistsAlways<>(l);
+	}
+
+	/**
+	 * ∃◇φ = ∃(true U φ)
+	 */
+	public static <L> CTL<L> existsEventually(CTL<L> l)
+	{
+		return existsUntil(true_(), l);
+	}
+
+	/**
+	 * ∀◯φ = ¬∃◯¬φ
+	 */
+	public static <L> CTL<L> forallNext(CTL<L> l)
+	{
+		return not(existsNext(not(l)));
+	}
+
+	/**
+	 * ∀◇φ = ¬∃□¬φ
+	 */
+	public static <L> CTL<L> forallEventually(CTL<L> l)
+	{
+		return not(existsAlways(not(l)));
+	}
+
+	/**
+	 * ∀□φ = ¬∃◇¬φ
+	 */
+	public static <L> CTL<L> forallAlways(CTL<L> l)
+	{
+		return not(existsEventually(not(l)));
+	}
+
+	/**
+	 * ∀(φ U ψ) = ¬∃(¬ψ U (¬φ ∧ ¬ψ)) ∧ ¬∃□¬ψ
+	 */
+	public static <L> CTL<L> forallUntil(CTL<L> l, CTL<L> r)
+	{
+		return and(not(existsUntil(not(r), and(not(l), not(r)))), not(existsAlways(not(r))));
+	}
+
+}
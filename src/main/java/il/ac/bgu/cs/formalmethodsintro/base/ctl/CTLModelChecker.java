@@ -0,0 +1,372 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * CTL model checking by backward fixpoints over bitsets. The states of the
+ * transition system are interned once as ids {@code 0..n-1}, its transitions
+ * stored as successor and predecessor arrays, and a satisfaction set is a
+ * {@code long[]} with one bit per state. Each operator costs
+ * {@code O(|S| + |→|)}:
+ * <ul>
+ * <li>{@code ∃◯φ}: a state is in the set iff one of its successors is;</li>
+ * <li>{@code ∃(φ U ψ)}: backward search from {@code Sat(ψ)} through
+ * {@code Sat(φ)} states;</li>
+ * <li>{@code ∃□φ}: the nontrivial strongly connected components of the
+ * sub-graph of {@code Sat(φ)}, then a backward search from them through
+ * {@code Sat(φ)} states.</li>
+ * </ul>
+ * The sets of sub-formulas are cached. Word-wise operations (labels,
+ * {@code ¬}, {@code ∧}, {@code ∃◯}) run in parallel on large systems.
+ * <p>
+ * Paths are infinite: a terminal state has no successor, hence satisfies no
+ * {@code ∃◯φ} and no {@code ∃□φ}.
+ * <p>
+ * Under fairness, given as CTL formulas that must each hold infinitely often
+ * along a path (unconditional fairness; the formulas themselves are evaluated
+ * without fairness), path quantifiers range over fair paths only:
+ * {@code ∃□φ} needs a component that intersects every fairness set,
+ * {@code ∃◯φ} and {@code ∃(φ U ψ)} need {@code φ}, resp. {@code ψ}, to hold
+ * at a state from which a fair path starts.
+ *
+ * @param <S> Type of states.
+ * @param <P> Type of atomic propositions.
+ */
+public class CTLModelChecker<S, P>
+{
+	/**
+	 * Number of states from which word-wise operations run in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	private final TransitionSystem<S, ?, P> ts;
+	private final List<S> states;
+	private final Map<S, Integer> ids;
+	private final int n;
+	private final int words;
+	private final int[] successorOffsets;
+	private final int[] successors;
+	private final int[] predecessorOffsets;
+	private final int[] predecessors;
+	private final Map<CTL<P>, long[]> cache = new HashMap<>();
+
+	/**
+	 * The fairness sets, {@code null} without fairness.
+	 */
+	private List<long[]> fairnessSets;
+
+	/**
+	 * The states from which a fair path starts, {@code null} without fairness.
+	 */
+	private long[] fair;
+
+	/**
+	 * @param ts A transition system.
+	 */
+	public CTLModelChecker(TransitionSystem<S, ?, P> ts)
+	{
+		this(ts, Collections.emptyList());
+	}
+
+	/**
+	 * @param ts       A transition system.
+	 * @param fairness Formulas each fair path satisfies infinitely often;
+	 *                 empty for no fairness.
+	 */
+	public CTLModelChecker(TransitionSystem<S, ?, P> ts, Collection<CTL<P>> fairness)
+	{
+		this.ts = ts;
+		states = new ArrayList<>(ts.getStates());
+		n = states.size();
+		words = (n + Long.SIZE - 1) / Long.SIZE;
+		ids = new HashMap<>(n * 2);
+		for (int s = 0; s < n; s++)
+			ids.put(states.get(s), s);
+
+		final int[] outDegree = new int[n];
+		final int[] inDegree = new int[n];
+		final List<int[]> edges = new ArrayList<>(ts.getTransitions().size());
+		ts.getTransitions().forEach(transition ->
+		{
+			final int from = ids.get(transition.getFrom()), to = ids.get(transition.getTo());
+			edges.add(new int[]{from, to});
+			outDegree[from]++;
+			inDegree[to]++;
+		});
+		successorOffsets = offsets(outDegree);
+		predecessorOffsets = offsets(inDegree);
+		successors = new int[edges.size()];
+		predecessors = new int[edges.size()];
+		final int[] nextSuccessor = Arrays.copyOf(successorOffsets, n);
+		final int[] nextPredecessor = Arrays.copyOf(predecessorOffsets, n);
+		for (int[] edge : edges)
+		{
+			successors[nextSuccessor[edge[0]]++] = edge[1];
+			predecessors[nextPredecessor[edge[1]]++] = edge[0];
+		}
+
+		if (!fairness.isEmpty())
+		{
+			final List<long[]> sets = new ArrayList<>();
+			fairness.forEach(formula -> sets.add(sat(formula)));
+			cache.clear(); // evaluated without fairness
+			fairnessSets = sets;
+			fair = existsAlways(all());
+		}
+	}
+
+	/**
+	 * @param formula A CTL formula.
+	 * @return {@code Sat(formula)}.
+	 */
+	public Set<S> satisfyingStates(CTL<P> formula)
+	{
+		final long[] set = sat(formula);
+		final Set<S> result = new HashSet<>();
+		for (int s = 0; s < n; s++)
+			if (contains(set, s))
+				result.add(states.get(s));
+		return result;
+	}
+
+	/**
+	 * @param formula A CTL formula.
+	 * @return {@code true} iff every initial state satisfies {@code formula}.
+	 */
+	public boolean satisfies(CTL<P> formula)
+	{
+		final long[] set = sat(formula);
+		return ts.getInitialStates().stream().allMatch(s -> contains(set, ids.get(s)));
+	}
+
+	private long[] sat(CTL<P> formula)
+	{
+		final long[] cached = cache.get(formula);
+		if (cached != null)
+			return cached;
+
+		final long[] result;
+		if (formula instanceof TRUE)
+			result = all();
+		else if (formula instanceof AP)
+		{
+			final P name = ((AP<P>) formula).getName();
+			result = new long[words];
+			forEachWord(w -> result[w] = word(w, s -> ts.getLabel(states.get(s)).contains(name)));
+		} else if (formula instanceof Not)
+		{
+			final long[] inner = sat(((Not<P>) formula).getInner());
+			final long[] all = all();
+			result = new long[words];
+			forEachWord(w -> result[w] = ~inner[w] & all[w]);
+		} else if (formula instanceof And)
+		{
+			final long[] left = sat(((And<P>) formula).getLeft());
+			final long[] right = sat(((And<P>) formula).getRight());
+			result = new long[words];
+			forEachWord(w -> result[w] = left[w] & right[w]);
+		} else if (formula instanceof ExistsNext)
+			result = existsNext(fair(sat(((ExistsNext<P>) formula).getInner())));
+		else if (formula instanceof ExistsUntil)
+			result = existsUntil(sat(((ExistsUntil<P>) formula).getLeft()), fair(sat(((ExistsUntil<P>) formula).getRight())));
+		else if (formula instanceof ExistsAlways)
+			result = existsAlways(sat(((ExistsAlways<P>) formula).getInner()));
+		else
+			throw new IllegalArgumentException("Unsupported formula: " + formula);
+
+		cache.put(formula, result);
+		return result;
+	}
+
+	/**
+	 * @return {@code set ∩ fair}, or {@code set} without fairness.
+	 */
+	private long[] fair(long[] set)
+	{
+		if (fair == null)
+			return set;
+		final long[] result = new long[words];
+		forEachWord(w -> result[w] = set[w] & fair[w]);
+		return result;
+	}
+
+	private long[] existsNext(long[] target)
+	{
+		final long[] result = new long[words];
+		forEachWord(w -> result[w] = word(w, s ->
+		{
+			for (int i = successorOffsets[s]; i < successorOffsets[s + 1]; i++)
+				if (contains(target, successors[i]))
+					return true;
+			return false;
+		}));
+		return result;
+	}
+
+	private long[] existsUntil(long[] left, long[] right)
+	{
+		final long[] result = right.clone();
+		final int[] queue = new int[n];
+		int head = 0, tail = 0;
+		for (int s = 0; s < n; s++)
+			if (contains(right, s))
+				queue[tail++] = s;
+		while (head < tail)
+		{
+			final int t = queue[head++];
+			for (int i = predecessorOffsets[t]; i < predecessorOffsets[t + 1]; i++)
+			{
+				final int s = predecessors[i];
+				if (!contains(result, s) && contains(left, s))
+				{
+					set(result, s);
+					queue[tail++] = s;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The states of {@code inner} that reach, within {@code inner}, a
+	 * nontrivial strongly connected component of {@code inner} (that
+	 * intersects every fairness set, under fairness). Tarjan's algorithm,
+	 * iteratively.
+	 */
+	private long[] existsAlways(long[] inner)
+	{
+		final long[] seeds = new long[words];
+		final int[] index = new int[n];
+		final int[] low = new int[n];
+		final int[] position = new int[n];
+		final boolean[] onStack = new boolean[n];
+		final int[] stack = new int[n];
+		final int[] calls = new int[n];
+		Arrays.fill(index, -1);
+		int counter = 0, stackTop = 0;
+
+		for (int root = 0; root < n; root++)
+		{
+			if (index[root] >= 0 || !contains(inner, root))
+				continue;
+			int callTop = 0;
+			index[root] = low[root] = counter++;
+			position[root] = successorOffsets[root];
+			stack[stackTop++] = root;
+			onStack[root] = true;
+			calls[callTop++] = root;
+			while (callTop > 0)
+			{
+				final int v = calls[callTop - 1];
+				if (position[v] < successorOffsets[v + 1])
+				{
+					final int w = successors[position[v]++];
+					if (!contains(inner, w))
+						continue;
+					if (index[w] < 0)
+					{
+						index[w] = low[w] = counter++;
+						position[w] = successorOffsets[w];
+						stack[stackTop++] = w;
+						onStack[w] = true;
+						calls[callTop++] = w;
+					} else if (onStack[w])
+						low[v] = Math.min(low[v], index[w]);
+					continue;
+				}
+				callTop--;
+				if (callTop > 0)
+					low[calls[callTop - 1]] = Math.min(low[calls[callTop - 1]], low[v]);
+				if (low[v] != index[v])
+					continue;
+				final int bottom = stackTop;
+				do
+					onStack[stack[--stackTop]] = false;
+				while (stack[stackTop] != v);
+				if (isFairCycle(stack, stackTop, bottom))
+					for (int i = stackTop; i < bottom; i++)
+						set(seeds, stack[i]);
+			}
+		}
+		return existsUntil(inner, seeds);
+	}
+
+	/**
+	 * @return Whether the component {@code stack[from..to)} contains a cycle
+	 * (that visits every fairness set, under fairness).
+	 */
+	private boolean isFairCycle(int[] stack, int from, int to)
+	{
+		if (to - from == 1)
+		{
+			final int s = stack[from];
+			boolean selfLoop = false;
+			for (int i = successorOffsets[s]; i < successorOffsets[s + 1] && !selfLoop; i++)
+				selfLoop = successors[i] == s;
+			if (!selfLoop)
+				return false;
+		}
+		if (fairnessSets == null)
+			return true;
+		for (long[] fairnessSet : fairnessSets)
+		{
+			boolean visited = false;
+			for (int i = from; i < to && !visited; i++)
+				visited = contains(fairnessSet, stack[i]);
+			if (!visited)
+				return false;
+		}
+		return true;
+	}
+
+	private long[] all()
+	{
+		final long[] result = new long[words];
+		Arrays.fill(result, -1L);
+		if (n % Long.SIZE != 0)
+			result[words - 1] = (1L << (n % Long.SIZE)) - 1;
+		return result;
+	}
+
+	/**
+	 * @return The word {@code w} of the set of states satisfying
+	 * {@code member}.
+	 */
+	private long word(int w, IntPredicate member)
+	{
+		long bits = 0;
+		for (int s = w * Long.SIZE, end = Math.min(n, s + Long.SIZE); s < end; s++)
+			if (member.test(s))
+				bits |= 1L << s;
+		return bits;
+	}
+
+	private void forEachWord(IntConsumer action)
+	{
+		final IntStream range = IntStream.range(0, words);
+		(n >= PARALLEL_THRESHOLD ? range.parallel() : range).forEach(action);
+	}
+
+	private static boolean contains(long[] set, int s)
+	{
+		return (set[s >>> 6] & 1L << s) != 0;
+	}
+
+	private static void set(long[] set, int s)
+	{
+		set[s >>> 6] |= 1L << s;
+	}
+
+	private static int[] offsets(int[] degrees)
+	{
+		final int[] offsets = new int[degrees.length + 1];
+		for (int s = 0; s < degrees.length; s++)
+			offsets[s + 1] = offsets[s] + degrees[s];
+		return offsets;
+	}
+}
@@ -0,0 +1,57 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+/**
+ * ∃□φ: some path on which φ holds forever.
+ *
+ * @param <L> The type of the atomic propositions.
+ */
+public class ExistsAlways<L> extends CTL<L>
+{
+
+	private CTL<L> inner;
+
+	public ExistsAlways(CTL<L> inner)
+	{
+		this.setInner(inner);
+	}
+
+	public CTL<L> getInner()
+	{
+		return inner;
+	}
+
+	public void setInner(CTL<L> inner)
+	{
+		this.inner = inner;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "EG " + inner;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 3;
+		result = prime * result + ((inner == null) ? 0 : inner.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ExistsAlways))
+			return false;
+		ExistsAlways<?> other = (ExistsAlways<?>) obj;
+		if (inner == null)
+			return other.inner == null;
+		else
+			return inner.equals(other.inner);
+	}
+
+}
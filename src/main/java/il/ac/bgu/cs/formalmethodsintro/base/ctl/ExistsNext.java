@@ -0,0 +1,57 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+/**
+ * ∃◯φ: some successor satisfies φ.
+ *
+ * @param <L> The type of the atomic propositions.
+ */
+public class ExistsNext<L> extends CTL<L>
+{
+
+	private CTL<L> inner;
+
+	public ExistsNext(CTL<L> inner)
+	{
+		this.setInner(inner);
+	}
+
+	public CTL<L> getInner()
+	{
+		return inner;
+	}
+
+	public void setInner(CTL<L> inner)
+	{
+		this.inner = inner;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "EX " + inner;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 2;
+		result = prime * result + ((inner == null) ? 0 : inner.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ExistsNext))
+			return false;
+		ExistsNext<?> other = (ExistsNext<?>) obj;
+		if (inner == null)
+			return other.inner == null;
+		else
+			return inner.equals(other.inner);
+	}
+
+}
@@ -0,0 +1,69 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+/**
+ * ∃(φ U ψ): some path on which φ holds until ψ does.
+ *
+ * @param <L> The type of the atomic propositions.
+ */
+public class ExistsUntil<L> extends CTL<L>
+{
+
+	private CTL<L> left;
+	private CTL<L> right;
+
+	public ExistsUntil(CTL<L> left, CTL<L> right)
+	{
+		this.setLeft(left);
+		this.setRight(right);
+	}
+
+	public CTL<L> getLeft()
+	{
+		return left;
+	}
+
+	public void setLeft(CTL<L> left)
+	{
+		this.left = left;
+	}
+
+	public CTL<L> getRight()
+	{
+		return right;
+	}
+
+	public void setRight(CTL<L> right)
+	{
+		this.right = right;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "E(" + left + " U " + right + ")";
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 5;
+		result = prime * result + ((left == null) ? 0 : left.hashCode());
+		result = prime * result + ((right == null) ? 0 : right.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof ExistsUntil))
+			return false;
+		ExistsUntil<?> other = (ExistsUntil<?>) obj;
+		if (left == null ? other.left != null : !left.equals(other.left))
+			return false;
+		return right == null ? other.right == null : right.equals(other.right);
+	}
+
+}
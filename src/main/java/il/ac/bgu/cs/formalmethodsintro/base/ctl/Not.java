@@ -0,0 +1,57 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+/**
+ * ¬φ.
+ *
+ * @param <L> The type of the atomic propositions.
+ */
+public class Not<L> extends CTL<L>
+{
+
+	private CTL<L> inner;
+
+	public Not(CTL<L> inner)
+	{
+		this.setInner(inner);
+	}
+
+	public CTL<L> getInner()
+	{
+		return inner;
+	}
+
+	public void setInner(CTL<L> inner)
+	{
+		this.inner = inner;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "!" + inner;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((inner == null) ? 0 : inner.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof Not))
+			return false;
+		Not<?> other = (Not<?>) obj;
+		if (inner == null)
+			return other.inner == null;
+		else
+			return inner.equals(other.inner);
+	}
+
+}
@@ -0,0 +1,28 @@
+package il.ac.bgu.cs.formalmethodsintro.base.ctl;
+
+/**
+ * The constant {@code true}.
+ *
+ * @param <L> The type of the atomic propositions.
+ */
+public class TRUE<L> extends CTL<L>
+{
+
+	@Override
+	public int hashCode()
+	{
+		return 8765432;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj instanceof TRUE;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.valueOf(true);
+	}
+}
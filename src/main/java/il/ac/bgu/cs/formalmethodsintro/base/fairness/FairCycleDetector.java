@@ -0,0 +1,496 @@
+package il.ac.bgu.cs.formalmethodsintro.base.fairness;
+
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationFailed;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Searches the reachable part of an implicitly given graph for a fair cycle,
+ * i.e. a lasso whose cycle satisfies an Emerson–Lei acceptance condition
+ * composed of:
+ * <ul>
+ * <li><em>Büchi sets</em> - each set must be visited infinitely often (e.g.
+ * accepting states of an automaton, unconditional fairness);</li>
+ * <li><em>Büchi edge sets</em> - each set of edges must be taken infinitely
+ * often (e.g. transition-based acceptance of an automaton);</li>
+ * <li><em>strong pairs</em> (enabled, taken) - if enabled infinitely often,
+ * then taken infinitely often;</li>
+ * <li><em>weak pairs</em> (enabled, taken) - if eventually continuously
+ * enabled, then taken infinitely often.</li>
+ * </ul>
+ * The graph is explored once. Fair cycles are then located by recursive SCC
+ * decomposition: an SCC violating a strong pair is refined by removing the
+ * nodes that enable it, an SCC violating a Büchi set or a weak pair is
+ * discarded.
+ *
+ * @param <N> Type of the graph nodes.
+ */
+public class FairCycleDetector<N>
+{
+	private final Function<N, ? extends Collection<N>> successors;
+	private final List<Predicate<N>> buchiSets = new ArrayList<>();
+	private final List<BiPredicate<N, N>> buchiEdgeSets = new ArrayList<>();
+	private final List<Pair<Predicate<N>, Predicate<N>>> strongPairs = new ArrayList<>();
+	private final List<Pair<Predicate<N>, Predicate<N>>> weakPairs = new ArrayList<>();
+
+	private final List<N> nodes = new ArrayList<>();
+	private final Map<N, Integer> ids = new HashMap<>();
+	private int[][] edges;
+
+	/**
+	 * @param successors Returns the successors of a node. Called once per
+	 *                   reachable node.
+	 */
+	public FairCycleDetector(Function<N, ? extends Collection<N>> successors)
+	{
+		this.successors = successors;
+	}
+
+	/**
+	 * @param visitedInfinitelyOften Nodes of which at least one must be visited
+	 *                               infinitely often.
+	 * @return {@code this}, for chaining.
+	 */
+	public FairCycleDetector<N> addBuchiSet(Predicate<N> visitedInfinitelyOften)
+	{
+		buchiSets.add(visitedInfinitelyOften);
+		return this;
+	}
+
+	/**
+	 * @param takenInfinitelyOften Edges {@code (from, to)} of which at least
+	 *                             one must be taken infinitely often.
+	 * @return {@code this}, for chaining.
+	 */
+	public FairCycleDetector<N> addBuchiEdgeSet(BiPredicate<N, N> takenInfinitelyOften)
+	{
+		buchiEdgeSets.add(takenInfinitelyOften);
+		return this;
+	}
+
+	/**
+	 * @param enabled Nodes in which the constraint is enabled.
+	 * @param taken   Nodes in which the constraint is taken.
+	 * @return {@code this}, for chaining.
+	 */
+	public FairCycleDetector<N> addStrongPair(Predicate<N> enabled, Predicate<N> taken)
+	{
+		strongPairs.add(new Pair<>(enabled, taken));
+		return this;
+	}
+
+	/**
+	 * @param enabled Nodes in which the constraint is enabled.
+	 * @param taken   Nodes in which the constraint is taken.
+	 * @return {@code this}, for chaining.
+	 */
+	public FairCycleDetector<N> addWeakPair(Predicate<N> enabled, Predicate<N> taken)
+	{
+		weakPairs.add(new Pair<>(enabled, taken));
+		return this;
+	}
+
+	/**
+	 * @return Number of nodes explored by the last call to
+	 * {@link #findFairCycle(Collection)}.
+	 */
+	public int getExploredNodes()
+	{
+		return nodes.size();
+	}
+
+	/**
+	 * Explores the graph from {@code initial} and looks for a reachable fair
+	 * cycle.
+	 *
+	 * @param initial The initial nodes.
+	 * @return {@link VerificationSucceeded} if there is no fair cycle, or a
+	 * {@link VerificationFailed} whose prefix leads from an initial node to the
+	 * first node of the cycle (exclusive) and whose cycle lists the nodes of a
+	 * fair cycle.
+	 */
+	public VerificationResult<N> findFairCycle(Collection<N> initial)
+	{
+		final int[] initialIds = explore(initial);
+		final int n = nodes.size();
+
+		final boolean[][] buchi = evaluate(buchiSets);
+		final boolean[][][] buchiEdges = evaluateEdges(buchiEdgeSets);
+		final boolean[][] strongEnabled = evaluate(firsts(strongPairs)), strongTaken = evaluate(seconds(strongPairs));
+		final boolean[][] weakEnabled = evaluate(firsts(weakPairs)), weakTaken = evaluate(seconds(weakPairs));
+
+		final Deque<int[]> scopes = new ArrayDeque<>();
+		final int[] all = new int[n];
+		for (int i = 0; i < n; i++)
+			all[i] = i;
+		scopes.push(all);
+
+		while (!scopes.isEmpty())
+		{
+			for (int[] scc : stronglyConnectedComponents(scopes.pop()))
+			{
+				if (!isNontrivial(scc) ||
+				    !allVisited(buchi, scc) ||
+				    !allTaken(buchiEdges, scc) ||
+				    violatesWeak(weakEnabled, weakTaken, scc))
+					continue;
+
+				final boolean[] remove = new boolean[n];
+				boolean refine = false;
+				for (int p = 0; p < strongEnabled.length; p++)
+					if (any(strongEnabled[p], scc) && !any(strongTaken[p], scc))
+					{
+						refine = true;
+						for (int node : scc)
+							remove[node] |= strongEnabled[p][node];
+					}
+
+				if (!refine)
+					return lasso(initialIds, scc, buchi, buchiEdges, strongEnabled, strongTaken, weakEnabled, weakTaken);
+
+				final int[] rest = Arrays.stream(scc).filter(node -> !remove[node]).toArray();
+				if (rest.length > 0)
+					scopes.push(rest);
+			}
+		}
+		return new VerificationSucceeded<>();
+	}
+
+	private int[] explore(Collection<N> initial)
+	{
+		nodes.clear();
+		ids.clear();
+		final List<int[]> adjacency = new ArrayList<>();
+		final Deque<Integer> queue = new ArrayDeque<>();
+		final int[] initialIds = initial.stream()
+				.mapToInt(node -> intern(node, queue))
+				.distinct()
+				.toArray();
+		while (!queue.isEmpty())
+		{
+			final int id = queue.poll();
+			final int[] succ = successors.apply(nodes.get(id)).stream()
+					.mapToInt(node -> intern(node, queue))
+					.distinct()
+					.toArray();
+			while (adjacency.size() <= id)
+				adjacency.add(null);
+			adjacency.set(id, succ);
+		}
+		edges = adjacency.toArray(new int[0][]);
+		return initialIds;
+	}
+
+	private int intern(N node, Deque<Integer> queue)
+	{
+		return ids.computeIfAbsent(node, k ->
+		{
+			nodes.add(k);
+			queue.add(nodes.size() - 1);
+			return nodes.size() - 1;
+		});
+	}
+
+	private boolean[][] evaluate(List<Predicate<N>> predicates)
+	{
+		final boolean[][] values = new boolean[predicates.size()][nodes.size()];
+		for (int p = 0; p < predicates.size(); p++)
+			for (int i = 0; i < nodes.size(); i++)
+				values[p][i] = predicates.get(p).test(nodes.get(i));
+		return values;
+	}
+
+	/**
+	 * @return For each predicate, node and outgoing edge (in the order of
+	 * {@link #edges}), whether the edge satisfies the predicate.
+	 */
+	private boolean[][][] evaluateEdges(List<BiPredicate<N, N>> predicates)
+	{
+		final boolean[][][] values = new boolean[predicates.size()][nodes.size()][];
+		for (int p = 0; p < predicates.size(); p++)
+			for (int i = 0; i < nodes.size(); i++)
+			{
+				values[p][i] = new boolean[edges[i].length];
+				for (int k = 0; k < edges[i].length; k++)
+					values[p][i][k] = predicates.get(p).test(nodes.get(i), nodes.get(edges[i][k]));
+			}
+		return values;
+	}
+
+	private static <T> List<T> firsts(List<Pair<T, T>> pairs)
+	{
+		final List<T> list = new ArrayList<>(pairs.size());
+		pairs.forEach(pair -> list.add(pair.getFirst()));
+		return list;
+	}
+
+	private static <T> List<T> seconds(List<Pair<T, T>> pairs)
+	{
+		final List<T> list = new ArrayList<>(pairs.size());
+		pairs.forEach(pair -> list.add(pair.getSecond()));
+		return list;
+	}
+
+	private static boolean any(boolean[] values, int[] scc)
+	{
+		for (int node : scc)
+			if (values[node])
+				return true;
+		return false;
+	}
+
+	private static boolean allVisited(boolean[][] sets, int[] scc)
+	{
+		for (boolean[] set : sets)
+			if (!any(set, scc))
+				return false;
+		return true;
+	}
+
+	private boolean allTaken(boolean[][][] edgeSets, int[] scc)
+	{
+		for (boolean[][] set : edgeSets)
+			if (firstEdge(set, scc) == null)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return The first edge {@code {from, to}} of the set with both ends in
+	 * {@code scc}, or {@code null}.
+	 */
+	private int[] firstEdge(boolean[][] edgeSet, int[] scc)
+	{
+		final Set<Integer> inScc = new HashSet<>();
+		for (int node : scc)
+			inScc.add(node);
+		for (int node : scc)
+			for (int k = 0; k < edges[node].length; k++)
+				if (edgeSet[node][k] && inScc.contains(edges[node][k]))
+					return new int[]{node, edges[node][k]};
+		return null;
+	}
+
+	private static boolean violatesWeak(boolean[][] enabled, boolean[][] taken, int[] scc)
+	{
+		for (int p = 0; p < enabled.length; p++)
+		{
+			boolean allEnabled = true;
+			for (int node : scc)
+				allEnabled &= enabled[p][node];
+			if (allEnabled && !any(taken[p], scc))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean isNontrivial(int[] scc)
+	{
+		if (scc.length > 1)
+			return true;
+		for (int succ : edges[scc[0]])
+			if (succ == scc[0])
+				return true;
+		return false;
+	}
+
+	/**
+	 * Iterative Tarjan over the sub-graph induced by {@code scope}.
+	 */
+	private List<int[]> stronglyConnectedComponents(int[] scope)
+	{
+		final int n = nodes.size();
+		final boolean[] inScope = new boolean[n];
+		for (int node : scope)
+			inScope[node] = true;
+		final int[] index = new int[n], lowLink = new int[n], edgeCursor = new int[n];
+		Arrays.fill(index, -1);
+		final boolean[] onStack = new boolean[n];
+		final Deque<Integer> stack = new ArrayDeque<>(), callStack = new ArrayDeque<>();
+		final List<int[]> components = new ArrayList<>();
+		int counter = 0;
+
+		for (int root : scope)
+		{
+			if (index[root] != -1)
+				continue;
+			callStack.push(root);
+			index[root] = lowLink[root] = counter++;
+			stack.push(root);
+			onStack[root] = true;
+			while (!callStack.isEmpty())
+			{
+				final int v = callStack.peek();
+				if (edgeCursor[v] < edges[v].length)
+				{
+					final int w = edges[v][edgeCursor[v]++];
+					if (!inScope[w])
+						continue;
+					if (index[w] == -1)
+					{
+						index[w] = lowLink[w] = counter++;
+						stack.push(w);
+						onStack[w] = true;
+						callStack.push(w);
+					} else if (onStack[w])
+						lowLink[v] = Math.min(lowLink[v], index[w]);
+				} else
+				{
+					callStack.pop();
+					if (!callStack.isEmpty())
+						lowLink[callStack.peek()] = Math.min(lowLink[callStack.peek()], lowLink[v]);
+					if (lowLink[v] == index[v])
+					{
+						final List<Integer> component = new ArrayList<>();
+						int w;
+						do
+						{
+							w = stack.pop();
+							onStack[w] = false;
+							component.add(w);
+						} while (w != v);
+						components.add(component.stream().mapToInt(Integer::intValue).toArray());
+					}
+				}
+			}
+		}
+		return components;
+	}
+
+	private VerificationResult<N> lasso(int[] initialIds, int[] scc,
+	                                    boolean[][] buchi,
+	                                    boolean[][][] buchiEdges,
+	                                    boolean[][] strongEnabled, boolean[][] strongTaken,
+	                                    boolean[][] weakEnabled, boolean[][] weakTaken)
+	{
+		final boolean[] inScc = new boolean[nodes.size()];
+		for (int node : scc)
+			inScc[node] = true;
+
+		final List<Integer> prefix = shortestPath(initialIds, node -> inScc[node], null);
+		final int start = prefix.remove(prefix.size() - 1);
+
+		// nodes the cycle has to pass through, and edges it has to take
+		final List<Integer> targets = new ArrayList<>();
+		for (boolean[] set : buchi)
+			targets.add(first(set, scc, true));
+		for (int p = 0; p < strongEnabled.length; p++)
+			if (any(strongEnabled[p], scc))
+				targets.add(first(strongTaken[p], scc, true));
+		for (int p = 0; p < weakEnabled.length; p++)
+			targets.add(any(weakTaken[p], scc) ? first(weakTaken[p], scc, true) : first(weakEnabled[p], scc, false));
+		final List<int[]> edgeTargets = new ArrayList<>();
+		for (boolean[][] set : buchiEdges)
+			edgeTargets.add(firstEdge(set, scc));
+
+		// targets already met on the way are skipped
+		final List<Integer> cycle = new ArrayList<>();
+		final Set<Integer> onCycle = new HashSet<>();
+		final Set<Long> edgesTaken = new HashSet<>();
+		cycle.add(start);
+		onCycle.add(start);
+		int current = start;
+		for (int target : targets)
+			if (!onCycle.contains(target))
+				current = walk(cycle, onCycle, edgesTaken, current, shortestPath(edges[current], node -> node == target, inScc));
+		for (int[] edge : edgeTargets)
+			if (!edgesTaken.contains(edgeKey(edge[0], edge[1])))
+			{
+				if (current != edge[0])
+					current = walk(cycle, onCycle, edgesTaken, current, shortestPath(edges[current], node -> node == edge[0], inScc));
+				current = walk(cycle, onCycle, edgesTaken, current, List.of(edge[1]));
+			}
+		if (current == start && cycle.size() > 1)
+			cycle.remove(cycle.size() - 1); // the last edge taken closes the cycle
+		else
+		{
+			final List<Integer> back = shortestPath(edges[current], node -> node == start, inScc);
+			cycle.addAll(back.subList(0, back.size() - 1));
+		}
+
+		final VerificationFailed<N> failure = new VerificationFailed<>();
+		failure.setPrefix(toNodes(prefix));
+		failure.setCycle(toNodes(cycle));
+		return failure;
+	}
+
+	/**
+	 * Appends {@code path}, which starts at a successor of {@code current},
+	 * to {@code cycle}, recording the nodes and edges it passes through.
+	 *
+	 * @return The last node of the path.
+	 */
+	private int walk(List<Integer> cycle, Set<Integer> onCycle, Set<Long> edgesTaken, int current, List<Integer> path)
+	{
+		for (int node : path)
+		{
+			edgesTaken.add(edgeKey(current, node));
+			cycle.add(node);
+			onCycle.add(node);
+			current = node;
+		}
+		return current;
+	}
+
+	private long edgeKey(int from, int to)
+	{
+		return (long) from * nodes.size() + to;
+	}
+
+	private static int first(boolean[] values, int[] scc, boolean value)
+	{
+		for (int node : scc)
+			if (values[node] == value)
+				return node;
+		throw new IllegalStateException("No matching node in SCC");
+	}
+
+	/**
+	 * BFS from {@code sources} (included in the path) to the first node
+	 * satisfying {@code target}, restricted to {@code allowed} when not
+	 * {@code null}.
+	 */
+	private List<Integer> shortestPath(int[] sources, Predicate<Integer> target, boolean[] allowed)
+	{
+		final int[] parent = new int[nodes.size()];
+		Arrays.fill(parent, -2);
+		final Deque<Integer> queue = new ArrayDeque<>();
+		for (int source : sources)
+			if ((allowed == null || allowed[source]) && parent[source] == -2)
+			{
+				parent[source] = -1;
+				queue.add(source);
+			}
+		while (!queue.isEmpty())
+		{
+			final int node = queue.poll();
+			if (target.test(node))
+			{
+				final LinkedList<Integer> path = new LinkedList<>();
+				for (int current = node; current != -1; current = parent[current])
+					path.addFirst(current);
+				return path;
+			}
+			for (int succ : edges[node])
+				if ((allowed == null || allowed[succ]) && parent[succ] == -2)
+				{
+					parent[succ] = node;
+					queue.add(succ);
+				}
+		}
+		throw new IllegalStateException("Target not reachable");
+	}
+
+	private List<N> toNodes(List<Integer> path)
+	{
+		final List<N> list = new ArrayList<>(path.size());
+		path.forEach(id -> list.add(nodes.get(id)));
+		return list;
+	}
+}
@@ -0,0 +1,82 @@
+package il.ac.bgu.cs.formalmethodsintro.base.fairness;
+
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.ImplicitTransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TSTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The system {@code TS_F} used for verification under fairness, as a lazily
+ * expanded view over the original system. A state {@code ⟨s, α⟩} remembers
+ * the action {@code α} by which {@code s} was entered (its <em>triggered</em>
+ * action); the actions <em>enabled</em> in it are those of {@code s}. Initial
+ * states {@code ⟨s₀, null⟩} have no triggered action.
+ * <p>
+ * Nothing is computed up front: successors, labels and enabled actions are
+ * derived from the underlying system when asked for, so only the part that is
+ * actually explored is ever built.
+ *
+ * @param <S> Type of states in the original system.
+ * @param <A> Type of actions.
+ * @param <P> Type of atomic propositions.
+ */
+public class FairnessView<S, A, P> implements ImplicitTransitionSystem<Pair<S, A>, A, P>
+{
+	private final ImplicitTransitionSystem<S, A, P> ts;
+	private final Map<S, Set<A>> enabled = new HashMap<>();
+
+	/**
+	 * @param ts The original system.
+	 */
+	public FairnessView(ImplicitTransitionSystem<S, A, P> ts)
+	{
+		this.ts = ts;
+	}
+
+	@Override
+	public Set<Pair<S, A>> getInitialStates()
+	{
+		return ts.getInitialStates().stream()
+				.map(state -> new Pair<S, A>(state, null))
+				.collect(Collectors.toSet());
+	}
+
+	@Override
+	public Collection<TSTransition<Pair<S, A>, A>> getTransitionsFrom(Pair<S, A> state)
+	{
+		final Collection<TSTransition<S, A>> transitions = ts.getTransitionsFrom(state.getFirst());
+		final List<TSTransition<Pair<S, A>, A>> extended = new ArrayList<>(transitions.size());
+		transitions.forEach(transition -> extended.add(new TSTransition<>(state, transition.getAction(), new Pair<>(transition.getTo(), transition.getAction()))));
+		return extended;
+	}
+
+	@Override
+	public Set<P> getLabel(Pair<S, A> state)
+	{
+		return ts.getLabel(state.getFirst());
+	}
+
+	/**
+	 * @param state A state of {@code TS_F}.
+	 * @return The action by which the state was entered, {@code null} for
+	 * initial states.
+	 */
+	public A getTriggeredAction(Pair<S, A> state)
+	{
+		return state.getSecond();
+	}
+
+	/**
+	 * @param state A state of {@code TS_F}.
+	 * @return The actions enabled in {@code state}. Computed once per original
+	 * state.
+	 */
+	public Set<A> getEnabledActions(Pair<S, A> state)
+	{
+		return enabled.computeIfAbsent(state.getFirst(), s -> ts.getTransitionsFrom(s).stream()
+				.map(TSTransition::getAction)
+				.collect(Collectors.toSet()));
+	}
+}
@@ -0,0 +1,79 @@
+package il.ac.bgu.cs.formalmethodsintro.base.nanopromela;
+
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+
+/**
+ * The program graph of a NanoPromela program with its locations numbered
+ * {@code 0..size()-1} ({@code 0} being the initial one), and a side table
+ * from these numbers to the remaining programs they stand for.
+ * <p>
+ * The remaining program of a location can be as long as the whole program,
+ * and a state of the transition system of the graph holds and hashes its
+ * location at every step; an {@link Integer} is much cheaper to keep and to
+ * hash. The texts are rendered only when asked for.
+ */
+public final class CompactProgramGraph
+{
+	private final ProgramGraph<Integer, String> programGraph;
+	private final int[] locations;
+	private final NanoPromelaCompiler compiler;
+
+	CompactProgramGraph(ProgramGraph<Integer, String> programGraph, int[] locations, NanoPromelaCompiler compiler)
+	{
+		this.programGraph = programGraph;
+		this.locations = locations;
+		this.compiler = compiler;
+	}
+
+	/**
+	 * @return The program graph, over the location numbers.
+	 */
+	public ProgramGraph<Integer, String> getProgramGraph()
+	{
+		return programGraph;
+	}
+
+	/**
+	 * @return The number of locations.
+	 */
+	public int size()
+	{
+		return locations.length;
+	}
+
+	/**
+	 * @param location A location number.
+	 * @return The remaining program at {@code location}, as the location of
+	 * {@link NanoPromelaCompiler#compile} would be named: its source text
+	 * without white space, {@code ""} for the terminated program.
+	 */
+	public synchronized String getText(int location)
+	{
+		return compiler.text(locations[location]);
+	}
+
+	/**
+	 * @param location A location number.
+	 * @return The source line of the statement to run next at
+	 * {@code location}, {@code 0} for the terminated program.
+	 */
+	public synchronized int getLine(int location)
+	{
+		return compiler.line(locations[location]);
+	}
+
+	/**
+	 * @return The program graph with its locations named by their text, as
+	 * built by {@link NanoPromelaCompiler#compile}.
+	 */
+	public ProgramGraph<String, String> toProgramGraph()
+	{
+		final ProgramGraph<String, String> pg = new ProgramGraph<>();
+		programGraph.getLocations().forEach(location -> pg.addLocation(getText(location)));
+		programGraph.getInitialLocations().forEach(location -> pg.setInitial(getText(location), true));
+		programGraph.getTransitions().forEach(transition -> pg.addTransition(new PGTransition<>(
+				getText(transition.getFrom()), transition.getCondition(), transition.getAction(), getText(transition.getTo()))));
+		return pg;
+	}
+}
@@ -1,8 +1,5 @@
 package il.ac.bgu.cs.formalmethodsintro.base.nanopromela;
 
-import static il.ac.bgu.cs.formalmethodsintro.base.util.CollectionHelper.map;
-import static il.ac.bgu.cs.formalmethodsintro.base.util.CollectionHelper.p;
-
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -84,6 +81,13 @@ public class Evaluator
 			return eval;
 		}
 
+		// stmt ';' stmt : the second runs on the effect of the first
+		if (context.stmt().size() == 2)
+		{
+			final Map<String, Object> first = evaluate(context.stmt(0));
+			return first == null ? null : new Evaluator(first).evaluate(context.stmt(1));
+		}
+
 		if (context.assstmt() != null)
 		{
 			return new HashMap<String, Object>(eval)
@@ -250,7 +254,9 @@ public class Evaluator
 
 		if (context.hsreadstmt().VARNAME() != null && context.hswritestmt().intexpr() != null)
 		{
-			return map(p(context.hsreadstmt().VARNAME().getText(), evaluate(context.hswritestmt().intexpr())));
+			final Map<String, Object> neweval = new HashMap<>(eval);
+			neweval.put(context.hsreadstmt().VARNAME().getText(), evaluate(context.hswritestmt().intexpr()));
+			return neweval;
 		} else
 		{
 			return eval;
@@ -0,0 +1,262 @@
+package il.ac.bgu.cs.formalmethodsintro.base.nanopromela;
+
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.BoolexprContext;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ThrowingErrorListener;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A NanoPromela boolean expression as a small syntax tree, kept simplified as
+ * it is built, so that the guards of program graph transitions stay short.
+ * <p>
+ * Negations are pushed down to the comparisons, which absorb them
+ * ({@code !(x<3)} is {@code x>=3}: the operands are integers). Conjunctions
+ * and disjunctions are flattened, lose their neutral and duplicate operands,
+ * and fold to a constant when one operand is absorbing or two are
+ * complementary; comparisons of two literals fold too. Hence {@code x<3 && !(x<3)}
+ * is {@link #FALSE}, and the transitions guarded by it can be dropped.
+ * <p>
+ * {@link #toString()} renders a guard as a condition of a program graph:
+ * {@code ""} for {@link #TRUE}.
+ */
+public final class Guard
+{
+	private enum Kind
+	{
+		TRUE, FALSE, COMPARISON, AND, OR
+	}
+
+	private static final Map<String, String> NEGATED = Map.of(
+			"<", ">=", ">=", "<",
+			">", "<=", "<=", ">",
+			"==", "!=", "!=", "==");
+
+	public static final Guard TRUE = new Guard(Kind.TRUE, null, null, null, List.of());
+	public static final Guard FALSE = new Guard(Kind.FALSE, null, null, null, List.of());
+
+	private final Kind kind;
+	private final String left;
+	private final String operator;
+	private final String right;
+	private final List<Guard> operands;
+
+	private Guard(Kind kind, String left, String operator, String right, List<Guard> operands)
+	{
+		this.kind = kind;
+		this.left = left;
+		this.operator = operator;
+		this.right = right;
+		this.operands = operands;
+	}
+
+	/**
+	 * @param condition A condition of a program graph.
+	 * @return The guard of {@code condition}, {@link #TRUE} if it is
+	 * {@code ""}, or {@code null} if it is not a NanoPromela boolean
+	 * expression.
+	 */
+	public static Guard parse(String condition)
+	{
+		if (condition.trim().isEmpty())
+			return TRUE;
+		final NanoPromelaLexer lexer = new NanoPromelaLexer(new ANTLRInputStream(condition));
+		final NanoPromelaParser parser = new NanoPromelaParser(new CommonTokenStream(lexer));
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(new ThrowingErrorListener());
+		parser.removeErrorListeners();
+		parser.addErrorListener(new ThrowingErrorListener());
+		try
+		{
+			final BoolexprContext context = parser.boolexpr();
+			return parser.getCurrentToken().getType() == Token.EOF ? of(context) : null;
+		} catch (ParseCancellationException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @param context A parsed boolean expression.
+	 * @return Its guard.
+	 */
+	public static Guard of(BoolexprContext context)
+	{
+		if (context.NOT() != null)
+			return of(context.boolexpr(0)).not();
+		if (context.AND() != null)
+			return of(context.boolexpr(0)).and(of(context.boolexpr(1)));
+		if (context.OR() != null)
+			return of(context.boolexpr(0)).or(of(context.boolexpr(1)));
+		if (context.op != null)
+			return comparison(context.intexpr(0).getText(), context.op.getText(), context.intexpr(1).getText());
+		if (context.TRUE() != null)
+			return TRUE;
+		if (context.FALSE() != null)
+			return FALSE;
+		return of(context.boolexpr(0));
+	}
+
+	private static Guard comparison(String left, String operator, String right)
+	{
+		try
+		{
+			final int l = Integer.parseInt(left);
+			final int r = Integer.parseInt(right);
+			final boolean value;
+			switch (operator)
+			{
+				case "<":
+					value = l < r;
+					break;
+				case "<=":
+					value = l <= r;
+					break;
+				case ">":
+					value = l > r;
+					break;
+				case ">=":
+					value = l >= r;
+					break;
+				case "==":
+					value = l == r;
+					break;
+				default:
+					value = l != r;
+			}
+			return value ? TRUE : FALSE;
+		} catch (NumberFormatException e)
+		{
+			return new Guard(Kind.COMPARISON, left, operator, right, List.of());
+		}
+	}
+
+	/**
+	 * @return The negation of this guard.
+	 */
+	public Guard not()
+	{
+		switch (kind)
+		{
+			case TRUE:
+				return FALSE;
+			case FALSE:
+				return TRUE;
+			case COMPARISON:
+				return new Guard(Kind.COMPARISON, left, NEGATED.get(operator), right, List.of());
+			default:
+				return combine(kind == Kind.AND ? Kind.OR : Kind.AND,
+						operands.stream().map(Guard::not).collect(Collectors.toList()));
+		}
+	}
+
+	/**
+	 * @return The conjunction of this guard and {@code other}.
+	 */
+	public Guard and(Guard other)
+	{
+		return combine(Kind.AND, List.of(this, other));
+	}
+
+	/**
+	 * @return The disjunction of this guard and {@code other}.
+	 */
+	public Guard or(Guard other)
+	{
+		return combine(Kind.OR, List.of(this, other));
+	}
+
+	/**
+	 * @return The conjunction of {@code guards}, {@link #TRUE} if there are
+	 * none.
+	 */
+	public static Guard and(Collection<Guard> guards)
+	{
+		return combine(Kind.AND, guards);
+	}
+
+	private static Guard combine(Kind kind, Collection<Guard> guards)
+	{
+		final Guard neutral = kind == Kind.AND ? TRUE : FALSE;
+		final Guard absorbing = kind == Kind.AND ? FALSE : TRUE;
+		final Set<Guard> operands = new LinkedHashSet<>();
+		for (Guard guard : guards)
+		{
+			if (guard.equals(absorbing))
+				return absorbing;
+			if (guard.kind == kind)
+				operands.addAll(guard.operands);
+			else if (!guard.equals(neutral))
+				operands.add(guard);
+		}
+		for (Guard operand : operands)
+			if (operand.kind == Kind.COMPARISON && operands.contains(operand.not()))
+				return absorbing;
+		if (operands.isEmpty())
+			return neutral;
+		if (operands.size() == 1)
+			return operands.iterator().next();
+		return new Guard(kind, null, null, null, List.copyOf(operands));
+	}
+
+	public boolean isTrue()
+	{
+		return kind == Kind.TRUE;
+	}
+
+	public boolean isFalse()
+	{
+		return kind == Kind.FALSE;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (this == o)
+			return true;
+		if (!(o instanceof Guard))
+			return false;
+		final Guard other = (Guard) o;
+		return kind == other.kind &&
+		       Objects.equals(left, other.left) &&
+		       Objects.equals(operator, other.operator) &&
+		       Objects.equals(right, other.right) &&
+		       operands.equals(other.operands);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(kind, left, operator, right, operands);
+	}
+
+	/**
+	 * @return This guard as a condition: {@code ""} if it is {@link #TRUE}.
+	 */
+	@Override
+	public String toString()
+	{
+		switch (kind)
+		{
+			case TRUE:
+				return "";
+			case FALSE:
+				return "false";
+			case COMPARISON:
+				return left + operator + right;
+			case AND:
+				// && binds tighter than ||
+				return operands.stream()
+						.map(operand -> operand.kind == Kind.OR ? "(" + operand + ")" : operand.toString())
+						.collect(Collectors.joining(" && "));
+			default:
+				return operands.stream()
+						.map(Guard::toString)
+						.collect(Collectors.joining(" || "));
+		}
+	}
+}
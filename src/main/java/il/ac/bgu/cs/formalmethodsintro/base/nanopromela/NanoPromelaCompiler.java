@@ -0,0 +1,349 @@
+package il.ac.bgu.cs.formalmethodsintro.base.nanopromela;
+
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.OptionContext;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.StmtContext;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Compiles a NanoPromela statement to a program graph by the sub-statement
+ * construction: the locations are the remaining programs, named by their text
+ * ({@code ""} once the program has terminated).
+ * <p>
+ * A remaining program is a sequence of <i>primitive</i> statements (anything
+ * but a concatenation), which is represented by an id: a hash-consed list
+ * whose cells are (primitive id, id of the rest). Primitives are hash-consed
+ * too, an {@code if} or {@code do} by its guards and the ids of its option
+ * bodies, so that structurally equal programs, and only those, get the same
+ * id, without ever comparing their text. The transitions of each primitive
+ * are computed once, those of a location by appending its rest to their
+ * targets, and the text of a location is rendered only when the graph is
+ * built, once per reachable location. Hence the ids and transitions take
+ * time about linear in the size of the program graph, where keying
+ * everything by {@code getText()} re-renders every sub-statement at each
+ * nesting level. The names are not linear: each location is named by the
+ * whole remaining program, so {@code n} statements, in sequence or nested,
+ * give locations whose texts total {@code O(n²)} characters, and
+ * {@link #compile} takes that much time and memory. {@link #compileCompact}
+ * skips the rendering, numbers the locations instead, and stays linear.
+ * <p>
+ * The conditions are built as {@link Guard}s: an option's guard conjoined
+ * with the conditions of its body, and the negations of all the guards for
+ * leaving a {@code do}. They are stored simplified, and the transitions whose
+ * condition simplifies to {@code false} are dropped.
+ */
+public final class NanoPromelaCompiler
+{
+	/**
+	 * The location of the terminated program.
+	 */
+	private static final int EXIT = -1;
+
+	private final List<Primitive> primitives = new ArrayList<>();
+	private final Map<Object, Integer> primitiveIds = new HashMap<>();
+	private final Map<Integer, List<Edge>> primitiveEdges = new HashMap<>();
+	private final Map<Integer, String> primitiveTexts = new HashMap<>();
+
+	// the cells of the locations
+	private final List<Integer> heads = new ArrayList<>();
+	private final List<Integer> tails = new ArrayList<>();
+	private final List<Integer> lines = new ArrayList<>();
+	private final Map<Long, Integer> locationIds = new HashMap<>();
+	private final Map<Long, Integer> appended = new HashMap<>();
+	private final Map<Integer, List<Edge>> locationEdges = new HashMap<>();
+	private final Map<Integer, String> texts = new HashMap<>();
+
+	private NanoPromelaCompiler()
+	{
+	}
+
+	/**
+	 * @param stmt A NanoPromela statement.
+	 * @return The program graph of {@code stmt}, with the locations reachable
+	 * from its single initial location {@code stmt.getText()}.
+	 */
+	public static ProgramGraph<String, String> compile(StmtContext stmt)
+	{
+		final NanoPromelaCompiler compiler = new NanoPromelaCompiler();
+		return compiler.explore(compiler.location(stmt, EXIT), compiler::text);
+	}
+
+	/**
+	 * @param stmt A NanoPromela statement.
+	 * @return The program graph of {@code stmt}, with its locations numbered
+	 * densely from {@code 0}, the initial one, in breadth-first order.
+	 */
+	public static CompactProgramGraph compileCompact(StmtContext stmt)
+	{
+		final NanoPromelaCompiler compiler = new NanoPromelaCompiler();
+		final Map<Integer, Integer> dense = new HashMap<>();
+		final List<Integer> locations = new ArrayList<>();
+		final ProgramGraph<Integer, String> pg = compiler.explore(compiler.location(stmt, EXIT), location ->
+				dense.computeIfAbsent(location, l ->
+				{
+					locations.add(l);
+					return locations.size() - 1;
+				}));
+		return new CompactProgramGraph(pg, locations.stream().mapToInt(Integer::intValue).toArray(), compiler);
+	}
+
+	/**
+	 * Builds the locations reachable from {@code initial} and the transitions
+	 * between them.
+	 *
+	 * @param name The location of the program graph for an id.
+	 */
+	private <L> ProgramGraph<L, String> explore(int initial, IntFunction<L> name)
+	{
+		final ProgramGraph<L, String> pg = new ProgramGraph<>();
+		pg.addLocation(name.apply(initial));
+		pg.setInitial(name.apply(initial), true);
+		final Set<Integer> visited = new HashSet<>(List.of(initial));
+		final Deque<Integer> toVisit = new ArrayDeque<>(visited);
+		while (!toVisit.isEmpty())
+		{
+			final int location = toVisit.poll();
+			if (location == EXIT)
+				continue;
+			for (Edge edge : edges(location))
+			{
+				pg.addTransition(new PGTransition<>(name.apply(location), edge.condition.toString(), edge.action, name.apply(edge.to)));
+				if (visited.add(edge.to))
+					toVisit.add(edge.to);
+			}
+		}
+		return pg;
+	}
+
+	/**
+	 * @return The line of the first statement of {@code location}, {@code 0}
+	 * for the terminated program.
+	 */
+	int line(int location)
+	{
+		return location == EXIT ? 0 : lines.get(location);
+	}
+
+	/**
+	 * @return The id of {@code stmt} followed by the location {@code rest}.
+	 */
+	private int location(StmtContext stmt, int rest)
+	{
+		// a;b;c is parsed as (a;b);c: walk down the left spine instead of
+		// recursing on it, long sequences would overflow the stack
+		final Deque<StmtContext> following = new ArrayDeque<>();
+		while (stmt.stmt().size() == 2)
+		{
+			following.push(stmt.stmt(1));
+			stmt = stmt.stmt(0);
+		}
+		for (Iterator<StmtContext> it = following.descendingIterator(); it.hasNext(); )
+			rest = location(it.next(), rest);
+		return cons(primitive(stmt), rest, stmt.start.getLine());
+	}
+
+	/**
+	 * @param line The source line of {@code head}, kept if the location is
+	 *             new.
+	 */
+	private int cons(int head, int tail, int line)
+	{
+		return locationIds.computeIfAbsent(key(head, tail), key ->
+		{
+			heads.add(head);
+			tails.add(tail);
+			lines.add(line);
+			return heads.size() - 1;
+		});
+	}
+
+	/**
+	 * @return The id of the location {@code location;rest}.
+	 */
+	private int append(int location, int rest)
+	{
+		if (location == EXIT)
+			return rest;
+		if (rest == EXIT)
+			return location;
+		final Deque<Integer> cells = new ArrayDeque<>();
+		Integer result = null;
+		for (int cell = location; cell != EXIT && (result = appended.get(key(cell, rest))) == null; cell = tails.get(cell))
+			cells.push(cell);
+		if (result == null)
+			result = rest;
+		while (!cells.isEmpty())
+		{
+			final int cell = cells.pop();
+			result = cons(heads.get(cell), result, lines.get(cell));
+			appended.put(key(cell, rest), result);
+		}
+		return result;
+	}
+
+	private int primitive(StmtContext stmt)
+	{
+		final List<OptionContext> options =
+				stmt.ifstmt() != null ? stmt.ifstmt().option() :
+				stmt.dostmt() != null ? stmt.dostmt().option() :
+				null;
+		if (options == null)
+			return intern(stmt.getText(), new Primitive(stmt.getText(), null, null, null, false));
+
+		final String[] guards = new String[options.size()];
+		final Guard[] conditions = new Guard[options.size()];
+		final int[] bodies = new int[options.size()];
+		final List<Object> key = new ArrayList<>(List.of(stmt.dostmt() != null));
+		for (int i = 0; i < options.size(); i++)
+		{
+			guards[i] = options.get(i).boolexpr().getText();
+			conditions[i] = Guard.of(options.get(i).boolexpr());
+			bodies[i] = location(options.get(i).stmt(), EXIT);
+			key.add(guards[i]);
+			key.add(bodies[i]);
+		}
+		return intern(key, new Primitive(null, guards, conditions, bodies, stmt.dostmt() != null));
+	}
+
+	private int intern(Object key, Primitive primitive)
+	{
+		return primitiveIds.computeIfAbsent(key, k ->
+		{
+			primitives.add(primitive);
+			return primitives.size() - 1;
+		});
+	}
+
+	/**
+	 * @return The transitions leaving {@code location}.
+	 */
+	private List<Edge> edges(int location)
+	{
+		final List<Edge> edges = locationEdges.get(location);
+		if (edges != null)
+			return edges;
+		final int rest = tails.get(location);
+		final List<Edge> result = new ArrayList<>();
+		for (Edge edge : primitiveEdges(heads.get(location), lines.get(location)))
+			result.add(new Edge(edge.condition, edge.action, append(edge.to, rest)));
+		locationEdges.put(location, result);
+		return result;
+	}
+
+	/**
+	 * @param line The source line of {@code primitive}.
+	 * @return The transitions of {@code primitive} run on its own.
+	 */
+	private List<Edge> primitiveEdges(int primitive, int line)
+	{
+		final List<Edge> edges = primitiveEdges.get(primitive);
+		if (edges != null)
+			return edges;
+		final Primitive stmt = primitives.get(primitive);
+		final List<Edge> result = new ArrayList<>();
+		if (stmt.text != null)
+			result.add(new Edge(Guard.TRUE, stmt.text, EXIT));
+		else
+		{
+			// the body of a do runs again when done
+			final int again = stmt.loop ? cons(primitive, EXIT, line) : EXIT;
+			final List<Guard> noGuard = new ArrayList<>();
+			for (int i = 0; i < stmt.guards.length; i++)
+			{
+				for (Edge edge : edges(stmt.bodies[i]))
+				{
+					final Guard condition = stmt.conditions[i].and(edge.condition);
+					if (!condition.isFalse())
+						result.add(new Edge(condition, edge.action, append(edge.to, again)));
+				}
+				noGuard.add(stmt.conditions[i].not());
+			}
+			final Guard exit = Guard.and(noGuard);
+			if (stmt.loop && !exit.isFalse())
+				result.add(new Edge(exit, "", EXIT));
+		}
+		primitiveEdges.put(primitive, result);
+		return result;
+	}
+
+	/**
+	 * @return The source text of {@code location}, without white space.
+	 */
+	String text(int location)
+	{
+		if (location == EXIT)
+			return "";
+		// render the rest first, iteratively, a location may be long
+		final Deque<Integer> cells = new ArrayDeque<>();
+		for (int cell = location; cell != EXIT && !texts.containsKey(cell); cell = tails.get(cell))
+			cells.push(cell);
+		while (!cells.isEmpty())
+		{
+			final int cell = cells.pop();
+			final int rest = tails.get(cell);
+			final String head = primitiveText(heads.get(cell));
+			texts.put(cell, rest == EXIT ? head : head + ";" + texts.get(rest));
+		}
+		return texts.get(location);
+	}
+
+	private String primitiveText(int primitive)
+	{
+		final Primitive stmt = primitives.get(primitive);
+		if (stmt.text != null)
+			return stmt.text;
+		final String text = primitiveTexts.get(primitive);
+		if (text != null)
+			return text;
+		final StringBuilder rendered = new StringBuilder(stmt.loop ? "do" : "if");
+		for (int i = 0; i < stmt.guards.length; i++)
+			rendered.append("::").append(stmt.guards[i]).append("->").append(text(stmt.bodies[i]));
+		rendered.append(stmt.loop ? "od" : "fi");
+		primitiveTexts.put(primitive, rendered.toString());
+		return rendered.toString();
+	}
+
+	private static long key(int first, int second)
+	{
+		return (long) first << 32 | second & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * A statement that is not a concatenation: either an atomic one, with its
+	 * text, or an {@code if}/{@code do} with its options.
+	 */
+	private static final class Primitive
+	{
+		final String text;
+		final String[] guards;
+		final Guard[] conditions;
+		final int[] bodies;
+		final boolean loop;
+
+		Primitive(String text, String[] guards, Guard[] conditions, int[] bodies, boolean loop)
+		{
+			this.text = text;
+			this.guards = guards;
+			this.conditions = conditions;
+			this.bodies = bodies;
+			this.loop = loop;
+		}
+	}
+
+	private static final class Edge
+	{
+		final Guard condition;
+		final String action;
+		final int to;
+
+		Edge(Guard condition, String action, int to)
+		{
+			this.condition = condition;
+			this.action = action;
+			this.to = to;
+		}
+	}
+}
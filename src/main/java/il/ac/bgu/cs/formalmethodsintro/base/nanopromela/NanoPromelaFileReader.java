@@ -2,32 +2,108 @@ package il.ac.bgu.cs.formalmethodsintro.base.nanopromela;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
-import org.antlr.v4.runtime.ANTLRFileStream;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.StmtContext;
 
+/**
+ * Parses NanoPromela code into a statement.
+ * <p>
+ * Parsing is two-staged: first with the cheaper SLL prediction, bailing out
+ * at the first syntax error, and only then, if there was one, again with full
+ * LL prediction and the usual error reporting and recovery. SLL suffices for
+ * nearly all inputs of this grammar, so the expensive full-context
+ * predictions of its left-recursive rules are rarely made. This pays off up
+ * to tens of thousands of statements; on larger programs building the tree
+ * dominates, and the SLL pass is a few percent slower than parsing with LL
+ * directly. Each thread keeps one lexer and one parser, reset for every
+ * input.
+ */
 public class NanoPromelaFileReader
 {
 
+	private static final ThreadLocal<NanoPromelaLexer> LEXER = ThreadLocal.withInitial(() -> new NanoPromelaLexer(null));
+	private static final ThreadLocal<NanoPromelaParser> PARSER = ThreadLocal.withInitial(() -> new NanoPromelaParser(null));
+
 	public static StmtContext parseNanoPromelaStream(InputStream in) throws IOException
 	{
 
-		return (StmtContext) new NanoPromelaParser(new CommonTokenStream(new NanoPromelaLexer(new ANTLRInputStream(in)))).stmt().getRuleContext();
+		return parse(new ANTLRInputStream(in));
 	}
 
 	public static StmtContext pareseNanoPromelaFile(String filename) throws IOException
 	{
 
-		return (StmtContext) new NanoPromelaParser(new CommonTokenStream(new NanoPromelaLexer(new ANTLRFileStream(filename)))).stmt().getRuleContext();
+		return parse(new ANTLRInputStream(read(filename)));
 	}
 
 	public static StmtContext pareseNanoPromelaString(String nanopromela)
 	{
 
-		return new NanoPromelaParser(new CommonTokenStream(new NanoPromelaLexer(new ANTLRInputStream(nanopromela)))).stmt();
+		return parse(new ANTLRInputStream(nanopromela));
+	}
+
+	/**
+	 * @return The content of a file, in the platform's charset (as
+	 * {@link org.antlr.v4.runtime.ANTLRFileStream} reads it).
+	 */
+	private static String read(String filename) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+		{
+			final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+				;
+			buffer.flip();
+			return Charset.defaultCharset().decode(buffer).toString();
+		}
+	}
+
+	private static StmtContext parse(ANTLRInputStream input)
+	{
+		final NanoPromelaLexer lexer = LEXER.get();
+		final NanoPromelaParser parser = PARSER.get();
+		lexer.setInputStream(input);
+		final CommonTokenStream tokens = new CommonTokenStream(lexer);
+		parser.setTokenStream(tokens);
+
+		try
+		{
+			parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+			parser.removeErrorListeners();
+			parser.setErrorHandler(new BailErrorStrategy());
+			try
+			{
+				return parser.stmt();
+			} catch (ParseCancellationException e)
+			{
+				// a syntax error, or an input SLL cannot decide: parse again,
+				// reporting and recovering from errors as usual
+				tokens.seek(0);
+				parser.reset();
+				parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+				parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+				parser.setErrorHandler(new DefaultErrorStrategy());
+				return parser.stmt();
+			}
+		} finally
+		{
+			// the tree keeps its tokens, not the input
+			parser.setTokenStream(null);
+			lexer.setInputStream(null);
+		}
 	}
 
 }
@@ -1,8 +1,11 @@
 package il.ac.bgu.cs.formalmethodsintro.base.programgraph;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -30,6 +33,11 @@ public class ProgramGraph<L, A>
 	 */
 	private final Set<PGTransition<L, A>> transitions = new HashSet<>();
 
+	/**
+	 * The transitions, indexed by their source location.
+	 */
+	private final Map<L, Set<PGTransition<L, A>>> outgoing = new HashMap<>();
+
 	/**
 	 * Initializations for the program.
 	 */
@@ -104,7 +112,8 @@ public class ProgramGraph<L, A>
 	{
 		addLocation(t.getFrom());
 		addLocation(t.getTo());
-		transitions.add(t);
+		if (transitions.add(t))
+			outgoing.computeIfAbsent(t.getFrom(), l -> new LinkedHashSet<>()).add(t);
 	}
 
 	/**
@@ -131,6 +140,16 @@ public class ProgramGraph<L, A>
 		return Collections.unmodifiableSet(transitions);
 	}
 
+	/**
+	 * @param location A location.
+	 * @return The transitions of {@link #getTransitions()} whose source is
+	 * {@code location}, in time proportional to their number.
+	 */
+	public Set<PGTransition<L, A>> getTransitionsFrom(L location)
+	{
+		return Collections.unmodifiableSet(outgoing.getOrDefault(location, Collections.emptySet()));
+	}
+
 	/**
 	 * Removes a location from the program graph.
 	 *
@@ -148,7 +167,13 @@ public class ProgramGraph<L, A>
 	 */
 	public void removeTransition(PGTransition<L, A> t)
 	{
-		transitions.remove(t);
+		if (transitions.remove(t))
+		{
+			final Set<PGTransition<L, A>> fromSource = outgoing.get(t.getFrom());
+			fromSource.remove(t);
+			if (fromSource.isEmpty())
+				outgoing.remove(t.getFrom());
+		}
 	}
 
 	/**
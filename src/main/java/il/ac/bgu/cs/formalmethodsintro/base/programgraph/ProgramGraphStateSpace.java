@@ -0,0 +1,118 @@
+package il.ac.bgu.cs.formalmethodsintro.base.programgraph;
+
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.ImplicitTransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TSTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * The transition system of a program graph, given implicitly: the states
+ * {@code ⟨ℓ, η⟩} and their transitions are computed on demand, with the same
+ * semantics (and labels) as
+ * {@link il.ac.bgu.cs.formalmethodsintro.base.FvmFacade#transitionSystemFromProgramGraph(ProgramGraph, Set, Set)},
+ * so that only the part of the state space an algorithm actually visits is
+ * ever built.
+ * <p>
+ * The transitions of a state are looked up by its location with
+ * {@link ProgramGraph#getTransitionsFrom}; the initial states are computed
+ * once, on construction. The view itself holds no other state, so it can be
+ * explored concurrently if the action and condition definitions can, and the
+ * program graph is not changed meanwhile.
+ * <p>
+ * A canonicalization may map each evaluation to a representative one, e.g.
+ * with the dead variables of its location reset (see
+ * {@link il.ac.bgu.cs.formalmethodsintro.base.verification.LiveVariables}),
+ * so that states that cannot be told apart in the future are merged.
+ *
+ * @param <L> Type of program graph locations.
+ * @param <A> Type of program graph actions.
+ */
+public class ProgramGraphStateSpace<L, A> implements ImplicitTransitionSystem<Pair<L, Map<String, Object>>, A, String>
+{
+	private final Set<ActionDef> actionDefs;
+	private final Set<ConditionDef> conditionDefs;
+	private final Set<Pair<L, Map<String, Object>>> initial = new HashSet<>();
+	private final ProgramGraph<L, A> pg;
+	private final BiFunction<L, Map<String, Object>, Map<String, Object>> canonicalization;
+
+	/**
+	 * @param pg            A program graph.
+	 * @param actionDefs    Defines the effect of each action.
+	 * @param conditionDefs Defines the conditions (guards) of the program
+	 *                      graph.
+	 */
+	public ProgramGraphStateSpace(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs)
+	{
+		this(pg, actionDefs, conditionDefs, (location, eval) -> eval);
+	}
+
+	/**
+	 * @param pg               A program graph.
+	 * @param actionDefs       Defines the effect of each action.
+	 * @param conditionDefs    Defines the conditions (guards) of the program
+	 *                         graph.
+	 * @param canonicalization Maps the evaluation of each state, given its
+	 *                         location, to the evaluation to store.
+	 */
+	public ProgramGraphStateSpace(ProgramGraph<L, A> pg, Set<ActionDef> actionDefs, Set<ConditionDef> conditionDefs,
+	                              BiFunction<L, Map<String, Object>, Map<String, Object>> canonicalization)
+	{
+		this.pg = pg;
+		this.actionDefs = actionDefs;
+		this.conditionDefs = conditionDefs;
+		this.canonicalization = canonicalization;
+
+		final Set<Map<String, Object>> evals = new HashSet<>();
+		for (List<String> actions : pg.getInitalizations())
+		{
+			Map<String, Object> eval = new HashMap<>();
+			for (String action : actions)
+				eval = ActionDef.effect(actionDefs, eval, action);
+			evals.add(eval);
+		}
+		if (evals.isEmpty())
+			evals.add(new HashMap<>());
+		pg.getInitialLocations()
+				.forEach(initLoc -> evals.forEach(eval -> initial.add(new Pair<>(initLoc, canonicalization.apply(initLoc, eval)))));
+	}
+
+	@Override
+	public Set<Pair<L, Map<String, Object>>> getInitialStates()
+	{
+		return initial;
+	}
+
+	@Override
+	public Collection<TSTransition<Pair<L, Map<String, Object>>, A>> getTransitionsFrom(Pair<L, Map<String, Object>> state)
+	{
+		final List<TSTransition<Pair<L, Map<String, Object>>, A>> transitions = new ArrayList<>();
+		for (PGTransition<L, A> transition : pg.getTransitionsFrom(state.getFirst()))
+			if (ConditionDef.evaluate(conditionDefs, state.getSecond(), transition.getCondition()))
+			{
+				final Map<String, Object> effect = ActionDef.effect(actionDefs, state.getSecond(), transition.getAction());
+				if (effect != null)
+					transitions.add(new TSTransition<>(state, transition.getAction(),
+							new Pair<>(transition.getTo(), canonicalization.apply(transition.getTo(), effect))));
+			}
+		return transitions;
+	}
+
+	/**
+	 * @return The location (or each of the locations, for a list of locations
+	 * of a composed program graph) and {@code "x = v"} for each variable
+	 * {@code x} with value {@code v}.
+	 */
+	@Override
+	public Set<String> getLabel(Pair<L, Map<String, Object>> state)
+	{
+		final Set<String> label = new HashSet<>();
+		if (state.getFirst() instanceof List<?>)
+			((List<?>) state.getFirst()).forEach(l -> label.add(l.toString()));
+		else
+			label.add(state.getFirst().toString());
+		state.getSecond().forEach((key, value) -> label.add(key + " = " + value));
+		return label;
+	}
+}
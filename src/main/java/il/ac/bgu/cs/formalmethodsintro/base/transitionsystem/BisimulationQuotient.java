@@ -0,0 +1,381 @@
+package il.ac.bgu.cs.formalmethodsintro.base.transitionsystem;
+
+import java.util.*;
+
+/**
+ * The quotient of a transition system by its coarsest bisimulation: two states
+ * are equivalent if they have the same label and every transition of one is
+ * matched by a transition of the other to an equivalent state (actions are
+ * ignored, as in the bisimulation of transition systems of the book). The
+ * quotient satisfies the same CTL* (hence LTL and CTL) formulas.
+ * <p>
+ * The coarsest stable partition is computed by the Paige–Tarjan algorithm, in
+ * {@code O(|→| log |S|)}: blocks are split by the predecessors of a splitter
+ * that is the smaller half of a compound block, and by the states all of whose
+ * transitions into the compound block go to that half, counting transitions
+ * per (state, compound block) to tell them apart.
+ * <p>
+ * Each equivalence class is represented by one of its states, so the quotient
+ * has the same types as the original system. Its transitions keep their
+ * actions; as actions are not part of the equivalence, the quotient is not
+ * meant for action-based (e.g. fairness) checks.
+ *
+ * @param <S> Type of states.
+ * @param <A> Type of actions.
+ * @param <P> Type of atomic propositions.
+ */
+public class BisimulationQuotient<S, A, P>
+{
+	private final TransitionSystem<S, A, P> quotient;
+	private final Map<S, S> representatives;
+
+	private BisimulationQuotient(TransitionSystem<S, A, P> quotient, Map<S, S> representatives)
+	{
+		this.quotient = quotient;
+		this.representatives = representatives;
+	}
+
+	/**
+	 * @param ts  A transition system.
+	 * @param <S> Type of states.
+	 * @param <A> Type of actions.
+	 * @param <P> Type of atomic propositions.
+	 * @return The quotient of {@code ts} by its coarsest bisimulation.
+	 */
+	public static <S, A, P> BisimulationQuotient<S, A, P> of(TransitionSystem<S, A, P> ts)
+	{
+		final List<S> states = new ArrayList<>(ts.getStates());
+		final int n = states.size();
+		final Map<S, Integer> ids = new HashMap<>(n * 2);
+		for (int s = 0; s < n; s++)
+			ids.put(states.get(s), s);
+
+		final Map<Set<P>, Integer> labels = new HashMap<>();
+		final int[] initialBlocks = new int[n];
+		for (int s = 0; s < n; s++)
+			initialBlocks[s] = labels.computeIfAbsent(ts.getLabel(states.get(s)), k -> labels.size());
+
+		final int m = ts.getTransitions().size();
+		final int[] sources = new int[m];
+		final int[] targets = new int[m];
+		int e = 0;
+		for (TSTransition<S, A> transition : ts.getTransitions())
+		{
+			sources[e] = ids.get(transition.getFrom());
+			targets[e++] = ids.get(transition.getTo());
+		}
+
+		final int[] blocks = new PaigeTarjan(n, sources, targets, initialBlocks).refine();
+
+		final Map<Integer, S> blockRepresentatives = new HashMap<>();
+		final Map<S, S> representatives = new HashMap<>(n * 2);
+		for (int s = 0; s < n; s++)
+		{
+			final S state = states.get(s);
+			representatives.put(state, blockRepresentatives.computeIfAbsent(blocks[s], b -> state));
+		}
+
+		final TransitionSystem<S, A, P> quotient = new TransitionSystem<>();
+		quotient.setName(ts.getName());
+		quotient.addAllActions(ts.getActions());
+		quotient.addAllAtomicPropositions(ts.getAtomicPropositions());
+		blockRepresentatives.values().forEach(representative ->
+		{
+			quotient.addState(representative);
+			ts.getLabel(representative).forEach(p -> quotient.addToLabel(representative, p));
+		});
+		ts.getInitialStates().forEach(s -> quotient.addInitialState(representatives.get(s)));
+		ts.getTransitions().forEach(transition -> quotient.addTransition(new TSTransition<>(
+				representatives.get(transition.getFrom()), transition.getAction(), representatives.get(transition.getTo()))));
+		return new BisimulationQuotient<>(quotient, representatives);
+	}
+
+	/**
+	 * @return The quotient transition system, over the representatives.
+	 */
+	public TransitionSystem<S, A, P> getQuotient()
+	{
+		return quotient;
+	}
+
+	/**
+	 * @return The representative of the class of each state of the original
+	 * system.
+	 */
+	public Map<S, S> getRepresentatives()
+	{
+		return representatives;
+	}
+
+	/**
+	 * @param s A state of the original system.
+	 * @return The representative of its class, a state of the quotient.
+	 */
+	public S getRepresentative(S s)
+	{
+		return representatives.get(s);
+	}
+
+	/**
+	 * Paige–Tarjan relational coarsest partition over int ids.
+	 */
+	private static final class PaigeTarjan
+	{
+		private final int n;
+		private final int[] sources;
+		/**
+		 * The transitions into each state, as a CSR array.
+		 */
+		private final int[] incomingOffsets;
+		private final int[] incoming;
+
+		// the partition Q, as a refinable partition: the states of block b are
+		// elements[start[b]..end[b]), its marked ones come first, up to marked[b]
+		private final int[] elements;
+		private final int[] position;
+		private final int[] blockOf;
+		private int[] start = new int[8];
+		private int[] end = new int[8];
+		private int[] marked = new int[8];
+		private int blocks = 0;
+		private final List<Integer> touched = new ArrayList<>();
+
+		// the partition X, whose blocks are sets of blocks of Q
+		private final List<List<Integer>> compound = new ArrayList<>();
+		private int[] compoundOf = new int[8];
+		private int[] indexInCompound = new int[8];
+		private final Deque<Integer> compoundQueue = new ArrayDeque<>();
+
+		// count(x, S) records: each transition points to the record of its
+		// source and the X block of its target
+		private int[] counts = new int[8];
+		private int records = 0;
+		private final int[] countOf;
+
+		PaigeTarjan(int n, int[] sources, int[] targets, int[] initialBlocks)
+		{
+			this.n = n;
+			this.sources = sources;
+			final int m = sources.length;
+
+			incomingOffsets = new int[n + 1];
+			for (int target : targets)
+				incomingOffsets[target + 1]++;
+			for (int s = 0; s < n; s++)
+				incomingOffsets[s + 1] += incomingOffsets[s];
+			incoming = new int[m];
+			final int[] next = Arrays.copyOf(incomingOffsets, n);
+			for (int e = 0; e < m; e++)
+				incoming[next[targets[e]]++] = e;
+
+			// Q: the label classes, X: a single block
+			elements = new int[n];
+			position = new int[n];
+			blockOf = new int[n];
+			final int[] sizes = new int[Arrays.stream(initialBlocks).max().orElse(-1) + 1];
+			for (int b : initialBlocks)
+				sizes[b]++;
+			compound.add(new ArrayList<>());
+			int offset = 0;
+			for (int size : sizes)
+			{
+				newBlock(offset, offset + size, 0);
+				offset += size;
+			}
+			final int[] fill = new int[sizes.length];
+			for (int b = 0; b < sizes.length; b++)
+				fill[b] = start[b];
+			for (int s = 0; s < n; s++)
+			{
+				final int b = initialBlocks[s];
+				elements[fill[b]] = s;
+				position[s] = fill[b]++;
+				blockOf[s] = b;
+			}
+
+			// count(x, U) = out-degree of x
+			countOf = new int[m];
+			final int[] recordOf = new int[n];
+			Arrays.fill(recordOf, -1);
+			for (int e = 0; e < m; e++)
+			{
+				if (recordOf[sources[e]] < 0)
+					recordOf[sources[e]] = newRecord();
+				countOf[e] = recordOf[sources[e]];
+				counts[countOf[e]]++;
+			}
+
+			// make Q stable w.r.t. U: split off the states with successors
+			for (int e = 0; e < m; e++)
+				mark(sources[e]);
+			split();
+		}
+
+		/**
+		 * @return The block of each state in the coarsest stable partition.
+		 */
+		int[] refine()
+		{
+			final int[] splitter = new int[n];
+			final int[] recordOf = new int[n];
+			Arrays.fill(recordOf, -1);
+			final List<Integer> predecessors = new ArrayList<>();
+
+			while (!compoundQueue.isEmpty())
+			{
+				// choose the smaller of the first two blocks of a compound block S
+				final int s = compoundQueue.pop();
+				final List<Integer> members = compound.get(s);
+				final int first = members.get(0), second = members.get(1);
+				final int b = size(first) <= size(second) ? first : second;
+				removeFromCompound(b);
+				final int newCompound = compound.size();
+				compound.add(new ArrayList<>());
+				addToCompound(b, newCompound);
+				if (members.size() > 1)
+					compoundQueue.push(s);
+
+				// copy B, and compute count(x, B) for x∈pre(B)
+				final int splitterSize = size(b);
+				System.arraycopy(elements, start[b], splitter, 0, splitterSize);
+				predecessors.clear();
+				for (int i = 0; i < splitterSize; i++)
+				{
+					final int y = splitter[i];
+					for (int j = incomingOffsets[y]; j < incomingOffsets[y + 1]; j++)
+					{
+						final int x = sources[incoming[j]];
+						if (recordOf[x] < 0)
+						{
+							recordOf[x] = newRecord();
+							predecessors.add(x);
+						}
+						counts[recordOf[x]]++;
+					}
+				}
+
+				// split by pre(B)
+				predecessors.forEach(this::mark);
+				split();
+
+				// split by pre(B) - pre(S - B): count(x, S) = count(x, B)
+				for (int i = 0; i < splitterSize; i++)
+				{
+					final int y = splitter[i];
+					for (int j = incomingOffsets[y]; j < incomingOffsets[y + 1]; j++)
+					{
+						final int e = incoming[j];
+						final int x = sources[e];
+						if (counts[countOf[e]] == counts[recordOf[x]])
+							mark(x);
+					}
+				}
+				split();
+
+				// count(x, S) -= count(x, B), and the transitions into B now count for B
+				for (int i = 0; i < splitterSize; i++)
+				{
+					final int y = splitter[i];
+					for (int j = incomingOffsets[y]; j < incomingOffsets[y + 1]; j++)
+					{
+						final int e = incoming[j];
+						counts[countOf[e]]--;
+						countOf[e] = recordOf[sources[e]];
+					}
+				}
+				predecessors.forEach(x -> recordOf[x] = -1);
+			}
+			return blockOf.clone();
+		}
+
+		private int size(int b)
+		{
+			return end[b] - start[b];
+		}
+
+		private int newRecord()
+		{
+			if (records == counts.length)
+				counts = Arrays.copyOf(counts, records * 2);
+			counts[records] = 0;
+			return records++;
+		}
+
+		private int newBlock(int from, int to, int x)
+		{
+			if (blocks == start.length)
+			{
+				start = Arrays.copyOf(start, blocks * 2);
+				end = Arrays.copyOf(end, blocks * 2);
+				marked = Arrays.copyOf(marked, blocks * 2);
+				compoundOf = Arrays.copyOf(compoundOf, blocks * 2);
+				indexInCompound = Arrays.copyOf(indexInCompound, blocks * 2);
+			}
+			final int b = blocks++;
+			start[b] = from;
+			end[b] = to;
+			marked[b] = from;
+			addToCompound(b, x);
+			return b;
+		}
+
+		private void addToCompound(int b, int x)
+		{
+			final List<Integer> members = compound.get(x);
+			compoundOf[b] = x;
+			indexInCompound[b] = members.size();
+			members.add(b);
+			if (members.size() == 2)
+				compoundQueue.push(x);
+		}
+
+		private void removeFromCompound(int b)
+		{
+			final List<Integer> members = compound.get(compoundOf[b]);
+			final int last = members.remove(members.size() - 1);
+			if (last != b)
+			{
+				members.set(indexInCompound[b], last);
+				indexInCompound[last] = indexInCompound[b];
+			}
+		}
+
+		private void mark(int x)
+		{
+			final int b = blockOf[x];
+			final int i = position[x];
+			if (i < marked[b])
+				return;
+			if (marked[b] == start[b])
+				touched.add(b);
+			final int j = marked[b]++;
+			final int y = elements[j];
+			elements[j] = x;
+			position[x] = j;
+			elements[i] = y;
+			position[y] = i;
+		}
+
+		/**
+		 * Splits each touched block into its marked and unmarked states.
+		 */
+		private void split()
+		{
+			for (int b : touched)
+			{
+				if (marked[b] == end[b])
+				{
+					marked[b] = start[b];
+					continue;
+				}
+				final int from = start[b], to = marked[b];
+				start[b] = to;
+				marked[b] = to;
+				final int nb = newBlock(from, to, compoundOf[b]);
+				for (int i = from; i < to; i++)
+					blockOf[elements[i]] = nb;
+			}
+			touched.clear();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package il.ac.bgu.cs.formalmethodsintro.base.transitionsystem;
+
+import java.util.*;
+
+/**
+ * A transition system given implicitly, by its initial states and a way to
+ * compute the outgoing transitions and the label of a state on demand. Used
+ * by algorithms that explore the reachable part of a system on-the-fly,
+ * without constructing a {@link TransitionSystem} first.
+ *
+ * @param <S> Type of states.
+ * @param <A> Type of actions.
+ * @param <P> Type of atomic propositions.
+ */
+public interface ImplicitTransitionSystem<S, A, P>
+{
+
+	/**
+	 * @return The initial states.
+	 */
+	Set<S> getInitialStates();
+
+	/**
+	 * @param state A state of the system.
+	 * @return The transitions leaving {@code state}.
+	 */
+	Collection<TSTransition<S, A>> getTransitionsFrom(S state);
+
+	/**
+	 * @param state A state of the system.
+	 * @return The label of {@code state}. Never {@code null}.
+	 */
+	Set<P> getLabel(S state);
+
+	/**
+	 * Creates a view of an explicit transition system. The transitions are
+	 * indexed by their source state once, in {@code O(|→|)}, so that
+	 * {@link #getTransitionsFrom(Object)} costs {@code O(out-degree)}. Later
+	 * changes to {@code ts} are not reflected in the view.
+	 *
+	 * @param ts  The transition system.
+	 * @param <S> Type of states.
+	 * @param <A> Type of actions.
+	 * @param <P> Type of atomic propositions.
+	 * @return An implicit view of {@code ts}.
+	 */
+	static <S, A, P> ImplicitTransitionSystem<S, A, P> of(TransitionSystem<S, A, P> ts)
+	{
+		final Map<S, List<TSTransition<S, A>>> outgoing = new HashMap<>(ts.getStates().size() * 2);
+		ts.getTransitions()
+				.forEach(transition -> outgoing.computeIfAbsent(transition.getFrom(), s -> new ArrayList<>()).add(transition));
+
+		return new ImplicitTransitionSystem<>()
+		{
+			@Override
+			public Set<S> getInitialStates()
+			{
+				return ts.getInitialStates();
+			}
+
+			@Override
+			public Collection<TSTransition<S, A>> getTransitionsFrom(S state)
+			{
+				return outgoing.getOrDefault(state, Collections.emptyList());
+			}
+
+			@Override
+			public Set<P> getLabel(S state)
+			{
+				return ts.getLabel(state);
+			}
+		};
+	}
+}
@@ -0,0 +1,438 @@
+package il.ac.bgu.cs.formalmethodsintro.base.transitionsystem;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The quotient of a transition system by its coarsest divergence-sensitive
+ * stutter bisimulation: two states are equivalent if they have the same label,
+ * each can match the other's moves to another class after a (possibly empty)
+ * sequence of steps within its own class, and either both or neither can stay
+ * in their class forever. The quotient satisfies the same {@code LTL\X} (and
+ * {@code CTL*\X}) formulas, so stutter steps, e.g. updates of variables that
+ * no atomic proposition observes, are collapsed.
+ * <p>
+ * The partition is refined as by Groote and Vaandrager: a transition between
+ * states of the same block is inert; a block is split by a splitter block when
+ * some of its states can reach the splitter after inert steps and some of its
+ * bottom states (those without inert transitions) cannot. The strongly
+ * connected components of inert transitions are contracted first, since all
+ * their states are equivalent; this keeps the inert graph acyclic, so the
+ * bottom states decide stability. Divergence is one more splitter, directly
+ * reached from the contracted components that contain a cycle. Refinement
+ * costs {@code O(|S| · |→|)}.
+ * <p>
+ * Each class is represented by one of its states. A quotient transition links
+ * the representatives of two different classes; a class whose states diverge
+ * gets a self-loop, the others none.
+ *
+ * @param <S> Type of states.
+ * @param <A> Type of actions.
+ * @param <P> Type of atomic propositions.
+ */
+public class StutterQuotient<S, A, P>
+{
+	private final TransitionSystem<S, A, P> quotient;
+	private final Map<S, S> representatives;
+
+	private StutterQuotient(TransitionSystem<S, A, P> quotient, Map<S, S> representatives)
+	{
+		this.quotient = quotient;
+		this.representatives = representatives;
+	}
+
+	/**
+	 * @param ts  A transition system.
+	 * @param <S> Type of states.
+	 * @param <A> Type of actions.
+	 * @param <P> Type of atomic propositions.
+	 * @return The quotient of {@code ts} by its coarsest divergence-sensitive
+	 * stutter bisimulation.
+	 */
+	public static <S, A, P> StutterQuotient<S, A, P> of(TransitionSystem<S, A, P> ts)
+	{
+		return of(ts, ts.getAtomicPropositions());
+	}
+
+	/**
+	 * @param ts       A transition system.
+	 * @param observed The atomic propositions to preserve; the labels of the
+	 *                 quotient are restricted to them, so steps that only
+	 *                 change the other propositions are stutter steps too.
+	 * @param <S>      Type of states.
+	 * @param <A>      Type of actions.
+	 * @param <P>      Type of atomic propositions.
+	 * @return The quotient of {@code ts}, with labels restricted to
+	 * {@code observed}, by its coarsest divergence-sensitive stutter
+	 * bisimulation.
+	 */
+	public static <S, A, P> StutterQuotient<S, A, P> of(TransitionSystem<S, A, P> ts, Collection<P> observed)
+	{
+		final Set<P> aps = new HashSet<>(observed);
+		aps.retainAll(ts.getAtomicPropositions());
+		final List<S> states = new ArrayList<>(ts.getStates());
+		final int n = states.size();
+		final Map<S, Integer> ids = new HashMap<>(n * 2);
+		for (int s = 0; s < n; s++)
+			ids.put(states.get(s), s);
+
+		final List<Set<P>> labels = new ArrayList<>(n);
+		final Map<Set<P>, Integer> labelClasses = new HashMap<>();
+		final int[] labelClass = new int[n];
+		for (int s = 0; s < n; s++)
+		{
+			final Set<P> label = ts.getLabel(states.get(s)).stream()
+					.filter(aps::contains)
+					.collect(Collectors.toSet());
+			labels.add(label);
+			labelClass[s] = labelClasses.computeIfAbsent(label, k -> labelClasses.size());
+		}
+
+		final List<TSTransition<S, A>> transitions = new ArrayList<>(ts.getTransitions());
+		final int m = transitions.size();
+		final int[] sources = new int[m];
+		final int[] targets = new int[m];
+		for (int e = 0; e < m; e++)
+		{
+			sources[e] = ids.get(transitions.get(e).getFrom());
+			targets[e] = ids.get(transitions.get(e).getTo());
+		}
+
+		final GrooteVaandrager refinement = new GrooteVaandrager(n, sources, targets, labelClass);
+		final int[] blocks = refinement.refine();
+
+		final Map<Integer, S> blockRepresentatives = new HashMap<>();
+		final Map<S, S> representatives = new HashMap<>(n * 2);
+		for (int s = 0; s < n; s++)
+		{
+			final S state = states.get(s);
+			representatives.put(state, blockRepresentatives.computeIfAbsent(blocks[s], b -> state));
+		}
+
+		final TransitionSystem<S, A, P> quotient = new TransitionSystem<>();
+		quotient.setName(ts.getName());
+		quotient.addAllActions(ts.getActions());
+		quotient.addAllAtomicPropositions(aps);
+		blockRepresentatives.values().forEach(representative ->
+		{
+			quotient.addState(representative);
+			labels.get(ids.get(representative)).forEach(p -> quotient.addToLabel(representative, p));
+		});
+		ts.getInitialStates().forEach(s -> quotient.addInitialState(representatives.get(s)));
+		for (int e = 0; e < m; e++)
+		{
+			final S from = representatives.get(transitions.get(e).getFrom());
+			final S to = representatives.get(transitions.get(e).getTo());
+			if (blocks[sources[e]] != blocks[targets[e]] || refinement.isDivergentCycle(e))
+				quotient.addTransition(new TSTransition<>(from, transitions.get(e).getAction(), to));
+		}
+		return new StutterQuotient<>(quotient, representatives);
+	}
+
+	/**
+	 * @return The quotient transition system, over the representatives.
+	 */
+	public TransitionSystem<S, A, P> getQuotient()
+	{
+		return quotient;
+	}
+
+	/**
+	 * @return The representative of the class of each state of the original
+	 * system.
+	 */
+	public Map<S, S> getRepresentatives()
+	{
+		return representatives;
+	}
+
+	/**
+	 * @param s A state of the original system.
+	 * @return The representative of its class, a state of the quotient.
+	 */
+	public S getRepresentative(S s)
+	{
+		return representatives.get(s);
+	}
+
+	/**
+	 * Groote–Vaandrager refinement over int ids, on the graph of the inert
+	 * strongly connected components ("nodes").
+	 */
+	private static final class GrooteVaandrager
+	{
+		private final int[] sources;
+		private final int[] targets;
+		private final int[] component;
+		private final int nodes;
+		private final boolean[] divergent;
+		private final int[] successorOffsets;
+		private final int[] successors;
+		private final int[] predecessorOffsets;
+		private final int[] predecessors;
+
+		private final int[] blockOf;
+		private final List<List<Integer>> members = new ArrayList<>();
+
+		GrooteVaandrager(int n, int[] sources, int[] targets, int[] labelClass)
+		{
+			this.sources = sources;
+			this.targets = targets;
+			final int m = sources.length;
+
+			// the strongly connected components of the transitions between
+			// states of the same label
+			final int[] outOffsets = new int[n + 1];
+			for (int source : sources)
+				outOffsets[source + 1]++;
+			for (int s = 0; s < n; s++)
+				outOffsets[s + 1] += outOffsets[s];
+			final int[] out = new int[m];
+			final int[] next = Arrays.copyOf(outOffsets, n);
+			for (int e = 0; e < m; e++)
+				out[next[sources[e]]++] = targets[e];
+			component = inertComponents(n, outOffsets, out, labelClass);
+			nodes = Arrays.stream(component).max().orElse(-1) + 1;
+
+			divergent = new boolean[nodes];
+			final int[] sizes = new int[nodes];
+			for (int s = 0; s < n; s++)
+				sizes[component[s]]++;
+			final int[] outDegree = new int[nodes];
+			final int[] inDegree = new int[nodes];
+			for (int e = 0; e < m; e++)
+			{
+				final int from = component[sources[e]], to = component[targets[e]];
+				if (from == to)
+					divergent[from] = true; // a self-loop, or an edge within a larger component
+				else
+				{
+					outDegree[from]++;
+					inDegree[to]++;
+				}
+			}
+			for (int c = 0; c < nodes; c++)
+				divergent[c] |= sizes[c] > 1;
+
+			successorOffsets = offsets(outDegree);
+			predecessorOffsets = offsets(inDegree);
+			successors = new int[successorOffsets[nodes]];
+			predecessors = new int[predecessorOffsets[nodes]];
+			final int[] nextSuccessor = Arrays.copyOf(successorOffsets, nodes);
+			final int[] nextPredecessor = Arrays.copyOf(predecessorOffsets, nodes);
+			for (int e = 0; e < m; e++)
+			{
+				final int from = component[sources[e]], to = component[targets[e]];
+				if (from != to)
+				{
+					successors[nextSuccessor[from]++] = to;
+					predecessors[nextPredecessor[to]++] = from;
+				}
+			}
+
+			// the initial partition: by label
+			blockOf = new int[nodes];
+			final Map<Integer, Integer> blockOfLabel = new HashMap<>();
+			for (int s = 0; s < n; s++)
+			{
+				final int c = component[s];
+				blockOf[c] = blockOfLabel.computeIfAbsent(labelClass[s], label ->
+				{
+					members.add(new ArrayList<>());
+					return members.size() - 1;
+				});
+			}
+			for (int c = 0; c < nodes; c++)
+				members.get(blockOf[c]).add(c);
+		}
+
+		/**
+		 * @return The block of each state in the coarsest stable partition.
+		 */
+		int[] refine()
+		{
+			final int[] marked = new int[nodes];
+			final int[] touchedMark = new int[nodes + 1];
+			int stamp = 0;
+			boolean changed = true;
+			while (changed)
+			{
+				changed = false;
+				// splitter -1 stands for divergence
+				for (int splitter = -1; splitter < members.size(); splitter++)
+				{
+					stamp++;
+					final List<Integer> touched = new ArrayList<>();
+					if (splitter < 0)
+					{
+						for (int c = 0; c < nodes; c++)
+							if (divergent[c])
+							{
+								marked[c] = stamp;
+								if (touchedMark[blockOf[c]] != stamp)
+								{
+									touchedMark[blockOf[c]] = stamp;
+									touched.add(blockOf[c]);
+								}
+							}
+					} else
+						for (int v : members.get(splitter))
+							for (int i = predecessorOffsets[v]; i < predecessorOffsets[v + 1]; i++)
+							{
+								final int u = predecessors[i];
+								if (blockOf[u] == splitter || marked[u] == stamp)
+									continue;
+								marked[u] = stamp;
+								if (touchedMark[blockOf[u]] != stamp)
+								{
+									touchedMark[blockOf[u]] = stamp;
+									touched.add(blockOf[u]);
+								}
+							}
+
+					for (int block : touched)
+						if (isUnstable(block, marked, stamp))
+						{
+							split(block, marked, stamp);
+							changed = true;
+						}
+				}
+			}
+
+			final int[] result = new int[component.length];
+			for (int s = 0; s < component.length; s++)
+				result[s] = blockOf[component[s]];
+			return result;
+		}
+
+		/**
+		 * @return Whether the transition {@code e} lies on a cycle within a
+		 * class, which then becomes a self-loop of the quotient.
+		 */
+		boolean isDivergentCycle(int e)
+		{
+			return component[sources[e]] == component[targets[e]];
+		}
+
+		/**
+		 * @return Whether some node of {@code block} is marked and some bottom
+		 * node of {@code block} is not.
+		 */
+		private boolean isUnstable(int block, int[] marked, int stamp)
+		{
+			for (int u : members.get(block))
+			{
+				if (marked[u] == stamp)
+					continue;
+				boolean bottom = true;
+				for (int i = successorOffsets[u]; i < successorOffsets[u + 1] && bottom; i++)
+					bottom = blockOf[successors[i]] != block;
+				if (bottom)
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Splits {@code block} into the nodes that reach a marked node by
+		 * inert transitions, and the others.
+		 */
+		private void split(int block, int[] marked, int stamp)
+		{
+			final Deque<Integer> queue = new ArrayDeque<>();
+			for (int u : members.get(block))
+				if (marked[u] == stamp)
+					queue.add(u);
+			final Set<Integer> reaching = new HashSet<>(queue);
+			while (!queue.isEmpty())
+			{
+				final int v = queue.poll();
+				for (int i = predecessorOffsets[v]; i < predecessorOffsets[v + 1]; i++)
+				{
+					final int u = predecessors[i];
+					if (blockOf[u] == block && reaching.add(u))
+						queue.add(u);
+				}
+			}
+
+			final List<Integer> rest = new ArrayList<>();
+			final List<Integer> kept = new ArrayList<>();
+			for (int u : members.get(block))
+				(reaching.contains(u) ? kept : rest).add(u);
+			members.set(block, kept);
+			final int newBlock = members.size();
+			members.add(rest);
+			rest.forEach(u -> blockOf[u] = newBlock);
+		}
+
+		/**
+		 * Tarjan's algorithm, iteratively, over the transitions whose ends have
+		 * the same label.
+		 */
+		private static int[] inertComponents(int n, int[] offsets, int[] out, int[] labelClass)
+		{
+			final int[] component = new int[n];
+			final int[] index = new int[n];
+			final int[] low = new int[n];
+			final int[] position = new int[n];
+			final boolean[] onStack = new boolean[n];
+			final int[] stack = new int[n];
+			final int[] calls = new int[n];
+			Arrays.fill(index, -1);
+			int counter = 0, stackTop = 0, components = 0;
+
+			for (int root = 0; root < n; root++)
+			{
+				if (index[root] >= 0)
+					continue;
+				int callTop = 0;
+				index[root] = low[root] = counter++;
+				position[root] = offsets[root];
+				stack[stackTop++] = root;
+				onStack[root] = true;
+				calls[callTop++] = root;
+				while (callTop > 0)
+				{
+					final int v = calls[callTop - 1];
+					if (position[v] < offsets[v + 1])
+					{
+						final int w = out[position[v]++];
+						if (labelClass[w] != labelClass[v])
+							continue;
+						if (index[w] < 0)
+						{
+							index[w] = low[w] = counter++;
+							position[w] = offsets[w];
+							stack[stackTop++] = w;
+							onStack[w] = true;
+							calls[callTop++] = w;
+						} else if (onStack[w])
+							low[v] = Math.min(low[v], index[w]);
+						continue;
+					}
+					callTop--;
+					if (callTop > 0)
+						low[calls[callTop - 1]] = Math.min(low[calls[callTop - 1]], low[v]);
+					if (low[v] != index[v])
+						continue;
+					do
+					{
+						final int w = stack[--stackTop];
+						onStack[w] = false;
+						component[w] = components;
+					} while (stack[stackTop] != v);
+					components++;
+				}
+			}
+			return component;
+		}
+
+		private static int[] offsets(int[] degrees)
+		{
+			final int[] offsets = new int[degrees.length + 1];
+			for (int s = 0; s < degrees.length; s++)
+				offsets[s + 1] = offsets[s] + degrees[s];
+			return offsets;
+		}
+	}
+}
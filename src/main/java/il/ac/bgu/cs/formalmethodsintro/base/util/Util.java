@@ -5,10 +5,15 @@ import il.ac.bgu.cs.formalmethodsintro.base.automata.MultiColorAutomaton;
 import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Utility methods for implementation.
@@ -26,16 +31,121 @@ public class Util
 
 	public static <T> Set<Set<T>> powerSet(Set<T> aset)
 	{
-		List<T> orderedItems = new ArrayList<>(aset);
-
-		return IntStream.range(0, 1 << aset.size() /*(int) Math.pow(2, aset.size())*/).parallel()
-				.mapToObj(e -> IntStream.range(0, orderedItems.size())
-						.filter(i -> (e & (0b1 << i)) != 0)
-						.mapToObj(orderedItems::get)
-						.collect(Collectors.toSet()))
+		return lazyPowerSet(aset).parallel()
 				.collect(Collectors.toSet());
 	}
 
+	/**
+	 * The subsets of a set, built one at a time as they are consumed, in the
+	 * order of {@link #grayCodes(int)}: each subset is the one before it with
+	 * a single element added or removed, and is updated so, rather than built
+	 * from its mask. Unlike {@link #powerSet(Set)}, the memory used does not
+	 * grow with the size of the power set, unless the subsets are collected.
+	 *
+	 * @param aset A set of fewer than 63 elements.
+	 * @param <T>  Type of the elements.
+	 * @return A stream of the subsets of {@code aset}, each a new set.
+	 */
+	public static <T> Stream<Set<T>> lazyPowerSet(Set<T> aset)
+	{
+		final List<T> orderedItems = new ArrayList<>(aset);
+		checkEnumerable(orderedItems.size());
+
+		return StreamSupport.stream(new PowerSetSpliterator<>(orderedItems, 0, 1L << orderedItems.size()), false);
+	}
+
+	/**
+	 * The subsets of the ranks {@code [rank, end)} of {@link #grayCodes(int)},
+	 * a working subset being updated by one flip per rank. Splits in halves
+	 * of the remaining ranks; the second half starts from its own mask.
+	 */
+	private static final class PowerSetSpliterator<T> implements Spliterator<Set<T>>
+	{
+		private final List<T> items;
+		private long rank;
+		private long end;
+		private Set<T> current;
+
+		PowerSetSpliterator(List<T> items, long rank, long end)
+		{
+			this.items = items;
+			this.rank = rank;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Set<T>> action)
+		{
+			if (rank >= end)
+				return false;
+			if (current == null)
+			{
+				final long mask = rank ^ rank >>> 1;
+				current = new HashSet<>();
+				for (int i = 0; i < items.size(); i++)
+					if ((mask & (1L << i)) != 0)
+						current.add(items.get(i));
+			} else
+			{
+				final T flipped = items.get(Long.numberOfTrailingZeros(rank));
+				if (!current.remove(flipped))
+					current.add(flipped);
+			}
+			rank++;
+			action.accept(new HashSet<>(current));
+			return true;
+		}
+
+		@Override
+		public Spliterator<Set<T>> trySplit()
+		{
+			final long middle = rank + (end - rank) / 2;
+			if (middle == rank)
+				return null;
+			final Spliterator<Set<T>> prefix = new PowerSetSpliterator<>(items, rank, middle);
+			// this one continues from the middle, with a fresh working subset
+			rank = middle;
+			current = null;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize()
+		{
+			return end - rank;
+		}
+
+		@Override
+		public int characteristics()
+		{
+			return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL;
+		}
+	}
+
+	/**
+	 * The subsets of {@code {0, ..., n-1}} as bit masks, in Gray-code order:
+	 * the mask of rank {@code i} is {@code i ^ (i >>> 1)}, and differs from
+	 * the one before it in bit {@code Long.numberOfTrailingZeros(i)} only, so
+	 * a valuation can be updated by a single flip per step. The stream is
+	 * lazy, sized, and splits evenly by ranks when parallel.
+	 *
+	 * @param n The number of elements, less than 63.
+	 * @return A stream of the {@code 2^n} masks.
+	 */
+	public static LongStream grayCodes(int n)
+	{
+		checkEnumerable(n);
+
+		return LongStream.range(0, 1L << n)
+				.map(i -> i ^ i >>> 1);
+	}
+
+	private static void checkEnumerable(int n)
+	{
+		if (n < 0 || n >= Long.SIZE - 1)
+			throw new IllegalArgumentException("Cannot enumerate the subsets of " + n + " elements");
+	}
+
 	/**
 	 * @param gnba
 	 */
@@ -0,0 +1,313 @@
+package il.ac.bgu.cs.formalmethodsintro.base.verification;
+
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.Circuit;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.*;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cone-of-influence reduction: removes, before the state space is built, the
+ * variables (registers, inputs, outputs) that cannot affect the atomic
+ * propositions a property refers to. The cone is the closure of the observed
+ * variables under "the next value of {@code x} depends on {@code y}"; what is
+ * outside the cone is dropped, so the state space shrinks by a factor
+ * exponential in the number of dropped variables while the labels over the
+ * observed propositions, hence the verdict, stay the same.
+ * <p>
+ * For circuits, the dependencies are those declared by
+ * {@link Circuit#getSupport(String)}. For program graphs with NanoPromela
+ * actions and guards, they are read off the statements: {@code x := e} makes
+ * {@code x} depend on the variables of {@code e} (and of the guards of the
+ * enclosing {@code if}/{@code do} options). Variables that decide the control
+ * flow (those of guards, and channels, which block) are always in the cone,
+ * and so is every identifier of an action that is not a NanoPromela statement.
+ * <p>
+ * The number of eliminated names is reported as
+ * {@link VerificationOptions#CONE_ELIMINATED}.
+ */
+public final class ConeOfInfluence
+{
+	private ConeOfInfluence()
+	{
+	}
+
+	/**
+	 * @param circuit  A circuit.
+	 * @param observed The atomic propositions of the property: names of
+	 *                 inputs, registers and outputs.
+	 * @param options  Receives the number of eliminated inputs, registers
+	 *                 and outputs.
+	 * @return The circuit restricted to the cone of influence of
+	 * {@code observed}.
+	 */
+	public static Circuit reduce(Circuit circuit, Collection<String> observed, VerificationOptions options)
+	{
+		final Set<String> cone = new HashSet<>();
+		final Deque<String> toVisit = new ArrayDeque<>();
+		observed.stream()
+				.filter(name -> circuit.getInputPortNames().contains(name) ||
+				                circuit.getRegisterNames().contains(name) ||
+				                circuit.getOutputPortNames().contains(name))
+				.forEach(toVisit::push);
+		while (!toVisit.isEmpty())
+		{
+			final String name = toVisit.pop();
+			if (cone.add(name) && !circuit.getInputPortNames().contains(name))
+				circuit.getSupport(name).forEach(toVisit::push);
+		}
+
+		final int names = circuit.getInputPortNames().size() + circuit.getRegisterNames().size() + circuit.getOutputPortNames().size();
+		options.report(VerificationOptions.CONE_ELIMINATED, names - cone.size());
+		return new ReducedCircuit(circuit, cone);
+	}
+
+	/**
+	 * @param pg       A program graph whose actions, conditions and
+	 *                 initializations are NanoPromela statements and boolean
+	 *                 expressions.
+	 * @param observed The atomic propositions of the property: locations, and
+	 *                 {@code "x = v"} for the variables {@code x} it observes.
+	 * @param options  Receives the number of eliminated variables.
+	 * @param <L>      Type of locations.
+	 * @return A program graph with the same locations and transitions, whose
+	 * actions and initializations no longer assign the variables outside the
+	 * cone of influence of {@code observed}.
+	 */
+	public static <L> ProgramGraph<L, String> reduce(ProgramGraph<L, String> pg, Collection<String> observed, VerificationOptions options)
+	{
+		final Dependencies dependencies = new Dependencies();
+		pg.getTransitions().forEach(transition ->
+		{
+			dependencies.addGuard(transition.getCondition());
+			dependencies.addAction(transition.getAction());
+		});
+		pg.getInitalizations().forEach(initialization -> initialization.forEach(dependencies::addAction));
+
+		final Set<String> cone = new HashSet<>(dependencies.relevant);
+		observed.stream()
+				.filter(ap -> ap.contains(" = "))
+				.map(ap -> ap.substring(0, ap.indexOf(" = ")))
+				.forEach(cone::add);
+		final Deque<String> toVisit = new ArrayDeque<>(cone);
+		while (!toVisit.isEmpty())
+			dependencies.dependsOn.getOrDefault(toVisit.pop(), Collections.emptySet()).stream()
+					.filter(cone::add)
+					.forEach(toVisit::push);
+
+		final ProgramGraph<L, String> reduced = new ProgramGraph<>();
+		reduced.setName(pg.getName());
+		pg.getLocations().forEach(reduced::addLocation);
+		pg.getInitialLocations().forEach(location -> reduced.setInitial(location, true));
+		pg.getTransitions().forEach(transition -> reduced.addTransition(new PGTransition<>(transition.getFrom(),
+				transition.getCondition(), slice(transition.getAction(), cone), transition.getTo())));
+		pg.getInitalizations().forEach(initialization -> reduced.addInitalization(initialization.stream()
+				.map(action -> slice(action, cone))
+				.filter(action -> !action.isEmpty())
+				.collect(Collectors.toList())));
+
+		options.report(VerificationOptions.CONE_ELIMINATED, dependencies.variables.stream()
+				.filter(variable -> !cone.contains(variable))
+				.count());
+		return reduced;
+	}
+
+	/**
+	 * @return {@code action} without the assignments to variables outside
+	 * {@code cone}; {@code ""} if nothing is left.
+	 */
+	private static String slice(String action, Set<String> cone)
+	{
+		final StmtContext stmt = NanoPromelaStatements.parse(action);
+		if (stmt == null)
+			return action;
+		final String sliced = slice(action, stmt, cone);
+		return sliced == null ? "" : sliced;
+	}
+
+	/**
+	 * @return The text of {@code stmt} without the assignments to variables
+	 * outside {@code cone}, {@code null} if nothing is left.
+	 */
+	private static String slice(String action, StmtContext stmt, Set<String> cone)
+	{
+		if (stmt.stmt().size() == 2)
+		{
+			final String first = slice(action, stmt.stmt(0), cone), second = slice(action, stmt.stmt(1), cone);
+			return first == null ? second : second == null ? first : first + "; " + second;
+		}
+		if (stmt.assstmt() != null)
+			return cone.contains(stmt.assstmt().VARNAME().getText()) ? NanoPromelaStatements.text(action, stmt) : null;
+		if (stmt.atomicstmt() != null)
+		{
+			final AtomicstmtContext atomic = stmt.atomicstmt();
+			final List<String> assignments = new ArrayList<>();
+			for (int i = 0; i < atomic.VARNAME().size(); i++)
+				if (cone.contains(atomic.VARNAME(i).getText()))
+					assignments.add(atomic.VARNAME(i).getText() + " := " + NanoPromelaStatements.text(action, atomic.intexpr(i)));
+			return assignments.isEmpty() ? null : "atomic {" + String.join("; ", assignments) + "}";
+		}
+		if (stmt.ifstmt() != null || stmt.dostmt() != null)
+		{
+			final List<OptionContext> options = stmt.ifstmt() != null ? stmt.ifstmt().option() : stmt.dostmt().option();
+			final StringBuilder text = new StringBuilder(stmt.ifstmt() != null ? "if" : "do");
+			for (OptionContext option : options)
+			{
+				final String body = slice(action, option.stmt(), cone);
+				text.append(" :: ").append(NanoPromelaStatements.text(action, option.boolexpr())).append(" -> ").append(body == null ? "skip" : body);
+			}
+			return text.append(stmt.ifstmt() != null ? " fi" : " od").toString();
+		}
+		return NanoPromelaStatements.text(action, stmt); // channel operations and skip
+	}
+
+	/**
+	 * The data dependencies of the statements of a program graph, and the
+	 * names that are relevant regardless of the property.
+	 */
+	private static final class Dependencies
+	{
+		final Set<String> variables = new HashSet<>();
+		final Set<String> relevant = new HashSet<>();
+		final Map<String, Set<String>> dependsOn = new HashMap<>();
+
+		void addGuard(String condition)
+		{
+			final Set<String> names = NanoPromelaStatements.identifiers(condition);
+			variables.addAll(names);
+			relevant.addAll(names);
+		}
+
+		void addAction(String action)
+		{
+			final Set<String> names = NanoPromelaStatements.identifiers(action);
+			variables.addAll(names);
+			final StmtContext stmt = NanoPromelaStatements.parse(action);
+			if (stmt == null)
+				relevant.addAll(names);
+			else
+				add(stmt, Collections.emptySet());
+		}
+
+		/**
+		 * @param control The variables of the guards the statement is nested in.
+		 */
+		private void add(StmtContext stmt, Set<String> control)
+		{
+			stmt.stmt().forEach(inner -> add(inner, control));
+			if (stmt.assstmt() != null)
+				assign(stmt.assstmt().VARNAME().getText(), stmt.assstmt().intexpr(), control);
+			else if (stmt.atomicstmt() != null)
+				for (int i = 0; i < stmt.atomicstmt().VARNAME().size(); i++)
+					assign(stmt.atomicstmt().VARNAME(i).getText(), stmt.atomicstmt().intexpr(i), control);
+			else if (stmt.chanreadstmt() != null)
+			{
+				// the read blocks on an empty channel, and cannot be dropped
+				relevant.add(stmt.chanreadstmt().CHANNAME().getText());
+				relevant.add(stmt.chanreadstmt().VARNAME().getText());
+			} else if (stmt.chanwritestmt() != null)
+			{
+				final String channel = stmt.chanwritestmt().CHANNAME().getText();
+				relevant.add(channel);
+				dependsOn.computeIfAbsent(channel, c -> new HashSet<>()).addAll(NanoPromelaStatements.identifiers(stmt.chanwritestmt().intexpr()));
+			} else if (stmt.ifstmt() != null || stmt.dostmt() != null)
+				for (OptionContext option : stmt.ifstmt() != null ? stmt.ifstmt().option() : stmt.dostmt().option())
+				{
+					final Set<String> guard = NanoPromelaStatements.identifiers(option.boolexpr());
+					relevant.addAll(guard); // the statement blocks if no guard holds
+					final Set<String> nested = new HashSet<>(control);
+					nested.addAll(guard);
+					add(option.stmt(), nested);
+				}
+		}
+
+		private void assign(String variable, IntexprContext value, Set<String> control)
+		{
+			final Set<String> sources = dependsOn.computeIfAbsent(variable, v -> new HashSet<>());
+			sources.addAll(NanoPromelaStatements.identifiers(value));
+			sources.addAll(control);
+		}
+	}
+
+	/**
+	 * A view of a circuit with the inputs, registers and outputs of a cone
+	 * only. The names outside the cone are fed as {@code false}; since the
+	 * cone is closed under dependencies, they do not affect the others.
+	 */
+	private static final class ReducedCircuit implements Circuit
+	{
+		private final Circuit circuit;
+		private final Set<String> inputs;
+		private final Set<String> registers;
+		private final Set<String> outputs;
+
+		ReducedCircuit(Circuit circuit, Set<String> cone)
+		{
+			this.circuit = circuit;
+			inputs = restrict(circuit.getInputPortNames(), cone);
+			registers = restrict(circuit.getRegisterNames(), cone);
+			outputs = restrict(circuit.getOutputPortNames(), cone);
+		}
+
+		private static Set<String> restrict(Set<String> names, Set<String> cone)
+		{
+			return names.stream()
+					.filter(cone::contains)
+					.collect(Collectors.toCollection(LinkedHashSet::new));
+		}
+
+		@Override
+		public Set<String> getInputPortNames()
+		{
+			return inputs;
+		}
+
+		@Override
+		public Set<String> getRegisterNames()
+		{
+			return registers;
+		}
+
+		@Override
+		public Set<String> getOutputPortNames()
+		{
+			return outputs;
+		}
+
+		@Override
+		public Set<String> getSupport(String name)
+		{
+			return circuit.getSupport(name);
+		}
+
+		@Override
+		public Map<String, Boolean> updateRegisters(Map<String, Boolean> inputs, Map<String, Boolean> registers)
+		{
+			return restrict(circuit.updateRegisters(complete(inputs, circuit.getInputPortNames()),
+					complete(registers, circuit.getRegisterNames())), this.registers);
+		}
+
+		@Override
+		public Map<String, Boolean> computeOutputs(Map<String, Boolean> inputs, Map<String, Boolean> registers)
+		{
+			return restrict(circuit.computeOutputs(complete(inputs, circuit.getInputPortNames()),
+					complete(registers, circuit.getRegisterNames())), outputs);
+		}
+
+		private static Map<String, Boolean> complete(Map<String, Boolean> values, Set<String> names)
+		{
+			final Map<String, Boolean> complete = new HashMap<>(values);
+			names.forEach(name -> complete.putIfAbsent(name, false));
+			return complete;
+		}
+
+		private static Map<String, Boolean> restrict(Map<String, Boolean> values, Set<String> names)
+		{
+			final Map<String, Boolean> restricted = new HashMap<>();
+			names.forEach(name -> restricted.put(name, values.get(name)));
+			return restricted;
+		}
+	}
+}
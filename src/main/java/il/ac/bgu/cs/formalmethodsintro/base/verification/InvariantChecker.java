@@ -0,0 +1,160 @@
+package il.ac.bgu.cs.formalmethodsintro.base.verification;
+
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.ImplicitTransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TSTransition;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-the-fly invariant checking: explores the reachable states of a system
+ * breadth first, one layer at a time, and stops at the first layer holding a
+ * state whose label violates the invariant. Each visited state keeps a
+ * pointer to the state it was discovered from, so the counterexample is a
+ * shortest path from an initial state to a violating state.
+ * <p>
+ * The options select how a layer is expanded (sequentially or by a parallel
+ * stream, which requires the system to be safe for concurrent exploration)
+ * and how visited states are remembered: exactly, or by bitstate hashing,
+ * where a state is two bits of a fixed size bit array. Bitstate hashing may
+ * take a new state for a visited one, so a successful verification is then
+ * only partial; a reported counterexample is always a real path.
+ */
+public final class InvariantChecker
+{
+	private InvariantChecker()
+	{
+	}
+
+	/**
+	 * @param ts        A system.
+	 * @param invariant A condition on labels.
+	 * @param options   Exploration options, also receiving the number of
+	 *                  visited states ({@link VerificationOptions#STATES_VISITED}).
+	 * @param <S>       Type of states.
+	 * @param <A>       Type of actions.
+	 * @param <P>       Type of atomic propositions.
+	 * @return A VerificationSucceeded object, or a VerificationFailed object
+	 * whose prefix is a shortest path to a state violating {@code invariant}
+	 * (and whose cycle is empty).
+	 */
+	public static <S, A, P> VerificationResult<S> check(ImplicitTransitionSystem<S, A, P> ts,
+	                                                    Predicate<Set<P>> invariant,
+	                                                    VerificationOptions options)
+	{
+		final Predicate<S> firstVisit = options.getBitstateLog2Bits() > 0 ?
+				new Bitstate<>(options.getBitstateLog2Bits()) :
+				(options.isParallel() ? ConcurrentHashMap.<S>newKeySet() : new HashSet<S>())::add;
+
+		List<Node<S>> layer = ts.getInitialStates().stream()
+				.filter(firstVisit)
+				.map(s -> new Node<>(s, null))
+				.collect(Collectors.toList());
+		long visited = 0;
+		while (!layer.isEmpty())
+		{
+			visited += layer.size();
+			final Optional<Node<S>> violation = stream(layer, options)
+					.filter(node -> !invariant.test(ts.getLabel(node.state)))
+					.findFirst();
+			if (violation.isPresent())
+			{
+				options.report(VerificationOptions.STATES_VISITED, visited);
+				final LinkedList<S> path = new LinkedList<>();
+				for (Node<S> node = violation.get(); node != null; node = node.parent)
+					path.addFirst(node.state);
+				final VerificationFailed<S> failure = new VerificationFailed<>();
+				failure.setPrefix(path);
+				failure.setCycle(new LinkedList<>());
+				return failure;
+			}
+			layer = stream(layer, options)
+					.flatMap(node -> ts.getTransitionsFrom(node.state).stream()
+							.map(TSTransition::getTo)
+							.filter(firstVisit)
+							.map(to -> new Node<>(to, node)))
+					.collect(Collectors.toList());
+		}
+		options.report(VerificationOptions.STATES_VISITED, visited);
+		return new VerificationSucceeded<>();
+	}
+
+	private static <T> Stream<T> stream(List<T> layer, VerificationOptions options)
+	{
+		return options.isParallel() ? layer.parallelStream() : layer.stream();
+	}
+
+	/**
+	 * A visited state, with the state it was discovered from.
+	 */
+	private static final class Node<S>
+	{
+		final S state;
+		final Node<S> parent;
+
+		Node(S state, Node<S> parent)
+		{
+			this.state = state;
+			this.parent = parent;
+		}
+	}
+
+	/**
+	 * A visited set that remembers a state as two bits, chosen by hashing it,
+	 * in an array of {@code 2^log2Bits} bits. A state is new iff one of its
+	 * bits was not set yet. Safe for concurrent use.
+	 */
+	private static final class Bitstate<S> implements Predicate<S>
+	{
+		private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+		private final AtomicLongArray bits;
+		private final long mask;
+
+		Bitstate(int log2Bits)
+		{
+			bits = new AtomicLongArray(Math.toIntExact(1L << (log2Bits - 6)));
+			mask = (1L << log2Bits) - 1;
+		}
+
+		@Override
+		public boolean test(S state)
+		{
+			final long first = mix(state.hashCode() + GOLDEN_GAMMA);
+			final long second = mix(first + GOLDEN_GAMMA);
+			// both bits must be set, even if the first one is new
+			return set(first & mask) | set(second & mask);
+		}
+
+		/**
+		 * @return {@code true} iff the bit was not set before.
+		 */
+		private boolean set(long bit)
+		{
+			final int word = (int) (bit >>> 6);
+			final long flag = 1L << bit;
+			while (true)
+			{
+				final long old = bits.get(word);
+				if ((old & flag) != 0)
+					return false;
+				if (bits.compareAndSet(word, old, old | flag))
+					return true;
+			}
+		}
+
+		/**
+		 * SplitMix64 finalizer.
+		 */
+		private static long mix(long z)
+		{
+			z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+			z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+			return z ^ (z >>> 31);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package il.ac.bgu.cs.formalmethodsintro.base.verification;
+
+import il.ac.bgu.cs.formalmethodsintro.base.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.StmtContext;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Large-block encoding of program graphs with NanoPromela actions and
+ * guards: a location {@code ℓ} whose only way out is an unconditional local
+ * step {@code ℓ -:β-> ℓ'} is merged into its predecessors, each
+ * {@code ℓ₀ -g:α-> ℓ} becoming {@code ℓ₀ -g:α;β-> ℓ'}. Chains of such steps,
+ * e.g. the locations of {@code x := 1; y := 2; z := x + y}, collapse into a
+ * single transition, and the intermediate states are never explored.
+ * <p>
+ * A step is local if it neither communicates (it has no channel operation,
+ * so it never blocks) nor touches a variable another program graph of the
+ * channel system uses, so running it right after {@code α} hides no
+ * interleaving. Since the intermediate states disappear, {@code ℓ} must not be
+ * observed, {@code β} must not write an observed variable, and the property
+ * must be invariant under stuttering. Initial locations are kept, and so are
+ * the targets of handshakes, whose actions are matched by their text. Both
+ * {@code α} and {@code β} must be straight-line code (assignments, skips and
+ * channel operations), so that {@code α;β} is an action the NanoPromela
+ * evaluator runs.
+ * <p>
+ * The number of merged locations is reported as
+ * {@link VerificationOptions#BLOCKS_MERGED}.
+ */
+public final class LargeBlockEncoding
+{
+	private LargeBlockEncoding()
+	{
+	}
+
+	/**
+	 * @param pg       A program graph whose actions and conditions are
+	 *                 NanoPromela statements and boolean expressions.
+	 * @param observed The atomic propositions of the property: locations, and
+	 *                 {@code "x = v"} for the variables {@code x} it observes.
+	 * @param options  Receives the number of merged locations.
+	 * @param <L>      Type of locations.
+	 * @return {@code pg} with the chains of local, unconditional steps merged.
+	 */
+	public static <L> ProgramGraph<L, String> reduce(ProgramGraph<L, String> pg, Collection<String> observed, VerificationOptions options)
+	{
+		final int[] merged = {0};
+		final ProgramGraph<L, String> reduced = reduce(pg, observed, Collections.emptySet(), merged);
+		options.report(VerificationOptions.BLOCKS_MERGED, merged[0]);
+		return reduced;
+	}
+
+	/**
+	 * @param cs       A channel system whose actions and conditions are
+	 *                 NanoPromela statements and boolean expressions.
+	 * @param observed The atomic propositions of the property: locations of
+	 *                 the program graphs, and {@code "x = v"} for the
+	 *                 variables {@code x} it observes.
+	 * @param options  Receives the number of merged locations.
+	 * @param <L>      Type of locations.
+	 * @return {@code cs} with the chains of local, unconditional steps of
+	 * each program graph merged.
+	 */
+	public static <L> ChannelSystem<L, String> reduce(ChannelSystem<L, String> cs, Collection<String> observed, VerificationOptions options)
+	{
+		final List<Set<String>> identifiers = cs.getProgramGraphs().stream()
+				.map(LargeBlockEncoding::identifiers)
+				.collect(Collectors.toList());
+		final int[] merged = {0};
+		final List<ProgramGraph<L, String>> reduced = new ArrayList<>();
+		for (int i = 0; i < cs.getProgramGraphs().size(); i++)
+		{
+			final Set<String> shared = new HashSet<>();
+			for (int j = 0; j < identifiers.size(); j++)
+				if (j != i)
+					shared.addAll(identifiers.get(j));
+			reduced.add(reduce(cs.getProgramGraphs().get(i), observed, shared, merged));
+		}
+		options.report(VerificationOptions.BLOCKS_MERGED, merged[0]);
+		return new ChannelSystem<>(reduced);
+	}
+
+	private static <L> ProgramGraph<L, String> reduce(ProgramGraph<L, String> pg, Collection<String> observed, Set<String> shared, int[] merged)
+	{
+		final Set<String> observedVariables = observed.stream()
+				.filter(ap -> ap.contains(" = "))
+				.map(ap -> ap.substring(0, ap.indexOf(" = ")))
+				.collect(Collectors.toSet());
+
+		final Set<L> locations = new HashSet<>(pg.getLocations());
+		final Map<L, Set<PGTransition<L, String>>> incoming = new HashMap<>();
+		final Map<L, Set<PGTransition<L, String>>> outgoing = new HashMap<>();
+		pg.getTransitions().forEach(transition -> add(transition, incoming, outgoing));
+
+		final Deque<L> toVisit = new ArrayDeque<>(locations);
+		while (!toVisit.isEmpty())
+		{
+			final L location = toVisit.poll();
+			final Set<PGTransition<L, String>> in = incoming.getOrDefault(location, Collections.emptySet());
+			final Set<PGTransition<L, String>> out = outgoing.getOrDefault(location, Collections.emptySet());
+			if (!locations.contains(location) || pg.getInitialLocations().contains(location) ||
+			    observed.contains(location.toString()) || in.isEmpty() || out.size() != 1)
+				continue;
+			final PGTransition<L, String> step = out.iterator().next();
+			if (step.getTo().equals(location) || !step.getCondition().trim().isEmpty() ||
+			    !isLocal(step.getAction(), shared, observedVariables) ||
+			    !in.stream().map(PGTransition::getAction).allMatch(LargeBlockEncoding::canPrecede))
+				continue;
+
+			for (PGTransition<L, String> transition : new ArrayList<>(in))
+			{
+				remove(transition, incoming, outgoing);
+				add(new PGTransition<>(transition.getFrom(), transition.getCondition(),
+						concatenate(transition.getAction(), step.getAction()), step.getTo()), incoming, outgoing);
+			}
+			remove(step, incoming, outgoing);
+			locations.remove(location);
+			merged[0]++;
+			toVisit.add(step.getTo());
+		}
+
+		final ProgramGraph<L, String> reduced = new ProgramGraph<>();
+		reduced.setName(pg.getName());
+		locations.forEach(reduced::addLocation);
+		pg.getInitialLocations().forEach(location -> reduced.setInitial(location, true));
+		outgoing.values().forEach(transitions -> transitions.forEach(reduced::addTransition));
+		pg.getInitalizations().forEach(reduced::addInitalization);
+		return reduced;
+	}
+
+	/**
+	 * @return Whether {@code action} can be moved to run right after its
+	 * predecessor, unobserved.
+	 */
+	private static boolean isLocal(String action, Set<String> shared, Set<String> observedVariables)
+	{
+		if (action.isEmpty())
+			return true;
+		final StmtContext stmt = NanoPromelaStatements.parse(action);
+		return stmt != null && NanoPromelaStatements.isStraightLine(stmt) &&
+		       NanoPromelaStatements.identifiers(action).stream()
+				       .noneMatch(name -> isChannel(name) || shared.contains(name)) &&
+		       NanoPromelaStatements.assigned(stmt).stream()
+				       .noneMatch(observedVariables::contains);
+	}
+
+	/**
+	 * @return Whether a local step can be appended to {@code action}: it is
+	 * straight-line NanoPromela code, so that {@code action; step} can be
+	 * evaluated, and not (part of) a handshake.
+	 */
+	private static boolean canPrecede(String action)
+	{
+		if (action.isEmpty())
+			return true;
+		final StmtContext stmt = NanoPromelaStatements.parse(action);
+		return stmt != null && NanoPromelaStatements.isStraightLine(stmt) &&
+		       NanoPromelaStatements.identifiers(action).stream().noneMatch(name -> name.startsWith("_"));
+	}
+
+	private static boolean isChannel(String name)
+	{
+		return !Character.isLowerCase(name.charAt(0));
+	}
+
+	private static String concatenate(String first, String second)
+	{
+		return first.isEmpty() ? second : second.isEmpty() ? first : first + "; " + second;
+	}
+
+	/**
+	 * @return The names the guards and actions of {@code pg} use.
+	 */
+	private static <L> Set<String> identifiers(ProgramGraph<L, String> pg)
+	{
+		final Set<String> identifiers = new HashSet<>();
+		pg.getTransitions().forEach(transition ->
+		{
+			identifiers.addAll(NanoPromelaStatements.identifiers(transition.getCondition()));
+			identifiers.addAll(NanoPromelaStatements.identifiers(transition.getAction()));
+		});
+		return identifiers;
+	}
+
+	private static <L> void add(PGTransition<L, String> transition,
+	                            Map<L, Set<PGTransition<L, String>>> incoming,
+	                            Map<L, Set<PGTransition<L, String>>> outgoing)
+	{
+		incoming.computeIfAbsent(transition.getTo(), l -> new HashSet<>()).add(transition);
+		outgoing.computeIfAbsent(transition.getFrom(), l -> new HashSet<>()).add(transition);
+	}
+
+	private static <L> void remove(PGTransition<L, String> transition,
+	                               Map<L, Set<PGTransition<L, String>>> incoming,
+	                               Map<L, Set<PGTransition<L, String>>> outgoing)
+	{
+		incoming.get(transition.getTo()).remove(transition);
+		outgoing.get(transition.getFrom()).remove(transition);
+	}
+}
@@ -0,0 +1,209 @@
+package il.ac.bgu.cs.formalmethodsintro.base.verification;
+
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.OptionContext;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.StmtContext;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+
+import java.util.*;
+
+/**
+ * Live-variable analysis of a program graph with NanoPromela guards and
+ * actions: a variable is live at a location if some path from it reads the
+ * variable before overwriting it. The value of a dead variable cannot affect
+ * the future behavior, so states that differ only in dead variables can be
+ * merged by resetting those to a default value ({@link #canonicalize}).
+ * <p>
+ * The analysis is the usual backward fixpoint over the locations,
+ * {@code live(ℓ) = ⋃ use(g, α) ∪ (live(ℓ') − def(α))} over the transitions
+ * {@code ℓ -g:α-> ℓ'}, where {@code use} holds the variables read before they
+ * are (certainly) written, and {@code def} the variables written on every
+ * execution of {@code α}. An action that is not a NanoPromela statement reads
+ * all its identifiers and writes none. The variables the property observes
+ * are live everywhere, since the labels show their values.
+ *
+ * @param <L> Type of locations.
+ */
+public class LiveVariables<L>
+{
+	/**
+	 * The value dead variables are reset to.
+	 */
+	public static final Integer DEFAULT_VALUE = 0;
+
+	private final Map<L, Set<String>> live;
+	private final Set<String> observed;
+
+	private LiveVariables(Map<L, Set<String>> live, Set<String> observed)
+	{
+		this.live = live;
+		this.observed = observed;
+	}
+
+	/**
+	 * @param pg       A program graph.
+	 * @param observed The atomic propositions of the property: locations, and
+	 *                 {@code "x = v"} for the variables {@code x} it observes.
+	 * @param <L>      Type of locations.
+	 * @param <A>      Type of actions.
+	 * @return The live variables of each location of {@code pg}.
+	 */
+	public static <L, A> LiveVariables<L> of(ProgramGraph<L, A> pg, Collection<String> observed)
+	{
+		final Set<String> observedVariables = new HashSet<>();
+		observed.stream()
+				.filter(ap -> ap.contains(" = "))
+				.map(ap -> ap.substring(0, ap.indexOf(" = ")))
+				.forEach(observedVariables::add);
+
+		final Map<PGTransition<L, A>, UseDef> effects = new HashMap<>();
+		final Map<L, List<PGTransition<L, A>>> incoming = new HashMap<>();
+		final Map<L, List<PGTransition<L, A>>> outgoing = new HashMap<>();
+		pg.getTransitions().forEach(transition ->
+		{
+			final UseDef action = analyze(String.valueOf(transition.getAction()));
+			final Set<String> use = new HashSet<>(NanoPromelaStatements.identifiers(transition.getCondition()));
+			use.addAll(action.use);
+			effects.put(transition, new UseDef(use, action.def));
+			incoming.computeIfAbsent(transition.getTo(), l -> new ArrayList<>()).add(transition);
+			outgoing.computeIfAbsent(transition.getFrom(), l -> new ArrayList<>()).add(transition);
+		});
+
+		final Map<L, Set<String>> live = new HashMap<>();
+		pg.getLocations().forEach(location -> live.put(location, new HashSet<>(observedVariables)));
+		final Deque<L> toVisit = new ArrayDeque<>(pg.getLocations());
+		final Set<L> queued = new HashSet<>(toVisit);
+		while (!toVisit.isEmpty())
+		{
+			final L location = toVisit.poll();
+			queued.remove(location);
+			final Set<String> in = live.get(location);
+			boolean changed = false;
+			for (PGTransition<L, A> transition : outgoing.getOrDefault(location, Collections.emptyList()))
+			{
+				final UseDef effect = effects.get(transition);
+				changed |= in.addAll(effect.use);
+				for (String variable : live.get(transition.getTo()))
+					if (!effect.def.contains(variable))
+						changed |= in.add(variable);
+			}
+			if (changed)
+				incoming.getOrDefault(location, Collections.emptyList()).stream()
+						.map(PGTransition::getFrom)
+						.filter(queued::add)
+						.forEach(toVisit::add);
+		}
+		return new LiveVariables<>(live, observedVariables);
+	}
+
+	/**
+	 * @param location A location.
+	 * @return The variables live at {@code location}.
+	 */
+	public Set<String> getLiveVariables(L location)
+	{
+		return Collections.unmodifiableSet(live.getOrDefault(location, observed));
+	}
+
+	/**
+	 * @param location A location.
+	 * @param eval     The values of the variables at {@code location}.
+	 * @return {@code eval}, with the integer variables that are dead at
+	 * {@code location} reset to {@link #DEFAULT_VALUE}; {@code eval} itself
+	 * if none needs a reset.
+	 */
+	public Map<String, Object> canonicalize(L location, Map<String, Object> eval)
+	{
+		final Set<String> liveHere = live.getOrDefault(location, observed);
+		Map<String, Object> canonical = eval;
+		for (Map.Entry<String, Object> entry : eval.entrySet())
+			if (entry.getValue() instanceof Integer && !DEFAULT_VALUE.equals(entry.getValue()) && !liveHere.contains(entry.getKey()))
+			{
+				if (canonical == eval)
+					canonical = new HashMap<>(eval);
+				canonical.put(entry.getKey(), DEFAULT_VALUE);
+			}
+		return canonical;
+	}
+
+	private static UseDef analyze(String action)
+	{
+		if (action.isEmpty())
+			return new UseDef(Collections.emptySet(), Collections.emptySet());
+		final StmtContext stmt = NanoPromelaStatements.parse(action);
+		return stmt == null ?
+				new UseDef(NanoPromelaStatements.identifiers(action), Collections.emptySet()) :
+				analyze(stmt);
+	}
+
+	private static UseDef analyze(StmtContext stmt)
+	{
+		if (stmt.stmt().size() == 2)
+			return analyze(stmt.stmt(0)).then(analyze(stmt.stmt(1)));
+		if (stmt.assstmt() != null)
+			return new UseDef(NanoPromelaStatements.identifiers(stmt.assstmt().intexpr()), Set.of(stmt.assstmt().VARNAME().getText()));
+		if (stmt.atomicstmt() != null)
+		{
+			UseDef result = new UseDef(Collections.emptySet(), Collections.emptySet());
+			for (int i = 0; i < stmt.atomicstmt().VARNAME().size(); i++)
+				result = result.then(new UseDef(NanoPromelaStatements.identifiers(stmt.atomicstmt().intexpr(i)),
+						Set.of(stmt.atomicstmt().VARNAME(i).getText())));
+			return result;
+		}
+		if (stmt.chanreadstmt() != null)
+			return new UseDef(Set.of(stmt.chanreadstmt().CHANNAME().getText()), Set.of(stmt.chanreadstmt().VARNAME().getText()));
+		if (stmt.chanwritestmt() != null)
+		{
+			final Set<String> use = new HashSet<>(NanoPromelaStatements.identifiers(stmt.chanwritestmt().intexpr()));
+			use.add(stmt.chanwritestmt().CHANNAME().getText());
+			return new UseDef(use, Collections.emptySet());
+		}
+		if (stmt.ifstmt() != null || stmt.dostmt() != null)
+		{
+			// one option of an if runs, so it writes what all options write;
+			// a do may run none
+			final Set<String> use = new HashSet<>();
+			Set<String> def = null;
+			for (OptionContext option : stmt.ifstmt() != null ? stmt.ifstmt().option() : stmt.dostmt().option())
+			{
+				final UseDef body = analyze(option.stmt());
+				use.addAll(NanoPromelaStatements.identifiers(option.boolexpr()));
+				use.addAll(body.use);
+				if (def == null)
+					def = new HashSet<>(body.def);
+				else
+					def.retainAll(body.def);
+			}
+			return new UseDef(use, stmt.ifstmt() != null && def != null ? def : Collections.emptySet());
+		}
+		return new UseDef(Collections.emptySet(), Collections.emptySet()); // skip
+	}
+
+	/**
+	 * The variables a statement reads before writing them, and those it
+	 * writes on every execution.
+	 */
+	private static final class UseDef
+	{
+		final Set<String> use;
+		final Set<String> def;
+
+		UseDef(Set<String> use, Set<String> def)
+		{
+			this.use = use;
+			this.def = def;
+		}
+
+		/**
+		 * @return The effect of this statement followed by {@code next}.
+		 */
+		UseDef then(UseDef next)
+		{
+			final Set<String> use = new HashSet<>(this.use);
+			next.use.stream().filter(variable -> !def.contains(variable)).forEach(use::add);
+			final Set<String> def = new HashSet<>(this.def);
+			def.addAll(next.def);
+			return new UseDef(use, def);
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package il.ac.bgu.cs.formalmethodsintro.base.verification;
+
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaLexer;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.StmtContext;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ThrowingErrorListener;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Syntactic helpers for the static analyses of program graphs whose actions
+ * and conditions are NanoPromela statements and boolean expressions.
+ */
+final class NanoPromelaStatements
+{
+	private NanoPromelaStatements()
+	{
+	}
+
+	/**
+	 * @return The statement of {@code action}, or {@code null} if it is not a
+	 * NanoPromela statement.
+	 */
+	static StmtContext parse(String action)
+	{
+		if (action.isEmpty())
+			return null;
+		final NanoPromelaLexer lexer = new NanoPromelaLexer(new ANTLRInputStream(action));
+		final NanoPromelaParser parser = new NanoPromelaParser(new CommonTokenStream(lexer));
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(new ThrowingErrorListener());
+		parser.removeErrorListeners();
+		parser.addErrorListener(new ThrowingErrorListener());
+		try
+		{
+			return parser.spec().stmt();
+		} catch (ParseCancellationException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * @return The source text of {@code context}, a part of the parse tree of
+	 * {@code action}.
+	 */
+	static String text(String action, ParserRuleContext context)
+	{
+		return action.substring(context.start.getStartIndex(), context.stop.getStopIndex() + 1);
+	}
+
+	/**
+	 * @return The variable and channel names of a piece of text, parsed or
+	 * not.
+	 */
+	static Set<String> identifiers(String text)
+	{
+		final NanoPromelaLexer lexer = new NanoPromelaLexer(new ANTLRInputStream(text));
+		lexer.removeErrorListeners();
+		return lexer.getAllTokens().stream()
+				.filter(token -> token.getType() == NanoPromelaLexer.VARNAME ||
+				                 token.getType() == NanoPromelaLexer.CHANNAME ||
+				                 token.getType() == NanoPromelaLexer.ZEROCAPACITYCHANNAME)
+				.map(Token::getText)
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * @return The variables a statement may assign, by an assignment or a
+	 * channel read.
+	 */
+	static Set<String> assigned(StmtContext stmt)
+	{
+		final Set<String> result = new HashSet<>();
+		final Deque<ParseTree> toVisit = new ArrayDeque<>(List.of(stmt));
+		while (!toVisit.isEmpty())
+		{
+			final ParseTree node = toVisit.pop();
+			if (node instanceof NanoPromelaParser.AssstmtContext)
+				result.add(((NanoPromelaParser.AssstmtContext) node).VARNAME().getText());
+			else if (node instanceof NanoPromelaParser.AtomicstmtContext)
+				((NanoPromelaParser.AtomicstmtContext) node).VARNAME().forEach(variable -> result.add(variable.getText()));
+			else if (node instanceof NanoPromelaParser.ChanreadstmtContext)
+				result.add(((NanoPromelaParser.ChanreadstmtContext) node).VARNAME().getText());
+			else
+				for (int i = 0; i < node.getChildCount(); i++)
+					toVisit.push(node.getChild(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return Whether {@code stmt} is straight-line code: assignments, skips
+	 * and channel operations, in sequence. The evaluator of NanoPromela
+	 * actions runs these, and not conditionals or loops.
+	 */
+	static boolean isStraightLine(StmtContext stmt)
+	{
+		if (stmt.stmt().size() == 2)
+			return isStraightLine(stmt.stmt(0)) && isStraightLine(stmt.stmt(1));
+		return stmt.assstmt() != null || stmt.atomicstmt() != null || stmt.skipstmt() != null ||
+		       stmt.chanreadstmt() != null || stmt.chanwritestmt() != null;
+	}
+
+	/**
+	 * @return The variable and channel names of a parse tree.
+	 */
+	static Set<String> identifiers(ParseTree tree)
+	{
+		final Set<String> result = new HashSet<>();
+		final Deque<ParseTree> toVisit = new ArrayDeque<>(List.of(tree));
+		while (!toVisit.isEmpty())
+		{
+			final ParseTree node = toVisit.pop();
+			if (node instanceof TerminalNode)
+			{
+				final int type = ((TerminalNode) node).getSymbol().getType();
+				if (type == NanoPromelaLexer.VARNAME || type == NanoPromelaLexer.CHANNAME)
+					result.add(node.getText());
+			} else
+				for (int i = 0; i < node.getChildCount(); i++)
+					toVisit.push(node.getChild(i));
+		}
+		return result;
+	}
+}
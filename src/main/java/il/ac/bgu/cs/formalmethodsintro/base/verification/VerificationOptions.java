@@ -0,0 +1,258 @@
+package il.ac.bgu.cs.formalmethodsintro.base.verification;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tuning knobs for the verification algorithms of the facade, and the
+ * statistics they report back. Options are set fluently:
+ * <pre>{@code
+ * VerificationOptions options = new VerificationOptions().reduceAutomaton(false);
+ * fvm.verifyAnOmegaRegularProperty(ts, aut, options);
+ * options.getStatistics().get(VerificationOptions.AUTOMATON_STATES_BEFORE);
+ * }</pre>
+ * An instance collects the statistics of the runs it is passed to, so it
+ * should not be shared between concurrent runs.
+ */
+public class VerificationOptions
+{
+	/**
+	 * Number of states of the property automaton, as given.
+	 */
+	public static final String AUTOMATON_STATES_BEFORE = "automaton.states.before";
+
+	/**
+	 * Number of states of the property automaton after reduction.
+	 */
+	public static final String AUTOMATON_STATES_AFTER = "automaton.states.after";
+
+	/**
+	 * Nanoseconds spent shortening a counterexample.
+	 */
+	public static final String COUNTEREXAMPLE_SHORTENING_NANOS = "counterexample.shortening.nanos";
+
+	/**
+	 * Number of states visited by an on-the-fly search.
+	 */
+	public static final String STATES_VISITED = "states.visited";
+
+	/**
+	 * Number of states of the transition system, as given.
+	 */
+	public static final String SYSTEM_STATES_BEFORE = "system.states.before";
+
+	/**
+	 * Number of states of the transition system after stutter reduction.
+	 */
+	public static final String SYSTEM_STATES_AFTER = "system.states.after";
+
+	/**
+	 * Number of variables (or circuit inputs, registers and outputs) outside
+	 * the cone of influence of the property.
+	 */
+	public static final String CONE_ELIMINATED = "cone.eliminated";
+
+	/**
+	 * Number of reachable states of a program graph (or channel system),
+	 * without resetting dead variables or merging locations. Reported only
+	 * if {@link #measureUnreduced(boolean)} is set.
+	 */
+	public static final String PROGRAM_STATES_BEFORE = "program.states.before";
+
+	/**
+	 * Number of reachable states of a program graph (or channel system), with
+	 * dead variables reset or locations merged, as requested.
+	 */
+	public static final String PROGRAM_STATES_AFTER = "program.states.after";
+
+	/**
+	 * Number of program graph locations merged away by large-block encoding.
+	 */
+	public static final String BLOCKS_MERGED = "blocks.merged";
+
+	private boolean reduceAutomaton = true;
+	private boolean shortestCounterexample = false;
+	private boolean stutterReduction = false;
+	private boolean resetDeadVariables = false;
+	private boolean largeBlockEncoding = false;
+	private boolean measureUnreduced = false;
+	private boolean parallel = false;
+	private int bitstateLog2Bits = 0;
+	private final Map<String, Number> statistics = new LinkedHashMap<>();
+
+	/**
+	 * @param reduceAutomaton Whether to reduce the property automaton before
+	 *                        building the product. On by default.
+	 * @return This object.
+	 * @see il.ac.bgu.cs.formalmethodsintro.base.automata.AutomatonReduction
+	 */
+	public VerificationOptions reduceAutomaton(boolean reduceAutomaton)
+	{
+		this.reduceAutomaton = reduceAutomaton;
+		return this;
+	}
+
+	public boolean isReduceAutomaton()
+	{
+		return reduceAutomaton;
+	}
+
+	/**
+	 * @param shortestCounterexample Whether to replace the counterexample
+	 *                               found by the search with a shortest
+	 *                               prefix and a shortest cycle through the
+	 *                               same accepting state. Off by default.
+	 * @return This object.
+	 */
+	public VerificationOptions shortestCounterexample(boolean shortestCounterexample)
+	{
+		this.shortestCounterexample = shortestCounterexample;
+		return this;
+	}
+
+	public boolean isShortestCounterexample()
+	{
+		return shortestCounterexample;
+	}
+
+	/**
+	 * @param stutterReduction Whether to replace the transition system by its
+	 *                         quotient under divergence-sensitive stutter
+	 *                         bisimulation before building the product. Only
+	 *                         sound for properties that are invariant under
+	 *                         stuttering, such as {@code LTL} formulas without
+	 *                         next; LTL verification applies it to such
+	 *                         formulas only. Off by default.
+	 * @return This object.
+	 * @see il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.StutterQuotient
+	 */
+	public VerificationOptions stutterReduction(boolean stutterReduction)
+	{
+		this.stutterReduction = stutterReduction;
+		return this;
+	}
+
+	public boolean isStutterReduction()
+	{
+		return stutterReduction;
+	}
+
+	/**
+	 * @param resetDeadVariables Whether program graph exploration resets the
+	 *                           variables that are dead at the location of a
+	 *                           state, merging the states that differ only
+	 *                           in them. Off by default.
+	 * @return This object.
+	 * @see il.ac.bgu.cs.formalmethodsintro.base.verification.LiveVariables
+	 */
+	public VerificationOptions resetDeadVariables(boolean resetDeadVariables)
+	{
+		this.resetDeadVariables = resetDeadVariables;
+		return this;
+	}
+
+	public boolean isResetDeadVariables()
+	{
+		return resetDeadVariables;
+	}
+
+	/**
+	 * @param largeBlockEncoding Whether program graph exploration first merges
+	 *                           chains of local, unconditional steps into
+	 *                           single transitions. Only sound for properties
+	 *                           that are invariant under stuttering. Off by
+	 *                           default.
+	 * @return This object.
+	 * @see il.ac.bgu.cs.formalmethodsintro.base.verification.LargeBlockEncoding
+	 */
+	public VerificationOptions largeBlockEncoding(boolean largeBlockEncoding)
+	{
+		this.largeBlockEncoding = largeBlockEncoding;
+		return this;
+	}
+
+	public boolean isLargeBlockEncoding()
+	{
+		return largeBlockEncoding;
+	}
+
+	/**
+	 * @param measureUnreduced Whether a reduced program graph (or channel
+	 *                         system) exploration also explores the
+	 *                         unreduced one, to report {@link #PROGRAM_STATES_BEFORE}. That
+	 *                         second exploration costs more than the
+	 *                         reduction saves, so it is meant for measuring
+	 *                         only. Off by default.
+	 * @return This object.
+	 */
+	public VerificationOptions measureUnreduced(boolean measureUnreduced)
+	{
+		this.measureUnreduced = measureUnreduced;
+		return this;
+	}
+
+	public boolean isMeasureUnreduced()
+	{
+		return measureUnreduced;
+	}
+
+	/**
+	 * @param parallel Whether on-the-fly searches may expand states in
+	 *                 parallel. Off by default.
+	 * @return This object.
+	 * @see il.ac.bgu.cs.formalmethodsintro.base.verification.InvariantChecker
+	 */
+	public VerificationOptions parallel(boolean parallel)
+	{
+		this.parallel = parallel;
+		return this;
+	}
+
+	public boolean isParallel()
+	{
+		return parallel;
+	}
+
+	/**
+	 * @param log2Bits {@code 0} to remember visited states exactly (the
+	 *                 default), or the size, as a power of 2 between
+	 *                 {@code 6} and {@code 36}, of the bit array used for
+	 *                 bitstate hashing: at most {@code 2^30} words of 64
+	 *                 bits, the largest power of 2 a Java array holds.
+	 * @throws IllegalArgumentException If {@code log2Bits} is out of range.
+	 * @return This object.
+	 * @see il.ac.bgu.cs.formalmethodsintro.base.verification.InvariantChecker
+	 */
+	public VerificationOptions bitstate(int log2Bits)
+	{
+		if (log2Bits != 0 && (log2Bits < 6 || log2Bits > 36))
+			throw new IllegalArgumentException("Unsupported bitstate size: 2^" + log2Bits);
+		this.bitstateLog2Bits = log2Bits;
+		return this;
+	}
+
+	public int getBitstateLog2Bits()
+	{
+		return bitstateLog2Bits;
+	}
+
+	/**
+	 * Records a statistic, replacing a previous value of the same name.
+	 *
+	 * @param name  Name of the statistic.
+	 * @param value Its value.
+	 */
+	public void report(String name, Number value)
+	{
+		statistics.put(name, value);
+	}
+
+	/**
+	 * @return The statistics reported so far, by name, in reporting order.
+	 */
+	public Map<String, Number> getStatistics()
+	{
+		return Collections.unmodifiableMap(statistics);
+	}
+}
@@ -0,0 +1,120 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.AigCircuit;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.AigerReader;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AigerReaderTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	static AigCircuit read(String aiger) throws IOException
+	{
+		return AigerReader.read(new ByteArrayInputStream(aiger.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	static AigCircuit read(byte[] aiger) throws IOException
+	{
+		return AigerReader.read(new ByteArrayInputStream(aiger));
+	}
+
+	/**
+	 * The half adder of the AIGER documentation, with its gates out of order.
+	 */
+	static final String HALF_ADDER = "aag 7 2 0 2 3\n2\n4\n6\n12\n6 13 15\n12 2 4\n14 3 5\ni0 x\ni1 y\no0 s\no1 c\nc\nhalf adder\n";
+
+	@Test
+	public void halfAdder() throws IOException
+	{
+		AigCircuit circuit = read(HALF_ADDER);
+		assertEquals(List.of("x", "y"), List.copyOf(circuit.getInputPortNames()));
+		assertEquals(List.of("s", "c"), List.copyOf(circuit.getOutputPortNames()));
+		for (boolean x : new boolean[]{false, true})
+			for (boolean y : new boolean[]{false, true})
+			{
+				assertEquals(Map.of("s", x ^ y, "c", x && y), circuit.computeOutputs(Map.of("x", x, "y", y), Map.of()));
+				assertArrayEquals(new boolean[]{x ^ y, x && y}, circuit.computeOutputs(new boolean[]{x, y}, new boolean[0]));
+			}
+	}
+
+	@Test
+	public void binaryMatchesAscii() throws IOException
+	{
+		// the same half adder, renumbered: 6 = x & y, 8 = !x & !y, 10 = !6 & !8
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		binary.writeBytes("aig 5 2 0 2 3\n10\n6\n".getBytes(StandardCharsets.UTF_8));
+		binary.writeBytes(new byte[]{2, 2, 3, 2, 1, 2});
+		binary.writeBytes("i0 x\ni1 y\no0 s\no1 c\n".getBytes(StandardCharsets.UTF_8));
+		AigCircuit circuit = read(binary.toByteArray());
+		AigCircuit ascii = read(HALF_ADDER);
+		for (boolean x : new boolean[]{false, true})
+			for (boolean y : new boolean[]{false, true})
+				assertEquals(ascii.computeOutputs(Map.of("x", x, "y", y), Map.of()),
+						circuit.computeOutputs(Map.of("x", x, "y", y), Map.of()));
+
+		// deltas of more than 7 bits take several bytes: 402 = 400 & 2
+		binary = new ByteArrayOutputStream();
+		binary.writeBytes("aig 201 200 0 1 1\n402\n".getBytes(StandardCharsets.UTF_8));
+		binary.writeBytes(new byte[]{2, (byte) 0x8e, 0x03});
+		circuit = read(binary.toByteArray());
+		assertEquals(Set.of("i0", "i199"), circuit.getSupport("o0"));
+	}
+
+	@Test
+	public void toggle() throws Exception
+	{
+		// a register that toggles, and outputs its value and its negation
+		AigCircuit circuit = read("aag 1 0 1 2 0\n2 3\n2\n3\n");
+		assertEquals(Set.of("l0"), circuit.getRegisterNames());
+		assertEquals(Set.of("l0"), circuit.getSupport("l0"));
+		assertEquals(Set.of("l0"), circuit.getSupport("o1"));
+
+		TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, String> ts =
+				fvmFacadeImpl.transitionSystemFromCircuit(circuit);
+		assertEquals(2, ts.getStates().size());
+		assertEquals(2, ts.getTransitions().size());
+
+		// a toggle l0 next to a register l1 sampling the input i0: the
+		// structural support drives the cone of influence
+		AigCircuit two = read("aag 3 1 2 1 0\n2\n4 5\n6 2\n4\n");
+		assertEquals(Set.of("i0"), two.getSupport("l1"));
+		VerificationOptions options = new VerificationOptions();
+		assertEquals(2, fvmFacadeImpl.transitionSystemFromCircuit(two, Set.of("o0"), options).getStates().size());
+		assertEquals(8, fvmFacadeImpl.transitionSystemFromCircuit(two).getStates().size());
+	}
+
+	@Test
+	public void invalid()
+	{
+		for (String aiger : List.of(
+				"aig 1 0 1 2 0\n3 1\n2\n3\n",          // not reset to 0
+				"aag 3 1 0 1 2\n2\n4\n4 6 2\n6 4 2\n",  // cyclic
+				"aag 2 1 0 1 0\n2\n4\n",                // undefined
+				"aag 1 1 0 1 0\n2\n2\ni1 x\n",          // no such input
+				"agg 0 0 0 0 0\n"))
+			try
+			{
+				read(aiger);
+				fail(aiger);
+			} catch (IOException e)
+			{
+				// expected
+			}
+	}
+}
@@ -0,0 +1,128 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.automata.Automaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.AutomatonReduction;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.BuchiInclusion;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.AP;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationFailed;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AutomatonReductionTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	AP<String> p = new AP<>("p");
+	AP<String> q = new AP<>("q");
+
+	LTL<String> eventually(LTL<String> ltl)
+	{
+		return until(true_(), ltl);
+	}
+
+	LTL<String> always(LTL<String> ltl)
+	{
+		return not(eventually(not(ltl)));
+	}
+
+	@Test(timeout = 10000)
+	public void reductionPreservesLanguage()
+	{
+		for (LTL<String> ltl : List.of(until(p, q), always(eventually(p)), eventually(always(p)), not(until(p, next(q)))))
+		{
+			Automaton<?, String> aut = fvmFacadeImpl.LTL2NBA(ltl);
+			Automaton<?, String> reduced = fvmFacadeImpl.reduce(aut);
+
+			assertTrue(reduced.getTransitions().size() <= aut.getTransitions().size());
+			assertTrue(ltl.toString(), BuchiInclusion.areEquivalent(aut, reduced));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void reductionShrinksTranslatedAutomata()
+	{
+		Automaton<?, String> aut = fvmFacadeImpl.LTL2NBA(always(eventually(p)));
+
+		assertTrue(fvmFacadeImpl.reduce(aut).getTransitions().size() < aut.getTransitions().size());
+	}
+
+	@Test(timeout = 10000)
+	public void lazyDegeneralizationLeavesNothingToTrim()
+	{
+		// GNBA2NBA builds only the reachable copies, so G F p no longer
+		// shrinks by trimming: what reduce still merges are the copies of a
+		// state reached by the same transitions
+		Automaton<?, String> aut = fvmFacadeImpl.LTL2NBA(always(eventually(p)));
+
+		assertEquals(aut.getTransitions().size(), AutomatonReduction.trim(aut).getTransitions().size());
+		assertEquals(2, fvmFacadeImpl.reduce(aut).getTransitions().size());
+	}
+
+	@Test(timeout = 10000)
+	public void emptyLanguageReducesToNothing()
+	{
+		Automaton<String, String> aut = new Automaton<>();
+		aut.addTransition("a", Set.of("p"), "b");
+		aut.addTransition("b", Set.of("p"), "a");
+		aut.setInitial("a");
+
+		assertTrue(fvmFacadeImpl.reduce(aut).getTransitions().isEmpty());
+	}
+
+	/**
+	 * s0 -> s1 -> s0, where only s0 is labeled with {@code p}.
+	 */
+	TransitionSystem<String, String, String> ts()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("s0");
+		ts.addTransitionFrom("s0").action("go").to("s1");
+		ts.addTransitionFrom("s1").action("go").to("s0");
+		ts.addAtomicProposition("p");
+		ts.addToLabel("s0", "p");
+		return ts;
+	}
+
+	@Test(timeout = 10000)
+	public void omegaRegularPropertyWithReduction()
+	{
+		VerificationOptions options = new VerificationOptions();
+		VerificationResult<String> holds = fvmFacadeImpl.verifyAnOmegaRegularProperty(ts(), fvmFacadeImpl.LTL2NBA(not(always(eventually(p)))), options);
+
+		assertTrue(holds instanceof VerificationSucceeded);
+		assertTrue(options.getStatistics().get(VerificationOptions.AUTOMATON_STATES_AFTER).intValue()
+				<= options.getStatistics().get(VerificationOptions.AUTOMATON_STATES_BEFORE).intValue());
+
+		for (boolean reduce : new boolean[]{true, false})
+		{
+			VerificationResult<String> fails = fvmFacadeImpl.verifyAnOmegaRegularProperty(ts(), fvmFacadeImpl.LTL2NBA(not(always(p))), new VerificationOptions().reduceAutomaton(reduce));
+
+			assertTrue(fails instanceof VerificationFailed);
+			VerificationFailed<String> failure = (VerificationFailed<String>) fails;
+			assertFalse(failure.getCycle().isEmpty());
+			assertTrue(failure.getCycle().contains("s1"));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void noStatisticsWithoutReduction()
+	{
+		VerificationOptions options = new VerificationOptions().reduceAutomaton(false);
+		fvmFacadeImpl.verifyAnOmegaRegularProperty(ts(), fvmFacadeImpl.LTL2NBA(not(always(eventually(p)))), options);
+
+		assertEquals(0, options.getStatistics().size());
+	}
+}
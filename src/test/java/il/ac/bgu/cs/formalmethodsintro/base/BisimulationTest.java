@@ -0,0 +1,141 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.ctl.CTL;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.BisimulationQuotient;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ctl.CTL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BisimulationTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	/**
+	 * Two copies of a p/q alternation, started from a common initial state,
+	 * and a terminal state reached from one of them.
+	 */
+	TransitionSystem<String, String, String> ts()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("i");
+		ts.addTransitionFrom("i").action("a").to("p1");
+		ts.addTransitionFrom("i").action("b").to("p2");
+		ts.addTransitionFrom("p1").action("a").to("q1");
+		ts.addTransitionFrom("q1").action("a").to("p1");
+		ts.addTransitionFrom("p2").action("b").to("q2");
+		ts.addTransitionFrom("q2").action("b").to("p2");
+		ts.addTransitionFrom("q2").action("b").to("end");
+		ts.addAtomicPropositions("p", "q");
+		ts.addToLabel("p1", "p");
+		ts.addToLabel("p2", "p");
+		ts.addToLabel("q1", "q");
+		ts.addToLabel("q2", "q");
+		ts.addToLabel("end", "q");
+		return ts;
+	}
+
+	@Test
+	public void quotient()
+	{
+		TransitionSystem<String, String, String> ts = ts();
+		BisimulationQuotient<String, String, String> quotient = fvmFacadeImpl.bisimulationQuotient(ts);
+
+		// q2 can stop, q1 cannot: so p1 and p2 are not bisimilar either
+		assertEquals(ts.getStates().size(), quotient.getQuotient().getStates().size());
+
+		ts.removeTransition(ts.getTransitions().stream()
+				.filter(transition -> transition.getTo().equals("end")).findFirst().get());
+		ts.removeState("end");
+		quotient = fvmFacadeImpl.bisimulationQuotient(ts);
+		assertEquals(3, quotient.getQuotient().getStates().size());
+		assertEquals(quotient.getRepresentative("p1"), quotient.getRepresentative("p2"));
+		assertEquals(quotient.getRepresentative("q1"), quotient.getRepresentative("q2"));
+		assertEquals(Set.of(quotient.getRepresentative("i")), quotient.getQuotient().getInitialStates());
+		assertEquals(Set.of("p"), quotient.getQuotient().getLabel(quotient.getRepresentative("p1")));
+
+		CTL<String> alternates = forallAlways(or(and(ap("p"), forallNext(ap("q"))), and(ap("q"), forallNext(ap("p")))));
+		assertTrue(fvmFacadeImpl.satisfiesCTLFormula(ts, forallNext(alternates)));
+		assertTrue(fvmFacadeImpl.satisfiesCTLFormula(quotient.getQuotient(), forallNext(alternates)));
+	}
+
+	@Test
+	public void quotientPreservesCTL()
+	{
+		TransitionSystem<String, String, String> ts = ts();
+		TransitionSystem<String, String, String> quotient = fvmFacadeImpl.bisimulationQuotient(ts).getQuotient();
+
+		List<CTL<String>> formulas = List.of(
+				forallAlways(existsEventually(ap("p"))),
+				existsAlways(existsEventually(ap("p"))),
+				forallNext(existsNext(existsNext(true_()))),
+				existsNext(forallAlways(not(ap("p")))));
+		for (CTL<String> formula : formulas)
+			assertEquals(formula.toString(), fvmFacadeImpl.satisfiesCTLFormula(ts, formula),
+					fvmFacadeImpl.satisfiesCTLFormula(quotient, formula));
+		assertFalse(fvmFacadeImpl.satisfiesCTLFormula(quotient, forallAlways(existsEventually(ap("p")))));
+	}
+
+	@Test
+	public void coarsestBisimulation()
+	{
+		Random random = new Random(11);
+		for (int k = 0; k < 300; k++)
+		{
+			int n = 1 + random.nextInt(14);
+			TransitionSystem<Integer, String, String> ts = new TransitionSystem<>();
+			ts.addAction("a");
+			ts.addAtomicProposition("p");
+			for (int s = 0; s < n; s++)
+			{
+				ts.addState(s);
+				if (random.nextBoolean())
+					ts.addToLabel(s, "p");
+			}
+			for (int s = 0; s < n; s++)
+				for (int t = 0; t < n; t++)
+					if (random.nextInt(5) == 0)
+						ts.addTransitionFrom(s).action("a").to(t);
+
+			BisimulationQuotient<Integer, String, String> quotient = fvmFacadeImpl.bisimulationQuotient(ts);
+			int[] expected = signatureRefinement(ts, n);
+			for (int s = 0; s < n; s++)
+				for (int t = 0; t < n; t++)
+					assertEquals(expected[s] == expected[t],
+							quotient.getRepresentative(s).equals(quotient.getRepresentative(t)));
+		}
+	}
+
+	/**
+	 * The naive fixpoint: a state's next block is determined by its block and
+	 * the set of blocks of its successors.
+	 */
+	private int[] signatureRefinement(TransitionSystem<Integer, String, String> ts, int n)
+	{
+		int[] blocks = new int[n];
+		for (int s = 0; s < n; s++)
+			blocks[s] = ts.getLabel(s).isEmpty() ? 0 : 1;
+		while (true)
+		{
+			Map<List<Object>, Integer> signatures = new HashMap<>();
+			int[] next = new int[n];
+			for (int s = 0; s < n; s++)
+			{
+				int[] current = blocks;
+				List<Object> signature = List.of(current[s],
+						fvmFacadeImpl.post(ts, s).stream().map(t -> current[t]).collect(Collectors.toSet()));
+				next[s] = signatures.computeIfAbsent(signature, key -> signatures.size());
+			}
+			if (signatures.size() == Arrays.stream(blocks).distinct().count())
+				return next;
+			blocks = next;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.AigCircuit;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.AigerReader;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.BitParallelSimulator;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BitParallelSimulatorTest
+{
+
+	/**
+	 * A 3-bit counter b0..b2, counting while the input e is set, and an
+	 * output f set when the counter is full.
+	 */
+	static final String COUNTER = String.join("\n",
+			"aag 17 1 3 1 13", "2", "4 15", "6 23", "8 31", "34",
+			"10 4 3", "12 5 2", "14 11 13", "16 4 2",
+			"18 6 17", "20 7 16", "22 19 21", "24 6 16",
+			"26 8 25", "28 9 24", "30 27 29", "32 4 6", "34 32 8",
+			"i0 e", "l0 b0", "l1 b1", "l2 b2", "o0 f", "");
+
+	static AigCircuit counter() throws IOException
+	{
+		return AigerReader.read(new ByteArrayInputStream(COUNTER.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void lanesMatchTheCircuit() throws IOException
+	{
+		AigCircuit circuit = counter();
+		BitParallelSimulator simulator = new BitParallelSimulator(circuit);
+		Random random = new Random(1);
+		long[] inputs = {random.nextLong()};
+		long[] registers = {random.nextLong(), random.nextLong(), random.nextLong()};
+		long[] next = simulator.step(inputs, registers);
+		long[] outputs = simulator.outputs(inputs, registers);
+
+		for (int lane = 0; lane < BitParallelSimulator.LANES; lane++)
+		{
+			boolean[] laneInputs = bits(inputs, lane);
+			boolean[] laneRegisters = bits(registers, lane);
+			assertArrayEquals(circuit.updateRegisters(laneInputs, laneRegisters), bits(next, lane));
+			assertArrayEquals(circuit.computeOutputs(laneInputs, laneRegisters), bits(outputs, lane));
+		}
+	}
+
+	static boolean[] bits(long[] words, int lane)
+	{
+		boolean[] bits = new boolean[words.length];
+		for (int i = 0; i < words.length; i++)
+			bits[i] = (words[i] >>> lane & 1) != 0;
+		return bits;
+	}
+
+	@Test
+	public void randomSimulationFindsTraces() throws IOException
+	{
+		AigCircuit circuit = counter();
+		BitParallelSimulator simulator = new BitParallelSimulator(circuit);
+
+		// f needs 7 counting steps, so it is never set within 7 cycles
+		assertNull(simulator.findTrace("f", 7, 1024, 1));
+
+		List<Map<String, Boolean>> trace = simulator.findTrace("f", 20, 1024, 1);
+		assertNotNull(trace);
+		assertTrue(trace.size() >= 8);
+
+		// replay the trace on the circuit
+		Map<String, Boolean> registers = new HashMap<>(Map.of("b0", false, "b1", false, "b2", false));
+		for (int cycle = 0; cycle < trace.size() - 1; cycle++)
+		{
+			assertEquals(false, circuit.computeOutputs(trace.get(cycle), registers).get("f"));
+			registers = new HashMap<>(circuit.updateRegisters(trace.get(cycle), registers));
+		}
+		assertEquals(true, circuit.computeOutputs(trace.get(trace.size() - 1), registers).get("f"));
+	}
+}
@@ -0,0 +1,107 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.automata.Automaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.BuchiInclusion;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.MultiColorAutomaton;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.AP;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.*;
+import static il.ac.bgu.cs.formalmethodsintro.base.util.CollectionHelper.set;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BuchiInclusionTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	Set<String> p = set("p");
+	Set<String> notp = set();
+
+	/**
+	 * □◇p: the accepting state is entered on every {@code p}.
+	 */
+	Automaton<String, String> infinitelyOftenP(String prefix)
+	{
+		Automaton<String, String> aut = new Automaton<>();
+		aut.addTransition(prefix + "0", notp, prefix + "0");
+		aut.addTransition(prefix + "0", p, prefix + "1");
+		aut.addTransition(prefix + "1", notp, prefix + "0");
+		aut.addTransition(prefix + "1", p, prefix + "1");
+		aut.setInitial(prefix + "0");
+		aut.setAccepting(prefix + "1");
+		return aut;
+	}
+
+	/**
+	 * ◇□p: guess the point from which {@code p} holds forever.
+	 */
+	Automaton<String, String> eventuallyAlwaysP()
+	{
+		Automaton<String, String> aut = new Automaton<>();
+		aut.addTransition("w", notp, "w");
+		aut.addTransition("w", p, "w");
+		aut.addTransition("w", p, "g");
+		aut.addTransition("g", p, "g");
+		aut.setInitial("w");
+		aut.setAccepting("g");
+		return aut;
+	}
+
+	@Test(timeout = 5000)
+	public void equivalentUpToRenaming() throws Exception
+	{
+		assertTrue(infinitelyOftenP("a").isEquivalentTo(infinitelyOftenP("b")));
+	}
+
+	@Test(timeout = 5000)
+	public void strictInclusion() throws Exception
+	{
+		assertTrue(BuchiInclusion.isIncluded(eventuallyAlwaysP(), infinitelyOftenP("q")));
+		assertFalse(BuchiInclusion.isIncluded(infinitelyOftenP("q"), eventuallyAlwaysP()));
+		assertFalse(eventuallyAlwaysP().isEquivalentTo(infinitelyOftenP("q")));
+	}
+
+	@Test(timeout = 5000)
+	public void noAcceptingStatesIsEmpty()
+	{
+		Automaton<String, String> empty = infinitelyOftenP("e");
+		empty.getAcceptingStates().clear();
+
+		assertTrue(BuchiInclusion.isIncluded(empty, eventuallyAlwaysP()));
+		assertFalse(BuchiInclusion.isIncluded(eventuallyAlwaysP(), empty));
+	}
+
+	@Test(timeout = 5000)
+	public void generalizedAcceptance()
+	{
+		// □◇p ∧ □◇¬p, with one color per conjunct.
+		MultiColorAutomaton<String, String> both = new MultiColorAutomaton<>();
+		for (String from : set("P", "N"))
+		{
+			both.addTransition(from, p, "P");
+			both.addTransition(from, notp, "N");
+		}
+		both.setInitial("P");
+		both.setInitial("N");
+		both.setAccepting("P", 0);
+		both.setAccepting("N", 1);
+
+		assertTrue(BuchiInclusion.isIncluded(both, infinitelyOftenP("q")));
+		assertFalse(BuchiInclusion.isIncluded(infinitelyOftenP("q"), both));
+		assertFalse(BuchiInclusion.isIncluded(eventuallyAlwaysP(), both));
+	}
+
+	@Test(timeout = 5000)
+	public void translatedFormula()
+	{
+		LTL<String> infinitelyOften = not(until(true_(), not(until(true_(), new AP<>("p")))));
+
+		assertTrue(BuchiInclusion.areEquivalent(fvmFacadeImpl.LTL2NBA(infinitelyOften), infinitelyOftenP("q")));
+		assertFalse(BuchiInclusion.areEquivalent(fvmFacadeImpl.LTL2NBA(infinitelyOften), eventuallyAlwaysP()));
+	}
+}
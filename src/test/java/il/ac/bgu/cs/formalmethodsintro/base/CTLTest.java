@@ -0,0 +1,106 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.ctl.CTL;
+import il.ac.bgu.cs.formalmethodsintro.base.ctl.CTLModelChecker;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ctl.CTL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CTLTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	CTL<String> p = ap("p");
+	CTL<String> q = ap("q");
+
+	/**
+	 * s0 -> s1 -> s1, s0 -> s2 -> s0; s1 is labeled with {@code p}, s2 with
+	 * {@code q}.
+	 */
+	TransitionSystem<String, String, String> ts()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("s0");
+		ts.addTransitionFrom("s0").action("a").to("s1");
+		ts.addTransitionFrom("s0").action("a").to("s2");
+		ts.addTransitionFrom("s1").action("a").to("s1");
+		ts.addTransitionFrom("s2").action("a").to("s0");
+		ts.addAtomicPropositions("p", "q");
+		ts.addToLabel("s1", "p");
+		ts.addToLabel("s2", "q");
+		return ts;
+	}
+
+	@Test
+	public void satisfactionSets()
+	{
+		CTLModelChecker<String, String> checker = new CTLModelChecker<>(ts());
+
+		assertEquals(Set.of("s0", "s1"), checker.satisfyingStates(existsNext(p)));
+		assertEquals(Set.of("s1", "s2"), checker.satisfyingStates(forallNext(or(p, not(q)))));
+		assertEquals(Set.of("s0", "s2"), checker.satisfyingStates(existsAlways(not(p))));
+		assertEquals(Set.of("s1"), checker.satisfyingStates(forallEventually(p)));
+		assertEquals(Set.of("s0", "s2"), checker.satisfyingStates(existsUntil(not(p), q)));
+		assertEquals(Set.of("s0", "s1", "s2"), checker.satisfyingStates(existsEventually(p)));
+		assertEquals(Set.of("s1"), checker.satisfyingStates(forallAlways(p)));
+		assertEquals(Set.of("s0", "s1", "s2"), checker.satisfyingStates(forallUntil(true_(), or(p, q))));
+		assertEquals(Set.of("s2"), checker.satisfyingStates(forallUntil(not(p), q)));
+	}
+
+	@Test
+	public void fairness()
+	{
+		// only the paths that end in the s1 loop visit p infinitely often
+		assertFalse(fvmFacadeImpl.satisfiesCTLFormula(ts(), forallEventually(p)));
+		assertTrue(fvmFacadeImpl.satisfiesFairCTLFormula(ts(), List.of(p), forallEventually(p)));
+		assertFalse(fvmFacadeImpl.satisfiesFairCTLFormula(ts(), List.of(p), existsAlways(not(p))));
+		// the s0-s2 loop is fair w.r.t. q, so EX q holds under that fairness
+		assertTrue(fvmFacadeImpl.satisfiesFairCTLFormula(ts(), List.of(q), existsNext(q)));
+		// no path visits both p and q infinitely often
+		assertFalse(fvmFacadeImpl.satisfiesFairCTLFormula(ts(), List.of(p, q), existsNext(true_())));
+	}
+
+	@Test
+	public void existsAlwaysIsTheGreatestFixpoint()
+	{
+		Random random = new Random(7);
+		for (int k = 0; k < 200; k++)
+		{
+			int n = 1 + random.nextInt(12);
+			TransitionSystem<Integer, String, String> ts = new TransitionSystem<>();
+			ts.addAction("a");
+			ts.addAtomicProposition("p");
+			for (int s = 0; s < n; s++)
+			{
+				ts.addState(s);
+				if (random.nextInt(3) > 0)
+					ts.addToLabel(s, "p");
+			}
+			for (int s = 0; s < n; s++)
+				for (int t = 0; t < n; t++)
+					if (random.nextInt(4) == 0)
+						ts.addTransitionFrom(s).action("a").to(t);
+
+			// Z = Sat(p) ∩ Pre(Z), starting from Sat(p)
+			Set<Integer> z = new HashSet<>();
+			for (int s = 0; s < n; s++)
+				if (ts.getLabel(s).contains("p"))
+					z.add(s);
+			boolean changed = true;
+			while (changed)
+				changed = z.removeIf(s -> fvmFacadeImpl.post(ts, s).stream().noneMatch(z::contains));
+
+			assertEquals(z, new CTLModelChecker<>(ts).satisfyingStates(existsAlways(ap("p"))));
+		}
+	}
+}
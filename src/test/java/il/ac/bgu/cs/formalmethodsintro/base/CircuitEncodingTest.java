@@ -0,0 +1,92 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.Circuit;
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.CircuitEncoding;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TSTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CircuitEncodingTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	@Test
+	public void roundTrip()
+	{
+		CircuitEncoding encoding = new CircuitEncoding(new ConeOfInfluenceTest().circuit());
+		Map<String, Boolean> inputs = Map.of("x", true);
+		Map<String, Boolean> registers = Map.of("r1", false, "r2", true);
+		long state = encoding.encode(inputs, registers);
+		assertEquals(new Pair<>(inputs, registers), encoding.decode(state));
+		assertEquals(1L, encoding.inputsOf(state));
+		assertEquals(inputs, encoding.decodeInputs(encoding.inputsOf(state)));
+	}
+
+	@Test
+	public void sameAsMaps() throws Exception
+	{
+		// a circuit computing maps, and one with gates
+		assertSame(new ConeOfInfluenceTest().circuit());
+		assertSame(BitParallelSimulatorTest.counter());
+	}
+
+	void assertSame(Circuit circuit)
+	{
+		CircuitEncoding encoding = new CircuitEncoding(circuit);
+		TransitionSystem<Long, Long, String> packed = fvmFacadeImpl.packedTransitionSystemFromCircuit(encoding);
+		TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, String> ts =
+				fvmFacadeImpl.transitionSystemFromCircuit(circuit);
+
+		assertEquals(ts.getStates(), packed.getStates().stream().map(encoding::decode).collect(Collectors.toSet()));
+		assertEquals(ts.getInitialStates(), packed.getInitialStates().stream().map(encoding::decode).collect(Collectors.toSet()));
+		assertEquals(ts.getActions(), packed.getActions().stream().map(encoding::decodeInputs).collect(Collectors.toSet()));
+		assertEquals(ts.getAtomicPropositions(), packed.getAtomicPropositions());
+		Set<TSTransition<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>>> transitions =
+				packed.getTransitions().stream()
+						.map(t -> new TSTransition<>(encoding.decode(t.getFrom()), encoding.decodeInputs(t.getAction()), encoding.decode(t.getTo())))
+						.collect(Collectors.toSet());
+		assertEquals(ts.getTransitions(), transitions);
+		packed.getStates().forEach(state -> assertEquals(ts.getLabel(encoding.decode(state)), packed.getLabel(state)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooManyOutputs() throws Exception
+	{
+		// one input, and 65 outputs copying it
+		StringBuilder aiger = new StringBuilder("aag 1 1 0 65 0\n2\n");
+		for (int i = 0; i < 65; i++)
+			aiger.append("2\n");
+		new CircuitEncoding(AigerReaderTest.read(aiger.toString()));
+	}
+
+	@Test
+	public void tooManyInputsToEnumerate() throws Exception
+	{
+		for (int inputs : new int[]{31, 64})
+		{
+			// the inputs, and one output copying the first
+			StringBuilder aiger = new StringBuilder("aag " + inputs + " " + inputs + " 0 1 0\n");
+			for (int i = 1; i <= inputs; i++)
+				aiger.append(2 * i).append("\n");
+			aiger.append("2\n");
+			CircuitEncoding encoding = new CircuitEncoding(AigerReaderTest.read(aiger.toString()));
+			try
+			{
+				fvmFacadeImpl.packedTransitionSystemFromCircuit(encoding);
+				fail(inputs + " inputs");
+			} catch (IllegalArgumentException e)
+			{
+				// expected
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.circuits.Circuit;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ActionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ConditionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.ConeOfInfluence;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConeOfInfluenceTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	Set<ActionDef> actionDefs = Set.of(new ParserBasedActDef());
+	Set<ConditionDef> conditionDefs = Set.of(new ParserBasedCondDef());
+
+	/**
+	 * r1 toggles, r2 accumulates the input x (xor), the output y is r1 ∧ r2.
+	 */
+	Circuit circuit()
+	{
+		return new Circuit()
+		{
+			@Override
+			public Set<String> getInputPortNames()
+			{
+				return Set.of("x");
+			}
+
+			@Override
+			public Set<String> getRegisterNames()
+			{
+				return Set.of("r1", "r2");
+			}
+
+			@Override
+			public Set<String> getOutputPortNames()
+			{
+				return Set.of("y");
+			}
+
+			@Override
+			public Set<String> getSupport(String name)
+			{
+				switch (name)
+				{
+					case "r1":
+						return Set.of("r1");
+					case "r2":
+						return Set.of("r2", "x");
+					default:
+						return Set.of("r1", "r2");
+				}
+			}
+
+			@Override
+			public Map<String, Boolean> updateRegisters(Map<String, Boolean> inputs, Map<String, Boolean> registers)
+			{
+				return Map.of("r1", !registers.get("r1"), "r2", registers.get("r2") ^ inputs.get("x"));
+			}
+
+			@Override
+			public Map<String, Boolean> computeOutputs(Map<String, Boolean> inputs, Map<String, Boolean> registers)
+			{
+				return Map.of("y", registers.get("r1") && registers.get("r2"));
+			}
+		};
+	}
+
+	/**
+	 * Counts x up to 3 and back to 0, summing x into y on the way.
+	 */
+	ProgramGraph<String, String> pg()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.createProgramGraph();
+		pg.addTransition(new PGTransition<>("loop", "x < 3", "x := x + 1; y := y + x", "loop"));
+		pg.addTransition(new PGTransition<>("loop", "x >= 3", "atomic {y := 0; x := 0}", "loop"));
+		pg.setInitial("loop", true);
+		pg.addInitalization(List.of("x := 0", "y := 0"));
+		return pg;
+	}
+
+	@Test
+	public void circuitCone()
+	{
+		VerificationOptions options = new VerificationOptions();
+		TransitionSystem<Pair<Map<String, Boolean>, Map<String, Boolean>>, Map<String, Boolean>, String> ts =
+				fvmFacadeImpl.transitionSystemFromCircuit(circuit(), Set.of("r1"), options);
+
+		assertEquals(3L, options.getStatistics().get(VerificationOptions.CONE_ELIMINATED).longValue());
+		assertEquals(Set.of("r1"), ts.getAtomicPropositions());
+		assertEquals(2, ts.getStates().size());
+		assertEquals(8, fvmFacadeImpl.transitionSystemFromCircuit(circuit()).getStates().size());
+
+		// the output needs both registers, hence the input too
+		ConeOfInfluence.reduce(circuit(), Set.of("y"), options);
+		assertEquals(0L, options.getStatistics().get(VerificationOptions.CONE_ELIMINATED).longValue());
+	}
+
+	@Test
+	public void programGraphCone()
+	{
+		VerificationOptions options = new VerificationOptions();
+		ProgramGraph<String, String> reduced = ConeOfInfluence.reduce(pg(), Set.of("x = 3"), options);
+
+		assertEquals(1L, options.getStatistics().get(VerificationOptions.CONE_ELIMINATED).longValue());
+		assertEquals(Set.of("x := x + 1", "atomic {x := 0}"),
+				reduced.getTransitions().stream().map(PGTransition::getAction).collect(Collectors.toSet()));
+		assertEquals(Set.of(List.of("x := 0")), reduced.getInitalizations());
+
+		TransitionSystem<Pair<String, Map<String, Object>>, String, String> ts =
+				fvmFacadeImpl.transitionSystemFromProgramGraph(pg(), actionDefs, conditionDefs, Set.of("x = 3"), options);
+		assertEquals(4, ts.getStates().size());
+		assertTrue(ts.getStates().stream().allMatch(state -> state.getSecond().keySet().equals(Set.of("x"))));
+
+		// y is observed: nothing to eliminate
+		ConeOfInfluence.reduce(pg(), Set.of("y = 6"), options);
+		assertEquals(0L, options.getStatistics().get(VerificationOptions.CONE_ELIMINATED).longValue());
+	}
+}
@@ -0,0 +1,93 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.automata.Automaton;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationFailed;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CounterexampleTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	/**
+	 * i -> x1 -> ... -> x5 -> c0 and i -> c0, then the cycle c0 -> ... -> c5 -> c0.
+	 * Every state is labeled with {@code p}.
+	 */
+	TransitionSystem<String, String, String> ts()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("i");
+		ts.addAtomicProposition("p");
+		String previous = "i";
+		for (int k = 1; k <= 5; k++)
+		{
+			ts.addTransitionFrom(previous).action("go").to("x" + k);
+			previous = "x" + k;
+		}
+		ts.addTransitionFrom(previous).action("go").to("c0");
+		ts.addTransitionFrom("i").action("go").to("c0");
+		for (int k = 0; k < 6; k++)
+			ts.addTransitionFrom("c" + k).action("go").to("c" + (k + 1) % 6);
+		ts.getStates().forEach(s -> ts.addToLabel(s, "p"));
+		return ts;
+	}
+
+	/**
+	 * ◇□p.
+	 */
+	Automaton<String, String> eventuallyAlwaysP()
+	{
+		Automaton<String, String> aut = new Automaton<>();
+		aut.addTransition("w", Set.of(), "w");
+		aut.addTransition("w", Set.of("p"), "w");
+		aut.addTransition("w", Set.of("p"), "g");
+		aut.addTransition("g", Set.of("p"), "g");
+		aut.setInitial("w");
+		aut.setAccepting("g");
+		return aut;
+	}
+
+	@Test(timeout = 10000)
+	public void shortestLasso()
+	{
+		VerificationOptions options = new VerificationOptions().shortestCounterexample(true);
+		VerificationResult<String> result = fvmFacadeImpl.verifyAnOmegaRegularProperty(ts(), eventuallyAlwaysP(), options);
+
+		assertTrue(result instanceof VerificationFailed);
+		VerificationFailed<String> failure = (VerificationFailed<String>) result;
+		assertEquals(6, failure.getCycle().size());
+		assertTrue(failure.getCycle().stream().allMatch(s -> s.startsWith("c")));
+		assertTrue(failure.getPrefix().size() <= 6);
+		assertEquals("i", failure.getPrefix().get(0));
+		assertTrue(failure.getPrefix().stream().noneMatch(s -> s.startsWith("x")));
+		assertTrue(options.getStatistics().containsKey(VerificationOptions.COUNTEREXAMPLE_SHORTENING_NANOS));
+
+		// the lasso is a path of the system
+		TransitionSystem<String, String, String> ts = ts();
+		List<String> path = new ArrayList<>(failure.getPrefix());
+		path.addAll(failure.getCycle());
+		path.add(failure.getCycle().get(0));
+		for (int k = 0; k + 1 < path.size(); k++)
+			assertTrue(fvmFacadeImpl.post(ts, path.get(k)).contains(path.get(k + 1)));
+	}
+
+	@Test(timeout = 10000)
+	public void noShorteningByDefault()
+	{
+		VerificationOptions options = new VerificationOptions();
+		fvmFacadeImpl.verifyAnOmegaRegularProperty(ts(), eventuallyAlwaysP(), options);
+
+		assertFalse(options.getStatistics().containsKey(VerificationOptions.COUNTEREXAMPLE_SHORTENING_NANOS));
+	}
+}
@@ -0,0 +1,95 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.fairness.FairnessCondition;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.AP;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationFailed;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.true_;
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.until;
+import static il.ac.bgu.cs.formalmethodsintro.base.util.CollectionHelper.set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FairnessTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	/**
+	 * s0 -a-> s2 -a-> s0, s2 -c-> s1 -c-> s0, where only s1 is labeled with
+	 * {@code b}. {@code c} is enabled infinitely often, but never continuously.
+	 */
+	TransitionSystem<String, String, String> ts()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("s0");
+		ts.addTransitionFrom("s0").action("a").to("s2");
+		ts.addTransitionFrom("s2").action("a").to("s0");
+		ts.addTransitionFrom("s2").action("c").to("s1");
+		ts.addTransitionFrom("s1").action("c").to("s0");
+		ts.addToLabel("s1", "b");
+		ts.addToLabel("s0", "z");
+		return ts;
+	}
+
+	LTL<String> eventuallyB()
+	{
+		return until(true_(), new AP<>("b"));
+	}
+
+	FairnessCondition<String> fc(Set<Set<String>> unconditional, Set<Set<String>> strong, Set<Set<String>> weak)
+	{
+		return new FairnessCondition<>(unconditional, strong, weak);
+	}
+
+	@Test(timeout = 5000)
+	public void unfairRunViolates()
+	{
+		VerificationResult<String> result = fvmFacadeImpl.verifyFairLTLFormula(ts(), fc(set(), set(), set()), eventuallyB());
+
+		assertTrue(result instanceof VerificationFailed);
+		VerificationFailed<String> failure = (VerificationFailed<String>) result;
+		assertFalse(failure.getCycle().isEmpty());
+		assertFalse(failure.getCycle().contains("s1"));
+		assertTrue(failure.getPrefix().isEmpty() || failure.getPrefix().get(0).equals("s0"));
+	}
+
+	@Test(timeout = 5000)
+	public void strongFairnessForcesC()
+	{
+		VerificationResult<String> result = fvmFacadeImpl.verifyFairLTLFormula(ts(), fc(set(), set(set("c")), set()), eventuallyB());
+
+		assertTrue(result instanceof VerificationSucceeded);
+	}
+
+	@Test(timeout = 5000)
+	public void weakFairnessDoesNotForceC()
+	{
+		VerificationResult<String> result = fvmFacadeImpl.verifyFairLTLFormula(ts(), fc(set(), set(), set(set("c"))), eventuallyB());
+
+		assertTrue(result instanceof VerificationFailed);
+		assertEquals(List.of("s0", "s2"), sorted(((VerificationFailed<String>) result).getCycle()));
+	}
+
+	@Test(timeout = 5000)
+	public void unconditionalFairness()
+	{
+		assertTrue(fvmFacadeImpl.verifyFairLTLFormula(ts(), fc(set(set("c")), set(), set()), eventuallyB()) instanceof VerificationSucceeded);
+		assertTrue(fvmFacadeImpl.verifyFairLTLFormula(ts(), fc(set(set("a")), set(), set()), eventuallyB()) instanceof VerificationFailed);
+	}
+
+	private static List<String> sorted(List<String> states)
+	{
+		return states.stream().sorted().distinct().collect(Collectors.toList());
+	}
+}
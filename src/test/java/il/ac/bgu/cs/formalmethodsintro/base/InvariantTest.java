@@ -0,0 +1,156 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.automata.Automaton;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ActionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ConditionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationFailed;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InvariantTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	Set<ActionDef> actionDefs = Set.of(new ParserBasedActDef());
+	Set<ConditionDef> conditionDefs = Set.of(new ParserBasedCondDef());
+
+	/**
+	 * i -> a1 -> a2 -> a3 -> bad and i -> b1 -> bad.
+	 */
+	TransitionSystem<String, String, String> ts()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("i");
+		ts.addTransitionFrom("i").action("go").to("a1");
+		ts.addTransitionFrom("a1").action("go").to("a2");
+		ts.addTransitionFrom("a2").action("go").to("a3");
+		ts.addTransitionFrom("a3").action("go").to("bad");
+		ts.addTransitionFrom("i").action("go").to("b1");
+		ts.addTransitionFrom("b1").action("go").to("bad");
+		ts.addAtomicProposition("error");
+		ts.addToLabel("bad", "error");
+		return ts;
+	}
+
+	/**
+	 * x := 0, then increment x while x < 10.
+	 */
+	ProgramGraph<String, String> counter()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.createProgramGraph();
+		pg.addTransition(new PGTransition<>("loop", "x < 10", "x := x + 1", "loop"));
+		pg.addTransition(new PGTransition<>("loop", "x >= 10", "", "done"));
+		pg.setInitial("loop", true);
+		pg.addInitalization(List.of("x := 0"));
+		return pg;
+	}
+
+	@Test(timeout = 10000)
+	public void shortestPathToViolation()
+	{
+		VerificationResult<String> result = fvmFacadeImpl.verifyInvariant(ts(), label -> !label.contains("error"));
+
+		assertTrue(result instanceof VerificationFailed);
+		assertEquals(List.of("i", "b1", "bad"), ((VerificationFailed<String>) result).getPrefix());
+		assertTrue(((VerificationFailed<String>) result).getCycle().isEmpty());
+	}
+
+	@Test(timeout = 10000)
+	public void programGraphExploredOnTheFly()
+	{
+		VerificationOptions options = new VerificationOptions();
+		VerificationResult<Pair<String, Map<String, Object>>> result =
+				fvmFacadeImpl.verifyInvariant(counter(), actionDefs, conditionDefs, label -> !label.contains("x = 3"), options);
+
+		assertTrue(result instanceof VerificationFailed);
+		List<Pair<String, Map<String, Object>>> path = ((VerificationFailed<Pair<String, Map<String, Object>>>) result).getPrefix();
+		assertEquals(4, path.size());
+		assertEquals(Map.of("x", 3), path.get(3).getSecond());
+		// the search stops at the violation
+		assertEquals(4L, options.getStatistics().get(VerificationOptions.STATES_VISITED));
+
+		VerificationResult<Pair<String, Map<String, Object>>> holds =
+				fvmFacadeImpl.verifyInvariant(counter(), actionDefs, conditionDefs, label -> !label.contains("x = 11"), options);
+		assertTrue(holds instanceof VerificationSucceeded);
+		assertEquals(fvmFacadeImpl.transitionSystemFromProgramGraph(counter(), actionDefs, conditionDefs).getStates().size(),
+				options.getStatistics().get(VerificationOptions.STATES_VISITED).intValue());
+	}
+
+	@Test(timeout = 10000)
+	public void parallelAndBitstateAgree()
+	{
+		for (VerificationOptions options : List.of(new VerificationOptions().parallel(true),
+				new VerificationOptions().bitstate(20),
+				new VerificationOptions().parallel(true).bitstate(20)))
+		{
+			VerificationResult<String> result = fvmFacadeImpl.verifyInvariant(ts(), label -> !label.contains("error"), options);
+			assertEquals(List.of("i", "b1", "bad"), ((VerificationFailed<String>) result).getPrefix());
+
+			assertTrue(fvmFacadeImpl.verifyInvariant(counter(), actionDefs, conditionDefs, label -> !label.contains("x = 11"), options)
+					instanceof VerificationSucceeded);
+			assertEquals(12L, options.getStatistics().get(VerificationOptions.STATES_VISITED));
+		}
+	}
+
+	@Test
+	public void bitstateSizes()
+	{
+		assertEquals(6, new VerificationOptions().bitstate(6).getBitstateLog2Bits());
+		assertEquals(36, new VerificationOptions().bitstate(36).getBitstateLog2Bits());
+		for (int log2Bits : new int[]{5, 37, 63})
+			try
+			{
+				new VerificationOptions().bitstate(log2Bits);
+				fail("2^" + log2Bits);
+			} catch (IllegalArgumentException e)
+			{
+				// expected
+			}
+	}
+
+	@Test(timeout = 10000)
+	public void regularSafetyProperty()
+	{
+		// bad prefixes: an error after at least three states without errors
+		Automaton<String, String> late = new Automaton<>();
+		late.addTransition("q0", Set.of(), "q1");
+		late.addTransition("q1", Set.of(), "q2");
+		late.addTransition("q2", Set.of(), "q3");
+		late.addTransition("q3", Set.of(), "q3");
+		late.addTransition("q3", Set.of("error"), "bad");
+		late.setInitial("q0");
+		late.setAccepting("bad");
+
+		VerificationResult<String> result = fvmFacadeImpl.verifyRegularSafetyProperty(ts(), late);
+		assertTrue(result instanceof VerificationFailed);
+		assertEquals(List.of("i", "a1", "a2", "a3", "bad"), ((VerificationFailed<String>) result).getPrefix());
+
+		// bad prefixes: two consecutive errors
+		Automaton<String, String> twice = new Automaton<>();
+		twice.addTransition("q0", Set.of(), "q0");
+		twice.addTransition("q0", Set.of("error"), "q1");
+		twice.addTransition("q1", Set.of(), "q0");
+		twice.addTransition("q1", Set.of("error"), "bad");
+		twice.setInitial("q0");
+		twice.setAccepting("bad");
+
+		assertTrue(fvmFacadeImpl.verifyRegularSafetyProperty(ts(), twice) instanceof VerificationSucceeded);
+	}
+}
@@ -1,13 +1,24 @@
 package il.ac.bgu.cs.formalmethodsintro.base;
 
 import il.ac.bgu.cs.formalmethodsintro.base.automata.Automaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.BuchiInclusion;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.MultiColorAutomaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.TransitionBasedAutomaton;
+import il.ac.bgu.cs.formalmethodsintro.base.fairness.FairnessCondition;
 import il.ac.bgu.cs.formalmethodsintro.base.ltl.*;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
 import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationFailed;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
 import org.junit.Test;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.and;
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.not;
 import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.until;
 import static il.ac.bgu.cs.formalmethodsintro.base.util.CollectionHelper.set;
 import static org.junit.Assert.assertEquals;
@@ -317,5 +328,71 @@ public class LTLTest
 		return aut;
 	}
 
+	/**
+	 * Two colors, with state {@code u} unreachable: only the reachable
+	 * {@code ⟨q, c⟩} pairs may be generated.
+	 */
+	@Test
+	public void lazyDegeneralization()
+	{
+		MultiColorAutomaton<String, String> gnba = new MultiColorAutomaton<>();
+		Set<String> p = set("p");
+		Set<String> notp = set();
+		gnba.addTransition("x", p, "y");
+		gnba.addTransition("x", notp, "x");
+		gnba.addTransition("y", notp, "x");
+		gnba.addTransition("u", p, "x");
+		gnba.setInitial("x");
+		gnba.setAccepting("x", 0);
+		gnba.setAccepting("y", 1);
+
+		Automaton<?, String> nba = fvmFacadeImpl.GNBA2NBA(gnba);
+
+		assertEquals(3, nba.getTransitions().size()); // ⟨x, 0⟩, ⟨x, 1⟩, ⟨y, 1⟩
+		assertTrue(nba.getTransitions().keySet().stream().noneMatch(state -> ((Pair<?, ?>) state).getFirst().equals("u")));
+		assertTrue(BuchiInclusion.areEquivalent(gnba, nba));
+	}
+
+	@Test
+	public void transitionBasedAcceptanceAvoidsCopies()
+	{
+		AP<String> p = new AP<>("p");
+		AP<String> q = new AP<>("q");
+		LTL<String> ltl = and(infinitelyOften(p), infinitelyOften(q));
+
+		TransitionBasedAutomaton<?, String> tgba = fvmFacadeImpl.LTL2TGBA(ltl);
 
+		assertEquals(4, tgba.getAcceptanceSets()); // □◇𝜑 ≡ ¬(true U ¬(true U 𝜑))
+		assertTrue(tgba.getTransitions().size() < fvmFacadeImpl.LTL2NBA(ltl).getTransitions().size());
+	}
+
+	/**
+	 * s0 -> s1 -> s2 -> s0 and s0 -> s0, where p holds in s1 and q in s2.
+	 * Unfair runs may stay in s0 forever.
+	 */
+	@Test
+	public void fairVerificationWithSeveralUntils()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("s0");
+		ts.addTransitionFrom("s0").action("stay").to("s0");
+		ts.addTransitionFrom("s0").action("go").to("s1");
+		ts.addTransitionFrom("s1").action("go").to("s2");
+		ts.addTransitionFrom("s2").action("go").to("s0");
+		ts.addToLabel("s1", "p");
+		ts.addToLabel("s2", "q");
+
+		LTL<String> ltl = and(infinitelyOften(new AP<>("p")), infinitelyOften(new AP<>("q")));
+
+		VerificationResult<String> unfair = fvmFacadeImpl.verifyFairLTLFormula(ts, new FairnessCondition<>(set(), set(), set()), ltl);
+		assertTrue(unfair instanceof VerificationFailed);
+		assertEquals(List.of("s0"), ((VerificationFailed<String>) unfair).getCycle());
+
+		assertTrue(fvmFacadeImpl.verifyFairLTLFormula(ts, new FairnessCondition<>(set(), set(set("go")), set()), ltl) instanceof VerificationSucceeded);
+	}
+
+	static <L> LTL<L> infinitelyOften(LTL<L> ltl)
+	{
+		return not(until(LTL.true_(), not(until(LTL.true_(), ltl))));
+	}
 }
@@ -0,0 +1,169 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.channelsystem.ChannelSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.AP;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ActionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ConditionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.LargeBlockEncoding;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LargeBlockEncodingTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	Set<ActionDef> actionDefs = Set.of(new ParserBasedActDef());
+	Set<ConditionDef> conditionDefs = Set.of(new ParserBasedCondDef());
+
+	ProgramGraph<String, String> pg()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.programGraphFromNanoPromelaString(
+				"do :: x < 3 -> x := x + 1; y := x; z := y :: x >= 3 -> x := 0 od");
+		pg.addInitalization(List.of("atomic {x := 0; y := 0; z := 0}"));
+		return pg;
+	}
+
+	@Test
+	public void chainsCollapse()
+	{
+		VerificationOptions options = new VerificationOptions();
+		ProgramGraph<String, String> reduced = LargeBlockEncoding.reduce(pg(), Set.of("x = 3"), options);
+
+		assertEquals(2L, options.getStatistics().get(VerificationOptions.BLOCKS_MERGED).longValue());
+		assertEquals(pg().getLocations().size() - 2, reduced.getLocations().size());
+		assertEquals(Set.of("x:=x+1; y:=x; z:=y", "x:=0"),
+				reduced.getTransitions().stream().map(PGTransition::getAction).collect(Collectors.toSet()));
+
+		// y is observed: its assignment stays a step of its own
+		reduced = LargeBlockEncoding.reduce(pg(), Set.of("y = 3"), options);
+		assertEquals(1L, options.getStatistics().get(VerificationOptions.BLOCKS_MERGED).longValue());
+		assertEquals(Set.of("x:=x+1", "y:=x; z:=y", "x:=0"),
+				reduced.getTransitions().stream().map(PGTransition::getAction).collect(Collectors.toSet()));
+	}
+
+	@Test
+	public void fewerStates()
+	{
+		VerificationOptions options = new VerificationOptions().largeBlockEncoding(true).measureUnreduced(true);
+		TransitionSystem<Pair<String, Map<String, Object>>, String, String> reduced =
+				fvmFacadeImpl.transitionSystemFromProgramGraph(pg(), actionDefs, conditionDefs, Set.of("x = 3"), options);
+		TransitionSystem<Pair<String, Map<String, Object>>, String, String> full =
+				fvmFacadeImpl.transitionSystemFromProgramGraph(pg(), actionDefs, conditionDefs);
+
+		assertEquals(13, full.getStates().size());
+		// y and z are out of the cone, x takes 0..3 at each of the 3 locations
+		// of the loop body, and only at the head once merged
+		assertEquals(4, reduced.getStates().size());
+		assertEquals(10L, options.getStatistics().get(VerificationOptions.PROGRAM_STATES_BEFORE).longValue());
+		assertEquals(4L, options.getStatistics().get(VerificationOptions.PROGRAM_STATES_AFTER).longValue());
+
+		LTL<String> infinitelyOften3 = not(until(true_(), not(until(true_(), new AP<>("x = 3")))));
+		assertTrue(fvmFacadeImpl.verifyLTLFormula(full, infinitelyOften3) instanceof VerificationSucceeded);
+		assertTrue(fvmFacadeImpl.verifyLTLFormula(reduced, infinitelyOften3) instanceof VerificationSucceeded);
+	}
+
+	/**
+	 * A producer computes b from a and hands it over; the consumer stores it
+	 * in w, adding {@code a} if asked to.
+	 */
+	ChannelSystem<String, String> cs(boolean shared)
+	{
+		ProgramGraph<String, String> producer = fvmFacadeImpl.createProgramGraph();
+		producer.addTransition(new PGTransition<>("p0", "", "a := (a + 1) % 2", "p1"));
+		producer.addTransition(new PGTransition<>("p1", "", "b := a", "p2"));
+		producer.addTransition(new PGTransition<>("p2", "", "_c!b", "p0"));
+		producer.setInitial("p0", true);
+		producer.addInitalization(List.of("atomic {a := 0; b := 0}"));
+
+		ProgramGraph<String, String> consumer = fvmFacadeImpl.createProgramGraph();
+		consumer.addTransition(new PGTransition<>("c0", "", "_c?v", "c1"));
+		consumer.addTransition(new PGTransition<>("c1", "", shared ? "w := v + a" : "w := v", "c0"));
+		consumer.setInitial("c0", true);
+		consumer.addInitalization(List.of("atomic {v := 0; w := 0}"));
+
+		return new ChannelSystem<>(List.of(producer, consumer));
+	}
+
+	@Test
+	public void channelSystems()
+	{
+		VerificationOptions options = new VerificationOptions().largeBlockEncoding(true).measureUnreduced(true);
+		TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> ts =
+				fvmFacadeImpl.transitionSystemFromChannelSystem(cs(false), Set.of("w = 1"), options);
+
+		// p1 only; c1 is entered by a handshake
+		assertEquals(1L, options.getStatistics().get(VerificationOptions.BLOCKS_MERGED).longValue());
+		assertTrue(options.getStatistics().get(VerificationOptions.PROGRAM_STATES_AFTER).longValue() <
+		           options.getStatistics().get(VerificationOptions.PROGRAM_STATES_BEFORE).longValue());
+		assertEquals(options.getStatistics().get(VerificationOptions.PROGRAM_STATES_AFTER).longValue(), ts.getStates().size());
+
+		// the unmerged system is explored only when asked to
+		VerificationOptions defaults = new VerificationOptions().largeBlockEncoding(true);
+		fvmFacadeImpl.transitionSystemFromChannelSystem(cs(false), Set.of("w = 1"), defaults);
+		assertEquals(ts.getStates().size(), defaults.getStatistics().get(VerificationOptions.PROGRAM_STATES_AFTER).longValue());
+		assertFalse(defaults.getStatistics().containsKey(VerificationOptions.PROGRAM_STATES_BEFORE));
+
+		// the consumer reads a, so b := a is no longer local
+		LargeBlockEncoding.reduce(cs(true), Set.of("w = 1"), options);
+		assertEquals(0L, options.getStatistics().get(VerificationOptions.BLOCKS_MERGED).longValue());
+	}
+
+	static <S> Set<Object> values(TransitionSystem<Pair<S, Map<String, Object>>, String, String> ts, String variable)
+	{
+		return ts.getStates().stream().map(state -> state.getSecond().get(variable)).collect(Collectors.toSet());
+	}
+
+	@Test
+	public void sameObservableValuations()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.programGraphFromNanoPromelaString("x := 1; y := x + 1; z := y + 1");
+		pg.addInitalization(List.of("atomic {x := 0; y := 0; z := 0}"));
+		VerificationOptions options = new VerificationOptions().largeBlockEncoding(true);
+		TransitionSystem<Pair<String, Map<String, Object>>, String, String> reduced =
+				fvmFacadeImpl.transitionSystemFromProgramGraph(pg, actionDefs, conditionDefs, Set.of("z = 3"), options);
+		TransitionSystem<Pair<String, Map<String, Object>>, String, String> full =
+				fvmFacadeImpl.transitionSystemFromProgramGraph(pg, actionDefs, conditionDefs);
+
+		// x := 1; y := x + 1 is one step, z := y + 1 another
+		assertEquals(1L, options.getStatistics().get(VerificationOptions.BLOCKS_MERGED).longValue());
+		assertEquals(Set.of(0, 3), values(full, "z"));
+		assertEquals(values(full, "z"), values(reduced, "z"));
+		assertTrue(reduced.getStates().size() < full.getStates().size());
+	}
+
+	@Test
+	public void noVariableIsLost()
+	{
+		VerificationOptions options = new VerificationOptions().largeBlockEncoding(true);
+		TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> reduced =
+				fvmFacadeImpl.transitionSystemFromChannelSystem(cs(false), Set.of("w = 1"), options);
+		TransitionSystem<Pair<List<String>, Map<String, Object>>, String, String> full =
+				fvmFacadeImpl.transitionSystemFromChannelSystem(cs(false), Set.of("w = 1"), new VerificationOptions());
+
+		assertEquals(Set.of(0, 1), values(full, "w"));
+		assertEquals(values(full, "w"), values(reduced, "w"));
+		// by an initialization, a merged step or a handshake
+		Stream.of(full, reduced).flatMap(ts -> ts.getStates().stream())
+				.forEach(state -> assertEquals(Set.of("a", "b", "v", "w"), state.getSecond().keySet()));
+	}
+}
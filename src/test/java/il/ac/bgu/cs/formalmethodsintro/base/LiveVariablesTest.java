@@ -0,0 +1,89 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.AP;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ActionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ConditionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.LiveVariables;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LiveVariablesTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	Set<ActionDef> actionDefs = Set.of(new ParserBasedActDef());
+	Set<ConditionDef> conditionDefs = Set.of(new ParserBasedCondDef());
+
+	/**
+	 * Increments x modulo 4 through a temporary, which is only read at l1.
+	 */
+	ProgramGraph<String, String> pg()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.createProgramGraph();
+		pg.addTransition(new PGTransition<>("l0", "", "tmp := x", "l1"));
+		pg.addTransition(new PGTransition<>("l1", "", "x := tmp + 1", "l2"));
+		pg.addTransition(new PGTransition<>("l2", "x >= 3", "x := 0", "l0"));
+		pg.addTransition(new PGTransition<>("l2", "x < 3", "", "l0"));
+		pg.setInitial("l0", true);
+		pg.addInitalization(List.of("atomic {x := 0; tmp := 0}"));
+		return pg;
+	}
+
+	@Test
+	public void liveVariables()
+	{
+		LiveVariables<String> live = LiveVariables.of(pg(), Set.of("x = 3"));
+
+		assertEquals(Set.of("x"), live.getLiveVariables("l0"));
+		assertEquals(Set.of("x", "tmp"), live.getLiveVariables("l1"));
+		assertEquals(Set.of("x"), live.getLiveVariables("l2"));
+		assertEquals(Map.of("x", 2, "tmp", 0), live.canonicalize("l2", Map.of("x", 2, "tmp", 1)));
+		assertEquals(Map.of("x", 2, "tmp", 1), live.canonicalize("l1", Map.of("x", 2, "tmp", 1)));
+
+		// observing tmp keeps it live everywhere
+		assertEquals(Set.of("x", "tmp"), LiveVariables.of(pg(), Set.of("tmp = 1")).getLiveVariables("l0"));
+	}
+
+	@Test
+	public void deadVariablesAreReset()
+	{
+		VerificationOptions options = new VerificationOptions().resetDeadVariables(true).measureUnreduced(true);
+		TransitionSystem<Pair<String, Map<String, Object>>, String, String> reduced =
+				fvmFacadeImpl.transitionSystemFromProgramGraph(pg(), actionDefs, conditionDefs, Set.of("x = 3"), options);
+		TransitionSystem<Pair<String, Map<String, Object>>, String, String> full =
+				fvmFacadeImpl.transitionSystemFromProgramGraph(pg(), actionDefs, conditionDefs);
+
+		assertEquals(10, full.getStates().size());
+		assertEquals(9, reduced.getStates().size());
+		assertEquals(9L, options.getStatistics().get(VerificationOptions.PROGRAM_STATES_AFTER).longValue());
+		assertEquals(10L, options.getStatistics().get(VerificationOptions.PROGRAM_STATES_BEFORE).longValue());
+
+		// the unreduced graph is explored only when asked to
+		options = new VerificationOptions().resetDeadVariables(true);
+		fvmFacadeImpl.transitionSystemFromProgramGraph(pg(), actionDefs, conditionDefs, Set.of("x = 3"), options);
+		assertEquals(9L, options.getStatistics().get(VerificationOptions.PROGRAM_STATES_AFTER).longValue());
+		assertFalse(options.getStatistics().containsKey(VerificationOptions.PROGRAM_STATES_BEFORE));
+
+		LTL<String> infinitelyOften3 = not(until(true_(), not(until(true_(), new AP<>("x = 3")))));
+		assertTrue(fvmFacadeImpl.verifyLTLFormula(full, infinitelyOften3) instanceof VerificationSucceeded);
+		assertTrue(fvmFacadeImpl.verifyLTLFormula(reduced, infinitelyOften3) instanceof VerificationSucceeded);
+	}
+}
@@ -0,0 +1,115 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.CompactProgramGraph;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.Guard;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ActionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ConditionDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedActDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ParserBasedCondDef;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class NanoPromelaCompilerTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	@Test
+	public void loop()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.programGraphFromNanoPromelaString("do :: x < 3 -> x := x + 1; y := x od; z := y");
+
+		String loop = "do::x<3->x:=x+1;y:=xod;z:=y";
+		assertEquals(Set.of(loop), pg.getInitialLocations());
+		assertEquals(Set.of(loop, "y:=x;" + loop, "z:=y", ""), pg.getLocations());
+		assertEquals(Set.of(
+				new PGTransition<>(loop, "x<3", "x:=x+1", "y:=x;" + loop),
+				new PGTransition<>("y:=x;" + loop, "", "y:=x", loop),
+				new PGTransition<>(loop, "x>=3", "", "z:=y"),
+				new PGTransition<>("z:=y", "", "z:=y", "")), pg.getTransitions());
+	}
+
+	@Test
+	public void nestedLoops()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.programGraphFromNanoPromelaString(
+				"do :: x < 3 -> do :: y < 2 -> y := y + 1 od; x := x + 1 od");
+
+		String outer = "do::x<3->do::y<2->y:=y+1od;x:=x+1od";
+		String inner = "do::y<2->y:=y+1od;x:=x+1;" + outer;
+		assertEquals(Set.of(outer, inner, "x:=x+1;" + outer, ""), pg.getLocations());
+		assertEquals(Set.of(
+				new PGTransition<>(outer, "x<3 && y<2", "y:=y+1", inner),
+				new PGTransition<>(outer, "x<3 && y>=2", "", "x:=x+1;" + outer),
+				new PGTransition<>(outer, "x>=3", "", ""),
+				new PGTransition<>(inner, "y<2", "y:=y+1", inner),
+				new PGTransition<>(inner, "y>=2", "", "x:=x+1;" + outer),
+				new PGTransition<>("x:=x+1;" + outer, "", "x:=x+1", outer)), pg.getTransitions());
+	}
+
+	@Test
+	public void guardsAreSimplified()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.programGraphFromNanoPromelaString(
+				"if :: x < 3 -> if :: x < 3 && true -> y := 1 :: x >= 3 -> y := 2 :: 1 > 2 -> y := 3 fi fi");
+
+		assertEquals(Set.of("x<3"), pg.getTransitions().stream().map(PGTransition::getCondition).collect(Collectors.toSet()));
+		assertEquals(Set.of("y:=1"), pg.getTransitions().stream().map(PGTransition::getAction).collect(Collectors.toSet()));
+
+		assertEquals("x<3 && (y>=1 || z==2)", Guard.parse("x < 3 && !(y < 1 && z != 2) && x < 3").toString());
+		assertEquals("", Guard.parse("x < 3 || !(x < 3)").toString());
+		assertEquals(Guard.FALSE, Guard.parse("(x == 1) && !(x == 1)"));
+		assertEquals(null, Guard.parse("x :="));
+	}
+
+	@Test
+	public void compactLocations()
+	{
+		String program = "x := 0;\n" +
+		                 "do :: x < 3 -> x := x + 1\n" +
+		                 "   :: x >= 3 -> x := 0\n" +
+		                 "od";
+		CompactProgramGraph compact = fvmFacadeImpl.compactProgramGraphFromNanoPromelaString(program);
+		ProgramGraph<String, String> pg = fvmFacadeImpl.programGraphFromNanoPromelaString(program);
+
+		assertEquals(pg, compact.toProgramGraph());
+		// the loop cannot be left: x < 3 || x >= 3
+		assertEquals(2, compact.size());
+		assertEquals(Set.of(0), compact.getProgramGraph().getInitialLocations());
+		assertEquals("x:=0;do::x<3->x:=x+1::x>=3->x:=0od", compact.getText(0));
+		assertEquals(1, compact.getLine(0));
+		assertEquals("do::x<3->x:=x+1::x>=3->x:=0od", compact.getText(1));
+		assertEquals(2, compact.getLine(1));
+
+		compact.getProgramGraph().addInitalization(List.of());
+		pg.addInitalization(List.of());
+		Set<ActionDef> actionDefs = Set.of(new ParserBasedActDef());
+		Set<ConditionDef> conditionDefs = Set.of(new ParserBasedCondDef());
+		assertEquals(fvmFacadeImpl.transitionSystemFromProgramGraph(pg, actionDefs, conditionDefs).getStates().size(),
+				fvmFacadeImpl.transitionSystemFromProgramGraph(compact.getProgramGraph(), actionDefs, conditionDefs).getStates().size());
+	}
+
+	@Test(timeout = 10000)
+	public void largePrograms()
+	{
+		StringBuilder sequence = new StringBuilder("x := 0");
+		for (int i = 1; i < 5000; i++)
+			sequence.append("; x := x + ").append(i);
+		ProgramGraph<String, String> pg = fvmFacadeImpl.programGraphFromNanoPromelaString(sequence.toString());
+		assertEquals(5001, pg.getLocations().size());
+		assertEquals(5000, pg.getTransitions().size());
+
+		StringBuilder nested = new StringBuilder("skip");
+		for (int i = 0; i < 300; i++)
+			nested.insert(0, "if :: x > " + i + " -> x := " + i + "; ").append(" fi");
+		pg = fvmFacadeImpl.programGraphFromNanoPromelaString(nested.toString());
+		assertEquals(302, pg.getLocations().size());
+	}
+}
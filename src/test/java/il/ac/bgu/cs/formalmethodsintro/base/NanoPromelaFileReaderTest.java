@@ -0,0 +1,65 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaFileReader;
+import il.ac.bgu.cs.formalmethodsintro.base.nanopromela.NanoPromelaParser.StmtContext;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class NanoPromelaFileReaderTest
+{
+
+	static String program(int statements)
+	{
+		StringBuilder program = new StringBuilder("x := 0");
+		for (int i = 1; i < statements; i++)
+			program.append(i % 10 == 0 ?
+					";\ndo :: x < " + i + " && !(y == x) -> x := x + (y * 2) % 3 :: x >= " + i + " -> skip od" :
+					"; y := x - " + i);
+		return program.toString();
+	}
+
+	@Test
+	public void sources() throws Exception
+	{
+		String program = program(100);
+		StmtContext fromString = NanoPromelaFileReader.pareseNanoPromelaString(program);
+		// the parser is reused, the first tree must not change
+		StmtContext other = NanoPromelaFileReader.pareseNanoPromelaString("skip");
+		assertEquals(program.replaceAll("\\s", ""), fromString.getText());
+		assertEquals("skip", other.getText());
+
+		assertEquals(fromString.getText(), NanoPromelaFileReader.parseNanoPromelaStream(new ByteArrayInputStream(program.getBytes())).getText());
+
+		Path file = Files.createTempFile("program", ".np");
+		try
+		{
+			Files.write(file, program.getBytes());
+			assertEquals(fromString.getText(), NanoPromelaFileReader.pareseNanoPromelaFile(file.toString()).getText());
+		} finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void syntaxErrorsAreRecovered()
+	{
+		// reported on the console, as before, and parsed as far as possible
+		StmtContext stmt = NanoPromelaFileReader.pareseNanoPromelaString("x := 1; y := ; z := 3");
+		assertNotNull(stmt);
+		assertEquals("x:=1", stmt.stmt(0).stmt(0).getText());
+	}
+
+	@Test(timeout = 20000)
+	public void largePrograms()
+	{
+		StmtContext stmt = NanoPromelaFileReader.pareseNanoPromelaString(program(20000));
+		assertEquals(2, stmt.stmt().size());
+	}
+}
@@ -0,0 +1,57 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.util.Util;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class PowerSetTest
+{
+
+	@Test
+	public void grayCodes()
+	{
+		long[] codes = Util.grayCodes(5).toArray();
+		assertEquals(32, codes.length);
+		assertEquals(32, Util.grayCodes(5).distinct().count());
+		assertEquals(0, codes[0]);
+		for (int i = 1; i < codes.length; i++)
+			assertEquals(1L << Long.numberOfTrailingZeros(i), codes[i] ^ codes[i - 1]);
+
+		// split by ranks, evaluated lazily
+		assertEquals(1L << 22, Util.grayCodes(22).parallel().filter(mask -> mask >= 0).count());
+	}
+
+	@Test
+	public void lazyPowerSet()
+	{
+		Set<String> aset = Set.of("a", "b", "c", "d");
+		Set<Set<String>> subsets = Util.lazyPowerSet(aset).collect(Collectors.toSet());
+		assertEquals(16, subsets.size());
+		assertEquals(subsets, Util.powerSet(aset));
+		assertEquals(Set.of(Set.of()), Util.powerSet(Set.of()));
+
+		// one element in or out at each step
+		List<Set<String>> ordered = Util.lazyPowerSet(aset).collect(Collectors.toList());
+		assertEquals(Set.of(), ordered.get(0));
+		for (int i = 1; i < ordered.size(); i++)
+		{
+			Set<String> difference = new HashSet<>(ordered.get(i));
+			difference.addAll(ordered.get(i - 1));
+			difference.removeAll(ordered.get(i).stream().filter(ordered.get(i - 1)::contains).collect(Collectors.toSet()));
+			assertEquals(1, difference.size());
+		}
+
+		// split subsets start from their own masks
+		Set<String> large = IntStream.range(0, 12).mapToObj(i -> "e" + i).collect(Collectors.toSet());
+		assertEquals(Util.lazyPowerSet(large).collect(Collectors.toList()),
+				Util.lazyPowerSet(large).parallel().collect(Collectors.toList()));
+		assertEquals(1 << 12, Util.powerSet(large).size());
+	}
+}
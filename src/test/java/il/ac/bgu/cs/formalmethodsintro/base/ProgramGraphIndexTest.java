@@ -0,0 +1,41 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.PGTransition;
+import il.ac.bgu.cs.formalmethodsintro.base.programgraph.ProgramGraph;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramGraphIndexTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	@Test
+	public void transitionsFromLocations()
+	{
+		ProgramGraph<String, String> pg = fvmFacadeImpl.createProgramGraph();
+		PGTransition<String, String> up = new PGTransition<>("l0", "x < 3", "x := x + 1", "l0");
+		PGTransition<String, String> out = new PGTransition<>("l0", "x >= 3", "", "l1");
+		PGTransition<String, String> back = new PGTransition<>("l1", "", "x := 0", "l0");
+		pg.addTransition(up);
+		pg.addTransition(out);
+		pg.addTransition(back);
+
+		assertEquals(Set.of(up, out), pg.getTransitionsFrom("l0"));
+		assertEquals(Set.of(back), pg.getTransitionsFrom("l1"));
+		assertTrue(pg.getTransitionsFrom("l2").isEmpty());
+
+		pg.removeTransition(out);
+		assertEquals(Set.of(up), pg.getTransitionsFrom("l0"));
+		pg.removeTransition(back);
+		assertTrue(pg.getTransitionsFrom("l1").isEmpty());
+
+		// removing a location keeps its transitions, and so their index entries
+		pg.removeLocation("l0");
+		assertEquals(pg.getTransitions(), pg.getTransitionsFrom("l0"));
+	}
+}
@@ -0,0 +1,149 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.AP;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.StutterQuotient;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationOptions;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StutterTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	/**
+	 * s0 -> s1 -> s2 -> s3 -> s3, where s0..s2 are labeled {@code p} and s3
+	 * {@code q}; d is labeled {@code p}, loops, and can move to s3.
+	 */
+	TransitionSystem<String, String, String> ts()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addInitialState("s0");
+		ts.addTransitionFrom("s0").action("x++").to("s1");
+		ts.addTransitionFrom("s1").action("x++").to("s2");
+		ts.addTransitionFrom("s2").action("done").to("s3");
+		ts.addTransitionFrom("s3").action("idle").to("s3");
+		ts.addTransitionFrom("d").action("wait").to("d");
+		ts.addTransitionFrom("d").action("done").to("s3");
+		ts.addAtomicPropositions("p", "q");
+		ts.addToLabel("s0", "p");
+		ts.addToLabel("s1", "p");
+		ts.addToLabel("s2", "p");
+		ts.addToLabel("d", "p");
+		ts.addToLabel("s3", "q");
+		return ts;
+	}
+
+	@Test
+	public void stutterStepsCollapse()
+	{
+		StutterQuotient<String, String, String> quotient = fvmFacadeImpl.stutterQuotient(ts());
+
+		assertEquals(quotient.getRepresentative("s0"), quotient.getRepresentative("s1"));
+		assertEquals(quotient.getRepresentative("s0"), quotient.getRepresentative("s2"));
+		// d can stay labeled p forever, s0 cannot
+		assertNotEquals(quotient.getRepresentative("s0"), quotient.getRepresentative("d"));
+		assertEquals(3, quotient.getQuotient().getStates().size());
+
+		String s3 = quotient.getRepresentative("s3");
+		String d = quotient.getRepresentative("d");
+		assertEquals(Set.of(s3), fvmFacadeImpl.post(quotient.getQuotient(), quotient.getRepresentative("s0")));
+		assertEquals(Set.of(s3), fvmFacadeImpl.post(quotient.getQuotient(), s3));
+		assertEquals(Set.of(d, s3), fvmFacadeImpl.post(quotient.getQuotient(), d));
+	}
+
+	@Test
+	public void unobservedPropositionsAreStutter()
+	{
+		TransitionSystem<String, String, String> ts = ts();
+		ts.addToLabel("s3", "p");
+		VerificationOptions options = new VerificationOptions().stutterReduction(true);
+
+		assertTrue(fvmFacadeImpl.verifyLTLFormula(ts, always(ap("p")), options) instanceof VerificationSucceeded);
+		assertEquals(5L, options.getStatistics().get(VerificationOptions.SYSTEM_STATES_BEFORE).longValue());
+		// only p is observed, and every state can stay labeled p forever
+		assertEquals(1L, options.getStatistics().get(VerificationOptions.SYSTEM_STATES_AFTER).longValue());
+
+		// with next, the system is not reduced
+		options = new VerificationOptions().stutterReduction(true);
+		assertFalse(fvmFacadeImpl.verifyLTLFormula(ts(), next(next(ap("q"))), options) instanceof VerificationSucceeded);
+		assertFalse(options.getStatistics().containsKey(VerificationOptions.SYSTEM_STATES_AFTER));
+	}
+
+	@Test
+	public void reductionPreservesNextFreeLTL()
+	{
+		Random random = new Random(5);
+		for (int k = 0; k < 150; k++)
+		{
+			int n = 1 + random.nextInt(8);
+			TransitionSystem<Integer, String, String> ts = new TransitionSystem<>();
+			ts.addAction("a");
+			ts.addAtomicPropositions("p", "q");
+			for (int s = 0; s < n; s++)
+			{
+				ts.addState(s);
+				if (random.nextInt(3) == 0)
+					ts.addToLabel(s, "p");
+				if (random.nextInt(4) == 0)
+					ts.addToLabel(s, "q");
+			}
+			ts.addInitialState(0);
+			for (int s = 0; s < n; s++)
+				for (int t = 0; t < n; t++)
+					if (random.nextInt(3) == 0)
+						ts.addTransitionFrom(s).action("a").to(t);
+
+			LTL<String> ltl = randomNextFree(random, 3);
+			boolean expected = fvmFacadeImpl.verifyLTLFormula(ts, ltl) instanceof VerificationSucceeded;
+			boolean reduced = fvmFacadeImpl.verifyLTLFormula(ts, ltl, new VerificationOptions().stutterReduction(true))
+					instanceof VerificationSucceeded;
+			assertEquals(ltl.toString(), expected, reduced);
+		}
+	}
+
+	private static LTL<String> ap(String name)
+	{
+		return new AP<>(name);
+	}
+
+	private static LTL<String> eventually(LTL<String> ltl)
+	{
+		return until(true_(), ltl);
+	}
+
+	private static LTL<String> always(LTL<String> ltl)
+	{
+		return not(eventually(not(ltl)));
+	}
+
+	private LTL<String> randomNextFree(Random random, int depth)
+	{
+		if (depth == 0)
+			return ap(random.nextBoolean() ? "p" : "q");
+		switch (random.nextInt(5))
+		{
+			case 0:
+				return not(randomNextFree(random, depth - 1));
+			case 1:
+				return and(randomNextFree(random, depth - 1), randomNextFree(random, depth - 1));
+			case 2:
+				return until(randomNextFree(random, depth - 1), randomNextFree(random, depth - 1));
+			case 3:
+				return always(randomNextFree(random, depth - 1));
+			default:
+				return eventually(randomNextFree(random, depth - 1));
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package il.ac.bgu.cs.formalmethodsintro.base;
+
+import il.ac.bgu.cs.formalmethodsintro.base.automata.Automaton;
+import il.ac.bgu.cs.formalmethodsintro.base.automata.SymbolicAutomaton;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.AP;
+import il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL;
+import il.ac.bgu.cs.formalmethodsintro.base.transitionsystem.TransitionSystem;
+import il.ac.bgu.cs.formalmethodsintro.base.util.Pair;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationResult;
+import il.ac.bgu.cs.formalmethodsintro.base.verification.VerificationSucceeded;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static il.ac.bgu.cs.formalmethodsintro.base.ltl.LTL.*;
+import static il.ac.bgu.cs.formalmethodsintro.base.util.CollectionHelper.set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SymbolicAutomatonTest
+{
+
+	FvmFacade fvmFacadeImpl = FvmFacade.get();
+
+	@Test
+	public void lettersAreMergedIntoGuards()
+	{
+		// q0 reads anything with p, whatever q and r are
+		Automaton<String, String> aut = new Automaton<>();
+		for (Set<String> rest : List.<Set<String>>of(set(), set("q"), set("r"), set("q", "r")))
+		{
+			Set<String> letter = set("p");
+			letter.addAll(rest);
+			aut.addTransition("q0", letter, "q1");
+			aut.addTransition("q0", rest, "q0");
+		}
+		aut.setInitial("q0");
+		aut.setAccepting("q1");
+
+		SymbolicAutomaton<String, String> symbolic = SymbolicAutomaton.of(aut, List.of("p", "q", "r"));
+
+		assertEquals(2, symbolic.getTransitions().get("q0").size());
+		assertEquals(set("q1"), symbolic.nextStates("q0", symbolic.encode(set("p", "r"))));
+		assertEquals(set("q0"), symbolic.nextStates("q0", symbolic.encode(set("q"))));
+		assertTrue(symbolic.nextStates("q1", symbolic.encode(set("p"))).isEmpty());
+		assertEquals(set("q1"), symbolic.getAcceptingStates(0));
+	}
+
+	@Test
+	public void guardsAreExact()
+	{
+		SymbolicAutomaton<String, String> symbolic = new SymbolicAutomaton<>(List.of("p", "q"));
+		symbolic.addTransition("a", set("p"), "b");
+
+		assertEquals(set("b"), symbolic.nextStates("a", symbolic.encode(set("p"))));
+		assertTrue(symbolic.nextStates("a", symbolic.encode(set("p", "q"))).isEmpty());
+
+		symbolic.addTransition("a", set("p", "q"), "b");
+		assertEquals(1, symbolic.getTransitions().get("a").size());
+		assertEquals(set("b"), symbolic.nextStates("a", symbolic.encode(set("p", "q"))));
+		assertTrue(symbolic.nextStates("a", symbolic.encode(set("q"))).isEmpty());
+	}
+
+	@Test
+	public void productUsesLabelsOfTheSystem()
+	{
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addStates("s0", "s1");
+		ts.addInitialState("s0");
+		ts.addActions("a");
+		ts.addAtomicPropositions("p", "q");
+		ts.addTransitionFrom("s0").action("a").to("s1");
+		ts.addTransitionFrom("s1").action("a").to("s0");
+		ts.addToLabel("s1", "p");
+		ts.addToLabel("s1", "q");
+
+		Automaton<String, String> aut = new Automaton<>();
+		aut.addTransition("q0", set(), "q0");
+		aut.addTransition("q0", set("p", "q"), "q1");
+		aut.addTransition("q1", set(), "q0");
+		aut.setInitial("q0");
+		aut.setAccepting("q1");
+
+		TransitionSystem<Pair<String, String>, String, String> product = fvmFacadeImpl.product(ts, aut);
+
+		assertEquals(set(new Pair<>("s0", "q0")), product.getInitialStates());
+		// only the reachable pairs are built
+		assertEquals(set(new Pair<>("s0", "q0"), new Pair<>("s1", "q1")), product.getStates());
+		assertEquals(2, product.getTransitions().size());
+		assertEquals(product.getStates(), fvmFacadeImpl.reach(product));
+	}
+
+	@Test(timeout = 10000)
+	public void symbolicProductAgreesWithExplicitAutomaton()
+	{
+		// s0 {} -> s1 {p} -> s2 {p, q} -> s0, and s2 -> s2
+		TransitionSystem<String, String, String> ts = new TransitionSystem<>();
+		ts.addStates("s0", "s1", "s2");
+		ts.addInitialState("s0");
+		ts.addActions("a");
+		ts.addAtomicPropositions("p", "q");
+		ts.addTransitionFrom("s0").action("a").to("s1");
+		ts.addTransitionFrom("s1").action("a").to("s2");
+		ts.addTransitionFrom("s2").action("a").to("s0");
+		ts.addTransitionFrom("s2").action("a").to("s2");
+		ts.addToLabel("s1", "p");
+		ts.addToLabel("s2", "p");
+		ts.addToLabel("s2", "q");
+
+		// past 64 propositions, the product reads the explicit letters of the
+		// automaton instead of its guards
+		TransitionSystem<String, String, String> explicit = new TransitionSystem<>();
+		explicit.addAllStates(ts.getStates());
+		ts.getInitialStates().forEach(explicit::addInitialState);
+		explicit.addAllActions(ts.getActions());
+		explicit.addAllAtomicPropositions(ts.getAtomicPropositions());
+		for (int i = 0; i < Long.SIZE; i++)
+			explicit.addAtomicProposition("unused" + i);
+		ts.getStates().forEach(s -> ts.getLabel(s).forEach(p -> explicit.addToLabel(s, p)));
+		ts.getTransitions().forEach(explicit::addTransition);
+
+		// the letters of the automata are over both propositions, as the labels
+		AP<String> p = new AP<>("p");
+		AP<String> q = new AP<>("q");
+		LTL<String> pAndQ = and(p, q);
+		LTL<String> qImpliesP = not(and(q, not(p)));
+		LTL<String> pImpliesQ = not(and(p, not(q)));
+		List<LTL<String>> holding = List.of(always(qImpliesP), always(eventually(pAndQ)), until(not(q), pAndQ),
+				and(next(p), eventually(q)));
+		List<LTL<String>> failing = List.of(always(pImpliesQ), eventually(always(pAndQ)), until(p, q),
+				and(always(p), eventually(q)));
+
+		for (LTL<String> ltl : holding)
+			assertVerdict(true, ts, explicit, ltl);
+		for (LTL<String> ltl : failing)
+			assertVerdict(false, ts, explicit, ltl);
+	}
+
+	LTL<String> eventually(LTL<String> ltl)
+	{
+		return until(true_(), ltl);
+	}
+
+	LTL<String> always(LTL<String> ltl)
+	{
+		return not(eventually(not(ltl)));
+	}
+
+	private void assertVerdict(boolean holds, TransitionSystem<String, String, String> ts,
+	                           TransitionSystem<String, String, String> explicit, LTL<String> ltl)
+	{
+		Automaton<?, String> aut = fvmFacadeImpl.LTL2NBA(not(ltl));
+		VerificationResult<String> symbolic = fvmFacadeImpl.verifyAnOmegaRegularProperty(ts, aut);
+		VerificationResult<String> reference = fvmFacadeImpl.verifyAnOmegaRegularProperty(explicit, aut);
+
+		assertEquals(ltl.toString(), holds, symbolic instanceof VerificationSucceeded);
+		assertEquals(ltl.toString(), holds, reference instanceof VerificationSucceeded);
+	}
+}